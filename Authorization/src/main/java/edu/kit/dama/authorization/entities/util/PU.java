@@ -16,13 +16,23 @@
 package edu.kit.dama.authorization.entities.util;
 
 import edu.kit.dama.util.DataManagerSettings;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
 import javax.persistence.Persistence;
 import javax.persistence.PersistenceException;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Access to the authorization persistence unit. EntityManagerFactories are
+ * created lazily once per persistence unit name and are shared by all callers
+ * until {@link #shutdown()} is called.
  *
  * @author ochsenreither
  */
@@ -30,7 +40,12 @@ public final class PU {
 
     private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(PU.class);
 
-    private static String persistenceUnitName = DataManagerSettings.getSingleton().getStringProperty(DataManagerSettings.PERSISTENCE_AUTHORIZATION_PU_ID, "AuthorizationPU");
+    private static volatile String persistenceUnitName = DataManagerSettings.getSingleton().getStringProperty(DataManagerSettings.PERSISTENCE_AUTHORIZATION_PU_ID, "AuthorizationPU");
+
+    /**
+     * Registry holding one factory per persistence unit name.
+     */
+    private static final Map<String, FactoryHolder> FACTORIES = new ConcurrentHashMap<>();
 
     /**
      * Hidden constructor.
@@ -64,8 +79,90 @@ public final class PU {
      * @return The entity manager.
      */
     public static EntityManager entityManager() {
-        LOGGER.debug("Returning entity manager for persistence unit {}", persistenceUnitName);
-        return Persistence.createEntityManagerFactory(persistenceUnitName).createEntityManager();
+        String unitName = persistenceUnitName;
+        LOGGER.debug("Returning entity manager for persistence unit {}", unitName);
+        FactoryHolder holder = getFactoryHolder(unitName);
+        EntityManager em = holder.factory.createEntityManager();
+        holder.entityManagers.incrementAndGet();
+        return em;
+    }
+
+    /**
+     * Get the shared factory for the provided persistence unit. If there is no
+     * open factory, a new one is created.
+     *
+     * @param unitName The persistence unit name.
+     *
+     * @return The factory holder.
+     */
+    private static FactoryHolder getFactoryHolder(String unitName) {
+        FactoryHolder holder = FACTORIES.get(unitName);
+        if (holder == null || !holder.factory.isOpen()) {
+            synchronized (FACTORIES) {
+                holder = FACTORIES.get(unitName);
+                if (holder == null || !holder.factory.isOpen()) {
+                    LOGGER.debug("Creating EntityManagerFactory for persistence unit {}", unitName);
+                    holder = new FactoryHolder(unitName, Persistence.createEntityManagerFactory(unitName));
+                    FACTORIES.put(unitName, holder);
+                }
+            }
+        }
+        return holder;
+    }
+
+    /**
+     * Close all EntityManagerFactories created for the authorization
+     * persistence unit(s). This method should be called as soon as the
+     * surrounding application is shut down, e.g. on redeployment of a web
+     * application, in order to close all database connections. Subsequent
+     * calls of {@link #entityManager()} will create a new factory.
+     */
+    public static void shutdown() {
+        synchronized (FACTORIES) {
+            for (Entry<String, FactoryHolder> entry : FACTORIES.entrySet()) {
+                try {
+                    LOGGER.debug("Closing EntityManagerFactory for persistence unit {}", entry.getKey());
+                    entry.getValue().factory.close();
+                } catch (IllegalStateException | PersistenceException ex) {
+                    LOGGER.warn("Failed to close EntityManagerFactory for persistence unit " + entry.getKey(), ex);
+                }
+            }
+            FACTORIES.clear();
+        }
+    }
+
+    /**
+     * Check whether the EntityManagerFactory of the currently used persistence
+     * unit can be obtained and whether it is able to create an EntityManager.
+     *
+     * @return TRUE if the persistence unit is usable.
+     */
+    public static boolean isHealthy() {
+        EntityManager em = null;
+        try {
+            em = getFactoryHolder(persistenceUnitName).factory.createEntityManager();
+            return em.isOpen();
+        } catch (IllegalStateException | PersistenceException ex) {
+            LOGGER.warn("Persistence unit " + persistenceUnitName + " is not usable.", ex);
+            return false;
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+        }
+    }
+
+    /**
+     * Get the status of all EntityManagerFactories currently registered.
+     *
+     * @return A list of factory status objects.
+     */
+    public static List<FactoryStatus> getFactoryStatus() {
+        List<FactoryStatus> result = new ArrayList<>();
+        for (FactoryHolder holder : FACTORIES.values()) {
+            result.add(new FactoryStatus(holder.unitName, holder.factory.isOpen(), holder.createdAt, holder.entityManagers.get()));
+        }
+        return result;
     }
 
     /**
@@ -85,4 +182,89 @@ public final class PU {
             em.close();
         }
     }
+
+    /**
+     * Registry entry for one persistence unit.
+     */
+    private static final class FactoryHolder {
+
+        private final String unitName;
+        private final EntityManagerFactory factory;
+        private final long createdAt = System.currentTimeMillis();
+        private final AtomicLong entityManagers = new AtomicLong(0);
+
+        FactoryHolder(String unitName, EntityManagerFactory factory) {
+            this.unitName = unitName;
+            this.factory = factory;
+        }
+    }
+
+    /**
+     * Status of a single EntityManagerFactory.
+     */
+    public static final class FactoryStatus {
+
+        private final String persistenceUnit;
+        private final boolean open;
+        private final long createdAt;
+        private final long entityManagersCreated;
+
+        /**
+         * Default constructor.
+         *
+         * @param persistenceUnit The persistence unit name.
+         * @param open TRUE if the factory is open.
+         * @param createdAt The creation timestamp of the factory.
+         * @param entityManagersCreated The number of EntityManagers created by
+         * the factory.
+         */
+        FactoryStatus(String persistenceUnit, boolean open, long createdAt, long entityManagersCreated) {
+            this.persistenceUnit = persistenceUnit;
+            this.open = open;
+            this.createdAt = createdAt;
+            this.entityManagersCreated = entityManagersCreated;
+        }
+
+        /**
+         * Get the persistence unit name.
+         *
+         * @return The persistence unit name.
+         */
+        public String getPersistenceUnit() {
+            return persistenceUnit;
+        }
+
+        /**
+         * Check whether the factory is open.
+         *
+         * @return TRUE if the factory is open.
+         */
+        public boolean isOpen() {
+            return open;
+        }
+
+        /**
+         * Get the creation timestamp of the factory.
+         *
+         * @return The timestamp in milliseconds.
+         */
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        /**
+         * Get the number of EntityManagers created by the factory.
+         *
+         * @return The number of EntityManagers.
+         */
+        public long getEntityManagersCreated() {
+            return entityManagersCreated;
+        }
+
+        @Override
+        public String toString() {
+            return "FactoryStatus[persistenceUnit=" + persistenceUnit + ", open=" + open + ", createdAt=" + createdAt
+                    + ", entityManagersCreated=" + entityManagersCreated + "]";
+        }
+    }
 }
@@ -35,6 +35,7 @@ import edu.kit.dama.authorization.exceptions.EntityNotFoundException;
 import edu.kit.dama.authorization.exceptions.UnauthorizedAccessAttemptException;
 import edu.kit.dama.authorization.services.administration.IGroupService;
 import edu.kit.dama.authorization.entities.util.PU;
+import edu.kit.dama.authorization.services.base.impl.AuthorizationDecisionCache;
 import edu.kit.dama.util.Constants;
 import java.util.*;
 import javax.persistence.EntityManager;
@@ -168,6 +169,8 @@ public class GroupServiceImpl implements IGroupService {
             LOGGER.debug(" - Removing group");
             em.remove(group);
             em.getTransaction().commit();
+            AuthorizationDecisionCache.getSingleton().invalidateGroup(groupId);
+            AuthorizationDecisionCache.getSingleton().invalidateResource(groupId.getSecurableResourceId());
             LOGGER.debug("Group with id {} successfully removed", groupId);
             result = true;
 
@@ -212,6 +215,7 @@ public class GroupServiceImpl implements IGroupService {
                 group.getMemberships().add(newMembership);
                 LOGGER.debug(" - Committing transaction");
                 em.getTransaction().commit();
+                AuthorizationDecisionCache.getSingleton().invalidateUser(userId);
                 LOGGER.debug("User {} successfully added to group {} with role {}", new Object[]{userId, groupId, role});
             } catch (PersistenceException p) {
                 PU.handleUnexpectedPersistenceExceptionInTransaction(p, em);
@@ -249,6 +253,7 @@ public class GroupServiceImpl implements IGroupService {
             group.getMemberships().remove(membership);
 
             transaction.commit();
+            AuthorizationDecisionCache.getSingleton().invalidateUser(userId);
             LOGGER.debug("User {} successfully removed from group {}", new Object[]{userId, groupId});
         } catch (PersistenceException except) {
             PU.handleUnexpectedPersistenceExceptionInTransaction(except, em);
@@ -329,6 +334,7 @@ public class GroupServiceImpl implements IGroupService {
             LOGGER.debug(" - Current role is: {}. Setting new role {}", new Object[]{oldRole, role});
             membership.setRole(role);
             transaction.commit();
+            AuthorizationDecisionCache.getSingleton().invalidateUser(userId);
             LOGGER.debug("Role of user {} in group {} successfully changed to {}", new Object[]{userId, groupId, role});
         } catch (PersistenceException except) {
             PU.handleUnexpectedPersistenceExceptionInTransaction(except, em);
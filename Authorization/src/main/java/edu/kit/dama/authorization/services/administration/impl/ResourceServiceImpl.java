@@ -39,6 +39,7 @@ import edu.kit.dama.authorization.exceptions.EntityNotFoundException;
 import edu.kit.dama.authorization.exceptions.UnauthorizedAccessAttemptException;
 import edu.kit.dama.authorization.services.administration.IResourceService;
 import edu.kit.dama.authorization.entities.util.PU;
+import edu.kit.dama.authorization.services.base.impl.AuthorizationDecisionCache;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -214,6 +215,7 @@ public class ResourceServiceImpl implements IResourceService {
 
             transaction.commit();
             em.close();
+            AuthorizationDecisionCache.getSingleton().invalidateResource(resourceId);
             LOGGER.debug("Securable resource with resource id {} successfully removed.", resourceId);
         } catch (PersistenceException except) {
             PU.handleUnexpectedPersistenceExceptionInTransaction(except, em);
@@ -292,6 +294,7 @@ public class ResourceServiceImpl implements IResourceService {
             LOGGER.debug(" - Removing reference from group");
             group.getResourceReferences().remove(reference);
             em.getTransaction().commit();
+            AuthorizationDecisionCache.getSingleton().invalidateResource(referenceId.getResourceId());
             LOGGER.debug("Resource reference for reference id {} successfully removed.", referenceId);
         } catch (PersistenceException except) {
             PU.handleUnexpectedPersistenceExceptionInTransaction(except, em);
@@ -323,6 +326,7 @@ public class ResourceServiceImpl implements IResourceService {
 
             transaction.commit();
             em.close();
+            AuthorizationDecisionCache.getSingleton().invalidateResource(referenceId.getResourceId());
             LOGGER.debug("Resource reference restriction for reference id {} successfully changed to role {}.", new Object[]{referenceId, newRoleRestriction});
         } catch (PersistenceException except) {
             PU.handleUnexpectedPersistenceExceptionInTransaction(except, em);
@@ -549,6 +553,7 @@ public class ResourceServiceImpl implements IResourceService {
             }
 
             transaction.commit();
+            AuthorizationDecisionCache.getSingleton().invalidateResource(resourceId);
             if (changed) {
                 LOGGER.debug("Grant successfully changed for resource with id {} for user {} to role {}", new Object[]{resourceId, userId, role});
             } else {
@@ -595,6 +600,7 @@ public class ResourceServiceImpl implements IResourceService {
             }
 
             transaction.commit();
+            AuthorizationDecisionCache.getSingleton().invalidateResource(resourceId);
             LOGGER.debug("Grant for resource with id {} successfully revoked for user {}", new Object[]{resourceId, userId});
         } catch (PersistenceException except) {
             PU.handleUnexpectedPersistenceExceptionInTransaction(except, em);
@@ -637,6 +643,7 @@ public class ResourceServiceImpl implements IResourceService {
                 em.remove(grantSet);
             }
             em.getTransaction().commit();
+            AuthorizationDecisionCache.getSingleton().invalidateResource(resourceId);
             LOGGER.debug("Successfully revoked all grant for resource with id {}.", resourceId);
         } catch (PersistenceException except) {
             PU.handleUnexpectedPersistenceExceptionInTransaction(except, em);
@@ -863,6 +870,7 @@ public class ResourceServiceImpl implements IResourceService {
             LOGGER.debug(" - Changing grant restriction from {} to {}", new Object[]{grantSet.getRoleRestriction(), restriction});
             grantSet.setRoleRestriction(restriction);
             em.getTransaction().commit();
+            AuthorizationDecisionCache.getSingleton().invalidateResource(resourceId);
             LOGGER.debug("Grantrestriction for resource id {} successfully changed to role {}", new Object[]{resourceId, restriction});
         } catch (PersistenceException except) {
             PU.handleUnexpectedPersistenceExceptionInTransaction(except, em);
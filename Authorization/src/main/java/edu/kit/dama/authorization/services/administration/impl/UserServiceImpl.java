@@ -28,6 +28,7 @@ import edu.kit.dama.authorization.exceptions.EntityNotFoundException;
 import edu.kit.dama.authorization.exceptions.UnauthorizedAccessAttemptException;
 import edu.kit.dama.authorization.services.administration.IUserService;
 import edu.kit.dama.authorization.entities.util.PU;
+import edu.kit.dama.authorization.services.base.impl.AuthorizationDecisionCache;
 import edu.kit.dama.util.Constants;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityTransaction;
@@ -119,6 +120,7 @@ public class UserServiceImpl implements IUserService {
             LOGGER.debug(" - Merging user to database");
             em.merge(user);
             transaction.commit();
+            AuthorizationDecisionCache.getSingleton().invalidateUser(userId);
             LOGGER.debug("Role restriction for user {} successfully set to role {}", new Object[]{userId, maximumRole});
         } catch (PersistenceException except) {
             PU.handleUnexpectedPersistenceExceptionInTransaction(except, em);
@@ -22,6 +22,7 @@ import edu.kit.dama.authorization.entities.SecurableResourceId;
 import edu.kit.dama.authorization.entities.Role;
 import edu.kit.dama.authorization.exceptions.EntityNotFoundException;
 import edu.kit.dama.authorization.exceptions.UnauthorizedAccessAttemptException;
+import edu.kit.dama.authorization.services.base.impl.AuthorizationDecisionCache;
 import edu.kit.dama.authorization.services.base.impl.PlainAuthorizerImpl;
 import java.util.Collection;
 import java.util.List;
@@ -140,4 +141,24 @@ public final class PlainAuthorizerLocal {
     LOGGER.debug("Filtering successful. Result: {}", resourcesToFilter);
   }
 
+  /**
+   * Get the statistics of the authorization decision cache, e.g. to check
+   * the hit ratio of cached authorization decisions.
+   *
+   * @return The current cache statistics.
+   */
+  public static AuthorizationDecisionCache.Statistics getDecisionCacheStatistics() {
+    return AuthorizationDecisionCache.getSingleton().getStatistics();
+  }
+
+  /**
+   * Remove all cached authorization decisions. This method has to be called
+   * if authorization entities were modified without using the authorization
+   * services, e.g. directly in the database.
+   */
+  public static void invalidateDecisionCache() {
+    LOGGER.debug("Invalidating authorization decision cache.");
+    AuthorizationDecisionCache.getSingleton().invalidateAll();
+  }
+
 }
@@ -0,0 +1,518 @@
+/**
+ * Copyright (C) 2014 Karlsruhe Institute of Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package edu.kit.dama.authorization.services.base.impl;
+
+import edu.kit.dama.authorization.entities.GroupId;
+import edu.kit.dama.authorization.entities.Role;
+import edu.kit.dama.authorization.entities.SecurableResourceId;
+import edu.kit.dama.authorization.entities.UserId;
+import edu.kit.dama.util.DataManagerSettings;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded, time-limited cache for positive authorization decisions of
+ * {@link PlainAuthorizerImpl}. Entries are keyed by userId, groupId, the
+ * (optional) resource id and the required role. Only successful authorizations
+ * are cached, denied requests are always evaluated against the database.
+ *
+ * The cache is configured via the datamanager.xml settings
+ * {@link DataManagerSettings#AUTHORIZATION_DECISION_CACHE_ENABLED},
+ * {@link DataManagerSettings#AUTHORIZATION_DECISION_CACHE_MAX_ENTRIES} and
+ * {@link DataManagerSettings#AUTHORIZATION_DECISION_CACHE_TTL}. Administration
+ * services have to invalidate affected entries as soon as memberships, roles,
+ * references or grants are modified.
+ *
+ * As an authorization may read the database before a concurrent modification
+ * is committed and may store its decision after the according invalidation,
+ * each invalidation increments a generation counter. Callers obtain the
+ * current generation via {@link #getGeneration()} before reading the database
+ * and pass it to
+ * {@link #granted(UserId, GroupId, SecurableResourceId, Role, long)}. If any
+ * invalidation has happened in between, the decision is not cached.
+ *
+ * @author jejkal
+ */
+public final class AuthorizationDecisionCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuthorizationDecisionCache.class);
+
+    /**
+     * Default max. number of cached decisions.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    /**
+     * Default time to live of a cached decision in seconds.
+     */
+    public static final long DEFAULT_TTL_SECONDS = 60;
+
+    private static final AuthorizationDecisionCache SINGLETON = new AuthorizationDecisionCache();
+
+    private final Map<DecisionKey, Long> decisions;
+    private volatile boolean enabled;
+    private volatile int maxEntries;
+    private volatile long ttlMillis;
+    /**
+     * Incremented by each invalidation, only modified while holding the lock.
+     */
+    private volatile long generation = 0;
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+    private final AtomicLong expirations = new AtomicLong(0);
+    private final AtomicLong invalidations = new AtomicLong(0);
+
+    /**
+     * Hidden constructor.
+     */
+    private AuthorizationDecisionCache() {
+        DataManagerSettings settings = DataManagerSettings.getSingleton();
+        enabled = settings.getBooleanProperty(DataManagerSettings.AUTHORIZATION_DECISION_CACHE_ENABLED, true);
+        maxEntries = Math.max(1, settings.getIntProperty(DataManagerSettings.AUTHORIZATION_DECISION_CACHE_MAX_ENTRIES, DEFAULT_MAX_ENTRIES));
+        ttlMillis = Math.max(0, settings.getLongProperty(DataManagerSettings.AUTHORIZATION_DECISION_CACHE_TTL, DEFAULT_TTL_SECONDS)) * 1000;
+        if (ttlMillis == 0) {
+            enabled = false;
+        }
+        LOGGER.debug("Authorization decision cache {} (maxEntries: {}, ttl: {} ms)", new Object[]{(enabled) ? "enabled" : "disabled", maxEntries, ttlMillis});
+
+        decisions = new LinkedHashMap<DecisionKey, Long>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<DecisionKey, Long> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the singleton instance.
+     *
+     * @return The singleton instance.
+     */
+    public static AuthorizationDecisionCache getSingleton() {
+        return SINGLETON;
+    }
+
+    /**
+     * Check whether the cache is enabled.
+     *
+     * @return TRUE if decisions are cached.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable the cache. Disabling the cache also removes all cached
+     * decisions.
+     *
+     * @param pEnabled TRUE to enable the cache.
+     */
+    public void setEnabled(boolean pEnabled) {
+        enabled = pEnabled;
+        if (!enabled) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Change the max. number of cached decisions. If there are more entries
+     * cached at the moment, all entries are removed.
+     *
+     * @param pMaxEntries The max. number of entries (at least 1).
+     */
+    public synchronized void setMaxEntries(int pMaxEntries) {
+        maxEntries = Math.max(1, pMaxEntries);
+        if (decisions.size() > maxEntries) {
+            generation++;
+            decisions.clear();
+        }
+    }
+
+    /**
+     * Change the time to live of cached decisions in milliseconds. Existing
+     * entries keep their expiration time.
+     *
+     * @param pTtlMillis The time to live in milliseconds.
+     */
+    public void setTimeToLive(long pTtlMillis) {
+        ttlMillis = Math.max(0, pTtlMillis);
+    }
+
+    /**
+     * Check whether a positive decision for the provided arguments is cached.
+     *
+     * @param userId The user id.
+     * @param groupId The group id.
+     * @param resourceId The resource id or null for resource-independent
+     * decisions.
+     * @param roleRequired The required role.
+     *
+     * @return TRUE if a non-expired positive decision was found.
+     */
+    public boolean isGranted(UserId userId, GroupId groupId, SecurableResourceId resourceId, Role roleRequired) {
+        if (!enabled) {
+            return false;
+        }
+        DecisionKey key = new DecisionKey(userId, groupId, resourceId, roleRequired);
+        synchronized (this) {
+            Long expiresAt = decisions.get(key);
+            if (expiresAt == null) {
+                misses.incrementAndGet();
+                return false;
+            }
+            if (expiresAt < System.currentTimeMillis()) {
+                decisions.remove(key);
+                expirations.incrementAndGet();
+                misses.incrementAndGet();
+                return false;
+            }
+        }
+        hits.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Get the current generation of the cache. The generation has to be
+     * obtained before reading the data a decision is based on and has to be
+     * provided while storing the decision.
+     *
+     * @return The current generation.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Store a positive decision for the provided arguments. The decision is
+     * dropped if the cache was invalidated since pGeneration was obtained, as
+     * the decision might be based on outdated data in that case.
+     *
+     * @param userId The user id.
+     * @param groupId The group id.
+     * @param resourceId The resource id or null for resource-independent
+     * decisions.
+     * @param roleRequired The required role.
+     * @param pGeneration The generation obtained via {@link #getGeneration()}
+     * before reading the data the decision is based on.
+     *
+     * @return TRUE if the decision was cached.
+     */
+    public boolean granted(UserId userId, GroupId groupId, SecurableResourceId resourceId, Role roleRequired, long pGeneration) {
+        long ttl = ttlMillis;
+        if (!enabled || ttl == 0) {
+            return false;
+        }
+        DecisionKey key = new DecisionKey(userId, groupId, resourceId, roleRequired);
+        Long expiresAt = System.currentTimeMillis() + ttl;
+        synchronized (this) {
+            if (generation != pGeneration) {
+                LOGGER.trace("Cache invalidated during authorization. Decision is not cached.");
+                return false;
+            }
+            decisions.put(key, expiresAt);
+        }
+        return true;
+    }
+
+    /**
+     * Remove all decisions cached for the provided user, e.g. after changing
+     * the max. role or a membership of the user.
+     *
+     * @param userId The user id.
+     */
+    public void invalidateUser(UserId userId) {
+        if (userId == null) {
+            invalidateAll();
+            return;
+        }
+        String id = userId.getStringRepresentation();
+        synchronized (this) {
+            generation++;
+            Iterator<DecisionKey> keys = decisions.keySet().iterator();
+            while (keys.hasNext()) {
+                if (DecisionKey.equal(id, keys.next().userId)) {
+                    keys.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all decisions cached for the provided group, e.g. after removing
+     * the group.
+     *
+     * @param groupId The group id.
+     */
+    public void invalidateGroup(GroupId groupId) {
+        if (groupId == null) {
+            invalidateAll();
+            return;
+        }
+        String id = groupId.getStringRepresentation();
+        synchronized (this) {
+            generation++;
+            Iterator<DecisionKey> keys = decisions.keySet().iterator();
+            while (keys.hasNext()) {
+                if (DecisionKey.equal(id, keys.next().groupId)) {
+                    keys.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all decisions cached for the provided resource, e.g. after
+     * changing references or grants of the resource.
+     *
+     * @param resourceId The resource id.
+     */
+    public void invalidateResource(SecurableResourceId resourceId) {
+        if (resourceId == null) {
+            invalidateAll();
+            return;
+        }
+        synchronized (this) {
+            generation++;
+            Iterator<DecisionKey> keys = decisions.keySet().iterator();
+            while (keys.hasNext()) {
+                DecisionKey key = keys.next();
+                if (DecisionKey.equal(resourceId.getDomain(), key.domain) && DecisionKey.equal(resourceId.getDomainUniqueId(), key.domainUniqueId)) {
+                    keys.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all cached decisions.
+     */
+    public void invalidateAll() {
+        synchronized (this) {
+            generation++;
+            invalidations.addAndGet(decisions.size());
+            decisions.clear();
+        }
+    }
+
+    /**
+     * Get the current cache statistics.
+     *
+     * @return The statistics.
+     */
+    public Statistics getStatistics() {
+        int size;
+        synchronized (this) {
+            size = decisions.size();
+        }
+        return new Statistics(hits.get(), misses.get(), evictions.get(), expirations.get(), invalidations.get(), size, maxEntries);
+    }
+
+    /**
+     * Reset all statistic counters to 0.
+     */
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+        expirations.set(0);
+        invalidations.set(0);
+    }
+
+    /**
+     * Snapshot of the cache statistics at a certain point in time.
+     */
+    public static final class Statistics {
+
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+        private final long invalidations;
+        private final int size;
+        private final int maxSize;
+
+        /**
+         * Default constructor.
+         *
+         * @param hits The number of cache hits.
+         * @param misses The number of cache misses.
+         * @param evictions The number of entries evicted due to the size
+         * limit.
+         * @param expirations The number of entries removed due to the time to
+         * live.
+         * @param invalidations The number of entries removed by invalidation.
+         * @param size The current number of entries.
+         * @param maxSize The max. number of entries.
+         */
+        Statistics(long hits, long misses, long evictions, long expirations, long invalidations, int size, int maxSize) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.invalidations = invalidations;
+            this.size = size;
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Get the number of cache hits.
+         *
+         * @return The number of hits.
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * Get the number of cache misses.
+         *
+         * @return The number of misses.
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Get the number of entries evicted due to the size limit.
+         *
+         * @return The number of evictions.
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * Get the number of entries removed after their time to live.
+         *
+         * @return The number of expirations.
+         */
+        public long getExpirations() {
+            return expirations;
+        }
+
+        /**
+         * Get the number of entries removed by invalidation.
+         *
+         * @return The number of invalidations.
+         */
+        public long getInvalidations() {
+            return invalidations;
+        }
+
+        /**
+         * Get the number of currently cached entries.
+         *
+         * @return The cache size.
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Get the max. number of cached entries.
+         *
+         * @return The max. cache size.
+         */
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        /**
+         * Get the hit ratio in the range between 0.0 and 1.0.
+         *
+         * @return The hit ratio.
+         */
+        public double getHitRatio() {
+            long requests = hits + misses;
+            return (requests == 0) ? 0.0 : (double) hits / (double) requests;
+        }
+
+        @Override
+        public String toString() {
+            return "AuthorizationDecisionCache[hits=" + hits + ", misses=" + misses + ", hitRatio=" + getHitRatio()
+                    + ", evictions=" + evictions + ", expirations=" + expirations + ", invalidations=" + invalidations
+                    + ", size=" + size + "/" + maxSize + "]";
+        }
+    }
+
+    /**
+     * Immutable cache key.
+     */
+    private static final class DecisionKey {
+
+        private final String userId;
+        private final String groupId;
+        private final String domain;
+        private final String domainUniqueId;
+        private final Role role;
+        private final int hash;
+
+        DecisionKey(UserId pUserId, GroupId pGroupId, SecurableResourceId pResourceId, Role pRole) {
+            userId = (pUserId != null) ? pUserId.getStringRepresentation() : null;
+            groupId = (pGroupId != null) ? pGroupId.getStringRepresentation() : null;
+            domain = (pResourceId != null) ? pResourceId.getDomain() : null;
+            domainUniqueId = (pResourceId != null) ? pResourceId.getDomainUniqueId() : null;
+            role = pRole;
+            int h = 7;
+            h = 31 * h + (userId != null ? userId.hashCode() : 0);
+            h = 31 * h + (groupId != null ? groupId.hashCode() : 0);
+            h = 31 * h + (domain != null ? domain.hashCode() : 0);
+            h = 31 * h + (domainUniqueId != null ? domainUniqueId.hashCode() : 0);
+            h = 31 * h + (role != null ? role.hashCode() : 0);
+            hash = h;
+        }
+
+        static boolean equal(String a, String b) {
+            return (a == null) ? b == null : a.equals(b);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof DecisionKey)) {
+                return false;
+            }
+            DecisionKey other = (DecisionKey) obj;
+            return hash == other.hash
+                    && role == other.role
+                    && equal(userId, other.userId)
+                    && equal(groupId, other.groupId)
+                    && equal(domain, other.domain)
+                    && equal(domainUniqueId, other.domainUniqueId);
+        }
+    }
+}
@@ -54,6 +54,8 @@ public final class PlainAuthorizerImpl implements IAuthorizationService {
     private static final String DOMAIN_ID_COLUMN = "domainId";
     private static final String DOMAIN_UNIQUE_ID_COLUMN = "domainUniqueId";
 
+    private final AuthorizationDecisionCache decisionCache = AuthorizationDecisionCache.getSingleton();
+
     @Override
     public void authorize(IAuthorizationContext authContext, Role roleRequired) throws UnauthorizedAccessAttemptException, EntityNotFoundException {
         if (authContext.getRoleRestriction() != null && authContext.getRoleRestriction().lessThan(roleRequired)) {
@@ -63,6 +65,11 @@ public final class PlainAuthorizerImpl implements IAuthorizationService {
                 && authContext.getUserId().getStringRepresentation().equals(Constants.SYSTEM_ADMIN)) {
             return;
         }
+        if (decisionCache.isGranted(authContext.getUserId(), authContext.getGroupId(), null, roleRequired)) {
+            return;
+        }
+        //obtain the generation before reading the database to detect concurrent invalidations
+        long cacheGeneration = decisionCache.getGeneration();
         EntityManager entityManager = PU.entityManager();
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Tuple> q = cb.createTupleQuery();
@@ -87,8 +94,11 @@ public final class PlainAuthorizerImpl implements IAuthorizationService {
                     ) {
                 throw new UnauthorizedAccessAttemptException("Unauthorized attempt. Insufficient group, global or context permissions.");
             }
+            decisionCache.granted(authContext.getUserId(), authContext.getGroupId(), null, roleRequired, cacheGeneration);
         } catch (NoResultException e) {
             throw new UnauthorizedAccessAttemptException("Unauthorized attempt. Wrong User-/GroupId or missing permission?", e);
+        } finally {
+            entityManager.close();
         }
     }
 
@@ -116,11 +126,18 @@ public final class PlainAuthorizerImpl implements IAuthorizationService {
             authorize(authContext, roleRequired);
             return;
         }
-        EntityManager entityManager = PU.entityManager();
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        //only decisions for single resources are cached
+        SecurableResourceId cacheableResource = (null != protectedResources && protectedResources.size() == 1) ? protectedResources.get(0) : null;
+        if (cacheableResource != null && decisionCache.isGranted(authContext.getUserId(), authContext.getGroupId(), cacheableResource, roleRequired)) {
+            return;
+        }
+        //obtain the generation before reading the database to detect concurrent invalidations
+        long cacheGeneration = decisionCache.getGeneration();
         if (null != protectedResources
                 && protectedResources.size() > 0
                 && !authContext.getGroupId().getStringRepresentation().equals(Constants.SYSTEM_GROUP)) {
+            EntityManager entityManager = PU.entityManager();
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
             CriteriaQuery<Integer> q = cb.createQuery(Integer.class);
             Root<FilterHelper> record = q.from(FilterHelper.class);
             Predicate where;
@@ -161,6 +178,9 @@ public final class PlainAuthorizerImpl implements IAuthorizationService {
                 if (roleRequired.ordinal() > result) {
                     throw new UnauthorizedAccessAttemptException("Unauthorized attempt. RoleRequired > QueryResult (" + roleRequired.ordinal() + " > " + result + ")");
                 }
+                if (cacheableResource != null) {
+                    decisionCache.granted(authContext.getUserId(), authContext.getGroupId(), cacheableResource, roleRequired, cacheGeneration);
+                }
             } catch (NoResultException e) {
                 //Search for resource(s). If any resource does not exist, an EntityNotFoundException is produced...
                 for (SecurableResourceId res : protectedResources) {
@@ -168,6 +188,8 @@ public final class PlainAuthorizerImpl implements IAuthorizationService {
                 }
                 //...otherwise, an UnauthorizedAccessAttemptException is thrown.
                 throw new UnauthorizedAccessAttemptException("Unauthorized attempt!", e);
+            } finally {
+                entityManager.close();
             }
         } else {
             authorize(authContext, roleRequired);
@@ -199,10 +221,10 @@ public final class PlainAuthorizerImpl implements IAuthorizationService {
                 //not authorized
             }
         } else {
-            EntityManager entityManager = PU.entityManager();
-            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
             Iterator<SecurableResourceId> it = resourceIdsToFilter.iterator();
             if (it.hasNext()) {
+                EntityManager entityManager = PU.entityManager();
+                CriteriaBuilder cb = entityManager.getCriteriaBuilder();
                 CriteriaQuery<Tuple> q = cb.createTupleQuery();
                 Root<FilterHelper> record = q.from(FilterHelper.class);
                 //where statement of context
@@ -249,6 +271,8 @@ public final class PlainAuthorizerImpl implements IAuthorizationService {
                     }
                 } catch (NoResultException e) {
                     //no result
+                } finally {
+                    entityManager.close();
                 }
             }
         }
@@ -320,39 +344,43 @@ public final class PlainAuthorizerImpl implements IAuthorizationService {
                 + "r.roleRestriction >= ?4 AND "
                 + "r.resource.domainUniqueId IN ?5");
 
-        TypedQuery<String> q = entityManager.createQuery(query.toString(), String.class);
-
-        q.setParameter(1, authContext.getUserId().getStringRepresentation());
-        q.setParameter(2, authContext.getGroupId().getStringRepresentation());
-        q.setParameter(3, domainId);
-        q.setParameter(4, roleRequired);
-        q.setParameter(5, uniqueIds);
-
-        List<String> results = q.getResultList();
-        for (String r : results) {
-            //id r is accessible via group, remove from list
-            uniqueIds.remove(r);
-        }
-
-        if (!uniqueIds.isEmpty()) {
-            //there are still unhandled resource, check by grants
-            query = new StringBuilder();
-
-            query.append("SELECT gss.resource.domainUniqueId FROM Grants gs, GrantSets gss, Users u WHERE ");
-            query.append("gs.grantee.id=u.id AND u.userId=?1 AND gss.id=gs.grants.id AND gs.grantedRole >= ?2 AND "
-                    + "gss.resource.domainId=?3 AND gss.resource.domainUniqueId IN ?4");
+        try {
+            TypedQuery<String> q = entityManager.createQuery(query.toString(), String.class);
 
-            q = entityManager.createQuery(query.toString(), String.class);
             q.setParameter(1, authContext.getUserId().getStringRepresentation());
-            q.setParameter(2, roleRequired);
+            q.setParameter(2, authContext.getGroupId().getStringRepresentation());
             q.setParameter(3, domainId);
-            q.setParameter(4, uniqueIds);
+            q.setParameter(4, roleRequired);
+            q.setParameter(5, uniqueIds);
 
-            results = q.getResultList();
+            List<String> results = q.getResultList();
             for (String r : results) {
-                //id r is accessible via grant, remove from list
+                //id r is accessible via group, remove from list
                 uniqueIds.remove(r);
             }
+
+            if (!uniqueIds.isEmpty()) {
+                //there are still unhandled resource, check by grants
+                query = new StringBuilder();
+
+                query.append("SELECT gss.resource.domainUniqueId FROM Grants gs, GrantSets gss, Users u WHERE ");
+                query.append("gs.grantee.id=u.id AND u.userId=?1 AND gss.id=gs.grants.id AND gs.grantedRole >= ?2 AND "
+                        + "gss.resource.domainId=?3 AND gss.resource.domainUniqueId IN ?4");
+
+                q = entityManager.createQuery(query.toString(), String.class);
+                q.setParameter(1, authContext.getUserId().getStringRepresentation());
+                q.setParameter(2, roleRequired);
+                q.setParameter(3, domainId);
+                q.setParameter(4, uniqueIds);
+
+                results = q.getResultList();
+                for (String r : results) {
+                    //id r is accessible via grant, remove from list
+                    uniqueIds.remove(r);
+                }
+            }
+        } finally {
+            entityManager.close();
         }
 
         //resourceIds that are still on the list are not accessible ... remove according resources
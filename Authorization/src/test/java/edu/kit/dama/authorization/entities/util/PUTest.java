@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2014 Karlsruhe Institute of Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.authorization.entities.util;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jejkal
+ */
+public class PUTest {
+
+    /**
+     *
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        PU.setPersistenceUnitName("AuthorizationUnit-Test");
+    }
+
+    /**
+     * Test whether the EntityManagerFactory is shared between calls and
+     * re-created after shutdown.
+     */
+    @Test
+    public void testSharedFactory() {
+        EntityManager em1 = PU.entityManager();
+        EntityManager em2 = PU.entityManager();
+        EntityManagerFactory factory = em1.getEntityManagerFactory();
+        assertSame(factory, em2.getEntityManagerFactory());
+        em1.close();
+        em2.close();
+        assertTrue(PU.isHealthy());
+        assertFalse(PU.getFactoryStatus().isEmpty());
+
+        PU.shutdown();
+        assertFalse(factory.isOpen());
+        assertTrue(PU.getFactoryStatus().isEmpty());
+
+        EntityManager em3 = PU.entityManager();
+        assertNotSame(factory, em3.getEntityManagerFactory());
+        assertTrue(em3.isOpen());
+        em3.close();
+    }
+}
@@ -30,6 +30,7 @@ import edu.kit.dama.authorization.entities.impl.Membership;
 import edu.kit.dama.authorization.entities.util.FindUtil;
 import java.util.List;
 import edu.kit.dama.authorization.entities.util.PU;
+import edu.kit.dama.authorization.services.base.PlainAuthorizerLocal;
 import edu.kit.dama.util.Constants;
 import javax.persistence.*;
 
@@ -118,6 +119,7 @@ public class TestUtil {
         em.getTransaction().commit();
 
         em.close();
+        PlainAuthorizerLocal.invalidateDecisionCache();
     }
 
 //
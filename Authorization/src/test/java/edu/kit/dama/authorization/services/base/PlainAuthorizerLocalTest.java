@@ -28,6 +28,7 @@ import edu.kit.dama.authorization.services.administration.GroupServiceLocal;
 import edu.kit.dama.authorization.services.administration.ResourceServiceLocal;
 import edu.kit.dama.authorization.services.administration.UserServiceLocal;
 import edu.kit.dama.authorization.services.administration.impl.TestUtil;
+import edu.kit.dama.authorization.services.base.impl.AuthorizationDecisionCache;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.After;
@@ -166,4 +167,55 @@ public class PlainAuthorizerLocalTest {
         assertEquals(resList.size(), filteredList.size() + 1);
 
     }
+
+    /**
+     * Test whether cached authorization decisions are used and invalidated
+     * after changing the membership role.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDecisionCache() throws Exception {
+        PlainAuthorizerLocal.invalidateDecisionCache();
+        long hits = PlainAuthorizerLocal.getDecisionCacheStatistics().getHits();
+        PlainAuthorizerLocal.authorize(normalContext, resourceId, roleRequired);
+        PlainAuthorizerLocal.authorize(normalContext, resourceId, roleRequired);
+        assertEquals(hits + 1, PlainAuthorizerLocal.getDecisionCacheStatistics().getHits());
+
+        GroupServiceLocal.getSingleton().changeRole(groupId, userId, Role.GUEST, sysContext);
+        try {
+            PlainAuthorizerLocal.authorize(normalContext, resourceId, roleRequired);
+            fail("Cached decision was not invalidated after changing the membership role.");
+        } catch (UnauthorizedAccessAttemptException e) {
+            //expected
+        }
+    }
+
+    /**
+     * Test whether a decision based on data read before a concurrent
+     * modification is not cached if the modification invalidated the cache
+     * before the decision was stored.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDecisionCacheConcurrentInvalidation() throws Exception {
+        AuthorizationDecisionCache cache = AuthorizationDecisionCache.getSingleton();
+        PlainAuthorizerLocal.invalidateDecisionCache();
+        //an authorization reads the database before the role change is committed...
+        long generation = cache.getGeneration();
+        GroupServiceLocal.getSingleton().changeRole(groupId, userId, Role.GUEST, sysContext);
+        //...and stores its outdated decision afterwards
+        assertFalse(cache.granted(userId, groupId, resourceId, roleRequired, generation));
+        assertFalse(cache.isGranted(userId, groupId, resourceId, roleRequired));
+        try {
+            PlainAuthorizerLocal.authorize(normalContext, resourceId, roleRequired);
+            fail("Outdated decision was cached after changing the membership role.");
+        } catch (UnauthorizedAccessAttemptException e) {
+            //expected
+        }
+        //decisions based on current data are cached
+        assertTrue(cache.granted(userId, groupId, resourceId, Role.GUEST, cache.getGeneration()));
+        assertTrue(cache.isGranted(userId, groupId, resourceId, Role.GUEST));
+    }
 }
@@ -21,15 +21,23 @@ import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.Session;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import org.apache.commons.codec.binary.Base64;
@@ -38,9 +46,20 @@ import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.slf4j.LoggerFactory;
 
 /**
- * Small tool to encrypt and decrypt strings using AES/ECB/PKCS7Padding. In KIT
- * Data Manager this is used to encrypt access keys and tokens before they are
- * stored in the database.
+ * Small tool to encrypt and decrypt strings using AES. In KIT Data Manager this
+ * is used to encrypt access keys and tokens before they are stored in the
+ * database.
+ *
+ * Two modes are supported: CBC uses AES/CBC/PKCS5Padding with a fixed IV and
+ * is the format used by all previous versions. GCM uses AES/GCM/NoPadding with
+ * a random IV for each encryption, which is stored together with the
+ * encrypted data. Strings encrypted in GCM mode are marked by a prefix, thus
+ * decrypt() supports both formats independently of the mode used for
+ * encryption. The encryption mode can be configured via
+ * {@link DataManagerSettings#GENERAL_CRYPT_MODE}.
+ *
+ * All methods are thread-safe. Cipher instances are not shared between
+ * concurrent operations but taken from a pool, so there is no global lock.
  *
  * @author jejkal
  */
@@ -55,8 +74,46 @@ public final class CryptUtil {
         DECRYPT
     }
 
-    private final Cipher deCipher;
-    private final Cipher enCipher;
+    /**
+     * The supported encryption modes.
+     */
+    public enum CRYPT_MODE {
+
+        /**
+         * AES/CBC/PKCS5Padding with fixed IV (compatible to previous versions).
+         */
+        CBC,
+        /**
+         * AES/GCM/NoPadding with random IV.
+         */
+        GCM
+    }
+
+    /**
+     * The prefix of strings encrypted in GCM mode. As the prefix is not part of
+     * the Base64 alphabet, it cannot occur in strings encrypted in CBC mode.
+     */
+    private static final String GCM_PREFIX = "{GCM}";
+    private static final String CBC_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_LENGTH = 128;
+    private static final Charset CBC_CHARSET = Charset.forName("US-ASCII");
+    private static final Charset GCM_CHARSET = Charset.forName("UTF-8");
+    /**
+     * The provider of CBC ciphers. One instance is shared by all ciphers, as
+     * creating a provider is expensive. GCM ciphers are obtained from the
+     * default provider, as the BouncyCastle version in use does not support
+     * GCMParameterSpec.
+     */
+    private static final Provider CBC_PROVIDER = new BouncyCastleProvider();
+
+    private final SecretKeySpec key;
+    private final CRYPT_MODE mode;
+    private final SecureRandom random = new SecureRandom();
+    private final Queue<Cipher> cbcEncryptCiphers = new ConcurrentLinkedQueue<>();
+    private final Queue<Cipher> cbcDecryptCiphers = new ConcurrentLinkedQueue<>();
+    private final Queue<Cipher> gcmCiphers = new ConcurrentLinkedQueue<>();
     private static CryptUtil singleton = null;
 
     /**
@@ -64,17 +121,14 @@ public final class CryptUtil {
      *
      * @param pSecret The secret used for the SecretKeySpec. The secret must
      * have a length of 128, 192 or 256 bits.
+     * @param pMode The mode used for encryption.
      */
-    private CryptUtil(byte[] pSecret) {
-        try {
-            SecretKeySpec skeySpec = new SecretKeySpec(pSecret, "AES");
-            deCipher = Cipher.getInstance("AES/CBC/PKCS5Padding", new BouncyCastleProvider());
-            deCipher.init(Cipher.DECRYPT_MODE, skeySpec, new IvParameterSpec(new byte[16]));
-            enCipher = Cipher.getInstance("AES/CBC/PKCS5Padding", new BouncyCastleProvider());
-            enCipher.init(Cipher.ENCRYPT_MODE, skeySpec, new IvParameterSpec(new byte[16]));
-        } catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException | InvalidAlgorithmParameterException e) {
-            throw new IllegalStateException("Failed to create cipher instances.", e);
-        }
+    private CryptUtil(byte[] pSecret, CRYPT_MODE pMode) {
+        key = new SecretKeySpec(pSecret, "AES");
+        mode = pMode;
+        //create the first cipher instances to fail early if the secret is invalid
+        cbcDecryptCiphers.add(createCbcCipher(Cipher.DECRYPT_MODE));
+        cbcEncryptCiphers.add(createCbcCipher(Cipher.ENCRYPT_MODE));
     }
 
     /**
@@ -85,7 +139,7 @@ public final class CryptUtil {
                 DataManagerSettings.GENERAL_GLOBAL_SECRET, new String(
                         new byte[]{(byte) 113, (byte) 114, (byte) 50, (byte) 73, (byte) 57, (byte) 72, (byte) 121, (byte) 112, (byte) 48, (byte) 67, (byte) 66, (byte) 104, (byte) 85, (byte) 85, (byte) 88, (byte) 106}
                 )
-        ).getBytes());
+        ).getBytes(), getConfiguredMode());
     }
 
     /**
@@ -98,7 +152,8 @@ public final class CryptUtil {
     }
 
     /**
-     * Get the singleton instance.
+     * Get the singleton instance. If the singleton is created by this call and
+     * pSecret is provided, CBC is used as encryption mode.
      *
      * @param pSecret The secret used for de-/encryption. The secret must have a
      * length of 128, 192 or 256 bits.
@@ -108,7 +163,7 @@ public final class CryptUtil {
     public static synchronized CryptUtil getSingleton(byte[] pSecret) {
         if (singleton == null) {
             if (pSecret != null) {
-                singleton = new CryptUtil(pSecret);
+                singleton = new CryptUtil(pSecret, CRYPT_MODE.CBC);
             } else {
                 singleton = new CryptUtil();
             }
@@ -117,8 +172,17 @@ public final class CryptUtil {
     }
 
     /**
-     * Decrypt a string using DES and return the base64 encoded string of the
-     * encrypted bytes.
+     * Get the mode used by encrypt(pPlainString).
+     *
+     * @return The encryption mode.
+     */
+    public CRYPT_MODE getMode() {
+        return mode;
+    }
+
+    /**
+     * Encrypt a string using AES and return the base64 encoded string of the
+     * encrypted bytes. The configured encryption mode is used.
      *
      * @param pPlainString The plain string to encrypt.
      *
@@ -140,12 +204,42 @@ public final class CryptUtil {
             ShortBufferException,
             IllegalBlockSizeException,
             BadPaddingException {
-        return performCryptographicOperation(pPlainString, CRYPT_TYPE.ENCRYPT);
+        return encrypt(pPlainString, mode);
+    }
+
+    /**
+     * Encrypt a string using AES in the provided mode and return the base64
+     * encoded string of the encrypted bytes. Strings encrypted in GCM mode are
+     * prefixed by '{GCM}'.
+     *
+     * @param pPlainString The plain string to encrypt.
+     * @param pMode The encryption mode.
+     *
+     * @return The encrypted and base64 encoded string.
+     *
+     * @throws NoSuchAlgorithmException Internal exception which should not
+     * raise
+     * @throws NoSuchPaddingException Internal exception which should not raise
+     * @throws InvalidKeyException Internal exception which should not raise
+     * @throws ShortBufferException Internal exception which should not raise
+     * @throws IllegalBlockSizeException Internal exception which should not
+     * raise
+     * @throws BadPaddingException Internal exception which should not raise
+     */
+    public String encrypt(String pPlainString, CRYPT_MODE pMode) throws
+            NoSuchAlgorithmException,
+            NoSuchPaddingException,
+            InvalidKeyException,
+            ShortBufferException,
+            IllegalBlockSizeException,
+            BadPaddingException {
+        return performCryptographicOperation(pPlainString, CRYPT_TYPE.ENCRYPT, pMode);
     }
 
     /**
      * Decrypt a string to its plain format. The argument is a base64 encoded
-     * string returned by encrypt(pPlainString).
+     * string returned by encrypt(pPlainString). The mode is determined by the
+     * format of the provided string.
      *
      * @param pBase64String The base64 encoded, encrypted input string obtained
      * by encrypt(pPlainString).
@@ -159,7 +253,8 @@ public final class CryptUtil {
      * @throws ShortBufferException Internal exception which should not raise
      * @throws IllegalBlockSizeException Internal exception which should not
      * raise
-     * @throws BadPaddingException Internal exception which should not raise
+     * @throws BadPaddingException If the input was not encrypted using the
+     * current secret or if it was modified.
      */
     public String decrypt(String pBase64String) throws
             NoSuchAlgorithmException,
@@ -168,20 +263,21 @@ public final class CryptUtil {
             ShortBufferException,
             IllegalBlockSizeException,
             BadPaddingException {
-        return performCryptographicOperation(pBase64String, CRYPT_TYPE.DECRYPT);
+        CRYPT_MODE inputMode = (pBase64String != null && pBase64String.startsWith(GCM_PREFIX)) ? CRYPT_MODE.GCM : CRYPT_MODE.CBC;
+        return performCryptographicOperation(pBase64String, CRYPT_TYPE.DECRYPT, inputMode);
     }
 
     /**
      * Perform the actual cryptographic operation, which are CRYPT_TYPE.ENCRYPT
-     * or CRYPT_TYPE.DECRYPT. Using the central method is necessary as it seems
-     * to be the only way to allow a multithreaded access to Cipher instances.
-     * All cipher operations are located in a synchronized in this method. The
-     * public methods {@link #encrypt(java.lang.String)
+     * or CRYPT_TYPE.DECRYPT. Cipher instances are not thread-safe, thus each
+     * operation takes a cipher from a pool and returns it afterwards. If the
+     * pool is empty, a new cipher is created. The public methods {@link #encrypt(java.lang.String)
      * } and {@link #decrypt(java.lang.String) } are making use of this method.
      *
      * @param pInputData Either the plaintext string to encode or the Base64
      * encoded string to decode.
      * @param pCryptType CRYPT_TYPE.ENCRYPT or CRYPT_TYPE.DECRYPT
+     * @param pMode The mode of the operation.
      *
      * @return The en-/decrypted string.
      *
@@ -194,30 +290,153 @@ public final class CryptUtil {
      * raise
      * @throws BadPaddingException Internal exception which should not raise
      */
-    private synchronized String performCryptographicOperation(String pInputData, CRYPT_TYPE pCryptType) throws
+    private String performCryptographicOperation(String pInputData, CRYPT_TYPE pCryptType, CRYPT_MODE pMode) throws
             NoSuchAlgorithmException,
             NoSuchPaddingException,
             InvalidKeyException,
             ShortBufferException,
             IllegalBlockSizeException,
             BadPaddingException {
-        String result = null;
         if (pInputData == null) {
             LOGGER.warn("Input data is null. Cryptographic operation skipped, returning null.");
             return null;
         }
-        switch (pCryptType) {
-            case ENCRYPT:
-                result = Base64.encodeBase64String(enCipher.doFinal(pInputData.getBytes(Charset.forName("US-ASCII"))));
-                break;
-            case DECRYPT:
-                result = new String(deCipher.doFinal(Base64.decodeBase64(pInputData)), Charset.forName("US-ASCII"));
-                break;
+        if (CRYPT_MODE.GCM.equals(pMode)) {
+            return (CRYPT_TYPE.ENCRYPT.equals(pCryptType)) ? encryptGcm(pInputData) : decryptGcm(pInputData);
+        }
+
+        Queue<Cipher> pool = (CRYPT_TYPE.ENCRYPT.equals(pCryptType)) ? cbcEncryptCiphers : cbcDecryptCiphers;
+        Cipher cipher = pool.poll();
+        if (cipher == null) {
+            cipher = createCbcCipher((CRYPT_TYPE.ENCRYPT.equals(pCryptType)) ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE);
+        }
+        String result;
+        if (CRYPT_TYPE.ENCRYPT.equals(pCryptType)) {
+            result = Base64.encodeBase64String(cipher.doFinal(pInputData.getBytes(CBC_CHARSET)));
+        } else {
+            result = new String(cipher.doFinal(Base64.decodeBase64(pInputData)), CBC_CHARSET);
         }
+        //doFinal() resets the cipher to its initial state, thus it can be reused if the operation succeeded
+        pool.offer(cipher);
+        return result;
+    }
+
+    /**
+     * Encrypt pPlainString in GCM mode using a new random IV.
+     *
+     * @param pPlainString The plain string.
+     *
+     * @return The prefixed, base64 encoded IV and encrypted data.
+     *
+     * @throws IllegalBlockSizeException Internal exception which should not
+     * raise
+     * @throws BadPaddingException Internal exception which should not raise
+     */
+    private String encryptGcm(String pPlainString) throws IllegalBlockSizeException, BadPaddingException {
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        random.nextBytes(iv);
+        Cipher cipher = getGcmCipher(Cipher.ENCRYPT_MODE, iv);
+        byte[] encrypted = cipher.doFinal(pPlainString.getBytes(GCM_CHARSET));
+        gcmCiphers.offer(cipher);
+        ByteBuffer buffer = ByteBuffer.allocate(iv.length + encrypted.length);
+        buffer.put(iv).put(encrypted);
+        return GCM_PREFIX + Base64.encodeBase64String(buffer.array());
+    }
 
+    /**
+     * Decrypt pEncryptedString in GCM mode.
+     *
+     * @param pEncryptedString The string obtained by encryptGcm().
+     *
+     * @return The plain string.
+     *
+     * @throws IllegalBlockSizeException If the input is too short.
+     * @throws BadPaddingException If the input was not encrypted using the
+     * current secret or if it was modified.
+     */
+    private String decryptGcm(String pEncryptedString) throws IllegalBlockSizeException, BadPaddingException {
+        byte[] data = Base64.decodeBase64(pEncryptedString.substring(GCM_PREFIX.length()));
+        if (data.length < GCM_IV_LENGTH + GCM_TAG_LENGTH / 8) {
+            throw new IllegalBlockSizeException("Encrypted data is too short.");
+        }
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        System.arraycopy(data, 0, iv, 0, GCM_IV_LENGTH);
+        Cipher cipher = getGcmCipher(Cipher.DECRYPT_MODE, iv);
+        String result = new String(cipher.doFinal(data, GCM_IV_LENGTH, data.length - GCM_IV_LENGTH), GCM_CHARSET);
+        gcmCiphers.offer(cipher);
         return result;
     }
 
+    /**
+     * Take a GCM cipher from the pool or create a new one and initialize it
+     * for the provided operation and IV.
+     *
+     * @param pCipherMode Cipher.ENCRYPT_MODE or Cipher.DECRYPT_MODE.
+     * @param pIv The IV.
+     *
+     * @return The initialized cipher.
+     */
+    private Cipher getGcmCipher(int pCipherMode, byte[] pIv) {
+        Cipher cipher = gcmCiphers.poll();
+        if (cipher == null) {
+            cipher = createCipher(GCM_TRANSFORMATION, null, pCipherMode, new GCMParameterSpec(GCM_TAG_LENGTH, pIv));
+        } else {
+            try {
+                cipher.init(pCipherMode, key, new GCMParameterSpec(GCM_TAG_LENGTH, pIv));
+            } catch (InvalidKeyException | InvalidAlgorithmParameterException e) {
+                throw new IllegalStateException("Failed to initialize cipher instance.", e);
+            }
+        }
+        return cipher;
+    }
+
+    /**
+     * Create a new CBC cipher instance.
+     *
+     * @param pCipherMode Cipher.ENCRYPT_MODE or Cipher.DECRYPT_MODE.
+     *
+     * @return The initialized cipher.
+     */
+    private Cipher createCbcCipher(int pCipherMode) {
+        return createCipher(CBC_TRANSFORMATION, CBC_PROVIDER, pCipherMode, new IvParameterSpec(new byte[16]));
+    }
+
+    /**
+     * Create and initialize a new cipher instance.
+     *
+     * @param pTransformation The cipher transformation.
+     * @param pProvider The provider or null to use the default provider.
+     * @param pCipherMode Cipher.ENCRYPT_MODE or Cipher.DECRYPT_MODE.
+     * @param pParameters The algorithm parameters.
+     *
+     * @return The initialized cipher.
+     */
+    private Cipher createCipher(String pTransformation, Provider pProvider, int pCipherMode, AlgorithmParameterSpec pParameters) {
+        try {
+            Cipher cipher = (pProvider != null) ? Cipher.getInstance(pTransformation, pProvider) : Cipher.getInstance(pTransformation);
+            cipher.init(pCipherMode, key, pParameters);
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to create cipher instances.", e);
+        }
+    }
+
+    /**
+     * Get the encryption mode configured via
+     * {@link DataManagerSettings#GENERAL_CRYPT_MODE}.
+     *
+     * @return The encryption mode, CBC by default.
+     */
+    private static CRYPT_MODE getConfiguredMode() {
+        String value = DataManagerSettings.getSingleton().getStringProperty(DataManagerSettings.GENERAL_CRYPT_MODE, CRYPT_MODE.CBC.toString());
+        try {
+            return CRYPT_MODE.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            LOGGER.warn("Invalid crypt mode {}. Using {}.", value, CRYPT_MODE.CBC);
+            return CRYPT_MODE.CBC;
+        }
+    }
+
     /**
      * Convert the provided string to a SHA1 representation and return it as hex
      * string.
@@ -47,11 +47,21 @@ public final class DataManagerSettings {
     public final static String ELASTIC_SEARCH_DEFAULT_HOST_ID = "elasticsearch.host";//localhost;
     public final static String ELASTIC_SEARCH_DEFAULT_INDEX_ID = "elasticsearch.index";//kitdatamanager;
     public final static String ELASTIC_SEARCH_FULLTEXT_SEARCH_KEY_ID = "elasticsearch.fulltextKey";//es.fulltext;
+    public final static String ELASTIC_SEARCH_BULK_ACTIONS_ID = "elasticsearch.bulkActions";//500;
+    public final static String ELASTIC_SEARCH_BULK_SIZE_ID = "elasticsearch.bulkSize";//5242880 bytes = 5 MB;
+    public final static String ELASTIC_SEARCH_BULK_FLUSH_INTERVAL_ID = "elasticsearch.bulkFlushInterval";//5000 ms;
 
     //Property keys for staging section
     public final static String STAGING_MAX_PARALLEL_TRANSFERS = "staging.maxParallelTransfers";//10;
+    public final static String STAGING_MAX_PARALLEL_TRANSFERS_PER_HOST = "staging.maxParallelTransfersPerHost";//no limit
+    public final static String STAGING_LOCAL_TRANSFER_MODE = "staging.localTransferMode";//COPY
+    public final static String STAGING_RETRY_MAX_ATTEMPTS = "staging.retry.maxAttempts";//5
+    public final static String STAGING_RETRY_INITIAL_DELAY = "staging.retry.initialDelay";//2000 ms
+    public final static String STAGING_RETRY_MAX_DELAY = "staging.retry.maxDelay";//120000 ms
     public final static String STAGING_MAX_PARALLEL_INGESTS = "staging.maxParallelIngests";//2;
     public final static String STAGING_MAX_PARALLEL_DOWNLOADS = "staging.maxParallelDownloads";//2;
+    public final static String STAGING_FINALIZER_QUEUE_SIZE = "staging.finalizerQueueSize";//10;
+    public final static String STAGING_SCAN_THREADS = "staging.scanThreads";//number of available processors
     public final static String STAGING_MAX_DOWNLOAD_LIFETIME = "staging.maxDownloadLifetime";//60 * 60 * 24 * 7 seconds = 1 week;
     public final static String STAGING_MAX_INGEST_LIFETIME = "staging.maxIngestLifetime";//60 * 60 * 24 * 7 seconds = 1 week;
 
@@ -64,15 +74,25 @@ public final class DataManagerSettings {
     public final static String GENERAL_SYSTEM_MAIL_ADDRESS = "general.systemMailAddress";
     public final static String GENERAL_MAIL_SERVER = "general.mailServer";
     public final static String GENERAL_GLOBAL_SECRET = "general.globalSecret";//qr2I9Hyp0CBhUUXj
+    public final static String GENERAL_CRYPT_MODE = "general.cryptMode";//CBC
     public static final String GENERAL_BASE_URL_ID = "general.baseUrl"; //"http://localhost:8080/KITDM";
     public static final String PRODUCTION_MODE_ID = "general.productionMode"; //"true";
 
     public static final String AUTHORIZATION_CONFIG_ROOT = "authorization";
+    public static final String AUTHORIZATION_DECISION_CACHE_ENABLED = "authorization.decisionCache.enabled";//true
+    public static final String AUTHORIZATION_DECISION_CACHE_MAX_ENTRIES = "authorization.decisionCache.maxEntries";//10000
+    public static final String AUTHORIZATION_DECISION_CACHE_TTL = "authorization.decisionCache.timeToLive";//60 seconds
     public static final String AUDIT_CONFIG_ROOT = "audit";
+    public static final String AUDIT_QUEUE_CAPACITY = "audit.queue.capacity";//10000, 0 disables asynchronous publishing
+    public static final String AUDIT_QUEUE_BATCH_SIZE = "audit.queue.batchSize";//100
+    public static final String AUDIT_QUEUE_MAX_LATENCY = "audit.queue.maxLatency";//1000 ms
+    public static final String AUDIT_QUEUE_OVERFLOW_POLICY = "audit.queue.overflowPolicy";//BLOCK
 
     public static final String DATA_ORGANIZATION_CONFIG_ROOT = "dataOrganization";
     public static final String DATA_ORGANIZATION_DOWNLOAD_BLOCK_SIZE = "dataOrganization.download.blockSize";
     public static final String DATA_ORGANIZATION_DOWNLOAD_ZIP_COMPRESSION = "dataOrganization.download.compression";
+    public static final String DATA_ORGANIZATION_DOWNLOAD_ZIP_THREADS = "dataOrganization.download.zipThreads";//number of available processors
+    public static final String DATA_ORGANIZATION_DOWNLOAD_ZIP_STORED_EXTENSIONS = "dataOrganization.download.storedExtensions";//zip,gz,jpg,...
 
     public static final String METADATA_MANAGEMENT_CONFIG_ROOT = "metaDataManagement";
 
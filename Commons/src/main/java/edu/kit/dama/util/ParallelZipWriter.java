@@ -0,0 +1,816 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streaming zip writer compressing entries in parallel. Files are read
+ * sequentially in chunks by the calling thread. Each chunk is compressed by a
+ * shared, bounded thread pool into a raw deflate block terminated by a sync
+ * flush, using the end of the previous chunk as dictionary. The compressed
+ * chunks are written to the output stream in their original order, so that
+ * the concatenation forms a valid deflate stream for each entry. The number of
+ * chunks in progress per writer is bounded, which limits the memory
+ * consumption to approx. <i>maxPendingChunks * chunkSize</i>.
+ *
+ * Files with a name extension typical for already compressed content (e.g.
+ * zip, jpg, mp4) as well as all files if the compression level is 0 are
+ * stored without compression. For stored entries the checksum is calculated
+ * in advance by the thread pool, afterwards the file is copied directly to the
+ * output stream.
+ *
+ * ZIP64 extensions are used for entries larger than 4 GB, archives larger
+ * than 4 GB and archives with more than 65535 entries.
+ *
+ * If adding an entry or finishing the archive fails, the writer is aborted:
+ * the central directory is never written, thus readers do not accept the
+ * truncated archive as valid. If the writer was created for a target file,
+ * the file is deleted while closing the writer.
+ *
+ * Usage:
+ * <pre>
+ * try (ParallelZipWriter writer = new ParallelZipWriter(out)) {
+ *   writer.putDirectory("empty");
+ *   writer.putFile("data/file.txt", new File("/tmp/file.txt"));
+ *   writer.finish();
+ * }
+ * </pre>
+ *
+ * @author jejkal
+ */
+public final class ParallelZipWriter implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelZipWriter.class);
+
+    /**
+     * Default size of uncompressed chunks.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 512 * 1024;
+
+    /**
+     * Default extensions of files stored without compression.
+     */
+    public static final String DEFAULT_STORED_EXTENSIONS = "zip,gz,tgz,bz2,xz,7z,rar,jar,war,jpg,jpeg,png,gif,mp3,mp4,m4a,avi,mkv,mov,ogg,webm";
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+    /**
+     * Files with at least this size get ZIP64 local headers. The margin to 4GB
+     * covers the overhead of compressing incompressible data.
+     */
+    private static final long ZIP64_THRESHOLD = 0xF0000000L;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int FLAG_DATA_DESCRIPTOR = 0x08;
+    private static final int FLAG_UTF8 = 0x800;
+    private static final int VERSION_DEFAULT = 20;
+    private static final int VERSION_ZIP64 = 45;
+
+    private static ExecutorService sharedExecutor = null;
+
+    private static final ThreadLocal<Deflater> DEFLATERS = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+    };
+
+    private final CountingOutputStream out;
+    private final File target;
+    private final ExecutorService executor;
+    private final int level;
+    private final int chunkSize;
+    private final int maxPendingChunks;
+    private final Set<String> storedExtensions;
+    private final Deque<Segment> pending = new ArrayDeque<>();
+    private final List<Entry> entries = new ArrayList<>();
+    private int pendingChunks = 0;
+    private boolean finished = false;
+    private boolean failed = false;
+
+    /**
+     * Create a writer using the compression level, the number of threads and
+     * the stored extensions configured in the DataManagerSettings.
+     *
+     * @param pOut The output stream.
+     */
+    public ParallelZipWriter(OutputStream pOut) {
+        this(pOut, getConfiguredLevel(), DEFAULT_CHUNK_SIZE, getSharedExecutor(),
+                2 * getConfiguredThreads(), getConfiguredStoredExtensions());
+    }
+
+    /**
+     * Create a writer.
+     *
+     * @param pOut The output stream.
+     * @param pLevel The compression level between -1 (default) and 9. A value
+     * of 0 means that all entries are stored without compression.
+     * @param pChunkSize The size of uncompressed chunks compressed in
+     * parallel.
+     * @param pExecutor The executor used to compress the chunks.
+     * @param pMaxPendingChunks The max. number of chunks in progress.
+     * @param pStoredExtensions Extensions (lower case, without dot) of files
+     * stored without compression.
+     */
+    public ParallelZipWriter(OutputStream pOut, int pLevel, int pChunkSize, ExecutorService pExecutor,
+            int pMaxPendingChunks, Set<String> pStoredExtensions) {
+        this(pOut, null, pLevel, pChunkSize, pExecutor, pMaxPendingChunks, pStoredExtensions);
+    }
+
+    /**
+     * Create a writer for a target file, which is deleted if the archive
+     * cannot be written completely.
+     *
+     * @param pTarget The target file.
+     * @param pLevel The compression level between -1 (default) and 9. A value
+     * of 0 means that all entries are stored without compression.
+     * @param pChunkSize The size of uncompressed chunks compressed in
+     * parallel.
+     * @param pExecutor The executor used to compress the chunks.
+     * @param pMaxPendingChunks The max. number of chunks in progress.
+     * @param pStoredExtensions Extensions (lower case, without dot) of files
+     * stored without compression.
+     *
+     * @throws FileNotFoundException If pTarget cannot be opened for writing.
+     */
+    public ParallelZipWriter(File pTarget, int pLevel, int pChunkSize, ExecutorService pExecutor,
+            int pMaxPendingChunks, Set<String> pStoredExtensions) throws FileNotFoundException {
+        this(new FileOutputStream(pTarget), pTarget, pLevel, pChunkSize, pExecutor, pMaxPendingChunks, pStoredExtensions);
+    }
+
+    private ParallelZipWriter(OutputStream pOut, File pTarget, int pLevel, int pChunkSize, ExecutorService pExecutor,
+            int pMaxPendingChunks, Set<String> pStoredExtensions) {
+        if (pOut == null || pExecutor == null) {
+            throw new IllegalArgumentException("Arguments pOut and pExecutor must not be null.");
+        }
+        if (pLevel < -1 || pLevel > 9) {
+            throw new IllegalArgumentException("Argument pLevel must be between -1 and 9.");
+        }
+        out = new CountingOutputStream(pOut);
+        target = pTarget;
+        level = pLevel;
+        chunkSize = Math.max(DICTIONARY_SIZE, pChunkSize);
+        executor = pExecutor;
+        maxPendingChunks = Math.max(1, pMaxPendingChunks);
+        storedExtensions = (pStoredExtensions != null) ? pStoredExtensions : new HashSet<String>();
+    }
+
+    /**
+     * Add a directory entry.
+     *
+     * @param pName The directory name. A trailing slash is added if missing.
+     *
+     * @throws IOException If writing fails.
+     */
+    public void putDirectory(String pName) throws IOException {
+        checkWritable();
+        Entry entry = new Entry(pName.endsWith("/") ? pName : pName + "/", METHOD_STORED, System.currentTimeMillis(), 0);
+        entry.crc = 0;
+        entry.knownSizes = true;
+        try {
+            enqueue(new Segment(Segment.HEADER, entry, null));
+        } catch (IOException | RuntimeException ex) {
+            failed = true;
+            throw ex;
+        }
+    }
+
+    /**
+     * Add a file entry. The file content is read by the calling thread,
+     * compression takes place asynchronously.
+     *
+     * @param pName The entry name.
+     * @param pFile The file.
+     *
+     * @throws IOException If reading the file or writing fails. In this case
+     * the writer is aborted.
+     */
+    public void putFile(String pName, File pFile) throws IOException {
+        checkWritable();
+        try {
+            writeFile(pName, pFile);
+        } catch (IOException | RuntimeException ex) {
+            failed = true;
+            throw ex;
+        }
+    }
+
+    /**
+     * Write a file entry.
+     *
+     * @param pName The entry name.
+     * @param pFile The file.
+     *
+     * @throws IOException If reading the file or writing fails.
+     */
+    private void writeFile(String pName, final File pFile) throws IOException {
+        final long length = pFile.length();
+        if (isStored(pName)) {
+            final Entry entry = new Entry(pName, METHOD_STORED, pFile.lastModified(), length);
+            entry.knownSizes = true;
+            Future<byte[]> checksum = executor.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws Exception {
+                    entry.crc = checksum(pFile, chunkSize);
+                    return null;
+                }
+            });
+            entry.file = pFile;
+            enqueue(new Segment(Segment.STORED_FILE, entry, checksum));
+            return;
+        }
+
+        Entry entry = new Entry(pName, METHOD_DEFLATED, pFile.lastModified(), length);
+        enqueue(new Segment(Segment.HEADER, entry, null));
+        CRC32 crc = new CRC32();
+        long read = 0;
+        byte[] previous = null;
+        try (InputStream in = new FileInputStream(pFile)) {
+            boolean last = false;
+            while (!last) {
+                byte[] chunk = new byte[chunkSize];
+                int len = readFully(in, chunk);
+                read += len;
+                last = len < chunk.length;
+                crc.update(chunk, 0, len);
+                enqueue(new Segment(Segment.DATA, entry, executor.submit(new DeflateTask(chunk, len, previous, level, last))));
+                previous = chunk;
+            }
+        }
+        entry.crc = crc.getValue();
+        entry.size = read;
+        enqueue(new Segment(Segment.END, entry, null));
+    }
+
+    /**
+     * Write all pending entries and the central directory. The underlying
+     * stream is flushed but not closed.
+     *
+     * @throws IOException If writing fails.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        checkWritable();
+        try {
+            while (!pending.isEmpty()) {
+                writeSegment(pending.poll());
+            }
+            writeCentralDirectory();
+            out.flush();
+        } catch (IOException | RuntimeException ex) {
+            failed = true;
+            throw ex;
+        }
+        finished = true;
+    }
+
+    /**
+     * Finish the archive if not done, yet, and close the underlying stream. If
+     * the writer has been aborted before, the archive is not finished and a
+     * target file passed to the constructor is deleted.
+     *
+     * @throws IOException If writing fails or if the writer has been aborted.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!finished && !failed) {
+                finish();
+            }
+        } finally {
+            cancelPending();
+            try {
+                out.close();
+            } finally {
+                if (failed && target != null && target.exists() && !target.delete()) {
+                    LOGGER.warn("Failed to delete incomplete zip archive {}.", target);
+                }
+            }
+        }
+        if (failed) {
+            throw new IOException("Zip archive has been aborted due to a previous error.");
+        }
+    }
+
+    /**
+     * Get the shared thread pool used for compressing chunks. The number of
+     * threads is configured by
+     * {@link DataManagerSettings#DATA_ORGANIZATION_DOWNLOAD_ZIP_THREADS}.
+     *
+     * @return The shared executor.
+     */
+    public static synchronized ExecutorService getSharedExecutor() {
+        if (sharedExecutor == null) {
+            int threads = getConfiguredThreads();
+            LOGGER.debug("Creating shared zip executor with {} threads.", threads);
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger counter = new AtomicInteger(0);
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "zip-worker-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            pool.allowCoreThreadTimeOut(true);
+            sharedExecutor = pool;
+        }
+        return sharedExecutor;
+    }
+
+    private static int getConfiguredThreads() {
+        int threads = DataManagerSettings.getSingleton().getIntProperty(DataManagerSettings.DATA_ORGANIZATION_DOWNLOAD_ZIP_THREADS, -1);
+        return (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    private static int getConfiguredLevel() {
+        int compression = DataManagerSettings.getSingleton().getIntProperty(DataManagerSettings.DATA_ORGANIZATION_DOWNLOAD_ZIP_COMPRESSION, -1);
+        if (compression < -1 || compression > 9) {
+            LOGGER.debug("Invalid compression {}. Setting compression to default -1", compression);
+            compression = Deflater.DEFAULT_COMPRESSION;
+        }
+        return compression;
+    }
+
+    private static Set<String> getConfiguredStoredExtensions() {
+        String extensions = DataManagerSettings.getSingleton().getStringProperty(DataManagerSettings.DATA_ORGANIZATION_DOWNLOAD_ZIP_STORED_EXTENSIONS, DEFAULT_STORED_EXTENSIONS);
+        Set<String> result = new HashSet<>();
+        for (String extension : extensions.split(",")) {
+            if (!extension.trim().isEmpty()) {
+                result.add(extension.trim().toLowerCase(Locale.ENGLISH));
+            }
+        }
+        return result;
+    }
+
+    private boolean isStored(String pName) {
+        if (level == Deflater.NO_COMPRESSION) {
+            return true;
+        }
+        int idx = pName.lastIndexOf('.');
+        return idx >= 0 && storedExtensions.contains(pName.substring(idx + 1).toLowerCase(Locale.ENGLISH));
+    }
+
+    private void checkWritable() throws IOException {
+        if (finished) {
+            throw new IllegalStateException("Zip archive already finished.");
+        }
+        if (failed) {
+            throw new IOException("Zip archive has been aborted due to a previous error.");
+        }
+    }
+
+    /**
+     * Add a segment to the queue and write completed segments as long as too
+     * many chunks are in progress.
+     */
+    private void enqueue(Segment pSegment) throws IOException {
+        pending.add(pSegment);
+        if (pSegment.result != null) {
+            pendingChunks++;
+        }
+        while (pendingChunks > maxPendingChunks) {
+            writeSegment(pending.poll());
+        }
+    }
+
+    private void writeSegment(Segment pSegment) throws IOException {
+        Entry entry = pSegment.entry;
+        switch (pSegment.type) {
+            case Segment.HEADER:
+                entry.offset = out.getCount();
+                entry.zip64 = entry.size >= ZIP64_THRESHOLD;
+                writeLocalHeader(entry);
+                if (entry.knownSizes) {
+                    //directory entry
+                    entries.add(entry);
+                }
+                break;
+            case Segment.DATA:
+                byte[] data = await(pSegment);
+                out.write(data);
+                entry.compressedSize += data.length;
+                break;
+            case Segment.END:
+                if (!entry.zip64 && entry.compressedSize >= ZIP64_MAGIC) {
+                    throw new IOException("Compressed size of entry " + entry.name + " exceeds 4GB without ZIP64 header.");
+                }
+                writeDataDescriptor(entry);
+                entries.add(entry);
+                break;
+            case Segment.STORED_FILE:
+                await(pSegment);
+                entry.offset = out.getCount();
+                entry.zip64 = entry.size >= ZIP64_MAGIC;
+                entry.compressedSize = entry.size;
+                writeLocalHeader(entry);
+                copy(entry.file, entry.size);
+                entries.add(entry);
+                break;
+            default:
+                throw new IllegalStateException("Unknown segment type " + pSegment.type);
+        }
+    }
+
+    private byte[] await(Segment pSegment) throws IOException {
+        pendingChunks--;
+        try {
+            return pSegment.result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for entry " + pSegment.entry.name);
+        } catch (ExecutionException ex) {
+            throw new IOException("Failed to process entry " + pSegment.entry.name, ex.getCause());
+        }
+    }
+
+    private void cancelPending() {
+        for (Segment segment : pending) {
+            if (segment.result != null) {
+                segment.result.cancel(true);
+            }
+        }
+        pending.clear();
+        pendingChunks = 0;
+    }
+
+    private void copy(File pFile, long pLength) throws IOException {
+        byte[] buffer = new byte[chunkSize];
+        long copied = 0;
+        try (InputStream in = new FileInputStream(pFile)) {
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                out.write(buffer, 0, len);
+                copied += len;
+            }
+        }
+        if (copied != pLength) {
+            throw new IOException("File " + pFile + " has been modified while zipping. Expected " + pLength + " bytes but read " + copied + ".");
+        }
+    }
+
+    private void writeLocalHeader(Entry pEntry) throws IOException {
+        byte[] name = pEntry.name.getBytes(StandardCharsets.UTF_8);
+        boolean descriptor = !pEntry.knownSizes;
+        LittleEndianBuffer header = new LittleEndianBuffer();
+        header.writeInt(0x04034b50L);
+        header.writeShort(pEntry.zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+        header.writeShort(FLAG_UTF8 | (descriptor ? FLAG_DATA_DESCRIPTOR : 0));
+        header.writeShort(pEntry.method);
+        header.writeInt(pEntry.dosTime);
+        header.writeInt(descriptor ? 0 : pEntry.crc);
+        if (pEntry.zip64) {
+            header.writeInt(ZIP64_MAGIC);
+            header.writeInt(ZIP64_MAGIC);
+        } else {
+            header.writeInt(descriptor ? 0 : pEntry.compressedSize);
+            header.writeInt(descriptor ? 0 : pEntry.size);
+        }
+        header.writeShort(name.length);
+        header.writeShort(pEntry.zip64 ? 20 : 0);
+        header.write(name);
+        if (pEntry.zip64) {
+            header.writeShort(0x0001);
+            header.writeShort(16);
+            header.writeLong(descriptor ? 0 : pEntry.size);
+            header.writeLong(descriptor ? 0 : pEntry.compressedSize);
+        }
+        header.writeTo(out);
+    }
+
+    private void writeDataDescriptor(Entry pEntry) throws IOException {
+        LittleEndianBuffer descriptor = new LittleEndianBuffer();
+        descriptor.writeInt(0x08074b50L);
+        descriptor.writeInt(pEntry.crc);
+        if (pEntry.zip64) {
+            descriptor.writeLong(pEntry.compressedSize);
+            descriptor.writeLong(pEntry.size);
+        } else {
+            descriptor.writeInt(pEntry.compressedSize);
+            descriptor.writeInt(pEntry.size);
+        }
+        descriptor.writeTo(out);
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long start = out.getCount();
+        for (Entry entry : entries) {
+            byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+            boolean sizeOverflow = entry.size >= ZIP64_MAGIC;
+            boolean compressedSizeOverflow = entry.compressedSize >= ZIP64_MAGIC;
+            boolean offsetOverflow = entry.offset >= ZIP64_MAGIC;
+            int extraLength = (sizeOverflow ? 8 : 0) + (compressedSizeOverflow ? 8 : 0) + (offsetOverflow ? 8 : 0);
+            boolean zip64 = extraLength > 0 || entry.zip64;
+            LittleEndianBuffer header = new LittleEndianBuffer();
+            header.writeInt(0x02014b50L);
+            header.writeShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+            header.writeShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+            header.writeShort(FLAG_UTF8 | (entry.knownSizes ? 0 : FLAG_DATA_DESCRIPTOR));
+            header.writeShort(entry.method);
+            header.writeInt(entry.dosTime);
+            header.writeInt(entry.crc);
+            header.writeInt(compressedSizeOverflow ? ZIP64_MAGIC : entry.compressedSize);
+            header.writeInt(sizeOverflow ? ZIP64_MAGIC : entry.size);
+            header.writeShort(name.length);
+            header.writeShort(extraLength > 0 ? extraLength + 4 : 0);
+            //comment length, disk number, internal attributes
+            header.writeShort(0);
+            header.writeShort(0);
+            header.writeShort(0);
+            //external attributes, MS-DOS directory flag for directories
+            header.writeInt(entry.name.endsWith("/") ? 0x10 : 0);
+            header.writeInt(offsetOverflow ? ZIP64_MAGIC : entry.offset);
+            header.write(name);
+            if (extraLength > 0) {
+                header.writeShort(0x0001);
+                header.writeShort(extraLength);
+                if (sizeOverflow) {
+                    header.writeLong(entry.size);
+                }
+                if (compressedSizeOverflow) {
+                    header.writeLong(entry.compressedSize);
+                }
+                if (offsetOverflow) {
+                    header.writeLong(entry.offset);
+                }
+            }
+            header.writeTo(out);
+        }
+        long end = out.getCount();
+        long size = end - start;
+        int count = entries.size();
+        LittleEndianBuffer trailer = new LittleEndianBuffer();
+        if (count >= ZIP64_MAGIC_COUNT || size >= ZIP64_MAGIC || start >= ZIP64_MAGIC) {
+            LOGGER.debug("Writing ZIP64 end of central directory for {} entries.", count);
+            //ZIP64 end of central directory record
+            trailer.writeInt(0x06064b50L);
+            trailer.writeLong(44);
+            trailer.writeShort(VERSION_ZIP64);
+            trailer.writeShort(VERSION_ZIP64);
+            trailer.writeInt(0);
+            trailer.writeInt(0);
+            trailer.writeLong(count);
+            trailer.writeLong(count);
+            trailer.writeLong(size);
+            trailer.writeLong(start);
+            //ZIP64 end of central directory locator
+            trailer.writeInt(0x07064b50L);
+            trailer.writeInt(0);
+            trailer.writeLong(end);
+            trailer.writeInt(1);
+        }
+        trailer.writeInt(0x06054b50L);
+        trailer.writeShort(0);
+        trailer.writeShort(0);
+        trailer.writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+        trailer.writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+        trailer.writeInt(Math.min(size, ZIP64_MAGIC));
+        trailer.writeInt(Math.min(start, ZIP64_MAGIC));
+        trailer.writeShort(0);
+        trailer.writeTo(out);
+    }
+
+    private static int readFully(InputStream pIn, byte[] pBuffer) throws IOException {
+        int total = 0;
+        while (total < pBuffer.length) {
+            int len = pIn.read(pBuffer, total, pBuffer.length - total);
+            if (len < 0) {
+                break;
+            }
+            total += len;
+        }
+        return total;
+    }
+
+    private static long checksum(File pFile, int pBufferSize) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[pBufferSize];
+        try (InputStream in = new FileInputStream(pFile)) {
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, len);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static long toDosTime(long pTime) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(pTime);
+        int year = cal.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return ((year - 1980) << 25) | ((cal.get(Calendar.MONTH) + 1) << 21)
+                | (cal.get(Calendar.DAY_OF_MONTH) << 16) | (cal.get(Calendar.HOUR_OF_DAY) << 11)
+                | (cal.get(Calendar.MINUTE) << 5) | (cal.get(Calendar.SECOND) >> 1);
+    }
+
+    /**
+     * Task compressing a single chunk into a raw deflate block.
+     */
+    private static final class DeflateTask implements Callable<byte[]> {
+
+        private final byte[] data;
+        private final int length;
+        private final byte[] dictionary;
+        private final int level;
+        private final boolean last;
+
+        DeflateTask(byte[] pData, int pLength, byte[] pDictionary, int pLevel, boolean pLast) {
+            data = pData;
+            length = pLength;
+            dictionary = pDictionary;
+            level = pLevel;
+            last = pLast;
+        }
+
+        @Override
+        public byte[] call() throws Exception {
+            Deflater deflater = DEFLATERS.get();
+            deflater.reset();
+            deflater.setLevel(level);
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary, dictionary.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+            }
+            deflater.setInput(data, 0, length);
+            ByteArrayOutputStream result = new ByteArrayOutputStream(Math.max(64, length / 2));
+            byte[] buffer = new byte[Math.max(1024, Math.min(length, 64 * 1024))];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int len = deflater.deflate(buffer);
+                    result.write(buffer, 0, len);
+                }
+            } else {
+                //a call may only apply changed parameters, therefore loop until all input is consumed and flushed
+                int len;
+                do {
+                    len = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    result.write(buffer, 0, len);
+                } while (len == buffer.length || !deflater.needsInput());
+            }
+            return result.toByteArray();
+        }
+    }
+
+    /**
+     * Queued unit of work. Segments are written strictly in the order they
+     * were enqueued.
+     */
+    private static final class Segment {
+
+        static final int HEADER = 0;
+        static final int DATA = 1;
+        static final int END = 2;
+        static final int STORED_FILE = 3;
+
+        private final int type;
+        private final Entry entry;
+        private final Future<byte[]> result;
+
+        Segment(int pType, Entry pEntry, Future<byte[]> pResult) {
+            type = pType;
+            entry = pEntry;
+            result = pResult;
+        }
+    }
+
+    /**
+     * Zip entry metadata collected for the central directory.
+     */
+    private static final class Entry {
+
+        private final String name;
+        private final int method;
+        private final long dosTime;
+        private long size;
+        private long compressedSize = 0;
+        private volatile long crc;
+        private long offset;
+        private boolean zip64;
+        private boolean knownSizes = false;
+        private File file;
+
+        Entry(String pName, int pMethod, long pTime, long pSize) {
+            name = pName;
+            method = pMethod;
+            dosTime = toDosTime(pTime);
+            size = pSize;
+        }
+    }
+
+    /**
+     * Buffer for little endian encoded header data.
+     */
+    private static final class LittleEndianBuffer extends ByteArrayOutputStream {
+
+        void writeShort(int pValue) {
+            write(pValue & 0xFF);
+            write((pValue >>> 8) & 0xFF);
+        }
+
+        void writeInt(long pValue) {
+            writeShort((int) (pValue & 0xFFFF));
+            writeShort((int) ((pValue >>> 16) & 0xFFFF));
+        }
+
+        void writeLong(long pValue) {
+            writeInt(pValue & 0xFFFFFFFFL);
+            writeInt(pValue >>> 32);
+        }
+
+        @Override
+        public void write(byte[] pData) {
+            write(pData, 0, pData.length);
+        }
+    }
+
+    /**
+     * Output stream counting the written bytes.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+
+        private final OutputStream delegate;
+        private long count = 0;
+
+        CountingOutputStream(OutputStream pDelegate) {
+            delegate = pDelegate;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.crypto.BadPaddingException;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author jejkal
+ */
+public class CryptUtilTest {
+
+    private final static String SECRET = "qr2I9Hyp0CBhUUXj";
+    private final static String PLAIN = "myTokenSecret";
+    //PLAIN encrypted with SECRET by previous versions using AES/CBC/PKCS5Padding and a zero IV
+    private final static String LEGACY_ENCRYPTED = "ZUGh5NpZnTPEnv9F22RzSQ==";
+
+    private static CryptUtil crypt;
+
+    @BeforeClass
+    public static void setUpClass() {
+        crypt = CryptUtil.getSingleton(SECRET.getBytes());
+    }
+
+    @Test
+    public void testCbcCompatibility() throws Exception {
+        Assert.assertEquals(CryptUtil.CRYPT_MODE.CBC, crypt.getMode());
+        Assert.assertEquals(LEGACY_ENCRYPTED, crypt.encrypt(PLAIN));
+        Assert.assertEquals(PLAIN, crypt.decrypt(LEGACY_ENCRYPTED));
+    }
+
+    @Test
+    public void testGcmEncryptDecrypt() throws Exception {
+        String first = crypt.encrypt(PLAIN, CryptUtil.CRYPT_MODE.GCM);
+        String second = crypt.encrypt(PLAIN, CryptUtil.CRYPT_MODE.GCM);
+        Assert.assertTrue(first.startsWith("{GCM}"));
+        //random IV, thus each encryption is different
+        Assert.assertNotEquals(first, second);
+        Assert.assertEquals(PLAIN, crypt.decrypt(first));
+        Assert.assertEquals(PLAIN, crypt.decrypt(second));
+        //non-ASCII characters are supported in GCM mode
+        Assert.assertEquals("Schlüssel", crypt.decrypt(crypt.encrypt("Schlüssel", CryptUtil.CRYPT_MODE.GCM)));
+    }
+
+    @Test(expected = BadPaddingException.class)
+    public void testGcmTamperedData() throws Exception {
+        String encrypted = crypt.encrypt(PLAIN, CryptUtil.CRYPT_MODE.GCM);
+        char last = encrypted.charAt(encrypted.length() - 3);
+        crypt.decrypt(encrypted.substring(0, encrypted.length() - 3) + ((last == 'A') ? 'B' : 'A') + encrypted.substring(encrypted.length() - 2));
+    }
+
+    @Test
+    public void testNullInput() throws Exception {
+        Assert.assertNull(crypt.encrypt(null));
+        Assert.assertNull(crypt.decrypt(null));
+    }
+
+    @Test
+    public void testConcurrentEncryptDecrypt() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                final int thread = i;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        for (int j = 0; j < 500; j++) {
+                            String plain = "secret-" + thread + "-" + j;
+                            CryptUtil.CRYPT_MODE mode = (j % 2 == 0) ? CryptUtil.CRYPT_MODE.CBC : CryptUtil.CRYPT_MODE.GCM;
+                            if (!plain.equals(crypt.decrypt(crypt.encrypt(plain, mode)))) {
+                                return false;
+                            }
+                            if (!PLAIN.equals(crypt.decrypt(LEGACY_ENCRYPTED))) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author jejkal
+ */
+public class ParallelZipWriterTest {
+
+    private static final File BASE_DIR = new File("target/test/parallelzip/");
+    private static ExecutorService executor;
+    private static Map<String, File> files;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        ZipUtilsTest.deleteFileRecursively(BASE_DIR);
+        BASE_DIR.mkdirs();
+        executor = Executors.newFixedThreadPool(4);
+        files = new HashMap<>();
+        Random random = new Random(42);
+
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 300 * 1024) {
+            text.append("Line ").append(random.nextInt(1000)).append(" of some compressible test content.\n");
+        }
+        files.put("text.txt", createFile("text.txt", text.toString().getBytes("UTF-8")));
+        byte[] noise = new byte[200 * 1024 + 17];
+        random.nextBytes(noise);
+        files.put("sub/noise.bin", createFile("noise.bin", noise));
+        files.put("sub/image.jpg", createFile("image.jpg", Arrays.copyOf(noise, 1000)));
+        files.put("sub/empty.txt", createFile("empty.txt", new byte[0]));
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        executor.shutdownNow();
+        ZipUtilsTest.deleteFileRecursively(BASE_DIR);
+    }
+
+    private static File createFile(String pName, byte[] pContent) throws IOException {
+        File f = new File(BASE_DIR, pName);
+        try (OutputStream out = new FileOutputStream(f)) {
+            out.write(pContent);
+        }
+        return f;
+    }
+
+    private File writeArchive(String pName, int pLevel) throws IOException {
+        File archive = new File(BASE_DIR, pName);
+        try (ParallelZipWriter writer = new ParallelZipWriter(new FileOutputStream(archive), pLevel, 32 * 1024, executor, 3, new HashSet<>(Collections.singletonList("jpg")))) {
+            writer.putDirectory("emptyDir");
+            for (Map.Entry<String, File> entry : files.entrySet()) {
+                writer.putFile(entry.getKey(), entry.getValue());
+            }
+            writer.finish();
+        }
+        return archive;
+    }
+
+    private static byte[] read(InputStream pIn) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = pIn.read(buffer)) != -1) {
+            bout.write(buffer, 0, len);
+        }
+        return bout.toByteArray();
+    }
+
+    private void verifyArchive(File pArchive, int pExpectedDeflatedMethod) throws IOException {
+        try (ZipFile zip = new ZipFile(pArchive)) {
+            Assert.assertEquals(files.size() + 1, zip.size());
+            Assert.assertTrue(zip.getEntry("emptyDir/").isDirectory());
+            for (Map.Entry<String, File> entry : files.entrySet()) {
+                ZipEntry zipEntry = zip.getEntry(entry.getKey());
+                Assert.assertNotNull(zipEntry);
+                int expectedMethod = entry.getKey().endsWith(".jpg") ? ZipEntry.STORED : pExpectedDeflatedMethod;
+                Assert.assertEquals(expectedMethod, zipEntry.getMethod());
+                try (InputStream in = zip.getInputStream(zipEntry)) {
+                    Assert.assertArrayEquals(Files.readAllBytes(entry.getValue().toPath()), read(in));
+                }
+            }
+        }
+        //streaming readers must be able to process the archive as well
+        int count = 0;
+        try (ZipInputStream zin = new ZipInputStream(new FileInputStream(pArchive))) {
+            ZipEntry entry;
+            while ((entry = zin.getNextEntry()) != null) {
+                count++;
+                if (!entry.isDirectory()) {
+                    Assert.assertArrayEquals(Files.readAllBytes(files.get(entry.getName()).toPath()), read(zin));
+                }
+            }
+        }
+        Assert.assertEquals(files.size() + 1, count);
+    }
+
+    @Test
+    public void testDeflatedArchive() throws IOException {
+        File archive = writeArchive("deflated.zip", 6);
+        verifyArchive(archive, ZipEntry.DEFLATED);
+        Assert.assertTrue(archive.length() < files.get("text.txt").length());
+    }
+
+    @Test
+    public void testStoredArchive() throws IOException {
+        verifyArchive(writeArchive("stored.zip", 0), ZipEntry.STORED);
+    }
+
+    @Test
+    public void testFailedEntryDeletesTarget() throws IOException {
+        File archive = new File(BASE_DIR, "failed.zip");
+        ParallelZipWriter writer = new ParallelZipWriter(archive, -1, 32 * 1024, executor, 3, null);
+        writer.putFile("text.txt", files.get("text.txt"));
+        try {
+            writer.putFile("missing.txt", new File(BASE_DIR, "missing.txt"));
+            Assert.fail("Adding a missing file should fail.");
+        } catch (IOException ex) {
+            //expected
+        }
+        try {
+            writer.putDirectory("dir");
+            Assert.fail("Adding entries to an aborted archive should fail.");
+        } catch (IOException ex) {
+            //expected
+        }
+        try {
+            writer.close();
+            Assert.fail("Closing an aborted archive should fail.");
+        } catch (IOException ex) {
+            //expected
+        }
+        Assert.assertFalse(archive.exists());
+    }
+
+    @Test
+    public void testFailedEntryIsNotFinished() throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try (ParallelZipWriter writer = new ParallelZipWriter(bout, -1, 32 * 1024, executor, 3, new HashSet<>(Collections.singletonList("jpg")))) {
+            writer.putFile("text.txt", files.get("text.txt"));
+            //the checksum of stored files is calculated asynchronously, thus the error occurs while finishing
+            writer.putFile("missing.jpg", new File(BASE_DIR, "missing.jpg"));
+            writer.finish();
+            Assert.fail("Adding a missing file should fail.");
+        } catch (IOException ex) {
+            //expected
+        }
+        byte[] data = bout.toByteArray();
+        Assert.assertTrue(data.length > 0);
+        //no end of central directory record (PK\5\6), readers detect the archive as incomplete
+        for (int i = 0; i < data.length - 3; i++) {
+            Assert.assertFalse(data[i] == 'P' && data[i + 1] == 'K' && data[i + 2] == 5 && data[i + 3] == 6);
+        }
+    }
+
+    @Test
+    public void testZip64EntryCount() throws IOException {
+        File archive = new File(BASE_DIR, "many.zip");
+        int entries = 70000;
+        try (ParallelZipWriter writer = new ParallelZipWriter(new FileOutputStream(archive), -1, 32 * 1024, executor, 3, null)) {
+            for (int i = 0; i < entries; i++) {
+                writer.putDirectory("dir" + i);
+            }
+            writer.finish();
+        }
+        try (ZipFile zip = new ZipFile(archive)) {
+            Assert.assertEquals(entries, zip.size());
+            Assert.assertNotNull(zip.getEntry("dir69999/"));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.util.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Properties;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point shared by all benchmark modules. The results are written as JSON
+ * to a file named after the benchmark module and the benchmarked release, e.g.
+ * 'commons-benchmark-1.6.json', in order to compare them with the results of
+ * other releases. Usage:
+ *
+ * <pre>
+ * commons-benchmark [RESULT_FILE] [JMH_OPTIONS]
+ * </pre>
+ *
+ * All JMH command line options are supported, e.g. 'ZipBenchmark -p
+ * threads=8' in order to compress zip archives using 8 threads or '-t 16' for
+ * running 16 benchmark threads.
+ *
+ * Benchmark modules depending on this module provide their own launcher script
+ * using this class as main class. JMH collects the benchmarks of all modules
+ * on the classpath, thus each launcher selects its benchmarks via the
+ * following system properties:
+ *
+ * <ul>
+ * <li>benchmark.name - The name used for the result file, e.g.
+ * 'datatransfer-benchmark'.</li>
+ * <li>benchmark.include - The regular expression selecting the benchmarks run
+ * if no benchmark is provided on the command line. If not set, all benchmarks
+ * on the classpath are run.</li>
+ * <li>benchmark.gcProfiler - If 'true', the GC profiler is enabled for
+ * reporting allocation rates.</li>
+ * </ul>
+ *
+ * @author jejkal
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * The default name used for the result file.
+     */
+    private static final String DEFAULT_NAME = "commons-benchmark";
+
+    /**
+     * Hidden constructor.
+     */
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Get the version of the benchmarked release.
+     *
+     * @return The version or 'unknown' if no version information is available.
+     */
+    private static String getVersion() {
+        Properties properties = new Properties();
+        try (InputStream in = BenchmarkRunner.class.getResourceAsStream("/benchmark.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException ex) {
+            //ignore, fall back to 'unknown'
+        }
+        return properties.getProperty("version", "unknown");
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args The command line arguments.
+     *
+     * @throws RunnerException If the benchmark run failed.
+     * @throws CommandLineOptionException If the provided JMH options are
+     * invalid.
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        String resultFile = System.getProperty("benchmark.name", DEFAULT_NAME) + "-" + getVersion() + ".json";
+        String[] jmhArgs = args;
+        if (args.length > 0 && !args[0].startsWith("-")) {
+            resultFile = args[0];
+            jmhArgs = Arrays.copyOfRange(args, 1, args.length);
+        }
+        CommandLineOptions commandLine = new CommandLineOptions(jmhArgs);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile);
+        String include = System.getProperty("benchmark.include");
+        if (commandLine.getIncludes().isEmpty() && include != null) {
+            options.include(include);
+        }
+        if (Boolean.getBoolean("benchmark.gcProfiler")) {
+            options.addProfiler(GCProfiler.class);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.util.benchmark;
+
+import edu.kit.dama.util.CryptUtil;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.commons.codec.binary.Base64;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Contention benchmarks for encrypting and decrypting secrets concurrently,
+ * as it happens e.g. while authenticating many REST requests in parallel. All
+ * benchmarks run with as many threads as processors are available, the mixed
+ * benchmark runs encrypting and decrypting threads at the same time.
+ *
+ * The mode LOCKED_CBC is a baseline using one shared cipher pair guarded by a
+ * global lock, which is how CryptUtil worked before cipher instances were
+ * pooled. CBC and GCM use CryptUtil in the according mode.
+ *
+ * @author jejkal
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CryptUtilBenchmark {
+
+    /**
+     * The secret used by all benchmarks.
+     */
+    private static final String SECRET = "qr2I9Hyp0CBhUUXj";
+    /**
+     * A plain text of the length of a typical token secret.
+     */
+    private static final String PLAIN = "a8Kd92LmQz7xVb3NcT5wRy1P";
+
+    /**
+     * The benchmarked implementations.
+     */
+    public enum Implementation {
+
+        /**
+         * Shared ciphers behind a global lock (baseline).
+         */
+        LOCKED_CBC,
+        /**
+         * CryptUtil in CBC mode.
+         */
+        CBC,
+        /**
+         * CryptUtil in GCM mode.
+         */
+        GCM
+    }
+
+    @Param({"LOCKED_CBC", "CBC", "GCM"})
+    public Implementation mode;
+
+    private CryptUtil crypt;
+    private LockedCrypt lockedCrypt;
+    private String encrypted;
+
+    /**
+     * Create the CryptUtil instance and the encrypted input for decryption.
+     *
+     * @throws GeneralSecurityException If the encryption fails.
+     */
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        crypt = CryptUtil.getSingleton(SECRET.getBytes());
+        lockedCrypt = new LockedCrypt(SECRET.getBytes());
+        encrypted = encrypt();
+    }
+
+    /**
+     * Encrypt the plain text using the selected implementation.
+     *
+     * @return The encrypted text.
+     *
+     * @throws GeneralSecurityException If the encryption fails.
+     */
+    private String encrypt() throws GeneralSecurityException {
+        switch (mode) {
+            case LOCKED_CBC:
+                return lockedCrypt.encrypt(PLAIN);
+            case GCM:
+                return crypt.encrypt(PLAIN, CryptUtil.CRYPT_MODE.GCM);
+            default:
+                return crypt.encrypt(PLAIN, CryptUtil.CRYPT_MODE.CBC);
+        }
+    }
+
+    /**
+     * Decrypt the encrypted text using the selected implementation.
+     *
+     * @return The plain text.
+     *
+     * @throws GeneralSecurityException If the decryption fails.
+     */
+    private String decrypt() throws GeneralSecurityException {
+        if (Implementation.LOCKED_CBC.equals(mode)) {
+            return lockedCrypt.decrypt(encrypted);
+        }
+        return crypt.decrypt(encrypted);
+    }
+
+    /**
+     * Concurrent encryption.
+     *
+     * @return The encrypted text.
+     *
+     * @throws GeneralSecurityException If the encryption fails.
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String encryptConcurrently() throws GeneralSecurityException {
+        return encrypt();
+    }
+
+    /**
+     * Concurrent decryption, e.g. while authenticating REST requests.
+     *
+     * @return The plain text.
+     *
+     * @throws GeneralSecurityException If the decryption fails.
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String decryptConcurrently() throws GeneralSecurityException {
+        return decrypt();
+    }
+
+    /**
+     * Encryption part of the mixed benchmark.
+     *
+     * @return The encrypted text.
+     *
+     * @throws GeneralSecurityException If the encryption fails.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public String mixedEncrypt() throws GeneralSecurityException {
+        return encrypt();
+    }
+
+    /**
+     * Decryption part of the mixed benchmark.
+     *
+     * @return The plain text.
+     *
+     * @throws GeneralSecurityException If the decryption fails.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public String mixedDecrypt() throws GeneralSecurityException {
+        return decrypt();
+    }
+
+    /**
+     * Baseline implementation sharing one cipher pair behind a global lock.
+     */
+    private static final class LockedCrypt {
+
+        private static final Charset CHARSET = Charset.forName("US-ASCII");
+        private final Cipher enCipher;
+        private final Cipher deCipher;
+
+        /**
+         * Default constructor.
+         *
+         * @param pSecret The secret.
+         *
+         * @throws GeneralSecurityException If the ciphers cannot be created.
+         */
+        LockedCrypt(byte[] pSecret) throws GeneralSecurityException {
+            SecretKeySpec key = new SecretKeySpec(pSecret, "AES");
+            enCipher = Cipher.getInstance("AES/CBC/PKCS5Padding", new BouncyCastleProvider());
+            enCipher.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(new byte[16]));
+            deCipher = Cipher.getInstance("AES/CBC/PKCS5Padding", new BouncyCastleProvider());
+            deCipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(new byte[16]));
+        }
+
+        synchronized String encrypt(String pPlain) throws GeneralSecurityException {
+            return Base64.encodeBase64String(enCipher.doFinal(pPlain.getBytes(CHARSET)));
+        }
+
+        synchronized String decrypt(String pEncrypted) throws GeneralSecurityException {
+            return new String(deCipher.doFinal(Base64.decodeBase64(pEncrypted)), CHARSET);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.util.benchmark;
+
+import edu.kit.dama.util.ParallelZipWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for compressing a set of files into a zip stream, as done while
+ * downloading collection nodes. ZIP_OUTPUT_STREAM is the sequential
+ * compression via ZipOutputStream used before, PARALLEL uses
+ * ParallelZipWriter with a dedicated thread pool of 'threads' threads. The
+ * archive is written to a stream discarding all data, thus only the
+ * compression is measured.
+ *
+ * The files are created once per trial in the directory provided by the
+ * system property 'benchmark.dir' or in the default temp directory. Half of
+ * each file is random data, the other half is compressible text. The data set
+ * can be changed via '-p fileCount=100 -p fileSize=16' (size in MiB).
+ *
+ * @author jejkal
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ZipBenchmark {
+
+    /**
+     * The benchmarked implementations.
+     */
+    public enum Implementation {
+
+        /**
+         * Sequential compression via ZipOutputStream.
+         */
+        ZIP_OUTPUT_STREAM,
+        /**
+         * Parallel compression via ParallelZipWriter.
+         */
+        PARALLEL
+    }
+
+    @Param({"ZIP_OUTPUT_STREAM", "PARALLEL"})
+    public Implementation implementation;
+
+    @Param({"4"})
+    public int threads;
+
+    @Param({"20"})
+    public int fileCount;
+
+    @Param({"8"})
+    public int fileSize;
+
+    private File baseDir;
+    private File[] files;
+    private ExecutorService executor;
+
+    /**
+     * Create the input files and the thread pool.
+     *
+     * @throws IOException If the files cannot be created.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        File parent = new File(System.getProperty("benchmark.dir", System.getProperty("java.io.tmpdir")));
+        baseDir = Files.createTempDirectory(parent.toPath(), "zip-benchmark").toFile();
+        Random random = new Random(42);
+        byte[] text = "KIT Data Manager zip benchmark line with compressible content.\n".getBytes("US-ASCII");
+        byte[] buffer = new byte[1024 * 1024];
+        files = new File[fileCount];
+        for (int i = 0; i < fileCount; i++) {
+            files[i] = new File(baseDir, "file" + i + ".bin");
+            try (OutputStream out = Files.newOutputStream(files[i].toPath())) {
+                for (int mb = 0; mb < fileSize; mb++) {
+                    if (mb % 2 == 0) {
+                        random.nextBytes(buffer);
+                    } else {
+                        for (int pos = 0; pos < buffer.length; pos++) {
+                            buffer[pos] = text[pos % text.length];
+                        }
+                    }
+                    out.write(buffer);
+                }
+            }
+        }
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Remove the input files and stop the thread pool.
+     *
+     * @throws IOException If the files cannot be removed.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        FileUtils.deleteDirectory(baseDir);
+    }
+
+    /**
+     * Compress all files.
+     *
+     * @return The number of compressed files.
+     *
+     * @throws IOException If compressing fails.
+     */
+    @Benchmark
+    public int zip() throws IOException {
+        if (Implementation.PARALLEL.equals(implementation)) {
+            try (ParallelZipWriter writer = new ParallelZipWriter(new DiscardingOutputStream(), -1, ParallelZipWriter.DEFAULT_CHUNK_SIZE, executor, 2 * threads, null)) {
+                for (File file : files) {
+                    writer.putFile(file.getName(), file);
+                }
+                writer.finish();
+            }
+        } else {
+            try (ZipOutputStream zout = new ZipOutputStream(new DiscardingOutputStream())) {
+                byte[] buffer = new byte[10 * 1024];
+                for (File file : files) {
+                    zout.putNextEntry(new ZipEntry(file.getName()));
+                    try (InputStream in = new FileInputStream(file)) {
+                        int len;
+                        while ((len = in.read(buffer)) > 0) {
+                            zout.write(buffer, 0, len);
+                        }
+                    }
+                    zout.closeEntry();
+                }
+            }
+        }
+        return files.length;
+    }
+
+    /**
+     * Output stream discarding all data.
+     */
+    private static final class DiscardingOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -40,6 +40,7 @@ import javax.persistence.OneToMany;
 import javax.persistence.Transient;
 import org.eclipse.persistence.annotations.BatchFetch;
 import org.eclipse.persistence.annotations.BatchFetchType;
+import org.eclipse.persistence.annotations.Index;
 
 /**
  *
@@ -49,10 +50,16 @@ import org.eclipse.persistence.annotations.BatchFetchType;
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "type", discriminatorType = DiscriminatorType.STRING)
 @IdClass(DataOrganizationNodeId.class)
+@Index(name = "IDX_DON_FULLPATH", columnNames = {"DIGIT_OBJ_ID", "VIEWNAME", "FULLPATH"})
 public class DataOrganizationNode implements IDataOrganizationNode, Serializable,
         Cloneable {
 
     private static final long serialVersionUID = 7526472295622776127L;
+    /**
+     * Max. length of an indexed full path. Nodes with longer paths are not
+     * indexed.
+     */
+    public static final int MAX_FULL_PATH_LENGTH = 1024;
 
     /*
      */
@@ -79,6 +86,8 @@ public class DataOrganizationNode implements IDataOrganizationNode, Serializable
     private Long stepNoLeaved;
     private int nodeDepth;
     private int idVersion;
+    @Column(name = "FULLPATH", length = MAX_FULL_PATH_LENGTH)
+    private String fullPath;
 
     /**
      * Default constructor.
@@ -251,6 +260,27 @@ public class DataOrganizationNode implements IDataOrganizationNode, Serializable
         this.nodeDepth = nodeDepth;
     }
 
+    /**
+     * Get the full logical path of this node within its view, e.g. /a/b/c.txt.
+     * The path of the root node is '/'. The path is null for nodes persisted
+     * without path index or if the path exceeds
+     * {@link #MAX_FULL_PATH_LENGTH}.
+     *
+     * @return The full path.
+     */
+    public String getFullPath() {
+        return fullPath;
+    }
+
+    /**
+     * Set the full logical path of this node.
+     *
+     * @param fullPath The full path.
+     */
+    public void setFullPath(String fullPath) {
+        this.fullPath = fullPath;
+    }
+
     @Override
     public IDataOrganizationNode clone() throws CloneNotSupportedException {
         DataOrganizationNode don = null;
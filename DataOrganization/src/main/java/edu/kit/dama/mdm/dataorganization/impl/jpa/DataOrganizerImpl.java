@@ -24,6 +24,9 @@ import edu.kit.dama.mdm.dataorganization.impl.jpa.persistence.PersistenceFacade;
 import edu.kit.dama.commons.types.DigitalObjectId;
 import edu.kit.dama.mdm.dataorganization.entity.core.IFileTree;
 import edu.kit.dama.mdm.dataorganization.entity.impl.client.NodeId;
+import edu.kit.dama.mdm.dataorganization.impl.util.Util;
+import edu.kit.dama.mdm.dataorganization.service.core.FileTreeUpdateResult;
+import edu.kit.dama.mdm.dataorganization.service.exception.EntityNotFoundException;
 import edu.kit.dama.util.Constants;
 import java.util.List;
 import java.util.Stack;
@@ -110,6 +113,23 @@ final public class DataOrganizerImpl implements edu.kit.dama.mdm.dataorganizatio
         bulkPersist.finish();
     }
 
+    @Override
+    public FileTreeUpdateResult updateFileTree(IFileTree fileTree) {
+        if (null == fileTree) {
+            throw new IllegalArgumentException(
+                    "The reference to a FileTree to update must not be null!");
+        }
+
+        EntityManager em = PersistenceFacade.getInstance().getEntityManagerFactory().createEntityManager();
+        try {
+            FileTreeUpdateResult result = new FileTreeUpdater(fileTree.getDigitalObjectId(), fileTree.getViewName()).update(fileTree, em);
+            LOGGER.debug("Updated view {} of object {} ({})", new Object[]{fileTree.getViewName(), fileTree.getDigitalObjectId(), result});
+            return result;
+        } finally {
+            em.close();
+        }
+    }
+
     @Override
     public List<? extends IDataOrganizationNode> getChildren(NodeId relativeRoot,
             int firstResult, int maxResult) {
@@ -157,6 +177,48 @@ final public class DataOrganizerImpl implements edu.kit.dama.mdm.dataorganizatio
         return node;
     }
 
+    @Override
+    public IDataOrganizationNode loadNodeByPath(DigitalObjectId digitalObjectId,
+            String viewName, String path) throws EntityNotFoundException {
+        String fullPath = Util.normalizePath(path);
+        PersistenceFacade pf = PersistenceFacade.getInstance();
+        DataOrganizationNode node = null;
+        boolean indexed = false;
+        if (fullPath.length() <= DataOrganizationNode.MAX_FULL_PATH_LENGTH) {
+            EntityManager em = pf.getEntityManagerFactory().createEntityManager();
+            try {
+                node = pf.findNodeByPath(digitalObjectId, viewName, fullPath, em);
+                indexed = node != null || pf.hasPathIndex(digitalObjectId, viewName, em);
+            } finally {
+                em.close();
+            }
+        }
+
+        if (node == null) {
+            if (indexed) {
+                throw new EntityNotFoundException("No node found for path '" + fullPath + "' in view '" + viewName + "' of object " + digitalObjectId);
+            }
+            //no index available, e.g. for trees persisted before the index was introduced
+            LOGGER.debug("No path index available for path {} in view {} of object {}. Searching in file tree.", new Object[]{fullPath, viewName, digitalObjectId});
+            FileTree tree = loadFileTree(digitalObjectId, viewName);
+            IDataOrganizationNode result = (tree != null) ? Util.getNodeByPath(tree, fullPath) : null;
+            if (result == null) {
+                throw new EntityNotFoundException("No node found for path '" + fullPath + "' in view '" + viewName + "' of object " + digitalObjectId);
+            }
+            return result;
+        }
+
+        if (node instanceof CollectionNode) {
+            //load the node together with all descendants
+            List<DataOrganizationNode> nodes = pf.getAllNodes(node.getTransientNodeId(), Integer.MAX_VALUE - node.getNodeDepth());
+            if (buildTree(nodes, digitalObjectId) != null) {
+                //the first node shares its children with the tree root
+                return nodes.get(0);
+            }
+        }
+        return node;
+    }
+
     @Override
     public List<String> getViews(DigitalObjectId doid) {
         PersistenceFacade pf = PersistenceFacade.getInstance();
@@ -175,6 +237,7 @@ final public class DataOrganizerImpl implements edu.kit.dama.mdm.dataorganizatio
         private int depth = 0;
         private String digitalObjectIDStr;
         private Stack<DataOrganizationNode> implNodes = new Stack<DataOrganizationNode>();
+        private Stack<String> paths = new Stack<>();
 
         private String viewName;
 
@@ -190,6 +253,15 @@ final public class DataOrganizerImpl implements edu.kit.dama.mdm.dataorganizatio
                         convertDataOrganizationNode(node);
 
                 implNodes.push(implNode);
+                String path;
+                if (paths.isEmpty()) {
+                    path = "/";
+                } else {
+                    String parentPath = paths.peek();
+                    path = ("/".equals(parentPath) ? "" : parentPath) + "/" + node.getName();
+                }
+                paths.push(path);
+                implNode.setFullPath((path.length() > DataOrganizationNode.MAX_FULL_PATH_LENGTH) ? null : path);
                 count += increment;
                 ++depth;
                 implNode.setStepNoArrived(count);
@@ -203,6 +275,7 @@ final public class DataOrganizerImpl implements edu.kit.dama.mdm.dataorganizatio
             @Override
             public void action(IDataOrganizationNode node) {
                 DataOrganizationNode implNode = implNodes.pop();
+                paths.pop();
                 count += increment;
                 --depth;
                 implNode.setStepNoLeaved(count);
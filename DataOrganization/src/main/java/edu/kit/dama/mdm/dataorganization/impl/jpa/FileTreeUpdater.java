@@ -0,0 +1,385 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.dataorganization.impl.jpa;
+
+import edu.kit.dama.commons.types.DigitalObjectId;
+import edu.kit.dama.commons.types.ILFN;
+import edu.kit.dama.mdm.dataorganization.entity.core.IAttribute;
+import edu.kit.dama.mdm.dataorganization.entity.core.ICollectionNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IFileNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IFileTree;
+import edu.kit.dama.mdm.dataorganization.impl.jpa.persistence.PersistenceFacade;
+import edu.kit.dama.mdm.dataorganization.service.core.FileTreeUpdateResult;
+import edu.kit.dama.mdm.dataorganization.service.exception.DataOrganizationError;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Stack;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import org.eclipse.persistence.jpa.JpaEntityManager;
+import org.eclipse.persistence.sessions.IdentityMapAccessor;
+
+/**
+ * Incremental update of a persisted file tree. The nodes of the new tree are
+ * matched with the persisted nodes of the same view by their logical path.
+ * While assigning the nested set step numbers of the new tree in the same
+ * order as {@link DataOrganizerImpl.SaveVisitor} does, the step numbers of
+ * matching persisted nodes are re-used as long as they fit into the new
+ * numbering. Due to the gaps left between consecutive step numbers new nodes
+ * can typically be placed between their siblings. Only if a gap is exhausted,
+ * the affected range is renumbered.
+ *
+ * Unchanged nodes which keep their step numbers are not touched at all, nodes
+ * whose stepNoLeaved changes are updated, whereas nodes with a different
+ * stepNoArrived (which is part of the primary key) or with modified content
+ * are deleted and inserted again. Kept nodes persisted before the path index
+ * was introduced get their full path assigned, so that the path index covers
+ * the entire view afterwards.
+ *
+ * @author jejkal
+ */
+final class FileTreeUpdater {
+
+    /**
+     * The increment between two step numbers, which is the same as used by
+     * SaveVisitor.
+     */
+    private static final long INCREMENT = 100L;
+    /**
+     * The number of inserted nodes after which the changes are flushed.
+     */
+    private static final int FLUSH_RATE = 4000;
+
+    private final DigitalObjectId digitalObjectId;
+    private final String viewName;
+    private final FileTreeUpdateResult result = new FileTreeUpdateResult();
+    /**
+     * Persisted nodes by logical path.
+     */
+    private final Map<String, DataOrganizationNode> storedNodesByPath = new HashMap<>();
+    /**
+     * Persisted nodes by stepNoArrived, used to determine the idVersion of
+     * nodes written at a formerly used position.
+     */
+    private final Map<Long, DataOrganizationNode> storedNodesByStep = new HashMap<>();
+    /**
+     * The amount of step numbers needed by each node of the new tree including
+     * all descendants.
+     */
+    private final Map<IDataOrganizationNode, Long> requiredSteps = new IdentityHashMap<>();
+    private final Set<DataOrganizationNode> matchedNodes = Collections.newSetFromMap(new IdentityHashMap<DataOrganizationNode, Boolean>());
+    private final Set<DataOrganizationNode> keptNodes = Collections.newSetFromMap(new IdentityHashMap<DataOrganizationNode, Boolean>());
+    private final Map<DataOrganizationNode, Long> resizedNodes = new IdentityHashMap<>();
+    /**
+     * Kept nodes whose full path is missing or outdated.
+     */
+    private final Map<DataOrganizationNode, String> reindexedNodes = new IdentityHashMap<>();
+    private final List<DataOrganizationNode> newNodes = new ArrayList<>();
+    private long lastStep = 0L;
+
+    /**
+     * Default constructor.
+     *
+     * @param pDigitalObjectId The id of the object whose tree is updated.
+     * @param pViewName The name of the updated view.
+     */
+    FileTreeUpdater(DigitalObjectId pDigitalObjectId, String pViewName) {
+        digitalObjectId = pDigitalObjectId;
+        viewName = pViewName;
+    }
+
+    /**
+     * Replace the persisted tree by the provided one within a single
+     * transaction. Obsolete nodes are removed and flushed before new nodes are
+     * inserted, as new nodes may re-use the primary keys of removed ones. If
+     * the update fails, the persisted tree remains unchanged.
+     *
+     * @param pTree The new tree.
+     * @param pEntityManager The entity manager used to read and write nodes.
+     *
+     * @return The update result.
+     */
+    FileTreeUpdateResult update(IFileTree pTree, EntityManager pEntityManager) {
+        List<DataOrganizationNode> storedNodes = PersistenceFacade.getInstance().getAllNodesForTree(digitalObjectId, viewName, pEntityManager);
+        indexStoredNodes(storedNodes);
+        ICollectionNode root = pTree.getRootNode();
+        countRequiredSteps(root);
+        assignSteps(root, "/", 0, Long.MAX_VALUE - 1);
+
+        List<DataOrganizationNode> removedNodes = new ArrayList<>();
+        EntityTransaction transaction = pEntityManager.getTransaction();
+        transaction.begin();
+        try {
+            for (DataOrganizationNode node : storedNodes) {
+                if (!keptNodes.contains(node)) {
+                    if (!matchedNodes.contains(node)) {
+                        result.incrementDeleted();
+                    }
+                    removedNodes.add(node);
+                    pEntityManager.remove(node);
+                }
+            }
+            for (Map.Entry<DataOrganizationNode, Long> entry : resizedNodes.entrySet()) {
+                entry.getKey().setStepNoLeaved(entry.getValue());
+            }
+            for (Map.Entry<DataOrganizationNode, String> entry : reindexedNodes.entrySet()) {
+                entry.getKey().setFullPath(entry.getValue());
+            }
+            //deletions have to be written first as their ids may be re-used by new nodes
+            pEntityManager.flush();
+            pEntityManager.clear();
+            //a new node may re-use the id of a removed node of another type, thus the removed nodes must not remain cached
+            IdentityMapAccessor identityMaps = pEntityManager.unwrap(JpaEntityManager.class).getServerSession().getIdentityMapAccessor();
+            for (DataOrganizationNode node : removedNodes) {
+                identityMaps.removeFromIdentityMap(node);
+            }
+
+            int count = 0;
+            for (DataOrganizationNode node : newNodes) {
+                pEntityManager.persist(node);
+                if (++count % FLUSH_RATE == 0) {
+                    pEntityManager.flush();
+                }
+            }
+            transaction.commit();
+        } finally {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determine the logical paths of all persisted nodes.
+     *
+     * @param pNodes The persisted nodes ordered by stepNoArrived.
+     */
+    private void indexStoredNodes(List<DataOrganizationNode> pNodes) {
+        Stack<DataOrganizationNode> ancestors = new Stack<>();
+        Stack<String> paths = new Stack<>();
+        for (DataOrganizationNode node : pNodes) {
+            while (!ancestors.isEmpty() && ancestors.peek().getStepNoLeaved() < node.getStepNoLeaved()) {
+                ancestors.pop();
+                paths.pop();
+            }
+            String path = paths.isEmpty() ? "/" : getChildPath(paths.peek(), node);
+            if (!storedNodesByPath.containsKey(path)) {
+                storedNodesByPath.put(path, node);
+            }
+            storedNodesByStep.put(node.getStepNoArrived(), node);
+            ancestors.push(node);
+            paths.push(path);
+        }
+    }
+
+    /**
+     * Count the step numbers required by the provided node and all its
+     * descendants, which is two per node.
+     *
+     * @param pNode The node.
+     *
+     * @return The number of required step numbers.
+     */
+    private long countRequiredSteps(IDataOrganizationNode pNode) {
+        long steps = 2;
+        if (pNode instanceof ICollectionNode) {
+            for (IDataOrganizationNode child : ((ICollectionNode) pNode).getChildren()) {
+                steps += countRequiredSteps(child);
+            }
+        }
+        requiredSteps.put(pNode, steps);
+        return steps;
+    }
+
+    /**
+     * Assign the step numbers of the provided node and all its descendants.
+     * All assigned numbers are larger than lastStep and not larger than
+     * pMaxStep. It is guaranteed by the caller that there are enough numbers
+     * available within this range.
+     *
+     * @param pNode The node.
+     * @param pPath The logical path of the node.
+     * @param pDepth The depth of the node.
+     * @param pMaxStep The largest step number that can be assigned.
+     */
+    private void assignSteps(IDataOrganizationNode pNode, String pPath, int pDepth, long pMaxStep) {
+        long required = requiredSteps.get(pNode);
+        long step = Math.max(1, Math.min(INCREMENT, (pMaxStep - lastStep) / required));
+        DataOrganizationNode storedNode = findStoredNode(pNode, pPath);
+        boolean keepInterval = false;
+        long arrived;
+        if (storedNode != null && storedNode.getStepNoArrived() > lastStep && pMaxStep - storedNode.getStepNoArrived() >= required - 1) {
+            matchedNodes.add(storedNode);
+            arrived = storedNode.getStepNoArrived();
+            keepInterval = storedNode.getStepNoLeaved() <= pMaxStep && storedNode.getStepNoLeaved() - arrived - 1 >= required - 2;
+        } else {
+            if (storedNode != null) {
+                matchedNodes.add(storedNode);
+            }
+            arrived = lastStep + step;
+        }
+        lastStep = arrived;
+
+        if (pNode instanceof ICollectionNode) {
+            //the last number is reserved for stepNoLeaved
+            long childrenMaxStep = keepInterval ? storedNode.getStepNoLeaved() - 1 : pMaxStep - 1;
+            long remaining = required - 2;
+            List<? extends IDataOrganizationNode> children = ((ICollectionNode) pNode).getChildren();
+            for (int i = 0; i < children.size(); i++) {
+                IDataOrganizationNode child = children.get(i);
+                long childRequired = requiredSteps.get(child);
+                remaining -= childRequired;
+                long childMaxStep = childrenMaxStep - remaining;
+                if (i + 1 < children.size()) {
+                    //if possible, leave the persisted position of the next sibling untouched
+                    IDataOrganizationNode sibling = children.get(i + 1);
+                    DataOrganizationNode storedSibling = findStoredNode(sibling, getChildPath(pPath, sibling));
+                    if (storedSibling != null && storedSibling.getStepNoArrived() - 1 < childMaxStep && storedSibling.getStepNoArrived() - 1 - lastStep >= childRequired) {
+                        childMaxStep = storedSibling.getStepNoArrived() - 1;
+                    }
+                }
+                assignSteps(child, getChildPath(pPath, child), pDepth + 1, childMaxStep);
+            }
+        }
+
+        long leaved = keepInterval ? storedNode.getStepNoLeaved() : Math.min(lastStep + step, pMaxStep);
+        lastStep = leaved;
+
+        String fullPath = (pPath.length() > DataOrganizationNode.MAX_FULL_PATH_LENGTH) ? null : pPath;
+        boolean unchanged = storedNode != null && arrived == storedNode.getStepNoArrived() && hasSameContent(storedNode, pNode);
+        if (unchanged) {
+            keptNodes.add(storedNode);
+            if (!Objects.equals(fullPath, storedNode.getFullPath())) {
+                reindexedNodes.put(storedNode, fullPath);
+            }
+            if (keepInterval) {
+                result.incrementUnchanged();
+            } else {
+                resizedNodes.put(storedNode, leaved);
+                result.incrementRenumbered();
+            }
+            return;
+        }
+
+        DataOrganizationNode newNode = copyNode(pNode);
+        newNode.setDigitalObjectIDStr(digitalObjectId.getStringRepresentation());
+        newNode.setViewName(viewName);
+        newNode.setStepNoArrived(arrived);
+        newNode.setStepNoLeaved(leaved);
+        newNode.setNodeDepth(pDepth);
+        newNode.setFullPath(fullPath);
+        //invalidate node ids still referring to a former node at the same position
+        DataOrganizationNode formerNode = storedNodesByStep.get(arrived);
+        newNode.setIdVersion((formerNode != null) ? formerNode.getIdVersion() + 1 : DataOrganizerImpl.VER_START);
+        newNodes.add(newNode);
+
+        if (storedNode == null) {
+            result.incrementInserted();
+        } else if (hasSameContent(storedNode, pNode)) {
+            result.incrementRenumbered();
+        } else {
+            result.incrementUpdated();
+        }
+    }
+
+    /**
+     * Get the persisted node with the provided path if it has not been matched
+     * to another node yet and if it is of the same type as pNode.
+     *
+     * @param pNode The node of the new tree.
+     * @param pPath The logical path of pNode.
+     *
+     * @return The persisted node or null.
+     */
+    private DataOrganizationNode findStoredNode(IDataOrganizationNode pNode, String pPath) {
+        DataOrganizationNode storedNode = storedNodesByPath.get(pPath);
+        if (storedNode == null || matchedNodes.contains(storedNode) || (storedNode instanceof CollectionNode) != (pNode instanceof ICollectionNode)) {
+            return null;
+        }
+        return storedNode;
+    }
+
+    /**
+     * Check whether name, description, attributes and logical file name of
+     * both nodes are equal.
+     *
+     * @param pStoredNode The persisted node.
+     * @param pNode The node of the new tree.
+     *
+     * @return TRUE if the persisted node can be kept.
+     */
+    private static boolean hasSameContent(DataOrganizationNode pStoredNode, IDataOrganizationNode pNode) {
+        if (!Objects.equals(pStoredNode.getName(), pNode.getName()) || !Objects.equals(pStoredNode.getDescription(), pNode.getDescription())) {
+            return false;
+        }
+        Set<Attribute> attributes = new HashSet<>();
+        for (IAttribute attribute : pNode.getAttributes()) {
+            attributes.add(new Attribute(attribute));
+        }
+        if (!pStoredNode.getAttributes().equals(attributes)) {
+            return false;
+        }
+        if (pStoredNode instanceof FileNode) {
+            ILFN storedLfn = ((FileNode) pStoredNode).getLogicalFileName();
+            ILFN lfn = ((IFileNode) pNode).getLogicalFileName();
+            if (storedLfn == null || lfn == null) {
+                return storedLfn == lfn;
+            }
+            return storedLfn.getClass().equals(lfn.getClass()) && Objects.equals(storedLfn.asString(), lfn.asString());
+        }
+        return true;
+    }
+
+    /**
+     * Create a new JPA node containing the properties of the provided node.
+     * In contrast to JPAImplUtil.convertDataOrganizationNode() a new instance
+     * is created in every case, thus the provided tree remains unchanged.
+     *
+     * @param pNode The node to copy.
+     *
+     * @return The copy.
+     */
+    private static DataOrganizationNode copyNode(IDataOrganizationNode pNode) {
+        if (pNode instanceof ICollectionNode) {
+            return new CollectionNode((ICollectionNode) pNode);
+        } else if (pNode instanceof IFileNode) {
+            return new FileNode((IFileNode) pNode);
+        }
+        throw new DataOrganizationError("node:IDataOrganizationNode should be either"
+                + " instance of IFileNode or instance of ICollectionNode");
+    }
+
+    /**
+     * Get the logical path of a child node.
+     *
+     * @param pParentPath The path of the parent.
+     * @param pChild The child.
+     *
+     * @return The path of the child.
+     */
+    private static String getChildPath(String pParentPath, IDataOrganizationNode pChild) {
+        return ("/".equals(pParentPath) ? "" : pParentPath) + "/" + pChild.getName();
+    }
+}
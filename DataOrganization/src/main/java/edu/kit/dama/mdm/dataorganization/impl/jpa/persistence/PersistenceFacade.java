@@ -56,6 +56,7 @@ final public class PersistenceFacade {
     private static final String COL_NODE_DEPTH = "nodeDepth";
     private static final String COL_NODE_ID_VERSION = "idVersion";
     private static final String COL_VIEW_NAME = "viewName";
+    private static final String COL_FULL_PATH = "fullPath";
 
     /**
      * Gets the persistence unit name.
@@ -140,6 +141,25 @@ final public class PersistenceFacade {
     public List<DataOrganizationNode> getAllNodesForTree(
             DigitalObjectId digitalObjectID, String viewName) {
         EntityManager em = getEntityManagerFactory().createEntityManager();
+        try {
+            return getAllNodesForTree(digitalObjectID, viewName, em);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Queries the db and gets all the the nodes of a tree using the provided
+     * entity manager, e.g. in order to modify the returned nodes.
+     *
+     * @param digitalObjectID The id of the object to load all nodes for.
+     * @param viewName The name of the view that should be loaded.
+     * @param em The entityManager used to search.
+     *
+     * @return All nodes of the tree ordered by stepNoArrived.
+     */
+    public List<DataOrganizationNode> getAllNodesForTree(
+            DigitalObjectId digitalObjectID, String viewName, EntityManager em) {
         CriteriaBuilder cb = em.getCriteriaBuilder();
         CriteriaQuery<DataOrganizationNode> query = cb.createQuery(
                 DataOrganizationNode.class);
@@ -156,9 +176,7 @@ final public class PersistenceFacade {
         query.orderBy(cb.asc(from.get(COL_STEP_NO_ARRIVED)));
 
         TypedQuery<DataOrganizationNode> tq = em.createQuery(query);
-        List<DataOrganizationNode> resultList = tq.getResultList();
-        em.close();
-        return resultList;
+        return tq.getResultList();
     }
 
     /**
@@ -361,6 +379,49 @@ final public class PersistenceFacade {
 
     }
 
+    /**
+     * Find a node by its full logical path using the path index.
+     *
+     * @param digitalObjectId The object id.
+     * @param viewName The name of the view.
+     * @param fullPath The normalized full path of the node, e.g. /a/b.
+     * @param em The entityManager used to search.
+     *
+     * @return The node with the provided path or null if no node was found.
+     */
+    public DataOrganizationNode findNodeByPath(DigitalObjectId digitalObjectId,
+            String viewName, String fullPath, EntityManager em) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<DataOrganizationNode> query = cb.createQuery(DataOrganizationNode.class);
+        Root<DataOrganizationNode> from = query.from(DataOrganizationNode.class);
+        query.select(from);
+        query.where(
+                cb.and(
+                        cb.equal(from.get(COL_DIGITAL_OBJ_ID), digitalObjectId.
+                                getStringRepresentation()),
+                        cb.equal(from.get(COL_VIEW_NAME), viewName),
+                        cb.equal(from.get(COL_FULL_PATH), fullPath)));
+        query.orderBy(cb.asc(from.get(COL_STEP_NO_ARRIVED)));
+        TypedQuery<DataOrganizationNode> tq = em.createQuery(query);
+        tq.setMaxResults(1);
+        List<DataOrganizationNode> resultList = tq.getResultList();
+        return resultList.isEmpty() ? null : resultList.get(0);
+    }
+
+    /**
+     * Check whether the path index is available for the provided view. This is
+     * not the case for trees persisted before the path index was introduced.
+     *
+     * @param digitalObjectId The object id.
+     * @param viewName The name of the view.
+     * @param em The entityManager used to search.
+     *
+     * @return TRUE if the root node of the view has a full path assigned.
+     */
+    public boolean hasPathIndex(DigitalObjectId digitalObjectId, String viewName, EntityManager em) {
+        return findNodeByPath(digitalObjectId, viewName, "/", em) != null;
+    }
+
     public DataOrganizationNode getRootNode(DigitalObjectId digitalObjectId,
             EntityManager em) {
         return getRootNode(digitalObjectId, em, Constants.DEFAULT_VIEW);
@@ -426,6 +487,10 @@ final public class PersistenceFacade {
         }
 
         //updates common for collections and files
+        if (node.getFullPath() != null && node.getNodeDepth() > 0
+                && newData.getName() != null && !newData.getName().equals(node.getName())) {
+            updateFullPaths(node, newData.getName(), em);
+        }
         node.setName(newData.getName());
         node.setDescription(newData.getDescription());
         Set<Attribute> attributesOld = node.getAttributes();
@@ -467,4 +532,49 @@ final public class PersistenceFacade {
 
         return r;
     }
+
+    /**
+     * Update the full paths of the provided node and all its descendants after
+     * the node has been renamed.
+     *
+     * @param node The renamed node.
+     * @param newName The new node name.
+     * @param em The entityManager with an active transaction.
+     */
+    private void updateFullPaths(DataOrganizationNode node, String newName, EntityManager em) {
+        String oldPath = node.getFullPath();
+        String newPath = oldPath.substring(0, oldPath.lastIndexOf('/') + 1) + newName;
+        int delta = newPath.length() - oldPath.length();
+        String subtreeCondition = "WHERE d.digitalObjectIDStr = :id AND d.viewName = :viewName "
+                + "AND d.stepNoArrived > :arrived AND d.stepNoLeaved < :leaved AND d.fullPath IS NOT NULL";
+        if (delta > 0) {
+            //paths exceeding the max. length are removed from the index
+            Query q = em.createQuery("UPDATE DataOrganizationNode d SET d.fullPath = NULL "
+                    + subtreeCondition + " AND LENGTH(d.fullPath) > :maxLength");
+            setSubtreeParameters(q, node);
+            q.setParameter("maxLength", DataOrganizationNode.MAX_FULL_PATH_LENGTH - delta);
+            q.executeUpdate();
+        }
+        Query q = em.createQuery(
+                "UPDATE DataOrganizationNode d SET d.fullPath = CONCAT(:newPath, SUBSTRING(d.fullPath, :offset)) "
+                + subtreeCondition);
+        setSubtreeParameters(q, node);
+        q.setParameter("newPath", newPath);
+        q.setParameter("offset", oldPath.length() + 1);
+        q.executeUpdate();
+        node.setFullPath((newPath.length() > DataOrganizationNode.MAX_FULL_PATH_LENGTH) ? null : newPath);
+    }
+
+    /**
+     * Set the parameters selecting all descendants of the provided node.
+     *
+     * @param q The query.
+     * @param node The subtree root.
+     */
+    private void setSubtreeParameters(Query q, DataOrganizationNode node) {
+        q.setParameter("id", node.getDigitalObjectIDStr());
+        q.setParameter("viewName", node.getViewName());
+        q.setParameter("arrived", node.getStepNoArrived());
+        q.setParameter("leaved", node.getStepNoLeaved());
+    }
 }
@@ -18,20 +18,28 @@ package edu.kit.dama.mdm.dataorganization.impl.staging;
 import edu.kit.dama.commons.types.ILFN;
 import edu.kit.dama.mdm.dataorganization.entity.core.ICollectionNode;
 import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
-import edu.kit.dama.mdm.dataorganization.entity.core.IFileNode;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementWrapper;
-import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.collections.Predicate;
+import javax.xml.bind.annotation.XmlTransient;
 import org.eclipse.persistence.oxm.annotations.XmlNamedAttributeNode;
 import org.eclipse.persistence.oxm.annotations.XmlNamedObjectGraph;
 import org.eclipse.persistence.oxm.annotations.XmlNamedObjectGraphs;
 
 /**
+ * Staging implementation of a collection node. Children are kept in insertion
+ * order. Additionally, an index by name and node type is maintained for
+ * looking up single children in constant time, e.g. for detecting duplicates
+ * while merging large trees.
  *
  * @author jejkal
  */
@@ -59,6 +67,12 @@ public class CollectionNodeImpl extends DataOrganizationNodeImpl implements ICol
     private List<IDataOrganizationNode> children;
     @XmlElement(name = "lfn", type = LFNImpl.class)
     private ILFN logicalFileName;
+    @XmlTransient
+    private Map<String, IDataOrganizationNode> childIndex;
+    @XmlTransient
+    private Set<String> duplicateKeys;
+    @XmlTransient
+    private int indexedModCount;
 
     /**
      * Default constructor.
@@ -91,10 +105,57 @@ public class CollectionNodeImpl extends DataOrganizationNodeImpl implements ICol
 
     @Override
     public final List<? extends IDataOrganizationNode> getChildren() {
-        if (null == children) {
-            children = new ArrayList<>();
+        return getChildList();
+    }
+
+    /**
+     * Get the list of children. If the list was set during unmarshalling, it
+     * is replaced by a list tracking modifications.
+     *
+     * @return The list of children.
+     */
+    private ChildList getChildList() {
+        if (!(children instanceof ChildList)) {
+            children = (children == null) ? new ChildList() : new ChildList(children);
+            invalidateChildIndex();
+        }
+        return (ChildList) children;
+    }
+
+    /**
+     * Get the child with the provided name and the same node type as pNode,
+     * e.g. for checking whether pNode would be a duplicate if added to this
+     * node. The lookup uses an internal name index and takes constant time.
+     * If there are multiple matching children, the first one is returned.
+     *
+     * @param pNode The node whose name and type are used for the lookup.
+     *
+     * @return The matching child or null.
+     */
+    public final IDataOrganizationNode findChild(IDataOrganizationNode pNode) {
+        return findChild(pNode.getName(), pNode instanceof ICollectionNode);
+    }
+
+    /**
+     * Get the child with the provided name and type. The lookup uses an
+     * internal name index and takes constant time. If there are multiple
+     * matching children, the first one is returned.
+     *
+     * @param pName The child name, which may be null.
+     * @param pCollection TRUE for looking up a collection node, FALSE for
+     * looking up a file node.
+     *
+     * @return The matching child or null.
+     */
+    public final IDataOrganizationNode findChild(String pName, boolean pCollection) {
+        String key = getIndexKey(pName, pCollection);
+        IDataOrganizationNode result = getChildIndex().get(key);
+        if (result != null && !Objects.equals(pName, result.getName())) {
+            //stale entry, e.g. the child was renamed while not being attached to this node
+            invalidateChildIndex();
+            result = getChildIndex().get(key);
         }
-        return children;
+        return result;
     }
 
     /**
@@ -104,32 +165,11 @@ public class CollectionNodeImpl extends DataOrganizationNodeImpl implements ICol
      * @param pOverwrite Overwrite the child if it already exists.
      */
     public final void addChild(final IDataOrganizationNode child, boolean pOverwrite) {
-        IDataOrganizationNode result;
-
-        if (pOverwrite) {
-            result = (IDataOrganizationNode) CollectionUtils.find(children, new Predicate() {
-                @Override
-                public boolean evaluate(Object o) {
-                    IDataOrganizationNode node = (IDataOrganizationNode) o;
-                    if (o instanceof ICollectionNode && child instanceof IFileNode) {
-                        return false;
-                    } else if (o instanceof IFileNode && child instanceof ICollectionNode) {
-                        return false;
-                    } else {//node types are equal...check them
-                        if (node.getName() != null) {
-                            return node.getName().equals(child.getName());
-                        } else if (child.getName() != null) {
-                            return child.getName().equals(node.getName());
-                        }
-                        //both are null
-                        return true;
-                    }
-                }
-            });
-            if (children == null) {
-                children = new ArrayList<>();
+        if (pOverwrite && child != null) {
+            IDataOrganizationNode result = findChild(child);
+            if (result != null) {
+                removeChild(result);
             }
-            children.remove(result);
         }
 
         addChild(child);
@@ -141,10 +181,36 @@ public class CollectionNodeImpl extends DataOrganizationNodeImpl implements ICol
      * @param child The child to remove.
      */
     public final void removeChild(IDataOrganizationNode child) {
-        if (children == null) {
-            children = new ArrayList<>();
+        ChildList list = getChildList();
+        boolean indexed = isChildIndexValid();
+        if (!list.remove(child)) {
+            return;
+        }
+        if (!indexed) {
+            invalidateChildIndex();
+            return;
+        }
+        indexedModCount = list.getModCount();
+        String key = getIndexKey(child.getName(), child instanceof ICollectionNode);
+        IDataOrganizationNode entry = childIndex.get(key);
+        if (entry == child) {
+            childIndex.remove(key);
+            if (duplicateKeys.remove(key)) {
+                //the first remaining child with the same name and type replaces the removed one
+                for (IDataOrganizationNode other : list) {
+                    if (key.equals(getIndexKey(other.getName(), other instanceof ICollectionNode))) {
+                        if (childIndex.containsKey(key)) {
+                            duplicateKeys.add(key);
+                            break;
+                        }
+                        childIndex.put(key, other);
+                    }
+                }
+            }
+        } else if (entry == null) {
+            //the child was indexed by an outdated name
+            invalidateChildIndex();
         }
-        children.remove(child);
     }
 
     @Override
@@ -153,11 +219,17 @@ public class CollectionNodeImpl extends DataOrganizationNodeImpl implements ICol
             throw new IllegalArgumentException("Argument 'child' must not be null");
         }
 
-        if (children == null) {
-            children = new ArrayList<>();
-        }
-        children.add(child);
+        ChildList list = getChildList();
+        boolean indexed = isChildIndexValid();
+        list.add(child);
         child.setParent(this);
+        if (indexed) {
+            indexChild(child);
+            indexedModCount = list.getModCount();
+        } else {
+            //children list was modified externally
+            invalidateChildIndex();
+        }
     }
 
     @Override
@@ -169,9 +241,115 @@ public class CollectionNodeImpl extends DataOrganizationNodeImpl implements ICol
 
     @Override
     public final void setChildren(List<? extends IDataOrganizationNode> children) {
-        this.children.clear();
-        for (IDataOrganizationNode don : children) {
-            this.children.add(don);
+        ChildList list = getChildList();
+        list.clear();
+        list.addAll(children);
+        invalidateChildIndex();
+    }
+
+    /**
+     * Discard the name index, which is rebuilt on the next lookup. This is
+     * called if a child was removed or renamed.
+     */
+    final void invalidateChildIndex() {
+        childIndex = null;
+        duplicateKeys = null;
+    }
+
+    /**
+     * Check whether the name index exists and reflects the current children,
+     * i.e. the children list was not modified without notice.
+     *
+     * @return TRUE if the index can be used and updated incrementally.
+     */
+    private boolean isChildIndexValid() {
+        return childIndex != null && indexedModCount == getChildList().getModCount();
+    }
+
+    /**
+     * Get the name index of the children. The index is built lazily and is
+     * rebuilt if the children list was modified without notice, e.g. if the
+     * list returned by {@link #getChildren()} was modified directly.
+     *
+     * @return The index.
+     */
+    private Map<String, IDataOrganizationNode> getChildIndex() {
+        if (!isChildIndexValid()) {
+            ChildList current = getChildList();
+            childIndex = new HashMap<>(Math.max(16, (int) (current.size() / .75f) + 1));
+            duplicateKeys = new HashSet<>();
+            for (IDataOrganizationNode child : current) {
+                indexChild(child);
+            }
+            indexedModCount = current.getModCount();
+        }
+        return childIndex;
+    }
+
+    /**
+     * Add a child to the name index. If there is already a child with the same
+     * name and type, the existing entry is kept.
+     *
+     * @param pChild The child.
+     */
+    private void indexChild(IDataOrganizationNode pChild) {
+        String key = getIndexKey(pChild.getName(), pChild instanceof ICollectionNode);
+        if (childIndex.containsKey(key)) {
+            duplicateKeys.add(key);
+        } else {
+            childIndex.put(key, pChild);
+        }
+    }
+
+    /**
+     * Get the index key for a node name and type. Collection and file nodes
+     * with the same name may coexist, thus the type is part of the key.
+     *
+     * @param pName The node name, which may be null.
+     * @param pCollection TRUE for collection nodes.
+     *
+     * @return The key.
+     */
+    private static String getIndexKey(String pName, boolean pCollection) {
+        return (pCollection ? "C" : "F") + ((pName != null) ? ":" + pName : "");
+    }
+
+    /**
+     * List of children exposing its modification count, which is used to
+     * detect modifications made via {@link #getChildren()}. In contrast to
+     * ArrayList, replacing an element also counts as modification.
+     */
+    private static final class ChildList extends ArrayList<IDataOrganizationNode> {
+
+        /**
+         * Default constructor.
+         */
+        ChildList() {
+            super();
+        }
+
+        /**
+         * Default constructor.
+         *
+         * @param pChildren The initial children.
+         */
+        ChildList(Collection<? extends IDataOrganizationNode> pChildren) {
+            super(pChildren);
+        }
+
+        @Override
+        public IDataOrganizationNode set(int index, IDataOrganizationNode element) {
+            modCount++;
+            return super.set(index, element);
+        }
+
+        /**
+         * Get the number of structural modifications and replacements.
+         *
+         * @return The modification count.
+         */
+        int getModCount() {
+            return modCount;
         }
     }
 }
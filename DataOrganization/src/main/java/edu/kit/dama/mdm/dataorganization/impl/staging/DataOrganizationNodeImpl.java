@@ -126,6 +126,10 @@ public class DataOrganizationNodeImpl implements IDefaultDataOrganizationNode, I
     @Override
     final public void setName(String name) {
         this.name = name;
+        if (parent instanceof CollectionNodeImpl) {
+            //the name index of the parent is outdated now
+            ((CollectionNodeImpl) parent).invalidateChildIndex();
+        }
     }
 
     @Override
@@ -0,0 +1,664 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.dataorganization.impl.util;
+
+import edu.kit.dama.commons.types.DigitalObjectId;
+import edu.kit.dama.mdm.dataorganization.entity.core.IAttribute;
+import edu.kit.dama.mdm.dataorganization.entity.core.ICollectionNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IFileNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IFileTree;
+import edu.kit.dama.mdm.dataorganization.entity.impl.client.NodeId;
+import edu.kit.dama.mdm.dataorganization.impl.staging.AttributeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.CollectionNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.DataOrganizationNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.FileNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.FileTreeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.LFNImpl;
+import edu.kit.dama.mdm.dataorganization.service.core.DataOrganizer;
+import edu.kit.dama.mdm.dataorganization.service.core.DataOrganizerFactory;
+import edu.kit.dama.mdm.dataorganization.service.exception.EntityNotFoundException;
+import edu.kit.dama.mdm.dataorganization.service.exception.InvalidNodeIdException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.Result;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Streaming counterparts of the JSON and XML conversion methods in
+ * {@link Util}. Instead of building a JSONObject or a DOM document containing
+ * the entire tree, nodes are written to the provided writer while walking the
+ * tree. Thus, the memory needed for the export does not depend on the tree
+ * size. Reading a JSON view via
+ * {@link #readJsonView(Reader, boolean, boolean)} builds the resulting file
+ * tree directly from the character stream without creating an intermediate
+ * JSONObject.
+ *
+ * The produced documents have the same structure as the ones produced by
+ * {@link Util#fileTreeToJsonView(IFileTree)} and
+ * {@link Util#fileTreeToXml(IFileTree, Function)}.
+ *
+ * @author jejkal
+ */
+public final class FileTreeSerializer {
+
+    private static final String DO_SCHEMA = "http://datamanager.kit.edu/dama/dataorganization/2015-08/dataorganization.xsd";
+    private static final String DO_NS = "http://datamanager.kit.edu/dama/dataorganization";
+    private static final String XSI_NS = "http://www.w3.org/2001/XMLSchema-instance";
+
+    /**
+     * Hidden constructor.
+     */
+    private FileTreeSerializer() {
+    }
+
+    /**
+     * Write the JSON view representation of pTree to pWriter. The output is
+     * equal to the one of {@link Util#fileTreeToJsonView(IFileTree)}, except
+     * the order of the keys, which is fixed and starts with objectId and
+     * viewName.
+     *
+     * @param pTree The file tree to write.
+     * @param pWriter The writer. It is flushed but not closed.
+     *
+     * @throws IOException If writing fails.
+     */
+    public static void writeJsonView(IFileTree pTree, Writer pWriter) throws IOException {
+        if (pTree == null) {
+            throw new IllegalArgumentException("Argument pTree must not be null.");
+        }
+        if (pTree.getDigitalObjectId() == null || pTree.getViewName() == null) {
+            throw new IllegalArgumentException("Neither objectId nor view name of pTree must be null.");
+        }
+        pWriter.write("{\"objectId\":");
+        pWriter.write(JSONObject.quote(pTree.getDigitalObjectId().toString()));
+        pWriter.write(",\"viewName\":");
+        pWriter.write(JSONObject.quote(pTree.getViewName()));
+        writeJsonChildren(pTree.getRootNode(), pWriter);
+        pWriter.write("}");
+        pWriter.flush();
+    }
+
+    /**
+     * Write a single node as JSON object, see Util.nodeToJson() for details.
+     */
+    private static void writeJsonNode(IDataOrganizationNode pNode, Writer pWriter) throws IOException {
+        pWriter.write("{");
+        NodeId nodeId = pNode.getTransientNodeId();
+        if (nodeId != null) {
+            pWriter.write("\"nodeId\":");
+            pWriter.write(Long.toString(nodeId.getInTreeId()));
+        } else {
+            pWriter.write("\"name\":");
+            pWriter.write(JSONObject.quote(pNode.getName()));
+            if (pNode instanceof IFileNode) {
+                pWriter.write(",\"lfn\":");
+                pWriter.write(JSONObject.quote(((IFileNode) pNode).getLogicalFileName().asString()));
+            }
+        }
+        pWriter.write(",\"type\":");
+        pWriter.write((pNode instanceof ICollectionNode) ? "\"CollectionNode\"" : "\"FileNode\"");
+        if (pNode instanceof ICollectionNode) {
+            writeJsonChildren((ICollectionNode) pNode, pWriter);
+        }
+        if (!pNode.getAttributes().isEmpty()) {
+            pWriter.write(",\"attributes\":[");
+            boolean first = true;
+            for (IAttribute attribute : pNode.getAttributes()) {
+                if (!first) {
+                    pWriter.write(",");
+                }
+                first = false;
+                pWriter.write("{");
+                pWriter.write(JSONObject.quote(attribute.getKey()));
+                pWriter.write(":");
+                pWriter.write(JSONObject.quote(attribute.getValue()));
+                pWriter.write("}");
+            }
+            pWriter.write("]");
+        }
+        pWriter.write("}");
+    }
+
+    /**
+     * Write the children array of pNode. Like for the JSONObject-based
+     * conversion, the array is omitted if there are no children.
+     */
+    private static void writeJsonChildren(ICollectionNode pNode, Writer pWriter) throws IOException {
+        List<? extends IDataOrganizationNode> children = pNode.getChildren();
+        if (children.isEmpty()) {
+            return;
+        }
+        pWriter.write(",\"children\":[");
+        boolean first = true;
+        for (IDataOrganizationNode child : children) {
+            if (!first) {
+                pWriter.write(",");
+            }
+            first = false;
+            writeJsonNode(child, pWriter);
+        }
+        pWriter.write("]");
+    }
+
+    /**
+     * Read a JSON view as written by {@link #writeJsonView(IFileTree, Writer)}
+     * or {@link Util#fileTreeToJsonView(IFileTree)} from pReader. The rules for
+     * resolving nodes referenced by their nodeId are the same as for
+     * {@link Util#jsonViewToFileTree(JSONObject, boolean, boolean)}. As the
+     * keys of a JSON object may appear in any order, referenced nodes are
+     * resolved after the entire document has been read.
+     *
+     * @param pReader The reader to read from. It is not closed.
+     * @param preserveAttributes If TRUE all attributes of referenced nodes are
+     * copied to the resulting nodes.
+     * @param pStrict If TRUE, file nodes must be referenced by nodeId and the
+     * types of referenced nodes are checked.
+     *
+     * @return The file tree.
+     *
+     * @throws InvalidNodeIdException If a nodeId does not refer to an existing
+     * node.
+     * @throws JSONException If the document is malformed or if viewName or
+     * children are missing.
+     */
+    public static IFileTree readJsonView(Reader pReader, boolean preserveAttributes, boolean pStrict) throws InvalidNodeIdException {
+        JSONTokener tokener = new JSONTokener(pReader);
+        JsonViewReader reader = new JsonViewReader(tokener, pStrict);
+        FileTreeImpl tree = new FileTreeImpl();
+        String objectId = null;
+        String viewName = null;
+        boolean childrenFound = false;
+
+        expect(tokener, '{');
+        if (!endOfObject(tokener)) {
+            do {
+                String key = nextKey(tokener);
+                switch (key) {
+                    case "objectId":
+                        objectId = nextString(tokener);
+                        break;
+                    case "viewName":
+                        viewName = nextString(tokener);
+                        break;
+                    case "children":
+                        childrenFound = true;
+                        reader.readChildren(tree);
+                        break;
+                    default:
+                        tokener.nextValue();
+                        break;
+                }
+            } while (nextMember(tokener, '}'));
+        }
+        if (viewName == null) {
+            throw new JSONException("JSONObject[\"viewName\"] not found.");
+        }
+        if (!childrenFound) {
+            throw new JSONException("JSONObject[\"children\"] not found.");
+        }
+
+        DigitalObjectId oid = (objectId == null) ? null : new DigitalObjectId(objectId);
+        tree.setDigitalObjectId(oid);
+        tree.setViewName(viewName);
+        reader.resolveReferences(tree, oid, preserveAttributes);
+        return tree;
+    }
+
+    /**
+     * Parser for the node objects of a JSON view. Nodes referencing existing
+     * nodes by their nodeId are kept in a map until they are resolved.
+     */
+    private static final class JsonViewReader {
+
+        private final JSONTokener tokener;
+        private final boolean strict;
+        private final Map<IDataOrganizationNode, Long> references = new IdentityHashMap<>();
+
+        JsonViewReader(JSONTokener pTokener, boolean pStrict) {
+            tokener = pTokener;
+            strict = pStrict;
+        }
+
+        /**
+         * Read an array of node objects and add all nodes to pParent.
+         */
+        void readChildren(CollectionNodeImpl pParent) {
+            expect(tokener, '[');
+            char c = tokener.nextClean();
+            if (c == ']') {
+                return;
+            }
+            tokener.back();
+            do {
+                pParent.addChild(readNode());
+            } while (nextMember(tokener, ']'));
+        }
+
+        /**
+         * Read a single node object.
+         */
+        IDataOrganizationNode readNode() {
+            String type = null;
+            long nodeId = -1;
+            String name = null;
+            String lfn = null;
+            CollectionNodeImpl children = null;
+            List<AttributeImpl> attributes = new ArrayList<>();
+
+            expect(tokener, '{');
+            if (!endOfObject(tokener)) {
+                do {
+                    String key = nextKey(tokener);
+                    switch (key) {
+                        case "type":
+                            type = nextString(tokener);
+                            break;
+                        case "nodeId":
+                            Object value = tokener.nextValue();
+                            nodeId = (value instanceof Number) ? ((Number) value).longValue() : Long.parseLong(String.valueOf(value));
+                            break;
+                        case "name":
+                            name = nextString(tokener);
+                            break;
+                        case "lfn":
+                            lfn = nextString(tokener);
+                            break;
+                        case "children":
+                            //children are collected in a temporary collection as the type might still be unknown
+                            children = new CollectionNodeImpl();
+                            readChildren(children);
+                            break;
+                        case "attributes":
+                            readAttributes(attributes);
+                            break;
+                        default:
+                            tokener.nextValue();
+                            break;
+                    }
+                } while (nextMember(tokener, '}'));
+            }
+
+            DataOrganizationNodeImpl node;
+            if ("CollectionNode".equals(type)) {
+                node = new CollectionNodeImpl();
+                if (nodeId < 0) {
+                    node.setName(requireValue(name, "name"));
+                }
+                if (children != null) {
+                    for (IDataOrganizationNode child : new ArrayList<>(children.getChildren())) {
+                        ((CollectionNodeImpl) node).addChild(child);
+                    }
+                }
+            } else if ("FileNode".equals(type)) {
+                if (strict && nodeId < 0) {
+                    throw new IllegalArgumentException("The provided JSON node is of type FileNode but has no nodeId assigned.");
+                }
+                if (nodeId < 0) {
+                    node = new FileNodeImpl(new LFNImpl(requireValue(lfn, "lfn")));
+                    node.setName(requireValue(name, "name"));
+                } else {
+                    node = new FileNodeImpl(null);
+                }
+            } else if (type == null) {
+                throw new JSONException("JSONObject[\"type\"] not found.");
+            } else {
+                throw new IllegalArgumentException("Nodes of type '" + type + "' are currently not supported.");
+            }
+            for (AttributeImpl attribute : attributes) {
+                node.addAttribute(attribute);
+            }
+            if (nodeId >= 0) {
+                references.put(node, nodeId);
+            }
+            return node;
+        }
+
+        /**
+         * Read an array of attribute objects, each containing a single key and
+         * a string value.
+         */
+        private void readAttributes(List<AttributeImpl> pAttributes) {
+            expect(tokener, '[');
+            char c = tokener.nextClean();
+            if (c == ']') {
+                return;
+            }
+            tokener.back();
+            do {
+                Object value = tokener.nextValue();
+                if (!(value instanceof JSONObject)) {
+                    throw tokener.syntaxError("Attribute object expected");
+                }
+                JSONObject attribute = (JSONObject) value;
+                Iterator keys = attribute.keys();
+                if (keys.hasNext()) {
+                    String key = (String) keys.next();
+                    pAttributes.add(new AttributeImpl(key, attribute.getString(key)));
+                }
+            } while (nextMember(tokener, ']'));
+        }
+
+        /**
+         * Resolve all nodes referencing existing nodes below pParent.
+         */
+        void resolveReferences(CollectionNodeImpl pParent, DigitalObjectId pOid, boolean preserveAttributes) throws InvalidNodeIdException {
+            if (references.isEmpty()) {
+                return;
+            }
+            List<IDataOrganizationNode> children = new ArrayList<>(pParent.getChildren());
+            boolean replaced = false;
+            for (int i = 0; i < children.size(); i++) {
+                IDataOrganizationNode child = children.get(i);
+                IDataOrganizationNode resolved = resolve(child, pOid, preserveAttributes);
+                if (resolved != child) {
+                    children.set(i, resolved);
+                    replaced = true;
+                }
+                if (resolved instanceof CollectionNodeImpl) {
+                    resolveReferences((CollectionNodeImpl) resolved, pOid, preserveAttributes);
+                }
+            }
+            if (replaced) {
+                pParent.getChildren().clear();
+                pParent.addChildren(children);
+            }
+        }
+
+        /**
+         * Resolve a single node. Collection nodes are resolved in place, file
+         * nodes are replaced by a copy of the referenced node.
+         */
+        private IDataOrganizationNode resolve(IDataOrganizationNode pNode, DigitalObjectId pOid, boolean preserveAttributes) throws InvalidNodeIdException {
+            Long nodeId = references.remove(pNode);
+            if (nodeId == null) {
+                return pNode;
+            }
+            if (pOid == null) {
+                throw new IllegalArgumentException("ObjectId must not be null if requesting to load nodes from json by id.");
+            }
+            DataOrganizer org = DataOrganizerFactory.getInstance().getDataOrganizer();
+            NodeId nid = new NodeId(pOid, nodeId, 1, "default");
+            IDataOrganizationNode defaultNode = org.loadNode(nid);
+
+            if (pNode instanceof CollectionNodeImpl) {
+                if (strict && !(defaultNode instanceof ICollectionNode)) {
+                    throw new IllegalArgumentException("Type conflict. The provided JSON node is of type CollectionNode but the DataOrganization node with node id " + nodeId + " is not.");
+                }
+                CollectionNodeImpl node = (CollectionNodeImpl) pNode;
+                node.setName(defaultNode.getName());
+                //existing children come first, afterwards the ones provided in addition
+                List<IDataOrganizationNode> additionalChildren = new ArrayList<>(node.getChildren());
+                node.getChildren().clear();
+                IFileTree subTree = org.loadSubTree(nid, 12345);
+                for (IDataOrganizationNode child : subTree.getRootNode().getChildren()) {
+                    node.addChild(Util.copyNode(child, preserveAttributes));
+                }
+                node.addChildren(additionalChildren);
+                return node;
+            }
+
+            if (strict && !(defaultNode instanceof IFileNode)) {
+                throw new IllegalArgumentException("Type conflict. The provided JSON node is of type FileNode but the DataOrganization node with node id " + nodeId + " is not.");
+            }
+            DataOrganizationNodeImpl node = Util.copyNode(defaultNode, preserveAttributes);
+            for (IAttribute attribute : pNode.getAttributes()) {
+                node.addAttribute(attribute);
+            }
+            return node;
+        }
+    }
+
+    /**
+     * Write the XML representation of pTree to pWriter. The output is equal to
+     * the one of {@link Util#fileTreeToXml(IFileTree, Function)}.
+     *
+     * @param pTree The file tree.
+     * @param pWriter The writer. It is flushed but not closed.
+     * @param objectNodeResolver Optional function returning the URL written as
+     * logicalFileName of a node.
+     *
+     * @throws XMLStreamException If writing fails.
+     */
+    public static void writeXml(IFileTree pTree, Writer pWriter, Function<IDataOrganizationNode, String> objectNodeResolver) throws XMLStreamException {
+        writeXml(pTree, XMLOutputFactory.newInstance().createXMLStreamWriter(pWriter), objectNodeResolver);
+    }
+
+    /**
+     * Write the XML representation of pTree to pResult, e.g. to a DOMResult
+     * for obtaining a document without serializing and parsing it.
+     *
+     * @param pTree The file tree.
+     * @param pResult The result.
+     * @param objectNodeResolver Optional function returning the URL written as
+     * logicalFileName of a node.
+     *
+     * @throws XMLStreamException If writing fails.
+     */
+    public static void writeXml(IFileTree pTree, Result pResult, Function<IDataOrganizationNode, String> objectNodeResolver) throws XMLStreamException {
+        writeXml(pTree, XMLOutputFactory.newInstance().createXMLStreamWriter(pResult), objectNodeResolver);
+    }
+
+    private static void writeXml(IFileTree pTree, XMLStreamWriter pWriter, Function<IDataOrganizationNode, String> objectNodeResolver) throws XMLStreamException {
+        startDocument(pWriter, pTree.getDigitalObjectId());
+        writeViewElement(pTree, pWriter, objectNodeResolver);
+        endDocument(pWriter);
+    }
+
+    /**
+     * Write the XML representation of all views of the provided digital object
+     * to pWriter. The output is equal to the one of
+     * {@link Util#dataOrganizationToXml(DigitalObjectId, Function)}. Views are
+     * loaded and written one after another, thus only one view is kept in
+     * memory at once.
+     *
+     * @param pDigitalObjectId The digital object id.
+     * @param pWriter The writer. It is flushed but not closed.
+     * @param objectNodeResolver Optional function returning the URL written as
+     * logicalFileName of a node.
+     *
+     * @throws XMLStreamException If writing fails.
+     * @throws EntityNotFoundException If a view of the object could not be
+     * loaded.
+     */
+    public static void writeDataOrganizationXml(DigitalObjectId pDigitalObjectId, Writer pWriter, Function<IDataOrganizationNode, String> objectNodeResolver) throws XMLStreamException, EntityNotFoundException {
+        writeDataOrganizationXml(pDigitalObjectId, XMLOutputFactory.newInstance().createXMLStreamWriter(pWriter), objectNodeResolver);
+    }
+
+    /**
+     * Write the XML representation of all views of the provided digital object
+     * to pResult, e.g. to a DOMResult for obtaining a document without
+     * serializing and parsing it. Views are loaded one after another.
+     *
+     * @param pDigitalObjectId The digital object id.
+     * @param pResult The result.
+     * @param objectNodeResolver Optional function returning the URL written as
+     * logicalFileName of a node.
+     *
+     * @throws XMLStreamException If writing fails.
+     * @throws EntityNotFoundException If a view of the object could not be
+     * loaded.
+     */
+    public static void writeDataOrganizationXml(DigitalObjectId pDigitalObjectId, Result pResult, Function<IDataOrganizationNode, String> objectNodeResolver) throws XMLStreamException, EntityNotFoundException {
+        writeDataOrganizationXml(pDigitalObjectId, XMLOutputFactory.newInstance().createXMLStreamWriter(pResult), objectNodeResolver);
+    }
+
+    private static void writeDataOrganizationXml(DigitalObjectId pDigitalObjectId, XMLStreamWriter pWriter, Function<IDataOrganizationNode, String> objectNodeResolver) throws XMLStreamException, EntityNotFoundException {
+        startDocument(pWriter, pDigitalObjectId);
+        DataOrganizer org = DataOrganizerFactory.getInstance().getDataOrganizer();
+        for (String view : org.getViews(pDigitalObjectId)) {
+            writeViewElement(org.loadFileTree(pDigitalObjectId, view), pWriter, objectNodeResolver);
+        }
+        endDocument(pWriter);
+    }
+
+    /**
+     * Start the document and write the dataOrganization and digitalObjectId
+     * elements.
+     */
+    private static void startDocument(XMLStreamWriter writer, DigitalObjectId pDigitalObjectId) throws XMLStreamException {
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.setDefaultNamespace(DO_NS);
+        writer.writeStartElement("", "dataOrganization", DO_NS);
+        writer.writeDefaultNamespace(DO_NS);
+        writer.writeNamespace("xs", XSI_NS);
+        writer.writeAttribute("xs", XSI_NS, "schemaLocation", DO_NS + " " + DO_SCHEMA);
+        writeTextElement(writer, "digitalObjectId", pDigitalObjectId.getStringRepresentation());
+    }
+
+    /**
+     * Close all open elements and flush the writer.
+     */
+    private static void endDocument(XMLStreamWriter pWriter) throws XMLStreamException {
+        pWriter.writeEndElement();
+        pWriter.writeEndDocument();
+        pWriter.flush();
+    }
+
+    private static void writeViewElement(IFileTree pViewTree, XMLStreamWriter pWriter, Function<IDataOrganizationNode, String> objectNodeResolver) throws XMLStreamException {
+        pWriter.writeStartElement("", "view", DO_NS);
+        //the name attribute is namespace-qualified as done by Util.createViewElement(), the prefix is the one obtained
+        //when serializing the DOM representation
+        pWriter.writeNamespace("ns0", DO_NS);
+        pWriter.writeAttribute("ns0", DO_NS, "name", pViewTree.getViewName());
+        pWriter.writeStartElement("", "root", DO_NS);
+        writeNodeContent(pViewTree.getRootNode(), pWriter, objectNodeResolver);
+        pWriter.writeEndElement();
+        pWriter.writeEndElement();
+    }
+
+    /**
+     * Write name, logical file name, attributes and children of pNode, see
+     * Util.addNodeToElement().
+     */
+    private static void writeNodeContent(IDataOrganizationNode pNode, XMLStreamWriter pWriter, Function<IDataOrganizationNode, String> objectNodeResolver) throws XMLStreamException {
+        String nodeUrl = (objectNodeResolver != null) ? objectNodeResolver.apply(pNode) : null;
+        writeTextElement(pWriter, "name", pNode.getName());
+        if (pNode instanceof IFileNode) {
+            writeTextElement(pWriter, "logicalFileName", (nodeUrl != null) ? nodeUrl : ((IFileNode) pNode).getLogicalFileName().getStringRepresentation());
+        } else if (nodeUrl != null) {
+            writeTextElement(pWriter, "logicalFileName", nodeUrl);
+        }
+        if (!pNode.getAttributes().isEmpty()) {
+            pWriter.writeStartElement("", "attributes", DO_NS);
+            for (IAttribute attribute : pNode.getAttributes()) {
+                pWriter.writeStartElement("", "attribute", DO_NS);
+                writeTextElement(pWriter, "key", attribute.getKey());
+                writeTextElement(pWriter, "value", attribute.getValue());
+                pWriter.writeEndElement();
+            }
+            pWriter.writeEndElement();
+        }
+        if (pNode instanceof ICollectionNode) {
+            pWriter.writeStartElement("", "children", DO_NS);
+            for (IDataOrganizationNode child : ((ICollectionNode) pNode).getChildren()) {
+                pWriter.writeStartElement("", "child", DO_NS);
+                writeNodeContent(child, pWriter, objectNodeResolver);
+                pWriter.writeEndElement();
+            }
+            pWriter.writeEndElement();
+        }
+    }
+
+    private static void writeTextElement(XMLStreamWriter pWriter, String pName, String pValue) throws XMLStreamException {
+        pWriter.writeStartElement("", pName, DO_NS);
+        if (pValue != null) {
+            pWriter.writeCharacters(pValue);
+        }
+        pWriter.writeEndElement();
+    }
+
+    /**
+     * Read the next non-whitespace character and check it.
+     */
+    private static void expect(JSONTokener pTokener, char pExpected) {
+        char c = pTokener.nextClean();
+        if (c != pExpected) {
+            throw pTokener.syntaxError("Expected '" + pExpected + "' but found '" + c + "'");
+        }
+    }
+
+    /**
+     * Check whether the object which was just opened is empty.
+     */
+    private static boolean endOfObject(JSONTokener pTokener) {
+        if (pTokener.nextClean() == '}') {
+            return true;
+        }
+        pTokener.back();
+        return false;
+    }
+
+    /**
+     * Read a member key including the following colon.
+     */
+    private static String nextKey(JSONTokener pTokener) {
+        char c = pTokener.nextClean();
+        if (c != '"' && c != '\'') {
+            throw pTokener.syntaxError("A JSONObject key must be a string");
+        }
+        String key = pTokener.nextString(c);
+        expect(pTokener, ':');
+        return key;
+    }
+
+    /**
+     * Read a scalar value as string. JSON null is returned as null.
+     */
+    private static String nextString(JSONTokener pTokener) {
+        Object value = pTokener.nextValue();
+        return JSONObject.NULL.equals(value) ? null : String.valueOf(value);
+    }
+
+    /**
+     * Read the separator after an object member or array element.
+     *
+     * @return TRUE if another member or element follows, FALSE if the object
+     * or array ends with pEnd.
+     */
+    private static boolean nextMember(JSONTokener pTokener, char pEnd) {
+        char c = pTokener.nextClean();
+        if (c == ',') {
+            return true;
+        }
+        if (c == pEnd) {
+            return false;
+        }
+        throw pTokener.syntaxError("Expected ',' or '" + pEnd + "'");
+    }
+
+    /**
+     * Fail if a mandatory value of a new node is missing.
+     */
+    private static String requireValue(String pValue, String pKey) {
+        if (pValue == null) {
+            throw new JSONException("JSONObject[\"" + pKey + "\"] not found.");
+        }
+        return pValue;
+    }
+}
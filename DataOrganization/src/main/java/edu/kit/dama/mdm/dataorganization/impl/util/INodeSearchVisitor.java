@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.dataorganization.impl.util;
+
+import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
+
+/**
+ * Visitor used by
+ * {@link Util#searchSubtree(IDataOrganizationNode, INodeSearchVisitor)}. In
+ * contrast to IDataOrganizationNodeVisitor, the visitor receives the logical
+ * path and the depth of each node and may stop the traversal early.
+ *
+ * @author jejkal
+ */
+public interface INodeSearchVisitor {
+
+    /**
+     * Visit a single node.
+     *
+     * @param pNode The node.
+     * @param pPath The logical path of the node relative to the subtree root,
+     * which has the path '/', or null if paths were not requested.
+     * @param pDepth The depth of the node relative to the subtree root, which
+     * has depth 0.
+     *
+     * @return The decision how to continue the traversal.
+     */
+    Decision visit(IDataOrganizationNode pNode, String pPath, int pDepth);
+
+    /**
+     * Decision returned by {@link #visit(IDataOrganizationNode, String, int)}.
+     */
+    enum Decision {
+
+        /**
+         * Continue with the children of the visited node.
+         */
+        CONTINUE,
+        /**
+         * Skip the children of the visited node and continue with its next
+         * sibling.
+         */
+        SKIP_CHILDREN,
+        /**
+         * Stop the entire traversal.
+         */
+        STOP
+    }
+}
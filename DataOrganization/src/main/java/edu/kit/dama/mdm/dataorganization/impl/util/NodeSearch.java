@@ -0,0 +1,241 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.dataorganization.impl.util;
+
+import edu.kit.dama.mdm.dataorganization.entity.core.IAttribute;
+import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Search for nodes within a subtree matching a combination of criteria, e.g.
+ * <pre>
+ * List&lt;IDataOrganizationNode&gt; javaFiles = new NodeSearch()
+ *   .withNamePattern(Pattern.compile(".*\\.java"))
+ *   .withPathPrefix("/src")
+ *   .withDepth(1, 3)
+ *   .findAll(tree.getRootNode());
+ * </pre> All criteria are checked in a single traversal. Subtrees which cannot
+ * contain any match because of the path prefix or the max. depth are skipped
+ * and the traversal stops as soon as the max. number of results is reached. A
+ * NodeSearch instance holds no traversal state and can be reused, e.g. for
+ * applying a precompiled pattern to many trees.
+ *
+ * @author jejkal
+ */
+public final class NodeSearch {
+
+    private String name;
+    private Pattern namePattern;
+    private String pathPrefix;
+    private String attributeKey;
+    private String attributeValue;
+    private int minDepth = 0;
+    private int maxDepth = Integer.MAX_VALUE;
+
+    /**
+     * Default constructor.
+     */
+    public NodeSearch() {
+    }
+
+    /**
+     * Only match nodes with exactly the provided name.
+     *
+     * @param pName The node name.
+     *
+     * @return This instance.
+     */
+    public NodeSearch withName(String pName) {
+        name = pName;
+        return this;
+    }
+
+    /**
+     * Only match nodes whose entire name matches the provided pattern.
+     *
+     * @param pPattern The precompiled pattern.
+     *
+     * @return This instance.
+     */
+    public NodeSearch withNamePattern(Pattern pPattern) {
+        namePattern = pPattern;
+        return this;
+    }
+
+    /**
+     * Only match nodes whose logical path relative to the subtree root starts
+     * with the provided path, e.g. '/a/b' matches '/a/b' and '/a/b/c.txt' but
+     * not '/a/bc'.
+     *
+     * @param pPathPrefix The path prefix, which is normalized before use.
+     *
+     * @return This instance.
+     */
+    public NodeSearch withPathPrefix(String pPathPrefix) {
+        pathPrefix = (pPathPrefix != null) ? Util.normalizePath(pPathPrefix) : null;
+        return this;
+    }
+
+    /**
+     * Only match nodes having an attribute with the provided key and, if
+     * pValue is not null, with the provided value.
+     *
+     * @param pKey The attribute key.
+     * @param pValue The attribute value or null to accept any value.
+     *
+     * @return This instance.
+     */
+    public NodeSearch withAttribute(String pKey, String pValue) {
+        attributeKey = pKey;
+        attributeValue = pValue;
+        return this;
+    }
+
+    /**
+     * Only match nodes whose depth relative to the subtree root, which has
+     * depth 0, is within the provided range.
+     *
+     * @param pMinDepth The min. depth (inclusive).
+     * @param pMaxDepth The max. depth (inclusive).
+     *
+     * @return This instance.
+     */
+    public NodeSearch withDepth(int pMinDepth, int pMaxDepth) {
+        if (pMinDepth < 0 || pMaxDepth < pMinDepth) {
+            throw new IllegalArgumentException("Invalid depth range [" + pMinDepth + ", " + pMaxDepth + "].");
+        }
+        minDepth = pMinDepth;
+        maxDepth = pMaxDepth;
+        return this;
+    }
+
+    /**
+     * Get the first matching node in preorder.
+     *
+     * @param pSubtree The subtree to search.
+     *
+     * @return The first matching node or null.
+     */
+    public IDataOrganizationNode findFirst(IDataOrganizationNode pSubtree) {
+        List<IDataOrganizationNode> result = find(pSubtree, 1);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /**
+     * Get all matching nodes in preorder.
+     *
+     * @param pSubtree The subtree to search.
+     *
+     * @return A list of all matching nodes, which might be empty.
+     */
+    public List<IDataOrganizationNode> findAll(IDataOrganizationNode pSubtree) {
+        return find(pSubtree, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get up to pMaxResults matching nodes in preorder.
+     *
+     * @param pSubtree The subtree to search.
+     * @param pMaxResults The max. number of results.
+     *
+     * @return A list of matching nodes, which might be empty.
+     */
+    public List<IDataOrganizationNode> find(IDataOrganizationNode pSubtree, final int pMaxResults) {
+        final List<IDataOrganizationNode> result = new ArrayList<>();
+        if (pMaxResults < 1) {
+            return result;
+        }
+        //paths are only needed for checking the path prefix
+        Util.searchSubtree(pSubtree, new INodeSearchVisitor() {
+            @Override
+            public Decision visit(IDataOrganizationNode pNode, String pPath, int pDepth) {
+                if (matches(pNode, pPath, pDepth)) {
+                    result.add(pNode);
+                    if (result.size() >= pMaxResults) {
+                        return Decision.STOP;
+                    }
+                }
+                return canMatchBelow(pPath, pDepth) ? Decision.CONTINUE : Decision.SKIP_CHILDREN;
+            }
+        }, pathPrefix != null);
+        return result;
+    }
+
+    /**
+     * Check whether the provided node matches all criteria.
+     *
+     * @param pNode The node.
+     * @param pPath The logical path of the node, which may be null if no path
+     * prefix is set.
+     * @param pDepth The depth of the node.
+     *
+     * @return TRUE if the node matches.
+     */
+    public boolean matches(IDataOrganizationNode pNode, String pPath, int pDepth) {
+        if (pDepth < minDepth || pDepth > maxDepth) {
+            return false;
+        }
+        if (name != null && !name.equals(pNode.getName())) {
+            return false;
+        }
+        if (namePattern != null && (pNode.getName() == null || !namePattern.matcher(pNode.getName()).matches())) {
+            return false;
+        }
+        if (pathPrefix != null && !isBelow(pPath, pathPrefix)) {
+            return false;
+        }
+        if (attributeKey != null) {
+            boolean found = false;
+            if (pNode.getAttributes() != null) {
+                for (IAttribute attribute : pNode.getAttributes()) {
+                    if (attributeKey.equals(attribute.getKey()) && (attributeValue == null || Objects.equals(attributeValue, attribute.getValue()))) {
+                        found = true;
+                        break;
+                    }
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check whether descendants of the node with the provided path and depth
+     * may match at all.
+     */
+    private boolean canMatchBelow(String pPath, int pDepth) {
+        if (pDepth >= maxDepth) {
+            return false;
+        }
+        //descendants match if the node is below the prefix or on the way to it
+        return pathPrefix == null || isBelow(pPath, pathPrefix) || isBelow(pathPrefix, pPath);
+    }
+
+    /**
+     * Check whether pPath equals pParent or is located below pParent.
+     */
+    private static boolean isBelow(String pPath, String pParent) {
+        if ("/".equals(pParent)) {
+            return true;
+        }
+        return pPath.startsWith(pParent) && (pPath.length() == pParent.length() || pPath.charAt(pParent.length()) == '/');
+    }
+}
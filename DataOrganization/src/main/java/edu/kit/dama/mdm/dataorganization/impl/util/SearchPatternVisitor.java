@@ -31,7 +31,10 @@ import org.slf4j.LoggerFactory;
  * files. [^#]* - all files whose names do not start with “#”.
  *
  * @author: hartmann-v
+ * @deprecated Use {@link NodeSearch#withNamePattern(java.util.regex.Pattern)}
+ * instead, which stops visiting nodes as soon as enough matches were found.
  */
+@Deprecated
 public class SearchPatternVisitor implements IDataOrganizationNodeVisitor {
 
   /**
@@ -42,13 +42,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -113,6 +112,58 @@ public final class Util {
         }
     }
 
+    /**
+     * Walks a subtree in preorder, providing logical path and depth of each
+     * node to pVisitor. The traversal can be stopped or parts of the subtree
+     * can be skipped depending on the decision returned by pVisitor.
+     *
+     * @param pNode The node to start with, which has the path '/' and depth 0.
+     * @param pVisitor The visitor.
+     */
+    public static void searchSubtree(IDataOrganizationNode pNode, INodeSearchVisitor pVisitor) {
+        searchSubtree(pNode, pVisitor, true);
+    }
+
+    /**
+     * Walks a subtree in preorder like
+     * {@link #searchSubtree(IDataOrganizationNode, INodeSearchVisitor)}. If
+     * pVisitor does not evaluate the logical path, the path strings of all
+     * visited nodes are not built and null is provided as path instead.
+     *
+     * @param pNode The node to start with, which has the path '/' and depth 0.
+     * @param pVisitor The visitor.
+     * @param pProvidePaths TRUE if pVisitor needs the logical path of each
+     * node.
+     */
+    public static void searchSubtree(IDataOrganizationNode pNode, INodeSearchVisitor pVisitor, boolean pProvidePaths) {
+        searchSubtree(pNode, pProvidePaths ? "/" : null, 0, pVisitor);
+    }
+
+    /**
+     * Recursive part of searchSubtree().
+     *
+     * @return FALSE if the traversal was stopped.
+     */
+    private static boolean searchSubtree(IDataOrganizationNode pNode, String pPath, int pDepth, INodeSearchVisitor pVisitor) {
+        INodeSearchVisitor.Decision decision = pVisitor.visit(pNode, pPath, pDepth);
+        if (INodeSearchVisitor.Decision.STOP.equals(decision)) {
+            return false;
+        }
+        if (INodeSearchVisitor.Decision.CONTINUE.equals(decision) && pNode instanceof ICollectionNode) {
+            String prefix = (pPath == null || "/".equals(pPath)) ? pPath : pPath + "/";
+            for (IDataOrganizationNode child : ((ICollectionNode) pNode).getChildren()) {
+                String childPath = null;
+                if (prefix != null) {
+                    childPath = prefix + ((child.getName() != null) ? child.getName() : "");
+                }
+                if (!searchSubtree(child, childPath, pDepth + 1, pVisitor)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * Gets the a first node with the provided name from the provided subtree.
      *
@@ -122,13 +173,73 @@ public final class Util {
      * @return The found node or null if no node was found.
      */
     public static IDataOrganizationNode getNodeByName(ICollectionNode subtree, String name) {
-        SearchVisitor searchVisitor = new SearchVisitor(name);
-        try {
-            walkSubtree(subtree, searchVisitor, null);
-        } catch (SearchVisitor.NodeFoundException e) {
-            return e.getNode();
+        return new NodeSearch().withName(name).findFirst(subtree);
+    }
+
+    /**
+     * Normalize the provided logical path. Empty path elements are removed and
+     * the result starts with a single slash, e.g. 'a//b/' becomes '/a/b'. The
+     * normalized path of the root node is '/'.
+     *
+     * @param pPath The path to normalize, which may be null.
+     *
+     * @return The normalized path.
+     */
+    public static String normalizePath(String pPath) {
+        StringBuilder result = new StringBuilder();
+        if (pPath != null) {
+            for (String element : pPath.split("/")) {
+                if (!element.isEmpty()) {
+                    result.append("/").append(element);
+                }
+            }
+        }
+        return (result.length() == 0) ? "/" : result.toString();
+    }
+
+    /**
+     * Get the node with the provided logical path relative to the provided
+     * subtree. Each path element must match the name of a direct child of the
+     * previous node.
+     *
+     * @param pSubtree The subtree to search.
+     * @param pPath The path, e.g. /a/b/c.txt. The path '/' addresses pSubtree
+     * itself.
+     *
+     * @return The found node or null if no node was found.
+     */
+    public static IDataOrganizationNode getNodeByPath(ICollectionNode pSubtree, String pPath) {
+        IDataOrganizationNode current = pSubtree;
+        for (String element : pPath.split("/")) {
+            if (element.isEmpty()) {
+                continue;
+            }
+            if (!(current instanceof ICollectionNode)) {
+                return null;
+            }
+            IDataOrganizationNode next = null;
+            if (current instanceof CollectionNodeImpl) {
+                //use the name index, if a file and a collection share the name the first one wins
+                CollectionNodeImpl collection = (CollectionNodeImpl) current;
+                next = collection.findChild(element, true);
+                IDataOrganizationNode file = collection.findChild(element, false);
+                if (next == null || (file != null && collection.getChildren().indexOf(file) < collection.getChildren().indexOf(next))) {
+                    next = file;
+                }
+            } else {
+                for (IDataOrganizationNode child : ((ICollectionNode) current).getChildren()) {
+                    if (element.equals(child.getName())) {
+                        next = child;
+                        break;
+                    }
+                }
+            }
+            if (next == null) {
+                return null;
+            }
+            current = next;
         }
-        return null;
+        return current;
     }
 
     /**
@@ -436,13 +547,24 @@ public final class Util {
      *
      * @param pSubtree The subtree to search.
      * @param pRegex The regular expression to search for.
-     * @see SearchPatternVisitor
+     * @see NodeSearch
      * @return A set with the found nodes or empty set if no node was found.
      */
     public static Set<IDataOrganizationNode> getNodesByRegex(ICollectionNode pSubtree, String pRegex) {
-        SearchPatternVisitor searchPatternVisitor = new SearchPatternVisitor(pRegex);
-        walkSubtree(pSubtree, searchPatternVisitor, null);
-        return searchPatternVisitor.getAllNodes();
+        return getNodesByRegex(pSubtree, Pattern.compile(pRegex));
+    }
+
+    /**
+     * Get all nodes which filenames match the provided precompiled pattern
+     * from the provided subtree.
+     *
+     * @param pSubtree The subtree to search.
+     * @param pPattern The pattern to search for.
+     * @see NodeSearch
+     * @return A set with the found nodes or empty set if no node was found.
+     */
+    public static Set<IDataOrganizationNode> getNodesByRegex(ICollectionNode pSubtree, Pattern pPattern) {
+        return new HashSet<>(new NodeSearch().withNamePattern(pPattern).findAll(pSubtree));
     }
 
     public static Document fileTreeToXml(IFileTree tree) throws Exception {
@@ -579,69 +701,3 @@ public final class Util {
     }
 
 }
-
-/**
- * Utility class for search.
- *
- * @author pasic
- */
-class SearchVisitor implements IDataOrganizationNodeVisitor {
-
-    /**
-     * Logger for the class.
-     */
-    private static final Logger LOGGER = LoggerFactory.getLogger(SearchVisitor.class);
-
-    class NodeFoundException extends RuntimeException {
-
-        /**
-         * The node.
-         */
-        private final IDataOrganizationNode node;
-
-        /**
-         * Default constructor.
-         *
-         * @param node The node to return.
-         */
-        public NodeFoundException(IDataOrganizationNode node) {
-            this.node = node;
-        }
-
-        /**
-         * Returns the node.
-         *
-         * @return The node.
-         */
-        public IDataOrganizationNode getNode() {
-            return node;
-        }
-    }
-
-    /**
-     * The node name.
-     */
-    private final String name;
-
-    /**
-     * Default constructor.
-     *
-     * @param name The name.
-     */
-    public SearchVisitor(String name) {
-        this.name = name;
-    }
-
-    @Override
-    public void action(IDataOrganizationNode node) {
-        if (LOGGER.isTraceEnabled()) {
-            LOGGER.trace("Testing node '{}' for name '{}'", node.getName(), name);
-        }
-        if (name.equals(node.getName())) {
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Success! Found node with name '{}'.", node.getName());
-            }
-            throw new NodeFoundException(node);
-        }
-    }
-}
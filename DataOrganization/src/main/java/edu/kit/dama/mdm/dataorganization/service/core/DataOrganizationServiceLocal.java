@@ -83,6 +83,11 @@ public final class DataOrganizationServiceLocal implements
         DataOrganizerFactory.getInstance().getDataOrganizer().createFileTree(fileTree);
     }
 
+    @Override
+    public FileTreeUpdateResult updateFileTree(IFileTree fileTree, IAuthorizationContext ctx) {
+        return DataOrganizerFactory.getInstance().getDataOrganizer().updateFileTree(fileTree);
+    }
+
     @Override
     public List<? extends IDataOrganizationNode> getChildren(NodeId nodeId,
             int firstResult, int maxResult, IAuthorizationContext ctx)
@@ -60,6 +60,20 @@ public interface DataOrganizer extends IConfigurableAdapter {
      */
     void createFileTree(IFileTree fileTree) throws EntityExistsException;
 
+    /**
+     * Replace the persisted view fileTree.getViewName() of the digital object
+     * fileTree.getDigitalObjectId() by the provided tree. In contrast to
+     * {@link #createFileTree(IFileTree)} the provided tree is compared to the
+     * persisted one and only nodes that were added, removed, modified or
+     * which have to be moved are written. Nodes are identified by their
+     * logical path. If no tree is persisted yet, the provided tree is created.
+     *
+     * @param fileTree The new file tree.
+     *
+     * @return The number of nodes touched by the update.
+     */
+    FileTreeUpdateResult updateFileTree(IFileTree fileTree);
+
     /**
      * Get a range of the children nodes for some node which is identified by
      * the node parameter.
@@ -175,5 +189,23 @@ public interface DataOrganizer extends IConfigurableAdapter {
     IDataOrganizationNode loadNode(NodeId nodeId) throws
             InvalidNodeIdException;
 
+    /**
+     * Load the node with the provided logical path, e.g. /a/b/c.txt, from the
+     * provided view of a digital object. The path '/' addresses the root node.
+     * If the node is a collection node, it is returned together with all its
+     * descendants.
+     *
+     * @param digitalObjectId The digital object id.
+     * @param viewName The view name.
+     * @param path The logical path of the node.
+     *
+     * @return The node with the provided path.
+     *
+     * @throws EntityNotFoundException if there is no node for the provided
+     * path.
+     */
+    IDataOrganizationNode loadNodeByPath(DigitalObjectId digitalObjectId,
+            String viewName, String path) throws EntityNotFoundException;
+
     List<String> getViews(DigitalObjectId doid);
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.dataorganization.service.core;
+
+/**
+ * Summary of an incremental file tree update performed via
+ * {@link DataOrganizer#updateFileTree(edu.kit.dama.mdm.dataorganization.entity.core.IFileTree)}.
+ * The counters refer to nodes, e.g. a node whose position and content did not
+ * change is counted as unchanged and its row is not touched at all.
+ *
+ * @author jejkal
+ */
+public final class FileTreeUpdateResult {
+
+    private long inserted = 0;
+    private long deleted = 0;
+    private long updated = 0;
+    private long renumbered = 0;
+    private long unchanged = 0;
+
+    /**
+     * Default constructor.
+     */
+    public FileTreeUpdateResult() {
+    }
+
+    /**
+     * Increment the number of inserted nodes.
+     */
+    public void incrementInserted() {
+        inserted++;
+    }
+
+    /**
+     * Increment the number of deleted nodes.
+     */
+    public void incrementDeleted() {
+        deleted++;
+    }
+
+    /**
+     * Increment the number of nodes whose content has changed.
+     */
+    public void incrementUpdated() {
+        updated++;
+    }
+
+    /**
+     * Increment the number of nodes which have only been moved within the
+     * persisted tree structure.
+     */
+    public void incrementRenumbered() {
+        renumbered++;
+    }
+
+    /**
+     * Increment the number of untouched nodes.
+     */
+    public void incrementUnchanged() {
+        unchanged++;
+    }
+
+    /**
+     * Get the number of nodes which did not exist before.
+     *
+     * @return The number of inserted nodes.
+     */
+    public long getInserted() {
+        return inserted;
+    }
+
+    /**
+     * Get the number of nodes which do not exist in the new tree.
+     *
+     * @return The number of deleted nodes.
+     */
+    public long getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * Get the number of nodes whose name, description, attributes or logical
+     * file name have changed.
+     *
+     * @return The number of updated nodes.
+     */
+    public long getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Get the number of unmodified nodes whose position within the persisted
+     * tree structure had to be changed to make room for other nodes.
+     *
+     * @return The number of renumbered nodes.
+     */
+    public long getRenumbered() {
+        return renumbered;
+    }
+
+    /**
+     * Get the number of nodes which were left untouched.
+     *
+     * @return The number of unchanged nodes.
+     */
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * Get the overall number of nodes which had to be written or removed.
+     *
+     * @return The number of touched nodes.
+     */
+    public long getTouched() {
+        return inserted + deleted + updated + renumbered;
+    }
+
+    @Override
+    public String toString() {
+        return "inserted: " + inserted + ", deleted: " + deleted + ", updated: " + updated + ", renumbered: " + renumbered + ", unchanged: " + unchanged;
+    }
+}
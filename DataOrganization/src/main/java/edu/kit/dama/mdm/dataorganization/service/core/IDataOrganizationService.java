@@ -74,6 +74,16 @@ public interface IDataOrganizationService<C extends IAuthorizationContext> {
    */
   void createFileTree(IFileTree fileTree, C ctx) throws EntityExistsException;
 
+  /**
+   * Replace the persisted {@link IFileTree} instance by writing only the
+   * modified nodes. fileTree.getDigitalObjectID() must not be null.
+   *
+   * @param fileTree The new file tree.
+   * @param ctx security context
+   * @return The number of nodes touched by the update.
+   */
+  FileTreeUpdateResult updateFileTree(IFileTree fileTree, C ctx);
+
   /**
    * Get a range of the children nodes for some node which is identified by the
    * node parameter.
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.dataorganization.test;
+
+import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
+import edu.kit.dama.mdm.dataorganization.impl.staging.CollectionNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.FileNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.LFNImpl;
+import edu.kit.dama.mdm.dataorganization.impl.util.Util;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the name index of staging collection nodes.
+ *
+ * @author jejkal
+ */
+public class CollectionNodeImplTest {
+
+    private static FileNodeImpl createFile(String pName) {
+        FileNodeImpl file = new FileNodeImpl(new LFNImpl("file:///data/" + pName));
+        file.setName(pName);
+        return file;
+    }
+
+    private static CollectionNodeImpl createCollection(String pName) {
+        CollectionNodeImpl collection = new CollectionNodeImpl();
+        collection.setName(pName);
+        return collection;
+    }
+
+    @Test
+    public void testFindChild() {
+        CollectionNodeImpl node = new CollectionNodeImpl();
+        for (int i = 0; i < 50000; i++) {
+            node.addChild(createFile("file" + i));
+        }
+        CollectionNodeImpl dir = createCollection("file7");
+        node.addChild(dir);
+
+        Assert.assertEquals("file49999", node.findChild("file49999", false).getName());
+        Assert.assertSame(dir, node.findChild("file7", true));
+        Assert.assertNotSame(dir, node.findChild("file7", false));
+        Assert.assertNull(node.findChild("file50000", false));
+        Assert.assertSame(node.getChildren().get(7), Util.getNodeByPath(node, "/file7"));
+
+        //add after the index has been built
+        FileNodeImpl added = createFile("added");
+        node.addChild(added);
+        Assert.assertSame(added, node.findChild(createFile("added")));
+        //keep insertion order
+        Assert.assertSame(added, node.getChildren().get(node.getChildren().size() - 1));
+    }
+
+    @Test
+    public void testIndexUpdates() {
+        CollectionNodeImpl node = new CollectionNodeImpl();
+        FileNodeImpl first = createFile("a");
+        node.addChild(first);
+        node.addChild(createFile("b"));
+        Assert.assertSame(first, node.findChild("a", false));
+
+        //rename
+        first.setName("c");
+        Assert.assertNull(node.findChild("a", false));
+        Assert.assertSame(first, node.findChild("c", false));
+
+        //direct modification of the children list
+        node.getChildren().remove(first);
+        Assert.assertNull(node.findChild("c", false));
+
+        //overwrite
+        FileNodeImpl second = createFile("b");
+        node.addChild(second, true);
+        Assert.assertEquals(1, node.getChildren().size());
+        Assert.assertSame(second, node.findChild("b", false));
+
+        //duplicates without overwrite, the first one is found
+        node.addChild(createFile("b"));
+        Assert.assertSame(second, node.findChild("b", false));
+        node.removeChild(second);
+        Assert.assertNotNull(node.findChild("b", false));
+        Assert.assertNotSame(second, node.findChild("b", false));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReplaceViaChildrenList() {
+        CollectionNodeImpl node = new CollectionNodeImpl();
+        node.addChild(createFile("a"));
+        node.addChild(createFile("b"));
+        Assert.assertNotNull(node.findChild("a", false));
+
+        //same size as before, thus only the modification count reveals the change
+        FileNodeImpl replacement = createFile("c");
+        ((List<IDataOrganizationNode>) node.getChildren()).set(0, replacement);
+        Assert.assertNull(node.findChild("a", false));
+        Assert.assertSame(replacement, node.findChild("c", false));
+    }
+
+    @Test
+    public void testRemoveDuplicates() {
+        CollectionNodeImpl node = new CollectionNodeImpl();
+        FileNodeImpl first = createFile("a");
+        FileNodeImpl second = createFile("a");
+        FileNodeImpl third = createFile("a");
+        CollectionNodeImpl dir = createCollection("a");
+        node.addChild(first);
+        node.addChild(dir);
+        node.addChild(second);
+        Assert.assertSame(first, node.findChild("a", false));
+        //added after the index has been built
+        node.addChild(third);
+
+        node.removeChild(second);
+        Assert.assertSame(first, node.findChild("a", false));
+        node.removeChild(first);
+        Assert.assertSame(third, node.findChild("a", false));
+        node.removeChild(third);
+        Assert.assertNull(node.findChild("a", false));
+        Assert.assertSame(dir, node.findChild("a", true));
+        node.removeChild(dir);
+        Assert.assertNull(node.findChild("a", true));
+        Assert.assertTrue(node.getChildren().isEmpty());
+    }
+}
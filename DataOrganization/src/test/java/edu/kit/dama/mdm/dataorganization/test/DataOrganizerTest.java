@@ -26,10 +26,12 @@ import edu.kit.dama.mdm.dataorganization.entity.impl.client.CollectionNode;
 import edu.kit.dama.mdm.dataorganization.entity.impl.client.FileNode;
 import edu.kit.dama.mdm.dataorganization.impl.jpa.persistence.PersistenceFacade;
 import edu.kit.dama.mdm.dataorganization.service.core.DataOrganizer;
+import edu.kit.dama.mdm.dataorganization.service.core.FileTreeUpdateResult;
 import edu.kit.dama.mdm.dataorganization.service.exception.EntityExistsException;
 import edu.kit.dama.mdm.dataorganization.service.exception.EntityNotFoundException;
 import edu.kit.dama.mdm.dataorganization.service.exception.InvalidNodeIdException;
 import java.util.List;
+import javax.persistence.EntityManager;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -214,6 +216,176 @@ public class DataOrganizerTest {
 
     }
 
+    @Test
+    public void testLoadNodeByPath() throws EntityExistsException, EntityNotFoundException, InvalidNodeIdException {
+        IFileTree testTree = TestUtil.createBasicTestTree();
+        testTree.setDigitalObjectId(digitalObjectID);
+        dataOrganizer.createFileTree(testTree);
+
+        IDataOrganizationNode node = dataOrganizer.loadNodeByPath(digitalObjectID, "default", "/child 2/cnc 2.3");
+        assertEquals("cnc 2.3", node.getName());
+        assertEquals(3, ((ICollectionNode) node).getChildren().size());
+        node = dataOrganizer.loadNodeByPath(digitalObjectID, "default", "child 2//cnc 2.2/cnc 2.2.1/");
+        assertEquals("cnc 2.2.1", node.getName());
+        assertEquals("root", dataOrganizer.loadNodeByPath(digitalObjectID, "default", "/").getName());
+
+        try {
+            dataOrganizer.loadNodeByPath(digitalObjectID, "default", "/child 2/cnc 2.4");
+            fail("Node at path /child 2/cnc 2.4 should not exist.");
+        } catch (EntityNotFoundException ex) {
+            //fine
+        }
+
+        //renaming a node must update the paths of the entire subtree
+        node = dataOrganizer.loadNodeByPath(digitalObjectID, "default", "/child 2");
+        node.setName("renamed");
+        dataOrganizer.updateNodeData(node.getTransientNodeId(), node);
+        node = dataOrganizer.loadNodeByPath(digitalObjectID, "default", "/renamed/cnc 2.3/cnc 2.3.2");
+        assertEquals("cnc 2.3.2", node.getName());
+    }
+
+    @Test
+    public void testUpdateFileTree() throws EntityExistsException, EntityNotFoundException, InvalidNodeIdException {
+        IFileTree testTree = TestUtil.createBasicTestTree();
+        testTree.setDigitalObjectId(digitalObjectID);
+        dataOrganizer.createFileTree(testTree);
+        NodeId unchangedNodeId = dataOrganizer.loadNodeByPath(digitalObjectID, "default", "/child 2/cnc 2.3/cnc 2.3.1").getTransientNodeId();
+
+        IFileTree newTree = TestUtil.createBasicTestTree();
+        newTree.setDigitalObjectId(digitalObjectID);
+        IFileNode fileNode = new FileNode(new StringLFN("file://new"));
+        fileNode.setName("new file");
+        ((ICollectionNode) newTree.getNodeByName("cnc 2.2")).addChild(fileNode);
+        ((ICollectionNode) newTree.getNodeByName("cnc 2.3")).getChildren().remove(2);
+        newTree.getNodeByName("child 1").setDescription("changed");
+
+        FileTreeUpdateResult result = dataOrganizer.updateFileTree(newTree);
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getDeleted());
+        assertEquals(1, result.getUpdated());
+        assertEquals(0, result.getRenumbered());
+        assertEquals(10, result.getUnchanged());
+        assertTrue(newTree.equals(dataOrganizer.loadFileTree(digitalObjectID)));
+        //ids of untouched nodes remain valid
+        assertEquals("cnc 2.3.1", dataOrganizer.loadNode(unchangedNodeId).getName());
+        assertEquals("new file", dataOrganizer.loadNodeByPath(digitalObjectID, "default", "/child 2/cnc 2.2/new file").getName());
+
+        //nothing to do for an unmodified tree
+        assertEquals(0, dataOrganizer.updateFileTree(newTree).getTouched());
+    }
+
+    @Test
+    public void testUpdateFileTreeWithRenumbering() throws EntityExistsException, EntityNotFoundException, InvalidNodeIdException {
+        IFileTree testTree = TestUtil.createBasicTestTree();
+        testTree.setDigitalObjectId(digitalObjectID);
+        dataOrganizer.createFileTree(testTree);
+
+        //more nodes than fitting into the gaps around cnc 2.2.1
+        IFileTree newTree = TestUtil.createBasicTestTree();
+        newTree.setDigitalObjectId(digitalObjectID);
+        ICollectionNode coll = (ICollectionNode) newTree.getNodeByName("cnc 2.2.1");
+        for (int i = 0; i < 100; i++) {
+            IFileNode fileNode = new FileNode(new StringLFN("file://" + i));
+            fileNode.setName("file " + i);
+            coll.addChild(fileNode);
+        }
+
+        FileTreeUpdateResult result = dataOrganizer.updateFileTree(newTree);
+        assertEquals(100, result.getInserted());
+        assertEquals(0, result.getDeleted());
+        assertTrue(result.getRenumbered() > 0);
+        assertTrue(result.getUnchanged() > 0);
+        assertTrue(newTree.equals(dataOrganizer.loadFileTree(digitalObjectID)));
+        NodeId nodeId = dataOrganizer.loadNodeByPath(digitalObjectID, "default", "/child 2/cnc 2.2/cnc 2.2.1").getTransientNodeId();
+        assertEquals(Long.valueOf(100), dataOrganizer.getChildCount(nodeId));
+        assertEquals("file 99", dataOrganizer.loadNodeByPath(digitalObjectID, "default", "/child 2/cnc 2.2/cnc 2.2.1/file 99").getName());
+
+        //removing the nodes again
+        result = dataOrganizer.updateFileTree(testTree);
+        assertEquals(100, result.getDeleted());
+        assertEquals(0, result.getInserted());
+        assertTrue(testTree.equals(dataOrganizer.loadFileTree(digitalObjectID)));
+    }
+
+    @Test
+    public void testFailedUpdateKeepsFileTree() throws EntityExistsException, EntityNotFoundException {
+        IFileTree testTree = TestUtil.createBasicTestTree();
+        testTree.setDigitalObjectId(digitalObjectID);
+        ICollectionNode coll = (ICollectionNode) testTree.getNodeByName("cnc 2.2.1");
+        for (int i = 0; i < 10; i++) {
+            IFileNode fileNode = new FileNode(new StringLFN("file://" + i));
+            fileNode.setName("file " + i);
+            coll.addChild(fileNode);
+        }
+        dataOrganizer.createFileTree(testTree);
+
+        //the files are removed, whereas the new node cannot be inserted as its name is too long
+        IFileTree newTree = TestUtil.createBasicTestTree();
+        newTree.setDigitalObjectId(digitalObjectID);
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            name.append('x');
+        }
+        IFileNode fileNode = new FileNode(new StringLFN("file://invalid"));
+        fileNode.setName(name.toString());
+        ((ICollectionNode) newTree.getNodeByName("cnc 2.3.1")).addChild(fileNode);
+
+        try {
+            dataOrganizer.updateFileTree(newTree);
+            fail("Update with invalid node name succeeded.");
+        } catch (RuntimeException ex) {
+            //expected
+        }
+        assertTrue(testTree.equals(dataOrganizer.loadFileTree(digitalObjectID)));
+    }
+
+    @Test
+    public void testUpdateFileTreeWithoutPathIndex() throws EntityExistsException, EntityNotFoundException {
+        IFileTree testTree = TestUtil.createBasicTestTree();
+        testTree.setDigitalObjectId(digitalObjectID);
+        dataOrganizer.createFileTree(testTree);
+        //remove the path index as for trees persisted before it was introduced
+        EntityManager em = PersistenceFacade.getInstance().getEntityManagerFactory().createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.createQuery("UPDATE DataOrganizationNode d SET d.fullPath = NULL").executeUpdate();
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+        assertEquals("cnc 2.3.1", dataOrganizer.loadNodeByPath(digitalObjectID, "default", "/child 2/cnc 2.3/cnc 2.3.1").getName());
+
+        IFileTree newTree = TestUtil.createBasicTestTree();
+        newTree.setDigitalObjectId(digitalObjectID);
+        IFileNode fileNode = new FileNode(new StringLFN("file://new"));
+        fileNode.setName("new file");
+        ((ICollectionNode) newTree.getNodeByName("cnc 2.2")).addChild(fileNode);
+        FileTreeUpdateResult result = dataOrganizer.updateFileTree(newTree);
+        assertEquals(1, result.getInserted());
+        assertEquals(0, result.getUpdated());
+
+        //kept nodes are indexed by the update, new nodes anyway
+        assertEquals("new file", dataOrganizer.loadNodeByPath(digitalObjectID, "default", "/child 2/cnc 2.2/new file").getName());
+        assertEquals("cnc 2.3.1", dataOrganizer.loadNodeByPath(digitalObjectID, "default", "/child 2/cnc 2.3/cnc 2.3.1").getName());
+        assertEquals("root", dataOrganizer.loadNodeByPath(digitalObjectID, "default", "/").getName());
+        em = PersistenceFacade.getInstance().getEntityManagerFactory().createEntityManager();
+        try {
+            assertEquals(Long.valueOf(0), em.createQuery("SELECT COUNT(d) FROM DataOrganizationNode d WHERE d.fullPath IS NULL", Long.class).getSingleResult());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    public void testUpdateNotExistingFileTree() throws EntityNotFoundException {
+        IFileTree testTree = TestUtil.createBasicTestTree();
+        testTree.setDigitalObjectId(digitalObjectID);
+        FileTreeUpdateResult result = dataOrganizer.updateFileTree(testTree);
+        assertEquals(12, result.getInserted());
+        assertEquals(12, result.getTouched());
+        assertTrue(testTree.equals(dataOrganizer.loadFileTree(digitalObjectID)));
+    }
+
     public void printTree(IDataOrganizationNode node, int level) {
         for (int i = 0; i < level; ++i) {
             System.out.print("   ");
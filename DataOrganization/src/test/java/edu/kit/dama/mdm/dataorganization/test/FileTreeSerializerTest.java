@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.dataorganization.test;
+
+import edu.kit.dama.commons.types.DigitalObjectId;
+import edu.kit.dama.mdm.dataorganization.entity.core.ICollectionNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IFileNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IFileTree;
+import edu.kit.dama.mdm.dataorganization.impl.staging.AttributeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.CollectionNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.FileNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.FileTreeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.LFNImpl;
+import edu.kit.dama.mdm.dataorganization.impl.util.FileTreeSerializer;
+import edu.kit.dama.mdm.dataorganization.impl.util.Util;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.dom.DOMResult;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Tests for the streaming JSON and XML serialization of file trees.
+ *
+ * @author jejkal
+ */
+public class FileTreeSerializerTest {
+
+    private static final String DO_NS = "http://datamanager.kit.edu/dama/dataorganization";
+
+    /**
+     * Create a tree with pDirectories collections containing pFiles file nodes
+     * each.
+     */
+    private static IFileTree createTree(int pDirectories, int pFiles) {
+        FileTreeImpl tree = new FileTreeImpl();
+        tree.setDigitalObjectId(new DigitalObjectId("1234-5678"));
+        tree.setViewName("custom");
+        for (int i = 0; i < pDirectories; i++) {
+            CollectionNodeImpl collection = new CollectionNodeImpl();
+            collection.setName("dir \"" + i + "\"");
+            collection.addAttribute(new AttributeImpl("index", Integer.toString(i)));
+            for (int j = 0; j < pFiles; j++) {
+                FileNodeImpl file = new FileNodeImpl(new LFNImpl("file:///data/dir" + i + "/file" + j + ".txt"));
+                file.setName("file" + j + ".txt");
+                collection.addChild(file);
+            }
+            tree.addChild(collection);
+        }
+        return tree;
+    }
+
+    private static int countNodes(IDataOrganizationNode pNode) {
+        int result = 1;
+        if (pNode instanceof ICollectionNode) {
+            for (IDataOrganizationNode child : ((ICollectionNode) pNode).getChildren()) {
+                result += countNodes(child);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testJsonRoundTrip() throws Exception {
+        IFileTree tree = createTree(5, 20);
+        StringWriter writer = new StringWriter();
+        FileTreeSerializer.writeJsonView(tree, writer);
+
+        //the output is readable by the JSONObject-based methods
+        IFileTree fromJsonObject = Util.jsonViewToFileTree(new JSONObject(writer.toString()), true, false);
+        Assert.assertEquals(countNodes(tree.getRootNode()), countNodes(fromJsonObject.getRootNode()));
+
+        IFileTree result = FileTreeSerializer.readJsonView(new StringReader(writer.toString()), true, false);
+        Assert.assertEquals("1234-5678", result.getDigitalObjectId().getStringRepresentation());
+        Assert.assertEquals("custom", result.getViewName());
+        Assert.assertEquals(countNodes(tree.getRootNode()), countNodes(result.getRootNode()));
+        ICollectionNode dir = (ICollectionNode) result.getRootNode().getChildren().get(3);
+        Assert.assertEquals("dir \"3\"", dir.getName());
+        Assert.assertEquals("3", dir.getAttributes().iterator().next().getValue());
+        IFileNode file = (IFileNode) dir.getChildren().get(7);
+        Assert.assertEquals("file7.txt", file.getName());
+        Assert.assertEquals(((IFileNode) ((ICollectionNode) tree.getRootNode().getChildren().get(3)).getChildren().get(7)).getLogicalFileName().asString(), file.getLogicalFileName().asString());
+    }
+
+    @Test
+    public void testReadJsonObjectOutput() throws Exception {
+        //keys of the JSONObject-based output are in arbitrary order
+        IFileTree tree = createTree(3, 4);
+        String json = Util.fileTreeToJsonView(tree).toString();
+        IFileTree result = FileTreeSerializer.readJsonView(new StringReader(json), true, false);
+        Assert.assertEquals(countNodes(tree.getRootNode()), countNodes(result.getRootNode()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStrictFileNodeWithoutId() throws Exception {
+        StringWriter writer = new StringWriter();
+        FileTreeSerializer.writeJsonView(createTree(1, 1), writer);
+        FileTreeSerializer.readJsonView(new StringReader(writer.toString()), true, true);
+    }
+
+    @Test(expected = JSONException.class)
+    public void testMissingViewName() throws Exception {
+        FileTreeSerializer.readJsonView(new StringReader("{\"objectId\":\"1234\",\"children\":[]}"), false, false);
+    }
+
+    @Test
+    public void testWriteXml() throws Exception {
+        IFileTree tree = createTree(5, 20);
+        StringWriter writer = new StringWriter();
+        FileTreeSerializer.writeXml(tree, writer, null);
+
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document doc = factory.newDocumentBuilder().parse(new ByteArrayInputStream(writer.toString().getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals("dataOrganization", doc.getDocumentElement().getLocalName());
+        Assert.assertEquals("1234-5678", doc.getElementsByTagNameNS(DO_NS, "digitalObjectId").item(0).getTextContent());
+        Assert.assertEquals(1, doc.getElementsByTagNameNS(DO_NS, "view").getLength());
+        Assert.assertEquals("custom", ((Element) doc.getElementsByTagNameNS(DO_NS, "view").item(0)).getAttributeNS(DO_NS, "name"));
+        Assert.assertEquals(105, doc.getElementsByTagNameNS(DO_NS, "child").getLength());
+        Assert.assertEquals(100, doc.getElementsByTagNameNS(DO_NS, "logicalFileName").getLength());
+        Assert.assertEquals(5, doc.getElementsByTagNameNS(DO_NS, "attribute").getLength());
+    }
+
+    @Test
+    public void testWriteXmlToDocument() throws Exception {
+        IFileTree tree = createTree(5, 20);
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document doc = factory.newDocumentBuilder().newDocument();
+        FileTreeSerializer.writeXml(tree, new DOMResult(doc), null);
+
+        Assert.assertEquals("dataOrganization", doc.getDocumentElement().getLocalName());
+        Assert.assertEquals(DO_NS, doc.getDocumentElement().getNamespaceURI());
+        Assert.assertEquals("1234-5678", doc.getElementsByTagNameNS(DO_NS, "digitalObjectId").item(0).getTextContent());
+        Assert.assertEquals(1, doc.getElementsByTagNameNS(DO_NS, "view").getLength());
+        Assert.assertEquals("custom", ((Element) doc.getElementsByTagNameNS(DO_NS, "view").item(0)).getAttributeNS(DO_NS, "name"));
+        Assert.assertEquals(105, doc.getElementsByTagNameNS(DO_NS, "child").getLength());
+        Assert.assertEquals(100, doc.getElementsByTagNameNS(DO_NS, "logicalFileName").getLength());
+        Assert.assertEquals(5, doc.getElementsByTagNameNS(DO_NS, "attribute").getLength());
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.dataorganization.test;
+
+import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
+import edu.kit.dama.mdm.dataorganization.impl.staging.AttributeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.CollectionNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.FileNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.FileTreeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.LFNImpl;
+import edu.kit.dama.mdm.dataorganization.impl.util.INodeSearchVisitor;
+import edu.kit.dama.mdm.dataorganization.impl.util.NodeSearch;
+import edu.kit.dama.mdm.dataorganization.impl.util.Util;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for searching nodes via {@link NodeSearch}.
+ *
+ * @author jejkal
+ */
+public class NodeSearchTest {
+
+    private static FileTreeImpl tree;
+
+    @BeforeClass
+    public static void setUpClass() {
+        //root -> src, doc -> a, b -> 10 files each
+        tree = new FileTreeImpl();
+        tree.setName("root");
+        for (String top : new String[]{"src", "doc"}) {
+            CollectionNodeImpl topNode = new CollectionNodeImpl();
+            topNode.setName(top);
+            for (String sub : new String[]{"a", "b"}) {
+                CollectionNodeImpl subNode = new CollectionNodeImpl();
+                subNode.setName(sub);
+                for (int i = 0; i < 10; i++) {
+                    String name = "file" + i + ((i % 2 == 0) ? ".java" : ".txt");
+                    FileNodeImpl file = new FileNodeImpl(new LFNImpl("file:///" + top + "/" + sub + "/" + name));
+                    file.setName(name);
+                    file.addAttribute(new AttributeImpl("size", Integer.toString(i)));
+                    subNode.addChild(file);
+                }
+                topNode.addChild(subNode);
+            }
+            tree.addChild(topNode);
+        }
+    }
+
+    @Test
+    public void testGetNodeByName() {
+        IDataOrganizationNode node = Util.getNodeByName(tree, "file3.txt");
+        Assert.assertNotNull(node);
+        Assert.assertTrue(((FileNodeImpl) node).getLogicalFileName().asString().endsWith("/src/a/file3.txt"));
+        Assert.assertSame(tree, Util.getNodeByName(tree, "root"));
+        Assert.assertNull(Util.getNodeByName(tree, "unknown"));
+    }
+
+    @Test
+    public void testGetNodesByRegex() {
+        Assert.assertEquals(20, Util.getNodesByRegex(tree, ".*\\.java").size());
+        Assert.assertEquals(20, Util.getNodesByRegex(tree, Pattern.compile("file[0-9]\\.txt")).size());
+    }
+
+    @Test
+    public void testCombinedCriteria() {
+        List<IDataOrganizationNode> result = new NodeSearch().withNamePattern(Pattern.compile(".*\\.java")).withPathPrefix("/doc/b").findAll(tree);
+        Assert.assertEquals(5, result.size());
+
+        result = new NodeSearch().withAttribute("size", "4").withPathPrefix("/src").findAll(tree);
+        Assert.assertEquals(2, result.size());
+
+        //only collections are located at depth 1 and 2
+        result = new NodeSearch().withDepth(1, 2).findAll(tree);
+        Assert.assertEquals(6, result.size());
+
+        result = new NodeSearch().withAttribute("size", null).find(tree, 3);
+        Assert.assertEquals(3, result.size());
+
+        Assert.assertTrue(new NodeSearch().withPathPrefix("/srcX").findAll(tree).isEmpty());
+    }
+
+    @Test
+    public void testEarlyTermination() {
+        final int[] visited = new int[1];
+        Util.searchSubtree(tree, new INodeSearchVisitor() {
+            @Override
+            public Decision visit(IDataOrganizationNode pNode, String pPath, int pDepth) {
+                visited[0]++;
+                if ("/src/a".equals(pPath)) {
+                    return Decision.SKIP_CHILDREN;
+                }
+                return ("/src/b/file0.java".equals(pPath)) ? Decision.STOP : Decision.CONTINUE;
+            }
+        });
+        //root, src, src/a, src/b, src/b/file0.java
+        Assert.assertEquals(5, visited[0]);
+    }
+
+    @Test
+    public void testSearchWithoutPaths() {
+        final int[] visited = new int[1];
+        Util.searchSubtree(tree, new INodeSearchVisitor() {
+            @Override
+            public Decision visit(IDataOrganizationNode pNode, String pPath, int pDepth) {
+                Assert.assertNull(pPath);
+                visited[0]++;
+                return Decision.CONTINUE;
+            }
+        }, false);
+        Assert.assertEquals(new NodeSearch().findAll(tree).size(), visited[0]);
+    }
+}
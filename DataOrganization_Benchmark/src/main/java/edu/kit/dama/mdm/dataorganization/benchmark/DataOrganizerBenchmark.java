@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.dataorganization.benchmark;
+
+import edu.kit.dama.commons.types.DigitalObjectId;
+import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IFileTree;
+import edu.kit.dama.mdm.dataorganization.entity.impl.client.NodeId;
+import edu.kit.dama.mdm.dataorganization.impl.jpa.DataOrganizerImpl;
+import edu.kit.dama.mdm.dataorganization.impl.jpa.persistence.PersistenceFacade;
+import edu.kit.dama.mdm.dataorganization.service.core.DataOrganizer;
+import edu.kit.dama.mdm.dataorganization.service.exception.EntityExistsException;
+import edu.kit.dama.mdm.dataorganization.service.exception.EntityNotFoundException;
+import edu.kit.dama.mdm.dataorganization.service.exception.InvalidNodeIdException;
+import edu.kit.dama.util.Constants;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for persisting and loading file trees using the JPA-based
+ * {@link DataOrganizerImpl} and an embedded in-memory database. For each
+ * combination of tree shape and node count one tree is persisted before the
+ * measurements and is used by all read operations.
+ *
+ * Throughput and latency distribution are reported for each operation,
+ * allocation rates are added by the GC profiler enabled by the launcher
+ * script. Multi-million-node trees can be benchmarked by overwriting the node
+ * count, e.g. using '-p nodeCount=2000000', which requires the heap size to
+ * be increased via '-jvmArgsAppend -Xmx16g'.
+ *
+ * @author jejkal
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 10, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DataOrganizerBenchmark {
+
+    /**
+     * The name of the persistence unit defined in META-INF/persistence.xml
+     * of this module.
+     */
+    public static final String PERSISTENCE_UNIT = "DataOrganizationPU-Benchmark";
+
+    @Param({"WIDE", "DEEP", "BALANCED"})
+    public TreeShape shape;
+
+    @Param({"1000", "10000", "100000"})
+    public int nodeCount;
+
+    /**
+     * The depth used for loading sub-trees.
+     */
+    @Param({"2"})
+    public int subTreeDepth;
+
+    /**
+     * The max. number of children obtained at once.
+     */
+    @Param({"100"})
+    public int pageSize;
+
+    private DataOrganizer dataOrganizer;
+    private DigitalObjectId readObjectId;
+    private DigitalObjectId writeObjectId;
+    private IFileTree writeTree;
+    private NodeId rootNodeId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws EntityExistsException, EntityNotFoundException {
+        PersistenceFacade.getInstance().setPersistenceUnit(PERSISTENCE_UNIT);
+        dataOrganizer = new DataOrganizerImpl();
+        readObjectId = new DigitalObjectId("benchmark-read-" + shape + "-" + nodeCount);
+        writeObjectId = new DigitalObjectId("benchmark-write-" + shape + "-" + nodeCount);
+        dataOrganizer.createFileTree(SyntheticTreeFactory.createTree(readObjectId, shape, nodeCount));
+        writeTree = SyntheticTreeFactory.createTree(writeObjectId, shape, nodeCount);
+        rootNodeId = dataOrganizer.getRootNodeId(readObjectId);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        PersistenceFacade.getInstance().deleteAllNodesForTree(readObjectId, Constants.DEFAULT_VIEW);
+        PersistenceFacade.getInstance().deleteAllNodesForTree(writeObjectId, Constants.DEFAULT_VIEW);
+    }
+
+    /**
+     * Persist a tree. As createFileTree replaces existing trees, all but the
+     * first invocation also include removing the tree persisted before, which
+     * is the same as re-ingesting a digital object.
+     */
+    @Benchmark
+    public void createFileTree() throws EntityExistsException {
+        dataOrganizer.createFileTree(writeTree);
+    }
+
+    @Benchmark
+    public IFileTree loadFileTree() throws EntityNotFoundException {
+        return dataOrganizer.loadFileTree(readObjectId);
+    }
+
+    @Benchmark
+    public IFileTree loadSubTree() throws InvalidNodeIdException {
+        return dataOrganizer.loadSubTree(rootNodeId, subTreeDepth);
+    }
+
+    @Benchmark
+    public List<? extends IDataOrganizationNode> getChildren() throws InvalidNodeIdException {
+        return dataOrganizer.getChildren(rootNodeId, 0, pageSize);
+    }
+}
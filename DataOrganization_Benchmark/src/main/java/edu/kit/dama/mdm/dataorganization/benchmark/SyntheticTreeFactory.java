@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.dataorganization.benchmark;
+
+import edu.kit.dama.commons.types.DigitalObjectId;
+import edu.kit.dama.mdm.dataorganization.entity.core.ICollectionNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IFileTree;
+import edu.kit.dama.mdm.dataorganization.entity.impl.client.CollectionNode;
+import edu.kit.dama.mdm.dataorganization.entity.impl.client.FileNode;
+import edu.kit.dama.mdm.dataorganization.entity.impl.client.FileTree;
+import edu.kit.dama.mdm.dataorganization.impl.staging.LFNImpl;
+import edu.kit.dama.util.Constants;
+import java.util.LinkedList;
+import java.util.Queue;
+
+/**
+ * Factory for synthetic file trees used by the benchmarks. The created trees
+ * only depend on shape and node count, thus results obtained with different
+ * releases are comparable.
+ *
+ * @author jejkal
+ */
+public final class SyntheticTreeFactory {
+
+    /**
+     * Max. number of directory levels of DEEP trees.
+     */
+    public static final int MAX_DEPTH = 1000;
+    /**
+     * Number of files per directory of BALANCED trees and min. number of files
+     * per level of DEEP trees.
+     */
+    public static final int FILES_PER_DIRECTORY = 8;
+    /**
+     * Number of sub-directories per directory of BALANCED trees.
+     */
+    public static final int DIRECTORIES_PER_DIRECTORY = 2;
+
+    private int fileCount = 0;
+    private int directoryCount = 0;
+
+    /**
+     * Hidden constructor.
+     */
+    private SyntheticTreeFactory() {
+    }
+
+    /**
+     * Create a tree with the provided shape and pNodeCount nodes including
+     * the root node.
+     *
+     * @param pObjectId The digital object id of the tree.
+     * @param pShape The tree shape.
+     * @param pNodeCount The total number of nodes.
+     *
+     * @return The tree.
+     */
+    public static IFileTree createTree(DigitalObjectId pObjectId, TreeShape pShape, int pNodeCount) {
+        if (pNodeCount < 1) {
+            throw new IllegalArgumentException("Argument pNodeCount must be at least 1.");
+        }
+        FileTree tree = new FileTree();
+        tree.setDigitalObjectId(pObjectId);
+        tree.setViewName(Constants.DEFAULT_VIEW);
+        tree.getRootNode().setName("root");
+        SyntheticTreeFactory factory = new SyntheticTreeFactory();
+        int remaining = pNodeCount - 1;
+        switch (pShape) {
+            case WIDE:
+                factory.addFiles(tree.getRootNode(), remaining);
+                break;
+            case DEEP:
+                factory.fillDeep(tree.getRootNode(), remaining);
+                break;
+            default:
+                factory.fillBalanced(tree.getRootNode(), remaining);
+        }
+        return tree;
+    }
+
+    /**
+     * Add a chain of directories below pRoot, each containing some files.
+     *
+     * @param pRoot The root directory.
+     * @param pNodeCount The number of nodes to add.
+     */
+    private void fillDeep(ICollectionNode pRoot, int pNodeCount) {
+        int filesPerLevel = Math.max(FILES_PER_DIRECTORY, pNodeCount / MAX_DEPTH);
+        int remaining = pNodeCount;
+        ICollectionNode current = pRoot;
+        while (remaining > 0) {
+            int files = Math.min(filesPerLevel, remaining);
+            addFiles(current, files);
+            remaining -= files;
+            if (remaining > 0) {
+                current = addDirectory(current);
+                remaining--;
+            }
+        }
+    }
+
+    /**
+     * Add directories and files level by level below pRoot.
+     *
+     * @param pRoot The root directory.
+     * @param pNodeCount The number of nodes to add.
+     */
+    private void fillBalanced(ICollectionNode pRoot, int pNodeCount) {
+        Queue<ICollectionNode> directories = new LinkedList<>();
+        directories.add(pRoot);
+        int remaining = pNodeCount;
+        while (remaining > 0 && !directories.isEmpty()) {
+            ICollectionNode current = directories.poll();
+            int files = Math.min(FILES_PER_DIRECTORY, remaining);
+            addFiles(current, files);
+            remaining -= files;
+            for (int i = 0; i < DIRECTORIES_PER_DIRECTORY && remaining > 0; i++) {
+                directories.add(addDirectory(current));
+                remaining--;
+            }
+        }
+    }
+
+    /**
+     * Add a new directory to pParent.
+     *
+     * @param pParent The parent directory.
+     *
+     * @return The new directory.
+     */
+    private ICollectionNode addDirectory(ICollectionNode pParent) {
+        CollectionNode directory = new CollectionNode();
+        directory.setName(String.format("dir_%07d", directoryCount++));
+        pParent.addChild(directory);
+        return directory;
+    }
+
+    /**
+     * Add pCount files to pParent.
+     *
+     * @param pParent The parent directory.
+     * @param pCount The number of files.
+     */
+    private void addFiles(ICollectionNode pParent, int pCount) {
+        for (int i = 0; i < pCount; i++) {
+            String name = String.format("file_%07d.dat", fileCount++);
+            FileNode file = new FileNode(new LFNImpl("file:///benchmark/" + name));
+            file.setName(name);
+            pParent.addChild(file);
+        }
+    }
+}
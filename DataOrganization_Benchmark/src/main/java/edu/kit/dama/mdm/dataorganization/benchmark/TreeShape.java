@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.dataorganization.benchmark;
+
+/**
+ * Shapes of synthetic file trees created by {@link SyntheticTreeFactory}.
+ *
+ * @author jejkal
+ */
+public enum TreeShape {
+
+    /**
+     * One directory containing all files.
+     */
+    WIDE,
+    /**
+     * A chain of nested directories, each containing some files and the next
+     * directory. The depth is limited to {@link SyntheticTreeFactory#MAX_DEPTH}
+     * levels, larger trees get more files per level.
+     */
+    DEEP,
+    /**
+     * Directories containing {@link SyntheticTreeFactory#FILES_PER_DIRECTORY}
+     * files and {@link SyntheticTreeFactory#DIRECTORIES_PER_DIRECTORY}
+     * sub-directories each, filled level by level, which is the typical shape
+     * of ingested data sets.
+     */
+    BALANCED;
+}
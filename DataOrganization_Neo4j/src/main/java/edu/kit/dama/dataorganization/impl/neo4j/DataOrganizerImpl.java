@@ -21,8 +21,9 @@ import edu.kit.dama.commons.types.DigitalObjectId;
 import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
 import edu.kit.dama.mdm.dataorganization.entity.core.IFileTree;
 import edu.kit.dama.mdm.dataorganization.entity.impl.client.NodeId;
-import edu.kit.dama.mdm.dataorganization.impl.staging.CollectionNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.util.Util;
 import edu.kit.dama.mdm.dataorganization.service.core.DataOrganizer;
+import edu.kit.dama.mdm.dataorganization.service.core.FileTreeUpdateResult;
 import edu.kit.dama.mdm.dataorganization.service.exception.EntityExistsException;
 import edu.kit.dama.mdm.dataorganization.service.exception.EntityNotFoundException;
 import edu.kit.dama.mdm.dataorganization.service.exception.InvalidNodeIdException;
@@ -45,6 +46,7 @@ public class DataOrganizerImpl implements DataOrganizer, IConfigurableAdapter {
     private static final Logger LOGGER = LoggerFactory.getLogger(DataOrganizerImpl.class);
 
     private JdbcCypherExecutor exec = null;
+    private int batchSize = Neo4jBatchWriter.DEFAULT_BATCH_SIZE;
 
     /**
      * Default constructor.
@@ -73,20 +75,30 @@ public class DataOrganizerImpl implements DataOrganizer, IConfigurableAdapter {
     @Override
     public void createFileTree(IFileTree fileTree) throws EntityExistsException {
         checkExecutor();
-        Neo4jHelper.persistFileTree(fileTree, exec);
+        Neo4jHelper.persistFileTree(fileTree, exec, batchSize);
+    }
+
+    @Override
+    public FileTreeUpdateResult updateFileTree(IFileTree fileTree) {
+        //incremental updates are not supported, thus the entire view is replaced
+        checkExecutor();
+        return Neo4jHelper.updateFileTree(fileTree, exec, batchSize);
     }
 
     @Override
     public List<? extends IDataOrganizationNode> getChildren(NodeId nodeId, int firstResult, int maxResult) throws InvalidNodeIdException {
         checkExecutor();
         Iterator<Map<String, Object>> result = exec.query("MATCH s-[r:IS_PARENT]->t WHERE ID(s) = " + nodeId.getInTreeId() + " RETURN ID(t) SKIP " + firstResult + " LIMIT " + maxResult, null);
-        CollectionNodeImpl cn = new CollectionNodeImpl();
+        List<IDataOrganizationNode> children = new ArrayList<>();
 
         while (result.hasNext()) {
-            Integer val = (Integer) result.next().get("ID(t)");
-            Neo4jHelper.loadNode(val, cn, exec);
+            long val = ((Number) result.next().get("ID(t)")).longValue();
+            IDataOrganizationNode child = Neo4jHelper.loadNode(val, Integer.MAX_VALUE, exec);
+            if (child != null) {
+                children.add(child);
+            }
         }
-        return new ArrayList<>(cn.getChildren());
+        return children;
     }
 
     @Override
@@ -128,14 +140,24 @@ public class DataOrganizerImpl implements DataOrganizer, IConfigurableAdapter {
     @Override
     public IDataOrganizationNode loadNode(NodeId nodeId) throws InvalidNodeIdException {
         checkExecutor();
-        CollectionNodeImpl dummyParent = new CollectionNodeImpl();
-        Neo4jHelper.loadNode((int) nodeId.getInTreeId(), dummyParent, exec);
-        if (dummyParent.getChildren().isEmpty()) {
+        IDataOrganizationNode node = Neo4jHelper.loadNode(nodeId.getInTreeId(), Integer.MAX_VALUE, exec);
+        if (node == null) {
             //should not happen as this is handled before...but in case...
             throw new InvalidNodeIdException("No node with id '" + nodeId + "' found.");
         }
+        return node;
+    }
 
-        return dummyParent.getChildren().get(0);
+    @Override
+    public IDataOrganizationNode loadNodeByPath(DigitalObjectId digitalObjectId, String viewName, String path) throws EntityNotFoundException {
+        checkExecutor();
+        //no path index available, search in file tree
+        IFileTree tree = Neo4jHelper.loadFileTree(digitalObjectId, viewName, exec);
+        IDataOrganizationNode result = (tree != null) ? Util.getNodeByPath(tree.getRootNode(), path) : null;
+        if (result == null) {
+            throw new EntityNotFoundException("No node found for path '" + path + "' in view '" + viewName + "' of object " + digitalObjectId);
+        }
+        return result;
     }
 
     @Override
@@ -174,6 +196,10 @@ public class DataOrganizerImpl implements DataOrganizer, IConfigurableAdapter {
         String neo4jUrl = pConfig.getString("neo4jUrl"); //http://localhost:7474
         String neo4jUser = pConfig.getString("neo4jUser");//neo4j
         String neo4jPassword = pConfig.getString("neo4jPassword");//neo4j
+        batchSize = pConfig.getInt("batchSize", Neo4jBatchWriter.DEFAULT_BATCH_SIZE);
+        if (batchSize < 1) {
+            throw new ConfigurationException("Invalid batchSize " + batchSize + ". The value must be larger than 0.");
+        }
 
         return configure(neo4jUrl, neo4jUser, neo4jPassword);
 
@@ -99,6 +99,60 @@ public class JdbcCypherExecutor {
         }
     }
 
+    /**
+     * Execute a query without obtaining its result, e.g. for creating
+     * relationships.
+     *
+     * @param query The query.
+     * @param params The query parameters, e.g. lists of maps used by UNWIND.
+     */
+    public void execute(String query, Map<String, Object> params) {
+        try (PreparedStatement statement = conn.prepareStatement(query)) {
+            if (params != null) {
+                setParameters(statement, params);
+            }
+            statement.execute();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Start an explicit transaction. All following queries are executed
+     * within this transaction until commit() or rollback() is called.
+     */
+    public void beginTransaction() {
+        try {
+            conn.setAutoCommit(false);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Commit the current transaction and switch back to auto commit mode.
+     */
+    public void commit() {
+        try {
+            conn.commit();
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Roll back the current transaction and switch back to auto commit mode.
+     */
+    public void rollback() {
+        try {
+            conn.rollback();
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private void setParameters(PreparedStatement statement, Map<String, Object> params) throws SQLException {
         for (Map.Entry<String, Object> entry : params.entrySet()) {
             int index = Integer.parseInt(entry.getKey());
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.dataorganization.impl.neo4j;
+
+import edu.kit.dama.mdm.dataorganization.entity.core.IAttribute;
+import edu.kit.dama.mdm.dataorganization.entity.core.ICollectionNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IFileNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IFileTree;
+import edu.kit.dama.mdm.dataorganization.service.core.FileTreeUpdateResult;
+import edu.kit.dama.util.Constants;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writer for persisting file trees in batches. Instead of sending one query
+ * per node and per relationship, all nodes of one type are created using
+ * parameterised UNWIND queries containing up to 'batchSize' nodes. The ids of
+ * the created nodes are returned and afterwards used to create the IS_PARENT
+ * relationships, again in batches of up to 'batchSize' relationships. All
+ * batches of one tree are executed within a single transaction, thus either
+ * the entire tree is persisted or nothing at all.
+ *
+ * @author jejkal
+ */
+public class Neo4jBatchWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Neo4jBatchWriter.class);
+
+    /**
+     * The default number of nodes or relationships written at once.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final JdbcCypherExecutor exec;
+    private final int batchSize;
+
+    /**
+     * Default constructor.
+     *
+     * @param pExecutor The executor used to send queries.
+     * @param pBatchSize The max. number of nodes or relationships written in
+     * one batch.
+     */
+    public Neo4jBatchWriter(JdbcCypherExecutor pExecutor, int pBatchSize) {
+        if (pExecutor == null) {
+            throw new IllegalArgumentException("Argument 'pExecutor' must not be null.");
+        }
+        if (pBatchSize < 1) {
+            throw new IllegalArgumentException("Argument 'pBatchSize' must be larger than 0.");
+        }
+        exec = pExecutor;
+        batchSize = pBatchSize;
+    }
+
+    /**
+     * Persist the provided tree. If persisting fails, the transaction is rolled
+     * back and no node of the tree remains in the database.
+     *
+     * @param pTree The tree to persist.
+     *
+     * @return The id of the root node.
+     */
+    public long persistFileTree(IFileTree pTree) {
+        String rootQuery = Neo4jHelper.buildCreateRootNodeQuery(pTree);
+        exec.beginTransaction();
+        try {
+            long rootId = createTree(pTree, rootQuery);
+            exec.commit();
+            return rootId;
+        } catch (RuntimeException ex) {
+            exec.rollback();
+            throw ex;
+        }
+    }
+
+    /**
+     * Replace the persisted view of the provided tree. All nodes of the view
+     * are removed and the tree is written afterwards within the same
+     * transaction. If writing fails, the transaction is rolled back and the
+     * old view remains unchanged. As the entire view is rewritten, nodes
+     * existing at the same path before and after the update are counted as
+     * updated, all other nodes as inserted or deleted.
+     *
+     * @param pTree The tree to persist.
+     *
+     * @return The update result.
+     */
+    public FileTreeUpdateResult replaceFileTree(IFileTree pTree) {
+        String rootQuery = Neo4jHelper.buildCreateRootNodeQuery(pTree);
+        String labels = "`" + pTree.getDigitalObjectId().getStringRepresentation() + "`:`" + ((pTree.getViewName() != null) ? pTree.getViewName() : Constants.DEFAULT_VIEW) + "`";
+        exec.beginTransaction();
+        try {
+            //collect the paths of all persisted nodes, the root node has an empty path
+            Map<String, Integer> oldPaths = new HashMap<>();
+            Iterator<Map<String, Object>> result = exec.query("MATCH p=(:`" + Neo4jHelper.ROOT_LABEL + "`:" + labels + ")-[:IS_PARENT*0..]->() RETURN reduce(s = '', n IN tail(nodes(p)) | s + '/' + n.name) AS path", null);
+            while (result.hasNext()) {
+                addPath(oldPaths, (String) result.next().get("path"));
+            }
+            //all nodes of one view carry the object and view labels
+            exec.execute("MATCH (n:" + labels + ") DETACH DELETE n", null);
+            createTree(pTree, rootQuery);
+
+            FileTreeUpdateResult updateResult = new FileTreeUpdateResult();
+            List<IDataOrganizationNode> nodes = new ArrayList<>();
+            List<String> paths = new ArrayList<>();
+            nodes.add(pTree.getRootNode());
+            paths.add("");
+            for (int i = 0; i < nodes.size(); i++) {
+                String path = paths.get(i);
+                if (removePath(oldPaths, path)) {
+                    updateResult.incrementUpdated();
+                } else {
+                    updateResult.incrementInserted();
+                }
+                if (nodes.get(i) instanceof ICollectionNode) {
+                    for (IDataOrganizationNode child : ((ICollectionNode) nodes.get(i)).getChildren()) {
+                        nodes.add(child);
+                        paths.add(path + "/" + child.getName());
+                    }
+                }
+            }
+            for (Integer count : oldPaths.values()) {
+                for (int i = 0; i < count; i++) {
+                    updateResult.incrementDeleted();
+                }
+            }
+            exec.commit();
+            return updateResult;
+        } catch (RuntimeException ex) {
+            exec.rollback();
+            throw ex;
+        }
+    }
+
+    /**
+     * Add one occurrence of the provided path to the path map.
+     *
+     * @param pPaths The path map.
+     * @param pPath The path.
+     */
+    private static void addPath(Map<String, Integer> pPaths, String pPath) {
+        Integer count = pPaths.get(pPath);
+        pPaths.put(pPath, (count == null) ? 1 : count + 1);
+    }
+
+    /**
+     * Remove one occurrence of the provided path from the path map.
+     *
+     * @param pPaths The path map.
+     * @param pPath The path.
+     *
+     * @return TRUE if the path was contained in the map.
+     */
+    private static boolean removePath(Map<String, Integer> pPaths, String pPath) {
+        Integer count = pPaths.get(pPath);
+        if (count == null) {
+            return false;
+        }
+        if (count == 1) {
+            pPaths.remove(pPath);
+        } else {
+            pPaths.put(pPath, count - 1);
+        }
+        return true;
+    }
+
+    /**
+     * Create all nodes and relationships of the provided tree within the
+     * current transaction.
+     *
+     * @param pTree The tree to persist.
+     * @param pRootQuery The query creating the root node.
+     *
+     * @return The id of the root node.
+     */
+    private long createTree(IFileTree pTree, String pRootQuery) {
+        Iterator<Map<String, Object>> result = exec.query(pRootQuery, null);
+        long rootId = ((Number) result.next().get("ID(n)")).longValue();
+        String view = (pTree.getViewName() != null) ? pTree.getViewName() : Constants.DEFAULT_VIEW;
+        pTree.getRootNode().setViewName(view);
+
+        //flatten the tree, index 0 is the root node
+        List<IDataOrganizationNode> nodes = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        nodes.add(pTree.getRootNode());
+        parents.add(-1);
+        for (int i = 0; i < nodes.size(); i++) {
+            IDataOrganizationNode node = nodes.get(i);
+            if (node instanceof ICollectionNode) {
+                for (IDataOrganizationNode child : ((ICollectionNode) node).getChildren()) {
+                    nodes.add(child);
+                    parents.add(i);
+                }
+            }
+        }
+        long[] ids = new long[nodes.size()];
+        ids[0] = rootId;
+
+        long start = System.currentTimeMillis();
+        String objectId = pTree.getDigitalObjectId().getStringRepresentation();
+        for (String type : new String[]{Neo4jHelper.COLLECTION_TYPE, Neo4jHelper.FILE_TYPE, Neo4jHelper.UNKNOWN_TYPE}) {
+            String query = "UNWIND {1} AS row CREATE (n:`" + objectId + "`:`" + view + "`:`" + type + "`) SET n = row.props RETURN row.key AS key, ID(n) AS id";
+            List<Map<String, Object>> batch = new ArrayList<>();
+            for (int i = 1; i < nodes.size(); i++) {
+                IDataOrganizationNode node = nodes.get(i);
+                if (type.equals(Neo4jHelper.getNodeType(node))) {
+                    Map<String, Object> row = new HashMap<>();
+                    row.put("key", i);
+                    row.put("props", getProperties(node, type));
+                    batch.add(row);
+                    if (batch.size() == batchSize) {
+                        createNodes(query, batch, ids);
+                    }
+                }
+            }
+            createNodes(query, batch, ids);
+        }
+
+        String query = "UNWIND {1} AS rel MATCH (a),(b) WHERE ID(a) = rel.parent AND ID(b) = rel.child CREATE (a)-[:IS_PARENT]->(b)";
+        List<Map<String, Object>> batch = new ArrayList<>();
+        for (int i = 1; i < nodes.size(); i++) {
+            Map<String, Object> relation = new HashMap<>();
+            relation.put("parent", ids[parents.get(i)]);
+            relation.put("child", ids[i]);
+            batch.add(relation);
+            if (batch.size() == batchSize) {
+                createRelations(query, batch);
+            }
+        }
+        createRelations(query, batch);
+        LOGGER.debug("Persisted {} nodes of object {} in {} ms.", new Object[]{nodes.size(), objectId, System.currentTimeMillis() - start});
+        return rootId;
+    }
+
+    /**
+     * Create a batch of nodes and store the returned ids at the index provided
+     * as key of each row. Afterwards, the batch is cleared.
+     *
+     * @param pQuery The query.
+     * @param pBatch The rows of the batch.
+     * @param pIds The array of node ids.
+     */
+    private void createNodes(String pQuery, List<Map<String, Object>> pBatch, long[] pIds) {
+        if (pBatch.isEmpty()) {
+            return;
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("1", pBatch);
+        Iterator<Map<String, Object>> result = exec.query(pQuery, params);
+        int created = 0;
+        while (result.hasNext()) {
+            Map<String, Object> row = result.next();
+            pIds[((Number) row.get("key")).intValue()] = ((Number) row.get("id")).longValue();
+            created++;
+        }
+        if (created != pBatch.size()) {
+            throw new IllegalStateException("Only " + created + " of " + pBatch.size() + " nodes have been created.");
+        }
+        pBatch.clear();
+    }
+
+    /**
+     * Create a batch of relationships. Afterwards, the batch is cleared.
+     *
+     * @param pQuery The query.
+     * @param pBatch The relationships.
+     */
+    private void createRelations(String pQuery, List<Map<String, Object>> pBatch) {
+        if (pBatch.isEmpty()) {
+            return;
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("1", pBatch);
+        exec.execute(pQuery, params);
+        pBatch.clear();
+    }
+
+    /**
+     * Get the properties stored for the provided node, which are the name, the
+     * type, the logical file name for file nodes and all attributes.
+     *
+     * @param pNode The node.
+     * @param pType The node type.
+     *
+     * @return The property map.
+     */
+    private static Map<String, Object> getProperties(IDataOrganizationNode pNode, String pType) {
+        Map<String, Object> props = new HashMap<>();
+        Set<? extends IAttribute> attribs = pNode.getAttributes();
+        if (attribs != null) {
+            for (IAttribute attribute : attribs) {
+                props.put(attribute.getKey(), attribute.getValue());
+            }
+        }
+        props.put("name", pNode.getName());
+        props.put("type", pType);
+        if (Neo4jHelper.FILE_TYPE.equals(pType)) {
+            props.put("lfn", ((IFileNode) pNode).getLogicalFileName().asString());
+        }
+        return props;
+    }
+}
@@ -24,15 +24,16 @@ import edu.kit.dama.mdm.dataorganization.entity.core.IFileTree;
 import edu.kit.dama.mdm.dataorganization.entity.impl.client.NodeId;
 import edu.kit.dama.mdm.dataorganization.impl.staging.AttributeImpl;
 import edu.kit.dama.mdm.dataorganization.impl.staging.CollectionNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.DataOrganizationNodeImpl;
 import edu.kit.dama.mdm.dataorganization.impl.staging.FileNodeImpl;
 import edu.kit.dama.mdm.dataorganization.impl.staging.FileTreeImpl;
 import edu.kit.dama.mdm.dataorganization.impl.staging.LFNImpl;
+import edu.kit.dama.mdm.dataorganization.service.core.FileTreeUpdateResult;
 import edu.kit.dama.mdm.dataorganization.service.exception.InvalidNodeIdException;
 import edu.kit.dama.util.Constants;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -50,69 +51,41 @@ public class Neo4jHelper {
     public static final String UNKNOWN_TYPE = "Unknown";
 
     public static Long persistFileTree(IFileTree pTree, JdbcCypherExecutor exec) {
-        Iterator<Map<String, Object>> result = exec.query(buildCreateRootNodeQuery(pTree), null);
-        long rootId = ((Number) result.next().get("ID(n)")).longValue();
-        String view = (pTree.getViewName() != null) ? pTree.getViewName() : Constants.DEFAULT_VIEW;
-
-//        Map<String, Object> params = new HashMap<>();
-//        List<IDataOrganizationNode> nodes = DataOrganizationUtils.flattenNode(pTree.getRootNode());
-//        int cnt = 1;
-//        int nodeId = 0;
-//        for (IDataOrganizationNode node : nodes) {
-//            DataOrganizationNodeImpl impl = (DataOrganizationNodeImpl) node;
-//            impl.setNodeId((long) nodeId);
-//            nodeCreation.append(buildCreateNodeQueryAlt(node, pTree.getDigitalObjectId(), view, params)).append(" ");
-//            if (cnt % 100 == 0) {
-//                exec.query(nodeCreation.toString(), null);
-//                nodeCreation = new StringBuilder();
-//                cnt = 0;
-//            }
-//            cnt++;
-//            nodeId++;
-//        }
-//        exec.query(nodeCreation.toString(), null);
-//        cnt = 1;
-//        //nodeCreation = new StringBuilder();
-//        for (IDataOrganizationNode node : nodes) {
-//            if (node instanceof ICollectionNode) {
-//                for (IDataOrganizationNode child : ((ICollectionNode) node).getChildren()) {
-//                    exec.query(buildCreateRelationQueryAlt(node.getTransientNodeId().getInTreeId(), child.getTransientNodeId().getInTreeId()), null);
-//This does not work as we have multiple MATCH statements that cannot be combined in one query
-//                    /*  nodeCreation.append(buildCreateRelationQueryAlt(node.getTransientNodeId().getInTreeId(), child.getTransientNodeId().getInTreeId())).append(" ");
-//                    if (cnt % 100 == 0) {
-//                        exec.query(nodeCreation.toString(), null);
-//                        nodeCreation = new StringBuilder();
-//                        cnt = 0;
-//                    }
-//                    cnt++;*/
-//                }
-//            }
-//        }
-        pTree.getRootNode().setViewName(view);
-        for (IDataOrganizationNode child : pTree.getRootNode().getChildren()) {
-            persistNode(child, pTree.getDigitalObjectId(), view, rootId, exec);
-        }
-
-        return rootId;
+        return persistFileTree(pTree, exec, Neo4jBatchWriter.DEFAULT_BATCH_SIZE);
     }
 
-    private static void persistNode(IDataOrganizationNode pNode, DigitalObjectId oid, String viewName, long parentId, JdbcCypherExecutor exec) {
-        Map<String, Object> params = new HashMap<>();
+    public static Long persistFileTree(IFileTree pTree, JdbcCypherExecutor exec, int batchSize) {
+        return new Neo4jBatchWriter(exec, batchSize).persistFileTree(pTree);
+    }
 
-        Iterator<Map<String, Object>> result = exec.query(buildCreateNodeQuery(pNode, oid, viewName, params), params);
+    /**
+     * Replace the persisted view of the provided tree by the tree within one
+     * transaction.
+     *
+     * @param pTree The tree.
+     * @param exec The executor.
+     * @param batchSize The max. number of nodes or relationships written in
+     * one batch.
+     *
+     * @return The update result.
+     */
+    public static FileTreeUpdateResult updateFileTree(IFileTree pTree, JdbcCypherExecutor exec, int batchSize) {
+        return new Neo4jBatchWriter(exec, batchSize).replaceFileTree(pTree);
+    }
 
-        Long nodeId = ((Number) result.next().get("ID(n)")).longValue();
-        //build sub structure if node is a collection node
-        if (pNode instanceof ICollectionNode) {
-            for (IDataOrganizationNode child : ((ICollectionNode) pNode).getChildren()) {
-                persistNode(child, oid, viewName, nodeId, exec);
-            }
-        }
-        //link node to parent
-        exec.query(buildCreateRelationQuery(parentId, nodeId), null);
+    /**
+     * Get the type of the provided node, which is used as label and as 'type'
+     * property.
+     *
+     * @param pNode The node.
+     *
+     * @return COLLECTION_TYPE, FILE_TYPE or UNKNOWN_TYPE.
+     */
+    static String getNodeType(IDataOrganizationNode pNode) {
+        return (pNode instanceof ICollectionNode) ? COLLECTION_TYPE : (pNode instanceof IFileNode) ? FILE_TYPE : UNKNOWN_TYPE;
     }
 
-    private static String buildCreateRootNodeQuery(IFileTree pTree) {
+    static String buildCreateRootNodeQuery(IFileTree pTree) {
         StringBuilder b = new StringBuilder();
         String viewArgument = pTree.getViewName() != null ? pTree.getViewName() : Constants.DEFAULT_VIEW;
         if (pTree.getDigitalObjectId() == null) {
@@ -122,97 +95,6 @@ public class Neo4jHelper {
         return b.toString();
     }
 
-    private static String buildCreateNodeQuery(IDataOrganizationNode pNode, DigitalObjectId oid, String viewName, Map<String, Object> params) {
-        StringBuilder b = new StringBuilder();
-        String type = (pNode instanceof ICollectionNode) ? COLLECTION_TYPE : (pNode instanceof IFileNode) ? FILE_TYPE : UNKNOWN_TYPE;
-
-        b.append("CREATE (n:`").append(oid.getStringRepresentation()).append("`:`").append(viewName).append("`:`").append(type).append("` {");
-        b.append("name : {1}");
-        b.append(", type : {2}");
-        params.put("1", pNode.getName());
-        params.put("2", type);
-
-        int varIterator = 2;
-        if (FILE_TYPE.equals(type)) {
-            varIterator = 3;
-            b.append(", lfn : {3}");
-            params.put("3", ((IFileNode) pNode).getLogicalFileName().asString());
-        }
-        Set<? extends IAttribute> attribs = pNode.getAttributes();
-        if (attribs != null) {
-            //add attributes
-            Iterator<? extends IAttribute> iter = attribs.iterator();
-            while (iter.hasNext()) {
-                IAttribute attribute = iter.next();
-                b.append(", ").append(attribute.getKey()).append(" : {");
-                varIterator++;
-                params.put(Integer.toString(varIterator), attribute.getValue());
-                b.append(varIterator).append("}");
-                varIterator++;
-            }
-        }
-
-        b.append("})  RETURN ID(n)");
-        return b.toString();
-    }
-
-///////////////
-// Alternative persisting...too slow, investigate later
-///////////////
-//    private static void persistNodeAlt(IDataOrganizationNode pNode, DigitalObjectId oid, String viewName, StringBuilder builder) {
-//        Map<String, Object> params = new HashMap<>();
-//
-//        builder.append(buildCreateNodeQueryAlt(pNode, oid, viewName, params)).append(" ");
-//
-//        //build sub structure if node is a collection node
-//        if (pNode instanceof ICollectionNode) {
-//            for (IDataOrganizationNode child : ((ICollectionNode) pNode).getChildren()) {
-//                persistNodeAlt(child, oid, viewName, builder);
-//            }
-//        }
-//    }
-//    private static String buildCreateNodeQueryAlt(IDataOrganizationNode pNode, DigitalObjectId oid, String view, Map<String, Object> params) {
-//        if (pNode.getName() == null) {
-//            return "";
-//        }
-//        StringBuilder b = new StringBuilder();
-//        String type = (pNode instanceof ICollectionNode) ? COLLECTION_TYPE : (pNode instanceof IFileNode) ? FILE_TYPE : UNKNOWN_TYPE;
-//
-//        b.append("CREATE (:").append(oid).append(":").append(view).append(":").append(type).append(" {");
-//        b.append("name : '").append(pNode.getName().replaceAll("\'", "\\\\'")).append("'");
-//
-//        if (FILE_TYPE.equals(type)) {
-//            b.append(", lfn : '").append(((IFileNode) pNode).getLogicalFileName().asString().replaceAll("\'", "\\\\'")).append("'");
-//        }
-//
-//        b.append(", id : '").append(pNode.getTransientNodeId().getInTreeId()).append("'");
-//
-//        Set<? extends IAttribute> attribs = pNode.getAttributes();
-//        if (attribs != null) {
-//            //add attributes
-//            Iterator<? extends IAttribute> iter = attribs.iterator();
-//            while (iter.hasNext()) {
-//                IAttribute attribute = iter.next();
-//                b.append(", ").append(attribute.getKey()).append(" : '");
-//                b.append(attribute.getValue()).append("'");
-//            }
-//        }
-//
-//        b.append("})");
-//        return b.toString();
-//    }
-//
-//    private static String buildCreateRelationQueryAlt(long parentId, long childId) {
-//        StringBuilder b = new StringBuilder();
-//        b.append("MATCH (a {id:'").append(parentId).append("'}),(b {id:'").append(childId).append("'}) ").append(" CREATE (a)-[p:IS_PARENT]->(b)");
-//        return b.toString();
-//    }
-    private static String buildCreateRelationQuery(long parentId, long childId) {
-        StringBuilder b = new StringBuilder();
-        b.append("MATCH (a),(b) WHERE ID(a) = ").append(parentId).append("  AND ID(b) = ").append(childId).append(" CREATE (a)-[p:IS_PARENT]->(b)");
-        return b.toString();
-    }
-
     /**
      * FileTreeLoading
      */
@@ -221,193 +103,165 @@ public class Neo4jHelper {
     }
 
     public static IFileTree loadFileTree(DigitalObjectId pId, String pView, JdbcCypherExecutor exec) {
-        Iterator<Map<String, Object>> result = exec.query("MATCH (n: `" + pId.getStringRepresentation() + "`: `" + pView + "`) RETURN ID(n)", null);
+        Iterator<Map<String, Object>> result = exec.query("MATCH (n:`" + ROOT_LABEL + "`:`" + pId.getStringRepresentation() + "`:`" + pView + "`) RETURN ID(n)", null);
 
         if (!result.hasNext()) {
             return null;
         }
-        Integer rootId = (Integer) result.next().get("ID(n)");
-        FileTreeImpl tree = new FileTreeImpl();
-        tree.setNodeId(Long.valueOf(rootId));
-        tree.setDigitalObjectId(pId);
-        tree.setViewName(pView);
-        Iterator<Map<String, Object>> children = exec.query("MATCH (n:`" + pId.getStringRepresentation() + "`:`" + pView + "`)-[r:IS_PARENT*1..]->(t) WITH startNode(r[length(r)-1]) AS start, endNode(r[length(r)-1]) AS end RETURN ID(start), start, ID(end),end", null);
-
-        List<Map<String, Object>> nodeStack = new ArrayList<>();
-        while (children.hasNext()) {
-            nodeStack.add(nodeStack.size(), children.next());
+        long rootId = ((Number) result.next().get("ID(n)")).longValue();
+        FileTreeImpl tree = (FileTreeImpl) loadSubtree(rootId, Integer.MAX_VALUE, true, exec);
+        if (tree != null) {
+            tree.setDigitalObjectId(pId);
+            tree.setViewName(pView);
         }
-        buildTree(tree, nodeStack);
         return tree;
     }
 
     public static IFileTree loadSubTree(NodeId pNodeId, int maxDepth, JdbcCypherExecutor exec) throws InvalidNodeIdException {
-        Iterator<Map<String, Object>> result = exec.query("MATCH (n) WHERE ID(n)=" + pNodeId.getInTreeId() + " RETURN ID(n), n", null);
-
-        if (!result.hasNext()) {
-            throw new InvalidNodeIdException("No node with id '" + pNodeId + "' found.");
-        }
-
-        LinkedHashMap resultMap = (LinkedHashMap) result.next();
-        Integer rootId = (Integer) resultMap.get("ID(n)");
-        Map<String, Object> node = (Map<String, Object>) resultMap.get("n");
-        FileTreeImpl tree = new FileTreeImpl();
-        tree.setNodeId(Long.valueOf(rootId));
-        tree.setName((String) node.get("name"));
-        Iterator<Map<String, Object>> children = exec.query("MATCH (n)-[r:IS_PARENT*1.." + maxDepth + "]->(t) WHERE ID(n)=" + pNodeId.getInTreeId() + " WITH startNode(r[length(r)-1]) AS start, endNode(r[length(r)-1]) AS end RETURN ID(start), start, ID(end),end", null);
-
-        List<Map<String, Object>> nodeStack = new ArrayList<>();
-        while (children.hasNext()) {
-            nodeStack.add(nodeStack.size(), children.next());
+        IDataOrganizationNode tree = loadSubtree(pNodeId.getInTreeId(), maxDepth, true, exec);
+        if (!(tree instanceof FileTreeImpl)) {
+            throw new InvalidNodeIdException("No collection node with id '" + pNodeId + "' found.");
         }
-        buildTree(tree, nodeStack);
-        return tree;
+        ((FileTreeImpl) tree).setDigitalObjectId(pNodeId.getDigitalObjectId());
+        return (FileTreeImpl) tree;
     }
 
-    private static void buildTree(IFileTree tree, List<Map<String, Object>> relationStack) {
-        while (!relationStack.isEmpty()) {
-            Map<String, Object> relation = relationStack.remove(0);
-            Integer endId = (Integer) relation.get("ID(end)");
-            LinkedHashMap endProperties = (LinkedHashMap) relation.get("end");
-            buildNode(endId, endProperties, tree.getRootNode(), relationStack);
-        }
+    /**
+     * Load the node with the provided id together with all descendants up to
+     * the provided depth. The entire subtree is obtained by a single query and
+     * is assembled in memory.
+     *
+     * @param pNodeId The id of the node.
+     * @param pMaxDepth The max. depth of descendants relative to the node, 0
+     * for loading only the node itself or Integer.MAX_VALUE for loading all
+     * descendants.
+     * @param exec The executor.
+     *
+     * @return The node or null if no node with the provided id exists.
+     */
+    public static IDataOrganizationNode loadNode(long pNodeId, int pMaxDepth, JdbcCypherExecutor exec) {
+        return loadSubtree(pNodeId, pMaxDepth, false, exec);
     }
 
-    public static void buildNode(Integer nodeId, Map pProperties, ICollectionNode pParent, List<Map<String, Object>> relationStack) {
-        Set propertyKeys;
-        if (null != (String) pProperties.get("type")) {
-            switch ((String) pProperties.get("type")) {
-                case FILE_TYPE:
-                    final FileNodeImpl fileNode = new FileNodeImpl(null);
-                    fileNode.setNodeId(Long.valueOf(nodeId));
-
-                    propertyKeys = pProperties.keySet();
-                    for (Object o : propertyKeys) {
-                        String key = (String) o;
-                        if (null != key) {
-                            switch (key) {
-                                case "name":
-                                    fileNode.setName((String) pProperties.get(key));
-                                    break;
-                                case "lfn":
-                                    fileNode.setLogicalFileName(new LFNImpl((String) pProperties.get(key)));
-                                    break;
-                                default:
-                                    fileNode.addAttribute(new AttributeImpl(key, (String) pProperties.get(key)));
-                                    break;
-                            }
-                        }
-                    }
+    /**
+     * Stream the node with the provided id and all its descendants up to the
+     * provided depth to pHandler without assembling the hierarchy, e.g. for
+     * processing very large subtrees. The nodes are obtained by a single query
+     * and are delivered in no particular order, collection nodes are delivered
+     * without children.
+     *
+     * @param pNodeId The id of the node.
+     * @param pMaxDepth The max. depth of descendants relative to the node.
+     * @param pHandler The handler receiving all nodes.
+     * @param exec The executor.
+     */
+    public static void streamSubtree(long pNodeId, int pMaxDepth, SubtreeNodeHandler pHandler, JdbcCypherExecutor exec) {
+        visitSubtree(pNodeId, pMaxDepth, false, false, pHandler, exec);
+    }
 
-                    pParent.addChild(fileNode);
-                    break;
-                case COLLECTION_TYPE:
-                    final CollectionNodeImpl collectionNode = new CollectionNodeImpl();
-                    collectionNode.setNodeId(Long.valueOf(nodeId));
-                    propertyKeys = pProperties.keySet();
-                    for (Object o : propertyKeys) {
-                        String key = (String) o;
-                        if (null != key) {
-                            if ("name".equals(key)) {
-                                collectionNode.setName((String) key);
-                            } else {
-                                collectionNode.addAttribute(new AttributeImpl(key, (String) pProperties.get(key)));
-                            }
-                        }
-                    }
-                    while (!relationStack.isEmpty()) {
-                        Map<String, Object> nextRelation = relationStack.get(0);
-                        Integer startId = (Integer) nextRelation.get("ID(start)");
-                        if (!Objects.equals(startId, nodeId)) {
-                            break;
-                        }
-                        nextRelation = relationStack.remove(0);
-                        Integer endId = (Integer) nextRelation.get("ID(end)");
-                        LinkedHashMap endProperties = (LinkedHashMap) nextRelation.get("end");
-                        buildNode(endId, endProperties, collectionNode, relationStack);
+    /**
+     * Load and assemble a subtree.
+     *
+     * @param pNodeId The id of the subtree root.
+     * @param pMaxDepth The max. depth of descendants.
+     * @param pAsTree If TRUE, the subtree root is returned as FileTreeImpl if
+     * it is a collection.
+     * @param exec The executor.
+     *
+     * @return The subtree root or null if no node was found.
+     */
+    private static IDataOrganizationNode loadSubtree(long pNodeId, int pMaxDepth, boolean pAsTree, JdbcCypherExecutor exec) {
+        final Map<Long, ICollectionNode> collections = new HashMap<>();
+        final List<IDataOrganizationNode> root = new ArrayList<>(1);
+        visitSubtree(pNodeId, pMaxDepth, true, pAsTree, new SubtreeNodeHandler() {
+            @Override
+            public void handleNode(IDataOrganizationNode pNode, long pParentId, int pDepth) {
+                if (pDepth == 0) {
+                    root.add(pNode);
+                } else {
+                    ICollectionNode parent = collections.get(pParentId);
+                    if (parent != null) {
+                        parent.addChild(pNode);
                     }
-                    pParent.addChild(collectionNode);
-                    break;
+                }
+                if (pNode instanceof ICollectionNode) {
+                    collections.put(((DataOrganizationNodeImpl) pNode).getNodeId(), (ICollectionNode) pNode);
+                }
+            }
+        }, exec);
+        return root.isEmpty() ? null : root.get(0);
+    }
 
-                default:
-                    //unknown node type
-                    break;
+    /**
+     * Query the subtree of the provided node using a variable length path and
+     * pass each node to pHandler. If pOrdered is TRUE, the nodes are ordered
+     * by depth, thus parents are always delivered before their children.
+     */
+    private static void visitSubtree(long pNodeId, int pMaxDepth, boolean pOrdered, boolean pAsTree, SubtreeNodeHandler pHandler, JdbcCypherExecutor exec) {
+        String range = (pMaxDepth == Integer.MAX_VALUE) ? "*0.." : "*0.." + Math.max(0, pMaxDepth);
+        StringBuilder b = new StringBuilder();
+        b.append("MATCH p=(n)-[:IS_PARENT").append(range).append("]->(c) WHERE ID(n) = {1} ");
+        b.append("RETURN ID(c) AS id, c AS node, CASE length(p) WHEN 0 THEN -1 ELSE ID(nodes(p)[length(p)-1]) END AS parent, length(p) AS depth");
+        if (pOrdered) {
+            b.append(" ORDER BY depth");
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("1", pNodeId);
+        Iterator<Map<String, Object>> result = exec.query(b.toString(), params);
+        while (result.hasNext()) {
+            Map<String, Object> row = result.next();
+            int depth = ((Number) row.get("depth")).intValue();
+            IDataOrganizationNode node = createNode(((Number) row.get("id")).longValue(), (Map<String, Object>) row.get("node"), pAsTree && depth == 0);
+            if (node != null) {
+                pHandler.handleNode(node, ((Number) row.get("parent")).longValue(), depth);
             }
         }
     }
 
-    public static void loadNode(Map pNode, ICollectionNode pParent, JdbcCypherExecutor exec, int maxDepth, int currentDepth) {
-        Integer nodeId = (Integer) pNode.get("id");
-        Map<String, Object> nodePoperties;
-        if (pNode.get("data") == null) {
-            LinkedHashMap map = (LinkedHashMap) exec.query("MATCH (p) WHERE ID(p)=" + nodeId + " RETURN { id : id(c),  data: c} as node", null);
-            nodePoperties = (Map<String, Object>) map.get("data");
+    /**
+     * Create a node from the provided properties. Nodes without type, e.g.
+     * root nodes, are handled as collection nodes.
+     *
+     * @param pNodeId The node id.
+     * @param pProperties The node properties.
+     * @param pAsTree Create a FileTreeImpl instead of a CollectionNodeImpl.
+     *
+     * @return The node or null if the node type is unknown.
+     */
+    private static IDataOrganizationNode createNode(long pNodeId, Map<String, Object> pProperties, boolean pAsTree) {
+        String type = (String) pProperties.get("type");
+        DataOrganizationNodeImpl node;
+        if (type == null || COLLECTION_TYPE.equals(type)) {
+            node = pAsTree ? new FileTreeImpl() : new CollectionNodeImpl();
+        } else if (FILE_TYPE.equals(type)) {
+            node = new FileNodeImpl(null);
         } else {
-            nodePoperties = (Map<String, Object>) pNode.get("data");
+            //unknown node type
+            return null;
         }
-        Set propertyKeys;
-        if (null != (String) nodePoperties.get("type")) {
-            switch ((String) nodePoperties.get("type")) {
-                case FILE_TYPE:
-                    final FileNodeImpl fileNode = new FileNodeImpl(null);
-                    fileNode.setNodeId(Long.valueOf(nodeId));
-
-                    propertyKeys = nodePoperties.keySet();
-                    for (Object o : propertyKeys) {
-                        String key = (String) o;
-                        if (null != key) {
-                            switch (key) {
-                                case "name":
-                                    fileNode.setName((String) nodePoperties.get(key));
-                                    break;
-                                case "lfn":
-                                    fileNode.setLogicalFileName(new LFNImpl((String) nodePoperties.get(key)));
-                                    break;
-                                default:
-                                    fileNode.addAttribute(new AttributeImpl(key, (String) nodePoperties.get(key)));
-                                    break;
-                            }
-                        }
-                    }
-
-                    pParent.addChild(fileNode);
+        node.setNodeId(pNodeId);
+        for (Map.Entry<String, Object> property : pProperties.entrySet()) {
+            String key = property.getKey();
+            if (key == null) {
+                continue;
+            }
+            switch (key) {
+                case "name":
+                    node.setName((String) property.getValue());
                     break;
-                case COLLECTION_TYPE:
-                    final CollectionNodeImpl collectionNode = new CollectionNodeImpl();
-                    collectionNode.setNodeId(Long.valueOf(nodeId));
-                    propertyKeys = nodePoperties.keySet();
-                    for (Object o : propertyKeys) {
-                        String key = (String) o;
-                        if (null != key) {
-                            if ("name".equals(key)) {
-                                collectionNode.setName((String) key);
-                            } else {
-                                collectionNode.addAttribute(new AttributeImpl(key, (String) nodePoperties.get(key)));
-                            }
-                        }
-                    }
-                    Iterator<Map<String, Object>> children = exec.query("MATCH (p)-[r:IS_PARENT]->(c) WHERE ID(p)=" + nodeId + " RETURN { id : id(c),  data: c} as node", null);
-                    while (children.hasNext()) {
-                        // Integer nextId = (Integer) children.next().get("ID(c)");
-                        LinkedHashMap node = (LinkedHashMap) children.next().get("node");
-                        if (currentDepth < maxDepth) {
-                            loadNode(node, collectionNode, exec, maxDepth, currentDepth++);
-                        }
+                case "type":
+                    break;
+                case "lfn":
+                    if (node instanceof FileNodeImpl) {
+                        ((FileNodeImpl) node).setLogicalFileName(new LFNImpl((String) property.getValue()));
                     }
-                    pParent.addChild(collectionNode);
                     break;
                 default:
-                    //unknown node type
+                    node.addAttribute(new AttributeImpl(key, (String) property.getValue()));
                     break;
             }
         }
-        //}
-    }
-
-    public static void loadNode(Integer pNodeId, ICollectionNode pParent, JdbcCypherExecutor exec) {
-        Map<String, Object> map = new HashMap<>();
-        map.put("id", pNodeId);
-        loadNode(map, pParent, exec, Integer.MAX_VALUE, 0);
+        return node;
     }
 
     public static void updateNode(NodeId pNodeId, final IDataOrganizationNode pNewData, JdbcCypherExecutor exec) throws InvalidNodeIdException {
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.dataorganization.impl.neo4j;
+
+import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
+
+/**
+ * Callback receiving the nodes of a subtree streamed via
+ * {@link Neo4jHelper#streamSubtree(long, int, SubtreeNodeHandler, JdbcCypherExecutor)}.
+ *
+ * @author jejkal
+ */
+public interface SubtreeNodeHandler {
+
+    /**
+     * Handle a single node of the subtree. Collection nodes are provided
+     * without children.
+     *
+     * @param pNode The node. Its node id is the Neo4j id of the node.
+     * @param pParentId The Neo4j id of the parent node or -1 for the subtree
+     * root.
+     * @param pDepth The depth relative to the subtree root, which has depth 0.
+     */
+    void handleNode(IDataOrganizationNode pNode, long pParentId, int pDepth);
+}
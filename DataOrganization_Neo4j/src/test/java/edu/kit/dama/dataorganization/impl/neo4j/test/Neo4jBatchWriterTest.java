@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.dataorganization.impl.neo4j.test;
+
+import edu.kit.dama.commons.types.DigitalObjectId;
+import edu.kit.dama.dataorganization.impl.neo4j.DataOrganizerImpl;
+import edu.kit.dama.dataorganization.impl.neo4j.JdbcCypherExecutor;
+import edu.kit.dama.dataorganization.impl.neo4j.Neo4jBatchWriter;
+import edu.kit.dama.mdm.dataorganization.entity.core.IFileTree;
+import edu.kit.dama.mdm.dataorganization.impl.staging.AttributeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.CollectionNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.FileNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.FileTreeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.LFNImpl;
+import edu.kit.dama.mdm.dataorganization.service.core.FileTreeUpdateResult;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for persisting file trees in batches using an embedded Neo4j
+ * database located in the target folder.
+ *
+ * @author jejkal
+ */
+public class Neo4jBatchWriterTest {
+
+    private static JdbcCypherExecutor exec;
+
+    @BeforeClass
+    public static void setUpClass() {
+        exec = new JdbcCypherExecutor("jdbc:neo4j:file:target/neo4j-test-db");
+    }
+
+    /**
+     * Create a tree with pDirectories collections containing pFiles file nodes
+     * each.
+     */
+    private static IFileTree createTree(int pDirectories, int pFiles) {
+        return createTree(new DigitalObjectId(UUID.randomUUID().toString()), pDirectories, pFiles);
+    }
+
+    /**
+     * Create a tree for the provided object with pDirectories collections
+     * containing pFiles file nodes each.
+     */
+    private static IFileTree createTree(DigitalObjectId pObjectId, int pDirectories, int pFiles) {
+        FileTreeImpl tree = new FileTreeImpl();
+        tree.setDigitalObjectId(pObjectId);
+        tree.setViewName("default");
+        tree.setName("root");
+        for (int i = 0; i < pDirectories; i++) {
+            CollectionNodeImpl collection = new CollectionNodeImpl();
+            collection.setName("dir" + i);
+            for (int j = 0; j < pFiles; j++) {
+                FileNodeImpl file = new FileNodeImpl(new LFNImpl("file:///data/dir" + i + "/file" + j));
+                file.setName("file" + j);
+                file.addAttribute(new AttributeImpl("size", Integer.toString(j)));
+                collection.addChild(file);
+            }
+            tree.getRootNode().addChild(collection);
+        }
+        return tree;
+    }
+
+    private static long count(String pQuery) {
+        Iterator<Map<String, Object>> result = exec.query(pQuery, null);
+        return ((Number) result.next().get("c")).longValue();
+    }
+
+    @Test
+    public void testPersistFileTree() {
+        IFileTree tree = createTree(3, 25);
+        String oid = tree.getDigitalObjectId().getStringRepresentation();
+        //small batch size for splitting nodes and relations into multiple batches
+        new Neo4jBatchWriter(exec, 10).persistFileTree(tree);
+
+        Assert.assertEquals(1l, count("MATCH (n:`Root`:`" + oid + "`:`default`) RETURN count(n) AS c"));
+        Assert.assertEquals(3l, count("MATCH (n:`" + oid + "`:`default`:`Collection`) RETURN count(n) AS c"));
+        Assert.assertEquals(75l, count("MATCH (n:`" + oid + "`:`default`:`File`) RETURN count(n) AS c"));
+        Assert.assertEquals(78l, count("MATCH (:`Root`:`" + oid + "`)-[r:IS_PARENT*1..]->() RETURN count(r) AS c"));
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("1", "dir1");
+        params.put("2", "file7");
+        Iterator<Map<String, Object>> result = exec.query("MATCH (:`" + oid + "`:`Collection` {name: {1}})-[:IS_PARENT]->(f:`" + oid + "`:`File` {name: {2}}) RETURN f.lfn AS lfn, f.size AS size", params);
+        Map<String, Object> file = result.next();
+        Assert.assertEquals("file:///data/dir1/file7", file.get("lfn"));
+        Assert.assertEquals("7", file.get("size"));
+    }
+
+    @Test
+    public void testPersistLargeFileTree() {
+        IFileTree tree = createTree(50, 400);
+        new Neo4jBatchWriter(exec, Neo4jBatchWriter.DEFAULT_BATCH_SIZE).persistFileTree(tree);
+        Assert.assertEquals(20050l, count("MATCH (n:`" + tree.getDigitalObjectId().getStringRepresentation() + "`:`default`) WHERE NOT n:`Root` RETURN count(n) AS c"));
+    }
+
+    @Test
+    public void testFailedPersistIsRolledBack() {
+        IFileTree tree = createTree(3, 25);
+        String oid = tree.getDigitalObjectId().getStringRepresentation();
+        //all nodes are written in several batches before creating the first relationships fails
+        FailingExecutor failingExec = new FailingExecutor(1);
+        try {
+            new Neo4jBatchWriter(failingExec, 10).persistFileTree(tree);
+            Assert.fail("Persisting the tree should have failed.");
+        } catch (IllegalStateException ex) {
+            Assert.assertEquals(FailingExecutor.MESSAGE, ex.getMessage());
+        }
+        //root node, one batch of collections and eight batches of files
+        Assert.assertEquals(10, failingExec.queries);
+        Assert.assertEquals(0l, count("MATCH (n:`" + oid + "`) RETURN count(n) AS c"));
+    }
+
+    @Test
+    public void testUpdateFileTreeReplacesView() {
+        DataOrganizerImpl organizer = new DataOrganizerImpl();
+        Assert.assertTrue(organizer.configure("jdbc:neo4j:file:target/neo4j-test-db", "neo4j", "neo4j"));
+        IFileTree tree = createTree(3, 25);
+        DigitalObjectId objectId = tree.getDigitalObjectId();
+        String oid = objectId.getStringRepresentation();
+
+        FileTreeUpdateResult result = organizer.updateFileTree(tree);
+        Assert.assertEquals(79l, result.getInserted());
+        Assert.assertEquals(0l, result.getUpdated());
+        Assert.assertEquals(0l, result.getDeleted());
+
+        //update the same view again, dir2 is removed and one file is added to each remaining directory
+        result = organizer.updateFileTree(createTree(objectId, 2, 26));
+        Assert.assertEquals(2l, result.getInserted());
+        Assert.assertEquals(53l, result.getUpdated());
+        Assert.assertEquals(26l, result.getDeleted());
+
+        Assert.assertEquals(1l, count("MATCH (n:`Root`:`" + oid + "`:`default`) RETURN count(n) AS c"));
+        Assert.assertEquals(2l, count("MATCH (n:`" + oid + "`:`default`:`Collection`) RETURN count(n) AS c"));
+        Assert.assertEquals(52l, count("MATCH (n:`" + oid + "`:`default`:`File`) RETURN count(n) AS c"));
+        Assert.assertEquals(54l, count("MATCH (:`Root`:`" + oid + "`)-[r:IS_PARENT*1..]->() RETURN count(r) AS c"));
+    }
+
+    /**
+     * Executor failing when executing the pFailingExecution-th query without
+     * result. All other queries are sent to the test database.
+     */
+    private static final class FailingExecutor extends JdbcCypherExecutor {
+
+        private static final String MESSAGE = "Injected failure";
+        private final int failingExecution;
+        private int executions = 0;
+        private int queries = 0;
+
+        FailingExecutor(int pFailingExecution) {
+            super("jdbc:neo4j:file:target/neo4j-test-db");
+            failingExecution = pFailingExecution;
+        }
+
+        @Override
+        public Iterator<Map<String, Object>> query(String query, Map<String, Object> params) {
+            queries++;
+            return super.query(query, params);
+        }
+
+        @Override
+        public void execute(String query, Map<String, Object> params) {
+            if (++executions == failingExecution) {
+                throw new IllegalStateException(MESSAGE);
+            }
+            super.execute(query, params);
+        }
+    }
+}
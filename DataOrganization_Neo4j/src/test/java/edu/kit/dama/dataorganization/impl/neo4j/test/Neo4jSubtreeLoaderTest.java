@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.dataorganization.impl.neo4j.test;
+
+import edu.kit.dama.commons.types.DigitalObjectId;
+import edu.kit.dama.dataorganization.impl.neo4j.JdbcCypherExecutor;
+import edu.kit.dama.dataorganization.impl.neo4j.Neo4jBatchWriter;
+import edu.kit.dama.dataorganization.impl.neo4j.Neo4jHelper;
+import edu.kit.dama.dataorganization.impl.neo4j.SubtreeNodeHandler;
+import edu.kit.dama.mdm.dataorganization.entity.core.ICollectionNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IFileNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IFileTree;
+import edu.kit.dama.mdm.dataorganization.impl.staging.AttributeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.CollectionNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.FileNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.FileTreeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.LFNImpl;
+import java.util.UUID;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for loading subtrees using a single query from an embedded Neo4j
+ * database located in the target folder.
+ *
+ * @author jejkal
+ */
+public class Neo4jSubtreeLoaderTest {
+
+    private static JdbcCypherExecutor exec;
+    private static IFileTree tree;
+    private static long rootId;
+
+    @BeforeClass
+    public static void setUpClass() {
+        exec = new JdbcCypherExecutor("jdbc:neo4j:file:target/neo4j-test-db");
+        //root -> 4 dirs -> 3 subdirs -> 10 files
+        FileTreeImpl fileTree = new FileTreeImpl();
+        fileTree.setDigitalObjectId(new DigitalObjectId(UUID.randomUUID().toString()));
+        fileTree.setViewName("default");
+        fileTree.setName("root");
+        for (int i = 0; i < 4; i++) {
+            CollectionNodeImpl dir = new CollectionNodeImpl();
+            dir.setName("dir" + i);
+            for (int j = 0; j < 3; j++) {
+                CollectionNodeImpl subDir = new CollectionNodeImpl();
+                subDir.setName("sub" + j);
+                for (int k = 0; k < 10; k++) {
+                    FileNodeImpl file = new FileNodeImpl(new LFNImpl("file:///data/dir" + i + "/sub" + j + "/file" + k));
+                    file.setName("file" + k);
+                    file.addAttribute(new AttributeImpl("size", Integer.toString(k)));
+                    subDir.addChild(file);
+                }
+                dir.addChild(subDir);
+            }
+            fileTree.addChild(dir);
+        }
+        tree = fileTree;
+        rootId = new Neo4jBatchWriter(exec, Neo4jBatchWriter.DEFAULT_BATCH_SIZE).persistFileTree(tree);
+    }
+
+    private static int countNodes(IDataOrganizationNode pNode) {
+        int result = 1;
+        if (pNode instanceof ICollectionNode) {
+            for (IDataOrganizationNode child : ((ICollectionNode) pNode).getChildren()) {
+                result += countNodes(child);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testLoadFileTree() {
+        IFileTree loaded = Neo4jHelper.loadFileTree(tree.getDigitalObjectId(), "default", exec);
+        Assert.assertNotNull(loaded);
+        Assert.assertEquals("root", loaded.getRootNode().getName());
+        Assert.assertEquals(4, loaded.getRootNode().getChildren().size());
+        Assert.assertEquals(1 + 4 + 12 + 120, countNodes(loaded.getRootNode()));
+
+        ICollectionNode dir = (ICollectionNode) loaded.getRootNode().getChildren().get(0);
+        Assert.assertTrue(dir.getName().startsWith("dir"));
+        Assert.assertTrue(dir.getAttributes().isEmpty());
+        IFileNode file = (IFileNode) ((ICollectionNode) dir.getChildren().get(0)).getChildren().get(0);
+        Assert.assertTrue(file.getLogicalFileName().asString().startsWith("file:///data/"));
+        Assert.assertEquals(1, file.getAttributes().size());
+    }
+
+    @Test
+    public void testLoadDepthLimitedSubtree() {
+        IDataOrganizationNode node = Neo4jHelper.loadNode(rootId, 1, exec);
+        Assert.assertEquals(5, countNodes(node));
+        node = Neo4jHelper.loadNode(rootId, 0, exec);
+        Assert.assertEquals(1, countNodes(node));
+        Assert.assertNull(Neo4jHelper.loadNode(-1l, Integer.MAX_VALUE, exec));
+    }
+
+    @Test
+    public void testStreamSubtree() {
+        final int[] counts = new int[4];
+        Neo4jHelper.streamSubtree(rootId, Integer.MAX_VALUE, new SubtreeNodeHandler() {
+            @Override
+            public void handleNode(IDataOrganizationNode pNode, long pParentId, int pDepth) {
+                counts[pDepth]++;
+                Assert.assertEquals(pDepth == 0, pParentId == -1l);
+            }
+        }, exec);
+        Assert.assertArrayEquals(new int[]{1, 4, 12, 120}, counts);
+    }
+}
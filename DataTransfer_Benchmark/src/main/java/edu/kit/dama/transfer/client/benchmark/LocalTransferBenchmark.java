@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.transfer.client.benchmark;
+
+import edu.kit.dama.transfer.client.types.TransferTask;
+import edu.kit.lsdf.adalapi.AbstractFile;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for transferring a set of local files to another local directory
+ * using {@link TransferTask} with each local transfer mode. ADALAPI is the
+ * generic stream-based transfer, COPY and LINK are the local fast paths.
+ *
+ * Each invocation transfers the entire file set sequentially into an empty
+ * target directory, thus the score is the time per file set. The files are
+ * created once per trial in the directory provided by the system property
+ * 'benchmark.dir' or in the default temp directory. Source and target
+ * directory are located on the same file system, which allows hard links.
+ * The size of the huge files can be changed via '-p hugeFileSize=4096' (in
+ * MiB).
+ *
+ * @author jejkal
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class LocalTransferBenchmark {
+
+    /**
+     * The file sets to transfer.
+     */
+    public enum FileSet {
+
+        /**
+         * 10.000 files of 4 KiB.
+         */
+        SMALL,
+        /**
+         * 2 files of 'hugeFileSize' MiB.
+         */
+        HUGE
+    }
+
+    @Param({"SMALL", "HUGE"})
+    public FileSet fileSet;
+
+    @Param({"ADALAPI", "COPY", "LINK"})
+    public TransferTask.LOCAL_TRANSFER_MODE mode;
+
+    @Param({"1024"})
+    public int hugeFileSize;
+
+    private File baseDir;
+    private File[] sources;
+    private File targetDir;
+
+    /**
+     * Create the source files.
+     *
+     * @throws IOException If the files cannot be created.
+     */
+    @Setup(Level.Trial)
+    public void createFiles() throws IOException {
+        File parent = new File(System.getProperty("benchmark.dir", System.getProperty("java.io.tmpdir")));
+        baseDir = Files.createTempDirectory(parent.toPath(), "transfer-benchmark").toFile();
+        File sourceDir = new File(baseDir, "source");
+        targetDir = new File(baseDir, "target");
+        if (!sourceDir.mkdir()) {
+            throw new IOException("Failed to create source directory " + sourceDir);
+        }
+
+        int count = FileSet.SMALL.equals(fileSet) ? 10000 : 2;
+        long size = FileSet.SMALL.equals(fileSet) ? 4 * 1024 : hugeFileSize * 1024L * 1024L;
+        Random random = new Random(42);
+        byte[] buffer = new byte[(int) Math.min(size, 1024 * 1024)];
+        sources = new File[count];
+        for (int i = 0; i < count; i++) {
+            sources[i] = new File(sourceDir, "file" + i + ".bin");
+            try (OutputStream out = Files.newOutputStream(sources[i].toPath())) {
+                long written = 0;
+                while (written < size) {
+                    random.nextBytes(buffer);
+                    int length = (int) Math.min(buffer.length, size - written);
+                    out.write(buffer, 0, length);
+                    written += length;
+                }
+            }
+        }
+    }
+
+    /**
+     * Provide an empty target directory for each invocation.
+     *
+     * @throws IOException If the directory cannot be cleaned.
+     */
+    @Setup(Level.Invocation)
+    public void cleanTarget() throws IOException {
+        if (targetDir.exists()) {
+            FileUtils.deleteDirectory(targetDir);
+        }
+        if (!targetDir.mkdir()) {
+            throw new IOException("Failed to create target directory " + targetDir);
+        }
+    }
+
+    /**
+     * Remove all files.
+     *
+     * @throws IOException If the files cannot be removed.
+     */
+    @TearDown(Level.Trial)
+    public void removeFiles() throws IOException {
+        FileUtils.deleteDirectory(baseDir);
+    }
+
+    /**
+     * Transfer all files of the file set.
+     *
+     * @return The number of transferred files.
+     *
+     * @throws IOException If a transfer has failed.
+     */
+    @Benchmark
+    public int transfer() throws IOException {
+        for (File source : sources) {
+            TransferTask task = new TransferTask(new AbstractFile(source.toURI().toURL()), new AbstractFile(new File(targetDir, source.getName()).toURI().toURL()));
+            task.setLocalTransferMode(mode);
+            task.run();
+            if (!TransferTask.TRANSFER_TASK_STATUS.SUCCEEDED.equals(task.getStatus())) {
+                throw new IOException("Failed to transfer " + source);
+            }
+        }
+        return sources.length;
+    }
+}
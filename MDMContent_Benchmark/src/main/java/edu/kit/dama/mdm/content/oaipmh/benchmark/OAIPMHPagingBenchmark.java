@@ -0,0 +1,278 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.content.oaipmh.benchmark;
+
+import edu.kit.dama.authorization.entities.GroupId;
+import edu.kit.dama.authorization.entities.Role;
+import edu.kit.dama.authorization.entities.UserId;
+import edu.kit.dama.authorization.entities.impl.AuthorizationContext;
+import edu.kit.dama.authorization.entities.impl.Group;
+import edu.kit.dama.authorization.entities.impl.ResourceReference;
+import edu.kit.dama.authorization.entities.impl.SecurableResource;
+import edu.kit.dama.authorization.entities.util.FindUtil;
+import edu.kit.dama.authorization.entities.util.PU;
+import edu.kit.dama.authorization.exceptions.EntityAlreadyExistsException;
+import edu.kit.dama.authorization.exceptions.EntityNotFoundException;
+import edu.kit.dama.authorization.exceptions.UnauthorizedAccessAttemptException;
+import edu.kit.dama.authorization.services.administration.GroupServiceLocal;
+import edu.kit.dama.authorization.services.administration.UserServiceLocal;
+import edu.kit.dama.mdm.base.DigitalObject;
+import edu.kit.dama.mdm.content.oaipmh.impl.SimpleOAIPMHRepository;
+import edu.kit.dama.mdm.content.oaipmh.util.OAIPMHBuilder;
+import edu.kit.dama.mdm.content.oaipmh.util.OAIPMHResumptionToken;
+import edu.kit.dama.util.Constants;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import org.openarchives.oai._2.OAIPMHtype;
+import org.openarchives.oai._2.VerbType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for obtaining one page of an OAI-PMH ListRecords/ListIdentifiers
+ * harvest from the SimpleOAIPMHRepository at different positions of the
+ * complete list. The digital objects are stored in the embedded in-memory
+ * database configured by datamanager.xml and META-INF/persistence.xml of this
+ * module. As in production, all objects are shared with the WORLD group the
+ * OAI-PMH user belongs to, so that the repository output is filtered by the
+ * authorization as usual. Records are requested in Dublin Core format, which
+ * is created on the fly as no metadata documents are registered.
+ *
+ * The requested page is addressed by a resumption token as issued by the
+ * repository for the previous page. As pages are obtained by keyset
+ * pagination, the latency is expected to be the same for all positions. The
+ * number of objects can be changed via '-p objectCount=1000000'.
+ *
+ * @author jejkal
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class OAIPMHPagingBenchmark {
+
+    /**
+     * The max. number of elements per list as used by SimpleOAIPMHRepository.
+     */
+    private static final int PAGE_SIZE = 100;
+    /**
+     * The number of objects persisted within one transaction during setup.
+     */
+    private static final int BATCH_SIZE = 1000;
+    /**
+     * The persistence unit containing the digital objects.
+     */
+    private static final String PERSISTENCE_UNIT = "OAIPMHPU-Benchmark";
+    /**
+     * The user managing the WORLD group.
+     */
+    private static final UserId ADMIN_USER = new UserId("admin");
+
+    /**
+     * The position of the requested page within the complete list.
+     */
+    public enum Position {
+
+        /**
+         * The first page.
+         */
+        FIRST,
+        /**
+         * The page in the middle of the list.
+         */
+        MIDDLE,
+        /**
+         * The last page.
+         */
+        LAST
+    }
+
+    @Param({"LIST_IDENTIFIERS", "LIST_RECORDS"})
+    public VerbType verb;
+
+    @Param({"FIRST", "MIDDLE", "LAST"})
+    public Position position;
+
+    @Param({"100000"})
+    public int objectCount;
+
+    private SimpleOAIPMHRepository repository;
+    private String resumptionToken;
+
+    /**
+     * Register the users and groups, persist the digital objects and create
+     * the resumption token addressing the requested page. Finally, the page is
+     * requested once in order to check that the repository delivers it without
+     * error.
+     *
+     * @throws EntityAlreadyExistsException If a user or group is already
+     * registered.
+     * @throws EntityNotFoundException If a user or group was not found.
+     * @throws UnauthorizedAccessAttemptException If registering the users or
+     * groups fails.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws EntityAlreadyExistsException, EntityNotFoundException, UnauthorizedAccessAttemptException {
+        prepareAuthorizationSchema();
+        //admin and OAI-PMH user in group WORLD as created by the setup wizard
+        GroupId worldGroup = new GroupId(Constants.WORLD_GROUP_ID);
+        UserServiceLocal.getSingleton().register(ADMIN_USER, Role.ADMINISTRATOR, AuthorizationContext.factorySystemContext());
+        UserServiceLocal.getSingleton().register(new UserId(Constants.OAI_PMH_USER_ID), Role.GUEST, AuthorizationContext.factorySystemContext());
+        GroupServiceLocal.getSingleton().create(worldGroup, ADMIN_USER, AuthorizationContext.factorySystemContext());
+        GroupServiceLocal.getSingleton().addUser(worldGroup, new UserId(Constants.OAI_PMH_USER_ID), Role.GUEST, AuthorizationContext.factorySystemContext());
+
+        //Objects are written directly, as registering them one by one via the
+        //secured metadata manager takes too long for large object counts.
+        EntityManagerFactory factory = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT);
+        EntityManager em = factory.createEntityManager();
+        try {
+            Date uploadDate = new Date();
+            for (int i = 0; i < objectCount; i += BATCH_SIZE) {
+                List<DigitalObject> batch = new ArrayList<>();
+                em.getTransaction().begin();
+                for (int j = i; j < Math.min(objectCount, i + BATCH_SIZE); j++) {
+                    DigitalObject object = DigitalObject.factoryNewDigitalObject();
+                    object.setLabel("Object " + j);
+                    object.setUploadDate(uploadDate);
+                    em.persist(object);
+                    batch.add(object);
+                }
+                em.getTransaction().commit();
+                em.clear();
+                registerResources(batch, worldGroup);
+            }
+
+            int offset;
+            switch (position) {
+                case FIRST:
+                    offset = 0;
+                    break;
+                case MIDDLE:
+                    offset = objectCount / 2 / PAGE_SIZE * PAGE_SIZE;
+                    break;
+                default:
+                    offset = Math.max(0, (objectCount - 1) / PAGE_SIZE * PAGE_SIZE);
+            }
+            if (offset > 0) {
+                //the last key of the previous page, as stored in the resumption token
+                Long lastId = em.createQuery("SELECT o.baseId FROM DigitalObject o ORDER BY o.baseId ASC", Long.class).setFirstResult(offset - 1).setMaxResults(1).getSingleResult();
+                resumptionToken = new OAIPMHResumptionToken(lastId, offset, objectCount).encode();
+            }
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+
+        repository = new SimpleOAIPMHRepository();
+        OAIPMHBuilder builder = createBuilder();
+        if (builder.isError()) {
+            throw new IllegalStateException("Failed to obtain page " + position + " using verb " + verb + ".");
+        }
+    }
+
+    /**
+     * Register the provided objects as securable resources of the provided
+     * group with MANAGER access as done by the secured metadata manager, but
+     * within one transaction.
+     *
+     * @param pObjects The objects to register.
+     * @param pGroup The group owning the objects.
+     *
+     * @throws EntityNotFoundException If the group was not found.
+     */
+    private void registerResources(List<DigitalObject> pObjects, GroupId pGroup) throws EntityNotFoundException {
+        EntityManager em = PU.entityManager();
+        try {
+            em.getTransaction().begin();
+            Group group = FindUtil.findGroupQuick(em, pGroup);
+            for (DigitalObject object : pObjects) {
+                SecurableResource resource = new SecurableResource(object.getSecurableResourceId());
+                em.persist(resource);
+                em.persist(new ResourceReference(Role.MANAGER, resource, group));
+            }
+            em.getTransaction().commit();
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+    }
+
+    /**
+     * Adapt the generated authorization tables to the database schema used in
+     * production. The grant set of a securable resource is mandatory in the
+     * entity mapping but optional in the schema, as resources are registered
+     * without grant set.
+     */
+    private void prepareAuthorizationSchema() {
+        EntityManager em = PU.entityManager();
+        try {
+            em.getTransaction().begin();
+            em.createNativeQuery("ALTER TABLE RESOURCES ALTER COLUMN GRANTSET_ID SET NULL").executeUpdate();
+            em.getTransaction().commit();
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+    }
+
+    /**
+     * Obtain the requested page from the repository.
+     *
+     * @return The builder containing the page.
+     */
+    private OAIPMHBuilder createBuilder() {
+        OAIPMHBuilder builder = OAIPMHBuilder.init(repository, verb, "dc", null, null, null, resumptionToken);
+        if (VerbType.LIST_RECORDS.equals(verb)) {
+            repository.listRecords(builder);
+        } else {
+            repository.listIdentifiers(builder);
+        }
+        return builder;
+    }
+
+    /**
+     * Obtain the requested page and build the OAI-PMH response.
+     *
+     * @return The response.
+     */
+    @Benchmark
+    public OAIPMHtype listPage() {
+        return createBuilder().build();
+    }
+}
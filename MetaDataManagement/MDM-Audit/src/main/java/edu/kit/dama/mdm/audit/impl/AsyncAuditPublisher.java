@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.audit.impl;
+
+import edu.kit.dama.commons.exceptions.ConfigurationException;
+import edu.kit.dama.mdm.audit.interfaces.AbstractAuditPublisher;
+import edu.kit.dama.mdm.audit.types.AuditEvent;
+import edu.kit.dama.mdm.audit.util.AuditEventBatcher;
+import java.util.List;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publisher decoupling audited operations from the actual publisher. Events
+ * are put into a bounded in-memory queue and are published in batches by a
+ * background thread using {@link AbstractAuditPublisher#publish(java.util.List)}
+ * of the wrapped publisher. Thus, audited operations don't have to wait for
+ * the message broker anymore. The AsyncAuditPublisher is created by the
+ * {@link AuditManager} and wraps the configured publisher.
+ *
+ * @author jejkal
+ */
+public class AsyncAuditPublisher extends AbstractAuditPublisher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncAuditPublisher.class);
+    /**
+     * Time in milliseconds queued events are awaited to be published while
+     * destroying the publisher.
+     */
+    private static final long SHUTDOWN_TIMEOUT = 10000;
+
+    private final AbstractAuditPublisher delegate;
+    private final AuditEventBatcher batcher;
+
+    /**
+     * Default constructor.
+     *
+     * @param pDelegate The initialized publisher used to publish the events.
+     * @param pCapacity The max. number of queued events.
+     * @param pBatchSize The max. number of events published at once.
+     * @param pMaxLatency The max. time in milliseconds an event is queued
+     * before it is published.
+     * @param pOverflowPolicy The policy applied if the queue is full.
+     */
+    public AsyncAuditPublisher(final AbstractAuditPublisher pDelegate, int pCapacity, int pBatchSize, long pMaxLatency, AuditEventBatcher.OverflowPolicy pOverflowPolicy) {
+        if (pDelegate == null) {
+            throw new IllegalArgumentException("Argument pDelegate must not be null.");
+        }
+        delegate = pDelegate;
+        batcher = new AuditEventBatcher("audit-publisher", new AuditEventBatcher.BatchHandler() {
+            @Override
+            public int handleBatch(List<AuditEvent> pEvents) {
+                delegate.publish(pEvents);
+                return 0;
+            }
+        }, pCapacity, pBatchSize, pMaxLatency, pOverflowPolicy);
+    }
+
+    @Override
+    public boolean initialize() {
+        LOGGER.debug("Starting asynchronous publishing using publisher {}.", delegate.getClass().getName());
+        batcher.start();
+        return true;
+    }
+
+    @Override
+    public void destroy() {
+        LOGGER.debug("Publishing remaining {} audit event(s).", batcher.getQueueDepth());
+        batcher.shutdown(SHUTDOWN_TIMEOUT);
+        LOGGER.info("Audit publisher stopped. Published: {}, failed: {}, dropped: {}, max. lag: {} ms.", new Object[]{batcher.getProcessedCount(), batcher.getFailedCount(), batcher.getDroppedCount(), batcher.getMaxLag()});
+        delegate.destroy();
+    }
+
+    @Override
+    public void publish(AuditEvent entry) {
+        batcher.offer(entry);
+    }
+
+    @Override
+    public boolean performCustomConfiguration(Configuration config) throws ConfigurationException {
+        //configuration is provided via constructor
+        return true;
+    }
+
+    /**
+     * Get the wrapped publisher.
+     *
+     * @return The wrapped publisher.
+     */
+    public AbstractAuditPublisher getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Get the batcher used for queueing events, e.g. to obtain the queue depth
+     * or throughput and lag metrics.
+     *
+     * @return The batcher.
+     */
+    public AuditEventBatcher getBatcher() {
+        return batcher;
+    }
+}
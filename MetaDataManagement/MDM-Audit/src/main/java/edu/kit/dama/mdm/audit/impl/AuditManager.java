@@ -19,6 +19,7 @@ import edu.kit.dama.commons.exceptions.ConfigurationException;
 import edu.kit.dama.commons.interfaces.IConfigurableAdapter;
 import edu.kit.dama.mdm.audit.interfaces.AbstractAuditConsumer;
 import edu.kit.dama.mdm.audit.interfaces.AbstractAuditPublisher;
+import edu.kit.dama.mdm.audit.util.AuditEventBatcher;
 import edu.kit.dama.util.DataManagerSettings;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
@@ -71,6 +72,24 @@ public class AuditManager {
             consumersSupported = false;
         }
 
+        int queueCapacity = DataManagerSettings.getSingleton().getIntProperty(DataManagerSettings.AUDIT_QUEUE_CAPACITY, 10000);
+        if (queueCapacity > 0) {
+            int batchSize = DataManagerSettings.getSingleton().getIntProperty(DataManagerSettings.AUDIT_QUEUE_BATCH_SIZE, 100);
+            long maxLatency = DataManagerSettings.getSingleton().getLongProperty(DataManagerSettings.AUDIT_QUEUE_MAX_LATENCY, 1000);
+            AuditEventBatcher.OverflowPolicy policy = AuditEventBatcher.OverflowPolicy.BLOCK;
+            String policyName = DataManagerSettings.getSingleton().getStringProperty(DataManagerSettings.AUDIT_QUEUE_OVERFLOW_POLICY, policy.toString());
+            try {
+                policy = AuditEventBatcher.OverflowPolicy.valueOf(policyName);
+            } catch (IllegalArgumentException ex) {
+                LOGGER.warn("Invalid audit overflow policy '{}'. Using {}.", policyName, policy);
+            }
+            LOGGER.debug("Enabling asynchronous publishing with queue capacity {}.", queueCapacity);
+            publisher = new AsyncAuditPublisher(publisher, queueCapacity, batchSize, maxLatency, policy);
+            publisher.initialize();
+        } else {
+            LOGGER.debug("Audit queue capacity is {}. Publishing audit events synchronously.", queueCapacity);
+        }
+
         if (!consumersSupported) {
             LOGGER.info("No audit event consumers supported as LogbackPublisher is used. Skipping consumer configuration.");
         } else {
@@ -143,7 +162,7 @@ public class AuditManager {
      *
      * @return A factory.
      */
-    public final static AuditManager getInstance() {
+    public final synchronized static AuditManager getInstance() {
         if (null == instance) {
             instance = new AuditManager();
         }
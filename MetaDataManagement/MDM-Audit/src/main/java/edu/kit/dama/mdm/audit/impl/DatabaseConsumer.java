@@ -20,13 +20,24 @@ import edu.kit.dama.authorization.exceptions.UnauthorizedAccessAttemptException;
 import edu.kit.dama.commons.exceptions.ConfigurationException;
 import edu.kit.dama.mdm.audit.interfaces.AbstractAuditConsumer;
 import edu.kit.dama.mdm.audit.types.AuditEvent;
+import edu.kit.dama.mdm.audit.util.AuditEventBatcher;
 import edu.kit.dama.mdm.core.IMetaDataManager;
 import edu.kit.dama.mdm.core.MetaDataManagement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import org.apache.commons.configuration.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Consumer persisting audit events in the database. By default, received
+ * events are queued and persisted in batches within one transaction per
+ * batch. Batching can be configured using the properties 'batchSize',
+ * 'maxLatency' (in milliseconds) and 'capacity'. Setting 'batchSize' to 1
+ * persists each event immediately. If persisting a batch fails, its events
+ * are persisted one by one, so a single invalid event does not discard the
+ * entire batch. Events which still cannot be persisted are logged and dropped.
  *
  * @author jejkal
  */
@@ -34,23 +45,116 @@ public class DatabaseConsumer extends AbstractAuditConsumer {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseConsumer.class);
 
+    public static final String BATCH_SIZE_KEY = "batchSize";
+    public static final String MAX_LATENCY_KEY = "maxLatency";
+    public static final String CAPACITY_KEY = "capacity";
+    /**
+     * Time in milliseconds queued events are awaited to be persisted while
+     * destroying the consumer.
+     */
+    private static final long SHUTDOWN_TIMEOUT = 10000;
+
+    private AuditEventBatcher batcher = null;
+
     @Override
     public void consume(AuditEvent entry) {
         LOGGER.debug("Consuming audit event for pid {}", entry.getPid());
+        if (batcher != null) {
+            batcher.offer(entry);
+        } else {
+            persist(Collections.singletonList(entry));
+        }
+    }
+
+    /**
+     * Persist the provided events. At first, all events are persisted within
+     * one transaction. If this fails and the batch contains more than one
+     * event, each event is persisted within its own transaction.
+     *
+     * @param pEvents The events to persist.
+     *
+     * @return The events which could not be persisted.
+     */
+    private List<AuditEvent> persist(List<AuditEvent> pEvents) {
+        try {
+            persistEvents(pEvents);
+            LOGGER.debug("{} audit event(s) successfully processed.", pEvents.size());
+            return Collections.emptyList();
+        } catch (UnauthorizedAccessAttemptException | RuntimeException ex) {
+            if (pEvents.size() == 1) {
+                LOGGER.error("Failed to persist audit event " + pEvents.get(0) + ". Event is dropped.", ex);
+                return pEvents;
+            }
+            LOGGER.warn("Failed to persist batch of " + pEvents.size() + " audit event(s). Persisting events one by one.", ex);
+        }
+
+        List<AuditEvent> failed = new ArrayList<>();
+        for (AuditEvent event : pEvents) {
+            try {
+                persistEvents(Collections.singletonList(event));
+            } catch (UnauthorizedAccessAttemptException | RuntimeException ex) {
+                LOGGER.error("Failed to persist audit event " + event + ". Event is dropped.", ex);
+                failed.add(event);
+            }
+        }
+        LOGGER.debug("{} of {} audit event(s) successfully processed.", pEvents.size() - failed.size(), pEvents.size());
+        return failed;
+    }
+
+    /**
+     * Persist the provided events within one transaction.
+     *
+     * @param pEvents The events to persist.
+     *
+     * @throws UnauthorizedAccessAttemptException If the system context is not
+     * authorized to persist the events.
+     */
+    protected void persistEvents(List<AuditEvent> pEvents) throws UnauthorizedAccessAttemptException {
         IMetaDataManager mdm = MetaDataManagement.getMetaDataManagement().getMetaDataManager();
         mdm.setAuthorizationContext(AuthorizationContext.factorySystemContext());
         try {
-            mdm.save(entry);
-            LOGGER.debug("Audit event with id {} successfully processed.", entry.getPid());
-        } catch (UnauthorizedAccessAttemptException ex) {
-            LOGGER.error("Not authorized to persist audit entry.", ex);
+            mdm.persistAll(pEvents);
         } finally {
             mdm.close();
         }
     }
 
+    @Override
+    public void destroy() {
+        if (batcher != null) {
+            batcher.shutdown(SHUTDOWN_TIMEOUT);
+            LOGGER.info("Database consumer stopped. Persisted: {}, failed: {}, dropped: {}, max. lag: {} ms.", new Object[]{batcher.getProcessedCount(), batcher.getFailedCount(), batcher.getDroppedCount(), batcher.getMaxLag()});
+            batcher = null;
+        }
+    }
+
+    /**
+     * Get the batcher used for queueing events, e.g. to obtain the queue depth
+     * or throughput and lag metrics.
+     *
+     * @return The batcher or null if batching is disabled.
+     */
+    public AuditEventBatcher getBatcher() {
+        return batcher;
+    }
+
     @Override
     public boolean performCustomConfiguration(Configuration config) throws ConfigurationException {
+        int batchSize = config.getInt(BATCH_SIZE_KEY, 100);
+        if (batchSize > 1) {
+            long maxLatency = config.getLong(MAX_LATENCY_KEY, 1000);
+            int capacity = config.getInt(CAPACITY_KEY, 10000);
+            LOGGER.debug("Persisting audit events in batches of max. {} events with a max. latency of {} ms.", batchSize, maxLatency);
+            batcher = new AuditEventBatcher("audit-database-consumer", new AuditEventBatcher.BatchHandler() {
+                @Override
+                public int handleBatch(List<AuditEvent> pEvents) {
+                    return persist(pEvents).size();
+                }
+            }, capacity, batchSize, maxLatency, AuditEventBatcher.OverflowPolicy.BLOCK);
+            batcher.start();
+        } else {
+            LOGGER.debug("Persisting audit events one by one.");
+        }
         return true;
     }
 
@@ -22,6 +22,7 @@ import edu.kit.dama.commons.exceptions.ConfigurationException;
 import edu.kit.dama.mdm.audit.interfaces.AbstractAuditPublisher;
 import edu.kit.dama.mdm.audit.types.AuditEvent;
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.TimeoutException;
 import org.apache.commons.configuration.Configuration;
 import org.slf4j.Logger;
@@ -37,9 +38,11 @@ public class RabbitMQPublisher extends AbstractAuditPublisher {
 
     public static final String HOSTNAME_PROPERTY_KEY = "hostname";
     public static final String EXCHANGE_NAME_KEY = "exchange";
+    public static final String CONFIRM_TIMEOUT_KEY = "confirmTimeout";
 
     private String hostname = "localhost";
     private String exchangeName = "audit";
+    private long confirmTimeout = 5000;
 
     private Connection connection = null;
     private Channel channel = null;
@@ -58,6 +61,8 @@ public class RabbitMQPublisher extends AbstractAuditPublisher {
             String queueName = channel.queueDeclare().getQueue();
             LOGGER.debug("Binding queue with name {} to exchange.", queueName);
             channel.queueBind(queueName, exchangeName, "");
+            LOGGER.debug("Enabling publisher confirms.");
+            channel.confirmSelect();
             result = true;
         } catch (IOException | TimeoutException ex) {
             LOGGER.error("Failed to initialize RabbitMQPublisher.", ex);
@@ -82,20 +87,60 @@ public class RabbitMQPublisher extends AbstractAuditPublisher {
     }
 
     @Override
-    public void publish(AuditEvent entry) {
+    public synchronized void publish(AuditEvent entry) {
         try {
-            LOGGER.debug("Publishing message to channel at exchange {} in category {}", exchangeName, entry.getCategory());
-            if (entry.getCategory() == null || !entry.getCategory().startsWith(exchangeName)) {
-                LOGGER.warn("Entry category '{}' does not match exchange topic '{}'. Message will probably be dropped.", entry.getCategory(), exchangeName);
-            }
-
-            channel.basicPublish(exchangeName, entry.getCategory(), null, entry.toJson().getBytes());
+            basicPublish(entry);
             LOGGER.debug("Published message to channel.");
         } catch (IOException ex) {
             LOGGER.error("Failed to publish audit event " + entry + " to RabbitMQ exchange.", ex);
         }
     }
 
+    /**
+     * Publish all provided events to the channel and wait until the broker
+     * has confirmed all of them or until the confirm timeout has elapsed.
+     * Waiting for confirms once per batch is much cheaper than waiting for
+     * each single message.
+     *
+     * @param entries The events to publish.
+     */
+    @Override
+    public synchronized void publish(List<AuditEvent> entries) {
+        LOGGER.debug("Publishing batch of {} message(s) to channel at exchange {}", entries.size(), exchangeName);
+        try {
+            for (AuditEvent entry : entries) {
+                basicPublish(entry);
+            }
+            if (!channel.waitForConfirms(confirmTimeout)) {
+                LOGGER.warn("Broker did not acknowledge all of {} published audit event(s).", entries.size());
+            }
+            LOGGER.debug("Published batch of {} message(s) to channel.", entries.size());
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to publish batch of " + entries.size() + " audit event(s) to RabbitMQ exchange.", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for confirmation of " + entries.size() + " audit event(s).", ex);
+        } catch (TimeoutException ex) {
+            throw new IllegalStateException("Timed out waiting for confirmation of " + entries.size() + " audit event(s).", ex);
+        }
+    }
+
+    /**
+     * Publish a single event to the channel without waiting for a
+     * confirmation.
+     *
+     * @param entry The event to publish.
+     *
+     * @throws IOException if publishing fails.
+     */
+    private void basicPublish(AuditEvent entry) throws IOException {
+        LOGGER.trace("Publishing message to channel at exchange {} in category {}", exchangeName, entry.getCategory());
+        if (entry.getCategory() == null || !entry.getCategory().startsWith(exchangeName)) {
+            LOGGER.warn("Entry category '{}' does not match exchange topic '{}'. Message will probably be dropped.", entry.getCategory(), exchangeName);
+        }
+        channel.basicPublish(exchangeName, entry.getCategory(), null, entry.toJson().getBytes("UTF-8"));
+    }
+
     @Override
     public boolean performCustomConfiguration(Configuration pConfig) throws ConfigurationException {
         LOGGER.debug("Configurung RabbitMQPublisher");
@@ -103,6 +148,8 @@ public class RabbitMQPublisher extends AbstractAuditPublisher {
         LOGGER.debug("Publisher hostname set to '{}'", hostname);
         exchangeName = pConfig.getString(EXCHANGE_NAME_KEY, "audit");
         LOGGER.debug("Publisher exchange name set to '{}'", exchangeName);
+        confirmTimeout = pConfig.getLong(CONFIRM_TIMEOUT_KEY, 5000);
+        LOGGER.debug("Publisher confirm timeout set to {} ms", confirmTimeout);
         return true;
     }
 
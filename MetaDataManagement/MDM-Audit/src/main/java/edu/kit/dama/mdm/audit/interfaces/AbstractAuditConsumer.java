@@ -34,6 +34,13 @@ public abstract class AbstractAuditConsumer implements IConfigurableAdapter {
 
     public abstract void consume(AuditEvent entry);
 
+    /**
+     * Release all resources held by this consumer. This method is called on
+     * shutdown. The default implementation does nothing.
+     */
+    public void destroy() {
+    }
+
     public abstract boolean performCustomConfiguration(Configuration config) throws ConfigurationException;
 
     @Override
@@ -18,6 +18,7 @@ package edu.kit.dama.mdm.audit.interfaces;
 import edu.kit.dama.commons.exceptions.ConfigurationException;
 import edu.kit.dama.commons.interfaces.IConfigurableAdapter;
 import edu.kit.dama.mdm.audit.types.AuditEvent;
+import java.util.List;
 import org.apache.commons.configuration.Configuration;
 
 /**
@@ -38,6 +39,20 @@ public abstract class AbstractAuditPublisher implements IConfigurableAdapter {
 
     public abstract void publish(AuditEvent entry);
 
+    /**
+     * Publish a batch of audit events. By default, all events are published
+     * one by one using {@link #publish(edu.kit.dama.mdm.audit.types.AuditEvent)}.
+     * Implementations supporting a more efficient way of publishing multiple
+     * events should overwrite this method.
+     *
+     * @param entries The events to publish.
+     */
+    public void publish(List<AuditEvent> entries) {
+        for (AuditEvent entry : entries) {
+            publish(entry);
+        }
+    }
+
     public abstract boolean performCustomConfiguration(Configuration config) throws ConfigurationException;
 
     @Override
@@ -118,6 +118,10 @@ public class RabbitMQInitializerListener implements ServletContextListener {
                 } catch (IOException ex) {
                 }
             }
+            Logger.getLogger("RabbitMQInitializerListener").log(Level.INFO, "Destroying audit consumers.");
+            for (AbstractAuditConsumer consumer : AuditManager.getInstance().getConsumers()) {
+                consumer.destroy();
+            }
         } else {
             Logger.getLogger("RabbitMQInitializerListener").log(Level.FINE, "Skipping destruction of unconfigured RabbitMQ consumer.");
         }
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.audit.util;
+
+import edu.kit.dama.mdm.audit.types.AuditEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded in-memory queue for audit events which are handed over in batches
+ * to a {@link BatchHandler} by a background thread. A batch is handed over as
+ * soon as it contains batchSize events or its first event has been waiting
+ * for maxLatency milliseconds. If the queue is full, newly offered events are
+ * handled according to the configured {@link OverflowPolicy}.
+ *
+ * The batcher keeps track of the number of processed, failed and dropped
+ * events as well as of the lag, which is the time between offering an event
+ * and handing over the batch containing it.
+ *
+ * @author jejkal
+ */
+public class AuditEventBatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuditEventBatcher.class);
+    /**
+     * Max. time in nanoseconds the worker waits for new events before
+     * checking whether the batcher was stopped.
+     */
+    private static final long POLL_SLICE = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Policy applied if an event is offered while the queue is full.
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * Block the caller until there is space in the queue.
+         */
+        BLOCK,
+        /**
+         * Drop the offered event.
+         */
+        DROP_NEWEST,
+        /**
+         * Drop the oldest queued event in favour of the offered one.
+         */
+        DROP_OLDEST
+    }
+
+    /**
+     * Handler receiving batches of audit events.
+     */
+    public interface BatchHandler {
+
+        /**
+         * Handle the provided batch of events. Exceptions thrown by this
+         * method are logged and all events of the batch are counted as
+         * failed. If only some events of the batch could not be handled, their
+         * number is returned instead and only these events are counted as
+         * failed.
+         *
+         * @param pEvents The events in the order they were offered.
+         *
+         * @return The number of events that could not be handled.
+         */
+        int handleBatch(List<AuditEvent> pEvents);
+    }
+
+    private final String name;
+    private final BatchHandler handler;
+    private final BlockingQueue<QueuedEvent> queue;
+    private final int batchSize;
+    private final long maxLatency;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong processed = new AtomicLong(0);
+    private final AtomicLong failed = new AtomicLong(0);
+    private final AtomicLong dropped = new AtomicLong(0);
+    private final AtomicLong batches = new AtomicLong(0);
+    private final AtomicLong lastLag = new AtomicLong(0);
+    private final AtomicLong maxLag = new AtomicLong(0);
+    private volatile boolean running = false;
+    private Thread worker = null;
+
+    /**
+     * Default constructor.
+     *
+     * @param pName The name used for logging and as worker thread name.
+     * @param pHandler The handler receiving the batches.
+     * @param pCapacity The max. number of queued events.
+     * @param pBatchSize The max. number of events per batch.
+     * @param pMaxLatency The max. time in milliseconds an event waits before
+     * its batch is handed over.
+     * @param pOverflowPolicy The policy applied if the queue is full. If no
+     * policy is provided, BLOCK is used in order not to lose any events.
+     */
+    public AuditEventBatcher(String pName, BatchHandler pHandler, int pCapacity, int pBatchSize, long pMaxLatency, OverflowPolicy pOverflowPolicy) {
+        if (pHandler == null) {
+            throw new IllegalArgumentException("Argument pHandler must not be null.");
+        }
+        name = pName;
+        handler = pHandler;
+        queue = new ArrayBlockingQueue<>(Math.max(1, pCapacity));
+        batchSize = Math.max(1, pBatchSize);
+        maxLatency = Math.max(0, pMaxLatency);
+        overflowPolicy = (pOverflowPolicy != null) ? pOverflowPolicy : OverflowPolicy.BLOCK;
+    }
+
+    /**
+     * Start the worker thread. Calling this method on a running batcher has no
+     * effect.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                processQueue();
+            }
+        }, name);
+        worker.setDaemon(true);
+        worker.start();
+        LOGGER.debug("Started audit event batcher '{}' with batch size {}, max. latency {} ms and overflow policy {}.", new Object[]{name, batchSize, maxLatency, overflowPolicy});
+    }
+
+    /**
+     * Stop accepting events and hand over all queued events. The method waits
+     * up to pTimeout milliseconds for the worker thread to finish. Events
+     * still queued afterwards are dropped.
+     *
+     * @param pTimeout The max. time to wait in milliseconds.
+     */
+    public void shutdown(long pTimeout) {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = worker;
+            worker = null;
+        }
+        if (current != null) {
+            try {
+                current.join(pTimeout);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (current.isAlive()) {
+                current.interrupt();
+            }
+        }
+        int remaining = queue.size();
+        if (remaining > 0) {
+            LOGGER.warn("Audit event batcher '{}' stopped with {} queued event(s). These events are dropped.", name, remaining);
+            queue.clear();
+            dropped.addAndGet(remaining);
+        }
+        LOGGER.debug("Audit event batcher '{}' stopped. Processed: {}, failed: {}, dropped: {}.", new Object[]{name, processed.get(), failed.get(), dropped.get()});
+    }
+
+    /**
+     * Offer an event to the queue. If the queue is full, the configured
+     * overflow policy is applied. If the batcher is not running, the event is
+     * dropped.
+     *
+     * @param pEvent The event.
+     *
+     * @return TRUE if the event was queued, FALSE if it was dropped.
+     */
+    public boolean offer(AuditEvent pEvent) {
+        if (!running) {
+            LOGGER.warn("Audit event batcher '{}' is not running. Dropping event {}.", name, pEvent);
+            dropped.incrementAndGet();
+            return false;
+        }
+        QueuedEvent queued = new QueuedEvent(pEvent);
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(queued);
+                    return true;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    dropped.incrementAndGet();
+                    return false;
+                }
+            case DROP_OLDEST:
+                while (!queue.offer(queued)) {
+                    QueuedEvent oldest = queue.poll();
+                    if (oldest != null) {
+                        dropped.incrementAndGet();
+                        LOGGER.warn("Audit event queue '{}' is full. Dropped oldest event {}.", name, oldest.event);
+                    }
+                }
+                return true;
+            default:
+                if (!queue.offer(queued)) {
+                    dropped.incrementAndGet();
+                    LOGGER.warn("Audit event queue '{}' is full. Dropped event {}.", name, pEvent);
+                    return false;
+                }
+                return true;
+        }
+    }
+
+    /**
+     * Worker loop collecting batches and handing them over to the handler.
+     * The loop ends as soon as the batcher was stopped and the queue is
+     * empty.
+     */
+    private void processQueue() {
+        List<QueuedEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = first.enqueued + TimeUnit.MILLISECONDS.toNanos(maxLatency);
+                while (batch.size() < batchSize) {
+                    long wait = deadline - System.nanoTime();
+                    //wait in slices in order to notice a shutdown in time
+                    QueuedEvent next = (wait > 0 && running) ? queue.poll(Math.min(wait, POLL_SLICE), TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next != null) {
+                        batch.add(next);
+                    } else if (wait <= 0 || !running) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                LOGGER.warn("Audit event batcher '" + name + "' interrupted.", ex);
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                handle(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Hand over the provided batch to the handler and update the metrics.
+     *
+     * @param pBatch The batch.
+     */
+    private void handle(List<QueuedEvent> pBatch) {
+        List<AuditEvent> events = new ArrayList<>(pBatch.size());
+        for (QueuedEvent queued : pBatch) {
+            events.add(queued.event);
+        }
+        long lag = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pBatch.get(0).enqueued);
+        lastLag.set(lag);
+        if (lag > maxLag.get()) {
+            maxLag.set(lag);
+        }
+        try {
+            int failedEvents = Math.min(Math.max(0, handler.handleBatch(events)), events.size());
+            processed.addAndGet(events.size() - failedEvents);
+            failed.addAndGet(failedEvents);
+        } catch (RuntimeException ex) {
+            LOGGER.error("Failed to handle batch of " + events.size() + " audit event(s) in batcher '" + name + "'.", ex);
+            failed.addAndGet(events.size());
+        }
+        batches.incrementAndGet();
+        LOGGER.trace("Batcher '{}' handled batch of {} event(s) with a lag of {} ms.", new Object[]{name, events.size(), lag});
+    }
+
+    /**
+     * Get the number of currently queued events.
+     *
+     * @return The queue depth.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Get the number of events successfully handed over to the handler.
+     *
+     * @return The number of processed events.
+     */
+    public long getProcessedCount() {
+        return processed.get();
+    }
+
+    /**
+     * Get the number of events for which the handler failed.
+     *
+     * @return The number of failed events.
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Get the number of events dropped due to overflow or shutdown.
+     *
+     * @return The number of dropped events.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Get the number of batches handed over to the handler.
+     *
+     * @return The number of batches.
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Get the lag of the last batch in milliseconds, which is the time the
+     * oldest event of the batch has been waiting.
+     *
+     * @return The lag of the last batch.
+     */
+    public long getLastLag() {
+        return lastLag.get();
+    }
+
+    /**
+     * Get the max. lag of all batches in milliseconds.
+     *
+     * @return The max. lag.
+     */
+    public long getMaxLag() {
+        return maxLag.get();
+    }
+
+    /**
+     * Queued event together with the time it was offered.
+     */
+    private static final class QueuedEvent {
+
+        private final AuditEvent event;
+        private final long enqueued;
+
+        /**
+         * Default constructor.
+         *
+         * @param pEvent The event.
+         */
+        QueuedEvent(AuditEvent pEvent) {
+            event = pEvent;
+            enqueued = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.audit.test;
+
+import edu.kit.dama.commons.exceptions.ConfigurationException;
+import edu.kit.dama.mdm.audit.impl.AsyncAuditPublisher;
+import edu.kit.dama.mdm.audit.interfaces.AbstractAuditPublisher;
+import edu.kit.dama.mdm.audit.types.AuditEvent;
+import edu.kit.dama.mdm.audit.util.AuditEventBatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for asynchronous, batched publishing of audit events. Instead of a
+ * message broker, a publisher recording all received batches is used.
+ *
+ * @author jejkal
+ */
+public class AsyncAuditPublisherTest {
+
+    private static List<AuditEvent> createEvents(int pCount) {
+        List<AuditEvent> events = new ArrayList<>();
+        for (int i = 0; i < pCount; i++) {
+            AuditEvent event = AuditEvent.factoryAuditEvent(AuditEvent.TYPE.CREATION, "test");
+            event.setPid("pid_" + i);
+            events.add(event);
+        }
+        return events;
+    }
+
+    @Test
+    public void testBatchingAndOrder() throws Exception {
+        RecordingPublisher delegate = new RecordingPublisher();
+        AsyncAuditPublisher publisher = new AsyncAuditPublisher(delegate, 1000, 100, 10000, AuditEventBatcher.OverflowPolicy.BLOCK);
+        publisher.initialize();
+        List<AuditEvent> events = createEvents(250);
+        for (AuditEvent event : events) {
+            publisher.publish(event);
+        }
+        //destroy hands over the remaining, incomplete batch
+        publisher.destroy();
+
+        Assert.assertTrue(delegate.destroyed);
+        Assert.assertEquals(events, delegate.getPublished());
+        Assert.assertEquals(3, delegate.batches.size());
+        Assert.assertEquals(100, delegate.batches.get(0).size());
+        Assert.assertEquals(100, delegate.batches.get(1).size());
+        Assert.assertEquals(50, delegate.batches.get(2).size());
+        Assert.assertEquals(250, publisher.getBatcher().getProcessedCount());
+        Assert.assertEquals(3, publisher.getBatcher().getBatchCount());
+        Assert.assertEquals(0, publisher.getBatcher().getDroppedCount());
+        Assert.assertEquals(0, publisher.getBatcher().getQueueDepth());
+    }
+
+    @Test
+    public void testMaxLatency() throws Exception {
+        RecordingPublisher delegate = new RecordingPublisher();
+        AsyncAuditPublisher publisher = new AsyncAuditPublisher(delegate, 1000, 100, 50, AuditEventBatcher.OverflowPolicy.BLOCK);
+        publisher.initialize();
+        try {
+            publisher.publish(createEvents(1).get(0));
+            //the single event is published after max. latency although the batch is not full
+            long end = System.currentTimeMillis() + 5000;
+            while (delegate.getPublished().isEmpty() && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(1, delegate.getPublished().size());
+            Assert.assertTrue(publisher.getBatcher().getLastLag() >= 50);
+        } finally {
+            publisher.destroy();
+        }
+    }
+
+    @Test
+    public void testOverflowDropNewest() throws Exception {
+        RecordingPublisher delegate = new RecordingPublisher();
+        AsyncAuditPublisher publisher = new AsyncAuditPublisher(delegate, 10, 1, 0, AuditEventBatcher.OverflowPolicy.DROP_NEWEST);
+        List<AuditEvent> events = fillBlockedPublisher(delegate, publisher);
+        //one event is blocked inside the publisher, ten are queued, the rest is dropped
+        Assert.assertEquals(9, publisher.getBatcher().getDroppedCount());
+        delegate.release.countDown();
+        publisher.destroy();
+        Assert.assertEquals(events.subList(0, 11), delegate.getPublished());
+    }
+
+    @Test
+    public void testOverflowDropOldest() throws Exception {
+        RecordingPublisher delegate = new RecordingPublisher();
+        AsyncAuditPublisher publisher = new AsyncAuditPublisher(delegate, 10, 1, 0, AuditEventBatcher.OverflowPolicy.DROP_OLDEST);
+        List<AuditEvent> events = fillBlockedPublisher(delegate, publisher);
+        Assert.assertEquals(9, publisher.getBatcher().getDroppedCount());
+        delegate.release.countDown();
+        publisher.destroy();
+        List<AuditEvent> expected = new ArrayList<>();
+        expected.add(events.get(0));
+        expected.addAll(events.subList(10, 20));
+        Assert.assertEquals(expected, delegate.getPublished());
+    }
+
+    /**
+     * Publish 20 events while the delegate is blocked after receiving the
+     * first one.
+     */
+    private List<AuditEvent> fillBlockedPublisher(RecordingPublisher pDelegate, AsyncAuditPublisher pPublisher) throws InterruptedException {
+        pDelegate.blocking = true;
+        pPublisher.initialize();
+        List<AuditEvent> events = createEvents(20);
+        pPublisher.publish(events.get(0));
+        Assert.assertTrue(pDelegate.blocked.await(5, TimeUnit.SECONDS));
+        for (AuditEvent event : events.subList(1, 20)) {
+            pPublisher.publish(event);
+        }
+        Assert.assertEquals(10, pPublisher.getBatcher().getQueueDepth());
+        return events;
+    }
+
+    /**
+     * Publisher recording all published batches. If blocking is enabled, the
+     * first batch blocks until the release latch is counted down.
+     */
+    private static final class RecordingPublisher extends AbstractAuditPublisher {
+
+        private final List<List<AuditEvent>> batches = Collections.synchronizedList(new ArrayList<List<AuditEvent>>());
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean blocking = false;
+        private volatile boolean destroyed = false;
+
+        @Override
+        public boolean initialize() {
+            return true;
+        }
+
+        @Override
+        public void destroy() {
+            destroyed = true;
+        }
+
+        @Override
+        public void publish(AuditEvent entry) {
+            publish(Collections.singletonList(entry));
+        }
+
+        @Override
+        public void publish(List<AuditEvent> pEvents) {
+            batches.add(new ArrayList<>(pEvents));
+            if (blocking) {
+                blocked.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        List<AuditEvent> getPublished() {
+            List<AuditEvent> result = new ArrayList<>();
+            synchronized (batches) {
+                for (List<AuditEvent> batch : batches) {
+                    result.addAll(batch);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public boolean performCustomConfiguration(Configuration config) throws ConfigurationException {
+            return true;
+        }
+    }
+}
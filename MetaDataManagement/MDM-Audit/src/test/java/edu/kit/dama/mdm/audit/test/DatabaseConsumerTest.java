@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.audit.test;
+
+import edu.kit.dama.mdm.audit.impl.DatabaseConsumer;
+import edu.kit.dama.mdm.audit.types.AuditEvent;
+import edu.kit.dama.mdm.audit.util.AuditEventBatcher;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for the batch fallback of the database consumer. Instead of a
+ * database, a consumer recording all persisted events is used. Persisting
+ * fails for all transactions containing an event with the pid 'invalid'.
+ *
+ * @author jejkal
+ */
+public class DatabaseConsumerTest {
+
+    private static AuditEvent createEvent(String pPid) {
+        AuditEvent event = AuditEvent.factoryAuditEvent(AuditEvent.TYPE.CREATION, "test");
+        event.setPid(pPid);
+        return event;
+    }
+
+    private static RecordingConsumer createConsumer(int pBatchSize) throws Exception {
+        BaseConfiguration config = new BaseConfiguration();
+        config.setProperty(DatabaseConsumer.BATCH_SIZE_KEY, pBatchSize);
+        config.setProperty(DatabaseConsumer.MAX_LATENCY_KEY, 10000);
+        RecordingConsumer consumer = new RecordingConsumer();
+        Assert.assertTrue(consumer.performCustomConfiguration(config));
+        return consumer;
+    }
+
+    @Test
+    public void testBatchIsPersistedInOneTransaction() throws Exception {
+        RecordingConsumer consumer = createConsumer(10);
+        for (int i = 0; i < 10; i++) {
+            consumer.consume(createEvent("pid_" + i));
+        }
+        AuditEventBatcher batcher = consumer.getBatcher();
+        consumer.destroy();
+        Assert.assertEquals(1, consumer.transactions);
+        Assert.assertEquals(10, consumer.persisted.size());
+        Assert.assertEquals(10, batcher.getProcessedCount());
+        Assert.assertEquals(0, batcher.getFailedCount());
+    }
+
+    @Test
+    public void testFailedBatchIsPersistedOneByOne() throws Exception {
+        RecordingConsumer consumer = createConsumer(5);
+        consumer.consume(createEvent("pid_0"));
+        consumer.consume(createEvent("pid_1"));
+        consumer.consume(createEvent("invalid"));
+        consumer.consume(createEvent("pid_3"));
+        consumer.consume(createEvent("pid_4"));
+        AuditEventBatcher batcher = consumer.getBatcher();
+        consumer.destroy();
+        //one failed batch transaction followed by one transaction per event
+        Assert.assertEquals(6, consumer.transactions);
+        Assert.assertEquals(4, consumer.persisted.size());
+        for (AuditEvent event : consumer.persisted) {
+            Assert.assertNotEquals("invalid", event.getPid());
+        }
+        //only the invalid event is counted as failed
+        Assert.assertEquals(4, batcher.getProcessedCount());
+        Assert.assertEquals(1, batcher.getFailedCount());
+        Assert.assertEquals(0, batcher.getDroppedCount());
+    }
+
+    /**
+     * Consumer recording persisted events instead of writing them to the
+     * database.
+     */
+    private static final class RecordingConsumer extends DatabaseConsumer {
+
+        private final List<AuditEvent> persisted = new ArrayList<>();
+        private int transactions = 0;
+
+        @Override
+        protected void persistEvents(List<AuditEvent> pEvents) {
+            transactions++;
+            for (AuditEvent event : pEvents) {
+                if ("invalid".equals(event.getPid())) {
+                    throw new IllegalStateException("Failed to persist event " + event.getPid());
+                }
+            }
+            persisted.addAll(pEvents);
+        }
+    }
+}
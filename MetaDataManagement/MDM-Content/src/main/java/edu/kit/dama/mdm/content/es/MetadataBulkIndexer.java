@@ -0,0 +1,215 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.content.es;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Helper collecting index requests and sending them as bulk requests to
+ * elasticsearch. A bulk request is sent as soon as it contains pMaxActions
+ * documents, its estimated size exceeds pMaxBytes or the first document added
+ * to it is older than pFlushInterval milliseconds. The flush interval is
+ * checked while adding documents and by a timer, so collected documents are
+ * also sent if no further documents are added. The outcome for each document
+ * is tracked using a reference object provided while adding the document,
+ * e.g. the associated indexing task. After calling {@link #close()} the lists
+ * of indexed and failed references can be obtained.
+ *
+ * The indexer is intended to be used by one indexing run at a time. Access to
+ * the current bulk request is synchronized, as the timer flushes from a
+ * separate thread.
+ *
+ * @param <T> The type of the reference object.
+ *
+ * @author jejkal
+ */
+public class MetadataBulkIndexer<T> implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetadataBulkIndexer.class);
+
+    private final Client client;
+    private final int maxActions;
+    private final long maxBytes;
+    private final long flushInterval;
+    private BulkRequestBuilder currentRequest = null;
+    private final List<T> currentReferences = new ArrayList<>();
+    private long firstActionTimestamp = 0;
+    private final List<T> indexed = new ArrayList<>();
+    private final Map<T, String> failed = new LinkedHashMap<>();
+    private Timer flushTimer = null;
+    private boolean closed = false;
+
+    /**
+     * Default constructor.
+     *
+     * @param pClient The client used to send bulk requests. The client is not
+     * closed by the indexer.
+     * @param pMaxActions The max. number of documents per bulk request.
+     * @param pMaxBytes The max. estimated size of a bulk request in bytes.
+     * @param pFlushInterval The max. time in milliseconds a document is
+     * collected before the bulk request is sent. If the interval is larger
+     * than 0 and smaller than Long.MAX_VALUE, a timer is started checking the
+     * interval until the indexer is closed.
+     */
+    public MetadataBulkIndexer(Client pClient, int pMaxActions, long pMaxBytes, long pFlushInterval) {
+        if (pClient == null) {
+            throw new IllegalArgumentException("Argument pClient must not be null.");
+        }
+        client = pClient;
+        maxActions = Math.max(1, pMaxActions);
+        maxBytes = Math.max(1, pMaxBytes);
+        flushInterval = pFlushInterval;
+        if (flushInterval > 0 && flushInterval < Long.MAX_VALUE) {
+            flushTimer = new Timer("MetadataBulkIndexerFlush", true);
+            flushTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    flushIfExpired();
+                }
+            }, flushInterval, flushInterval);
+        }
+    }
+
+    /**
+     * Add a document to the current bulk request. If one of the flush
+     * thresholds is reached afterwards, the bulk request is sent.
+     *
+     * @param pIndex The index the document is written to.
+     * @param pType The document type.
+     * @param pId The document id.
+     * @param pJson The document as JSON string.
+     * @param pReference The reference object associated with the document.
+     */
+    public synchronized void add(String pIndex, String pType, String pId, String pJson, T pReference) {
+        if (closed) {
+            throw new IllegalStateException("Indexer has already been closed.");
+        }
+        if (currentRequest == null) {
+            currentRequest = client.prepareBulk();
+            firstActionTimestamp = System.currentTimeMillis();
+        }
+        currentRequest.add(client.prepareIndex(pIndex, pType, pId).setSource(pJson));
+        currentReferences.add(pReference);
+
+        if (currentRequest.numberOfActions() >= maxActions
+                || currentRequest.request().estimatedSizeInBytes() >= maxBytes
+                || System.currentTimeMillis() - firstActionTimestamp >= flushInterval) {
+            flush();
+        }
+    }
+
+    /**
+     * Send the current bulk request if its first document is older than the
+     * flush interval. This method is called periodically by the flush timer.
+     */
+    synchronized void flushIfExpired() {
+        if (currentRequest != null && System.currentTimeMillis() - firstActionTimestamp >= flushInterval) {
+            LOGGER.debug("Flush interval of {} ms expired.", flushInterval);
+            flush();
+        }
+    }
+
+    /**
+     * Send the current bulk request if it contains any documents.
+     */
+    public synchronized void flush() {
+        if (currentRequest == null) {
+            return;
+        }
+        BulkRequestBuilder request = currentRequest;
+        List<T> references = new ArrayList<>(currentReferences);
+        currentRequest = null;
+        currentReferences.clear();
+
+        LOGGER.debug("Sending bulk request with {} document(s) and an estimated size of {} bytes.", request.numberOfActions(), request.request().estimatedSizeInBytes());
+        BulkResponse response;
+        try {
+            response = request.execute().actionGet();
+        } catch (RuntimeException ex) {
+            LOGGER.error("Failed to send bulk request with " + references.size() + " document(s).", ex);
+            for (T reference : references) {
+                failed.put(reference, ex.getMessage());
+            }
+            return;
+        }
+
+        for (BulkItemResponse item : response.getItems()) {
+            T reference = references.get(item.getItemId());
+            if (item.isFailed()) {
+                LOGGER.error("Failed to index document with id {}. Message: {}", item.getId(), item.getFailureMessage());
+                failed.put(reference, item.getFailureMessage());
+            } else {
+                indexed.add(reference);
+            }
+        }
+        LOGGER.debug("Bulk request finished in {} ms. {} document(s) indexed so far, {} failed.", new Object[]{response.getTookInMillis(), indexed.size(), failed.size()});
+    }
+
+    /**
+     * Get the references of all successfully indexed documents.
+     *
+     * @return The references of all indexed documents.
+     */
+    public synchronized List<T> getIndexed() {
+        return Collections.unmodifiableList(new ArrayList<>(indexed));
+    }
+
+    /**
+     * Get the references of all documents that could not be indexed, mapped to
+     * the according error message.
+     *
+     * @return The references of all failed documents.
+     */
+    public synchronized Map<T, String> getFailed() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(failed));
+    }
+
+    /**
+     * Get the number of documents collected but not sent yet.
+     *
+     * @return The number of pending documents.
+     */
+    public synchronized int getPendingCount() {
+        return currentReferences.size();
+    }
+
+    /**
+     * Stop the flush timer and send the remaining documents. The client is
+     * not closed. Afterwards, no further documents can be added.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (flushTimer != null) {
+            flushTimer.cancel();
+            flushTimer = null;
+        }
+        flush();
+    }
+}
@@ -29,20 +29,19 @@ import edu.kit.dama.mdm.base.MetaDataSchema;
 import edu.kit.dama.mdm.content.MetadataIndexingTask;
 import edu.kit.dama.mdm.content.util.ElasticHelper;
 import edu.kit.dama.util.Constants;
+import edu.kit.dama.util.DataManagerSettings;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import org.apache.commons.lang.time.DateUtils;
-import org.elasticsearch.action.index.IndexResponse;
-import org.elasticsearch.client.transport.TransportClient;
 //import org.elasticsearch.common.settings.ImmutableSettings;
-import org.elasticsearch.rest.RestStatus;
 import org.json.XML;
 import org.slf4j.LoggerFactory;
 
@@ -57,6 +56,10 @@ public final class MetadataIndexingHelper {
     private static String hostname = "localhost";
     private static int port = 9300;
     private final static MetadataIndexingHelper singleton = new MetadataIndexingHelper();
+    /**
+     * The max. number of tasks updated by one status update statement.
+     */
+    private final static int STATUS_UPDATE_CHUNK_SIZE = 500;
 
     /**
      * Default constructor.
@@ -219,9 +222,17 @@ public final class MetadataIndexingHelper {
      * <li>For each task:
      * <ul><li>Check the metadata document for avail- and accessibility.</li>
      * <li>Transform the XML document to json.</li>
-     * <li>Publish the document to the index named pIndex.</li>
-     * <li>Update to task entry in the database according to the result.</li>
+     * <li>Add the document to a bulk request for the index named pIndex.</li>
      * </ul>
+     * <li>Send the bulk request(s) using a shared transport client. A bulk
+     * request is sent as soon as one of the thresholds
+     * {@link DataManagerSettings#ELASTIC_SEARCH_BULK_ACTIONS_ID},
+     * {@link DataManagerSettings#ELASTIC_SEARCH_BULK_SIZE_ID} or
+     * {@link DataManagerSettings#ELASTIC_SEARCH_BULK_FLUSH_INTERVAL_ID} is
+     * reached.</li>
+     * <li>Update the task entries in the database according to the result
+     * using one update statement for all finished and one for all failed
+     * tasks.</li>
      * </ul>
      *
      * @param pCluster The name of cluster the documents will be written to.
@@ -242,105 +253,154 @@ public final class MetadataIndexingHelper {
         GroupId group = (pGroupId != null) ? pGroupId : new GroupId(Constants.USERS_GROUP_ID);
         LOGGER.info("Perform indexing of items of group '{}' to cluster '{}' and index '{}'", group, pCluster, pIndex);
         List<MetadataIndexingTask> tasks = getTasksToSchedule(group, pMaxNumberOfTasks, pContext);
-        int errors = 0;
-        IMetaDataManager mdm = MetaDataManagement.getMetaDataManagement().getMetaDataManager();
-        mdm.setAuthorizationContext(pContext);
+        if (tasks.isEmpty()) {
+            LOGGER.debug("No indexing tasks scheduled for group '{}'.", group);
+            return true;
+        }
+
+        int bulkActions = DataManagerSettings.getSingleton().getIntProperty(DataManagerSettings.ELASTIC_SEARCH_BULK_ACTIONS_ID, 500);
+        long bulkSize = DataManagerSettings.getSingleton().getLongProperty(DataManagerSettings.ELASTIC_SEARCH_BULK_SIZE_ID, 5 * 1024 * 1024);
+        long flushInterval = DataManagerSettings.getSingleton().getLongProperty(DataManagerSettings.ELASTIC_SEARCH_BULK_FLUSH_INTERVAL_ID, 5000);
+        LOGGER.debug("Sending bulk requests with max. {} documents, {} bytes or {} ms.", new Object[]{bulkActions, bulkSize, flushInterval});
+        MetadataBulkIndexer<MetadataIndexingTask> indexer = new MetadataBulkIndexer<>(ElasticHelper.getSharedTransportClient(getHostname(), getPort(), pCluster), bulkActions, bulkSize, flushInterval);
+        List<MetadataIndexingTask> failedTasks = new ArrayList<>();
+
         try {
-            for (MetadataIndexingTask task : tasks) {
-                LOGGER.debug("Perform indexing task #{}.", task.getId());
-                String documentUrl = task.getMetadataDocumentUrl();
-                AbstractFile documentFile = null;
-                boolean isError = false;
-                LOGGER.debug(" * Checking document URL {}.", documentUrl);
-                try {
-                    documentFile = new AbstractFile(new URL(documentUrl));
-                    if (!documentFile.exists() || !documentFile.isLocal()) {
-                        LOGGER.error("Metadata document {} of indexing task #{} does either not exist or is not locally accessible. Indexing skipped.", documentUrl, task.getId());
-                        isError = true;
-                    }
-                } catch (MalformedURLException ex) {
-                    LOGGER.error("Metadata document " + documentUrl + " of indexing task #" + task.getId() + " is invalid. Indexing skipped.", ex);
-                    isError = true;
-                } catch (AdalapiException ex) {
-                    LOGGER.error("Failed to check metadata document " + documentUrl + " of indexing task #" + task.getId() + ". Indexing skipped.", ex);
-                    isError = true;
-                }
+            addDocuments(tasks, pIndex, indexer, failedTasks);
+        } finally {
+            LOGGER.debug("Sending remaining {} document(s).", indexer.getPendingCount());
+            indexer.close();
+        }
+        failedTasks.addAll(indexer.getFailed().keySet());
 
-                if (!isError && documentFile != null) {
-                    try {
-                        LOGGER.debug(" * Obtaining JSON data.");
-                        String jsonString = convertDocumentToJSON(documentFile.getUrl().toURI());
-                        LOGGER.debug(" * Trying to index JSON data.");
-                        indexJson(task, jsonString, pCluster, pIndex);
-                        LOGGER.debug(" * JSON data successfully indexed. Setting finished timestamp for task # {} to NOW.", task.getId());
-                        task.setFinishTimestamp(System.currentTimeMillis());
-                        LOGGER.debug(" * Indexing finished and task entity updated successfully.");
-                    } catch (URISyntaxException ex) {
-                        LOGGER.error("Failed to create URI from document URL " + task.getMetadataDocumentUrl() + ".", ex);
-                        isError = true;
-                    } catch (IOException ex) {
-                        LOGGER.error("Failed to read document from document URL " + task.getMetadataDocumentUrl() + ".", ex);
-                        isError = true;
-                    } catch (Throwable t) {
-                        LOGGER.error("Unknown error while indexing file " + task.getMetadataDocumentUrl() + ".", t);
-                        isError = true;
-                    }
-                }
+        int errors = failedTasks.size();
+        if (!updateTaskStatus(indexer.getIndexed(), failedTasks, pContext)) {
+            errors++;
+        }
 
-                if (isError) {
-                    LOGGER.info("Setting lastError timestamp for task #{} to NOW and increasing the fail count.", task.getId());
-                    task.setLastErrorTimestamp(System.currentTimeMillis());
-                    task.setFailCount(task.getFailCount() + 1);
-                    errors++;
+        LOGGER.info("Finished indexing of {} items of group '{}' to cluster '{}' and index '{}'. {} item(s) failed.", new Object[]{tasks.size(), group, pCluster, pIndex, failedTasks.size()});
+        //return TRUE only if no errors occured
+        return (errors == 0);
+    }
+
+    /**
+     * Check the metadata documents of the provided tasks and add them to the
+     * provided bulk indexer. Tasks whose document cannot be read are added to
+     * pFailedTasks.
+     *
+     * @param pTasks The tasks to index.
+     * @param pIndex The name of index the documents will be written to.
+     * @param pIndexer The bulk indexer.
+     * @param pFailedTasks The list receiving all failed tasks.
+     */
+    private void addDocuments(List<MetadataIndexingTask> pTasks, String pIndex, MetadataBulkIndexer<MetadataIndexingTask> pIndexer, List<MetadataIndexingTask> pFailedTasks) {
+        for (MetadataIndexingTask task : pTasks) {
+            LOGGER.debug("Perform indexing task #{}.", task.getId());
+            String documentUrl = task.getMetadataDocumentUrl();
+            AbstractFile documentFile = null;
+            boolean isError = false;
+            LOGGER.debug(" * Checking document URL {}.", documentUrl);
+            try {
+                documentFile = new AbstractFile(new URL(documentUrl));
+                if (!documentFile.exists() || !documentFile.isLocal()) {
+                    LOGGER.error("Metadata document {} of indexing task #{} does either not exist or is not locally accessible. Indexing skipped.", documentUrl, task.getId());
+                    isError = true;
                 }
+            } catch (MalformedURLException ex) {
+                LOGGER.error("Metadata document " + documentUrl + " of indexing task #" + task.getId() + " is invalid. Indexing skipped.", ex);
+                isError = true;
+            } catch (AdalapiException ex) {
+                LOGGER.error("Failed to check metadata document " + documentUrl + " of indexing task #" + task.getId() + ". Indexing skipped.", ex);
+                isError = true;
+            }
 
-                LOGGER.debug("Trying to save updated task #{}.", task.getId());
+            if (!isError && documentFile != null) {
                 try {
-                    mdm.save(task);
-                } catch (UnauthorizedAccessAttemptException ex) {
-                    LOGGER.error("Failed to save updated task #" + task.getId() + ".", ex);
-                    errors++;
+                    LOGGER.debug(" * Obtaining JSON data.");
+                    String jsonString = convertDocumentToJSON(documentFile.getUrl().toURI());
+                    LOGGER.debug(" * Adding JSON data to bulk request.");
+                    String schemaId = task.getSchemaReference().getSchemaIdentifier();
+                    pIndexer.add(pIndex, schemaId, task.getDigitalObjectId() + "_" + schemaId, jsonString, task);
+                } catch (URISyntaxException ex) {
+                    LOGGER.error("Failed to create URI from document URL " + task.getMetadataDocumentUrl() + ".", ex);
+                    isError = true;
+                } catch (IOException ex) {
+                    LOGGER.error("Failed to read document from document URL " + task.getMetadataDocumentUrl() + ".", ex);
+                    isError = true;
+                } catch (Throwable t) {
+                    LOGGER.error("Unknown error while indexing file " + task.getMetadataDocumentUrl() + ".", t);
+                    isError = true;
                 }
             }
+
+            if (isError) {
+                pFailedTasks.add(task);
+            }
+        }
+    }
+
+    /**
+     * Update the status of the provided indexing tasks. The finish timestamp
+     * of all tasks in pFinished is set to NOW. For all tasks in pFailed the
+     * lastError timestamp is set to NOW and the fail count is increased. The
+     * updates are performed as bulk updates of max. STATUS_UPDATE_CHUNK_SIZE
+     * tasks each.
+     *
+     * @param pFinished The successfully finished tasks.
+     * @param pFailed The failed tasks.
+     * @param pContext The authorization context used to authorize database
+     * access.
+     *
+     * @return TRUE if all updates succeeded.
+     */
+    private boolean updateTaskStatus(List<MetadataIndexingTask> pFinished, List<MetadataIndexingTask> pFailed, IAuthorizationContext pContext) {
+        long now = System.currentTimeMillis();
+        boolean result = true;
+        IMetaDataManager mdm = MetaDataManagement.getMetaDataManagement().getMetaDataManager();
+        mdm.setAuthorizationContext(pContext);
+        try {
+            LOGGER.debug("Setting finished timestamp for {} task(s) to NOW.", pFinished.size());
+            result &= performStatusUpdate(mdm, "UPDATE MetadataIndexingTask t SET t.finishTimestamp = ?1 WHERE t.id IN ?2", now, pFinished, STATUS_UPDATE_CHUNK_SIZE);
+            LOGGER.debug("Setting lastError timestamp for {} task(s) to NOW and increasing the fail count.", pFailed.size());
+            result &= performStatusUpdate(mdm, "UPDATE MetadataIndexingTask t SET t.lastErrorTimestamp = ?1, t.failCount = t.failCount + 1 WHERE t.id IN ?2", now, pFailed, STATUS_UPDATE_CHUNK_SIZE);
         } finally {
             mdm.close();
         }
-
-        LOGGER.info("Finished indexing of {} items of group '{}' to cluster '{}' and index '{}'", tasks.size(), group, pCluster, pIndex);
-        //return TRUE only if no errors occured
-        return (errors == 0);
+        return result;
     }
 
     /**
-     * Write the provided JSON document into the index. This operation is
-     * associated with the provided MetadataIndexingTask and the document will
-     * be written to the index with the provided name. As document type the
-     * unique identifier of the schema defined in pTask will be used. The unique
-     * identifier of the document itself will be the digital object id (which is
-     * part of pTask) extended by an underscore and the identifier of the
-     * metadata schema, e.g. 1234-5678-abcd-efgh_dc for the object with the id
-     * "1234-5678-abcd-efgh" and the Dublin Core schema with the identifier
-     * "dc".
+     * Perform the provided update query for the provided tasks. The query
+     * must contain two parameters, the timestamp (?1) and the list of task
+     * ids (?2). The query is executed once per chunk of max. pChunkSize tasks.
      *
-     * @param pTask The index task used to obtain document ids.
-     * @param pJson The JSON representation of the document which belongs to
-     * task pTask.
-     * @param pCluster The cluster into which pJson will be written.
-     * @param pIndexName The index into which pJson will be written.
+     * @param pMdm The metadata manager used to perform the update.
+     * @param pQuery The update query.
+     * @param pTimestamp The timestamp value.
+     * @param pTasks The tasks to update.
+     * @param pChunkSize The max. number of task ids per update.
+     *
+     * @return TRUE if all updates succeeded.
      */
-    private void indexJson(MetadataIndexingTask pTask, String pJson, String pCluster, String pIndexName) {
-        LOGGER.debug("Intitializing transport client..");
-        IndexResponse response;
-        try (TransportClient client = ElasticHelper.getTransportClient(getHostname(), getPort(), pCluster)) {
-            LOGGER.debug("Indexing document...");
-            response = client.prepareIndex(pIndexName,
-                    pTask.getSchemaReference().getSchemaIdentifier(),
-                    pTask.getDigitalObjectId() + "_" + pTask.getSchemaReference().getSchemaIdentifier()).
-                    setSource(pJson)
-                    .execute()
-                    .actionGet();
+    static boolean performStatusUpdate(IMetaDataManager pMdm, String pQuery, long pTimestamp, List<MetadataIndexingTask> pTasks, int pChunkSize) {
+        boolean result = true;
+        for (int i = 0; i < pTasks.size(); i += pChunkSize) {
+            List<Long> ids = new ArrayList<>();
+            for (MetadataIndexingTask task : pTasks.subList(i, Math.min(pTasks.size(), i + pChunkSize))) {
+                ids.add(task.getId());
+            }
+            try {
+                Integer updated = pMdm.performUpdate(pQuery, new Object[]{pTimestamp, ids});
+                if (updated == null || updated != ids.size()) {
+                    LOGGER.error("Failed to update status of tasks {}. Updated {} of {} task(s).", new Object[]{ids, updated, ids.size()});
+                    result = false;
+                }
+            } catch (UnauthorizedAccessAttemptException ex) {
+                LOGGER.error("Failed to update status of tasks " + ids + ".", ex);
+                result = false;
+            }
         }
-        LOGGER.debug("Document with id {} was {}. Current document version: {}", response.getId(), (response.status().equals(RestStatus.CREATED)) ? "created" : "updated", response.getVersion());
+        return result;
     }
 
     /**
@@ -354,12 +414,8 @@ public final class MetadataIndexingHelper {
      * @return The JSON representation of the content of pDocumentURI.
      */
     private String convertDocumentToJSON(URI pDocumentURI) throws IOException {
-        File f = new File(pDocumentURI);
-        byte[] b = new byte[(int) f.length()];
-        try (FileInputStream fin = new FileInputStream(f)) {
-            fin.read(b);
-        }
-        return XML.toJSONObject(new String(b)).toString();
+        byte[] b = Files.readAllBytes(new File(pDocumentURI).toPath());
+        return XML.toJSONObject(new String(b, "UTF-8")).toString();
     }
 
     /**
@@ -39,7 +39,7 @@ import edu.kit.dama.mdm.dataorganization.entity.core.ICollectionNode;
 import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
 import edu.kit.dama.mdm.dataorganization.entity.core.IFileNode;
 import edu.kit.dama.mdm.dataorganization.entity.core.IFileTree;
-import edu.kit.dama.mdm.dataorganization.impl.util.Util;
+import edu.kit.dama.mdm.dataorganization.impl.util.FileTreeSerializer;
 import edu.kit.dama.mdm.dataorganization.service.core.DataOrganizer;
 import edu.kit.dama.mdm.dataorganization.service.core.DataOrganizerFactory;
 import edu.kit.dama.util.DataManagerSettings;
@@ -60,6 +60,7 @@ import javax.xml.bind.Marshaller;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.dom.DOMResult;
 import org.eclipse.persistence.jaxb.MarshallerProperties;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -712,7 +713,8 @@ public class MetsBuilder {
    * Create the data organization document for the administrative metadata
    * section. The provided objectNodeResolver allows to resolve the contained
    * data organization node's LFNs to publicly accessible URLs. If no resolver
-   * is provided, the internally stored LFNs are used.
+   * is provided, the internally stored LFNs are used. The views are written
+   * directly into the document one after another.
    *
    * @param objectNodeResolver Resolver function or null.
    *
@@ -721,7 +723,11 @@ public class MetsBuilder {
    * @throws Exception If anything goes wrong.
    */
   public Document createDataOrganizationDocument(Function<IDataOrganizationNode, String> objectNodeResolver) throws Exception {
-    return Util.dataOrganizationToXml(theObject.getDigitalObjectId(), objectNodeResolver);
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    Document doc = factory.newDocumentBuilder().newDocument();
+    FileTreeSerializer.writeDataOrganizationXml(theObject.getDigitalObjectId(), new DOMResult(doc), objectNodeResolver);
+    return doc;
     /*IFileTree ttree = DataOrganizationUtils.createTreeFromFile("1234-abcd-efgh-5678", new AbstractFile(new java.io.File("/Users/jejkal/NetBeansProjects/KITDM/trunk/Utils/src/main/java/edu/kit/dama/util/jaxb")), true);
         ttree.setViewName("default");
         return Util.fileTreeToXml(ttree);*/
@@ -44,14 +44,12 @@ import org.openarchives.oai._2.OAIPMHerrorcodeType;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 import edu.kit.dama.mdm.content.oaipmh.AbstractOAIPMHRepository;
+import edu.kit.dama.mdm.content.oaipmh.util.OAIPMHResumptionToken;
 import edu.kit.dama.util.Constants;
-import java.io.UnsupportedEncodingException;
-import java.math.BigInteger;
-import java.net.URLDecoder;
-import java.net.URLEncoder;
-import java.util.Base64;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
 import org.apache.commons.collections.CollectionUtils;
-import org.openarchives.oai._2.ResumptionTokenType;
 import org.slf4j.LoggerFactory;
 
 /**
@@ -221,19 +219,25 @@ public class SimpleOAIPMHRepository extends AbstractOAIPMHRepository {
     @Override
     public void listIdentifiers(OAIPMHBuilder builder) {
         LOGGER.debug("Performing listIdentifiers().");
-        List<DigitalObject> results = getEntities(builder);
-        if (results.isEmpty()) {
-            if (!builder.isError()) {
-                LOGGER.error("No results obtained. Returning OAI-PMH error NO_RECORDS_MATCH.");
-                builder.addError(OAIPMHerrorcodeType.NO_RECORDS_MATCH, null);
+        IMetaDataManager mdm = MetaDataManagement.getMetaDataManagement().getMetaDataManager();
+        mdm.setAuthorizationContext(getAuthorizationContext());
+        try {
+            List<DigitalObject> results = getEntities(builder, mdm);
+            if (results.isEmpty()) {
+                if (!builder.isError()) {
+                    LOGGER.error("No results obtained. Returning OAI-PMH error NO_RECORDS_MATCH.");
+                    builder.addError(OAIPMHerrorcodeType.NO_RECORDS_MATCH, null);
+                }
+                return;
             }
-            return;
-        }
 
-        LOGGER.debug("Adding {} records to result.", results.size());
-        results.stream().forEach((result) -> {
-            builder.addRecord(result.getDigitalObjectIdentifier(), (result.getUploadDate() != null) ? result.getUploadDate() : new Date(0l), Arrays.asList("default"));
-        });
+            LOGGER.debug("Adding {} records to result.", results.size());
+            results.stream().forEach((result) -> {
+                builder.addRecord(result.getDigitalObjectIdentifier(), (result.getUploadDate() != null) ? result.getUploadDate() : new Date(0l), Arrays.asList("default"));
+            });
+        } finally {
+            mdm.close();
+        }
     }
 
     @Override
@@ -247,7 +251,8 @@ public class SimpleOAIPMHRepository extends AbstractOAIPMHRepository {
             DigitalObject result = mdm.findSingleResult("SELECT o FROM DigitalObject o WHERE o.digitalObjectIdentifier=?1", new Object[]{builder.getIdentifier()}, DigitalObject.class);
             if (result != null) {
                 LOGGER.debug("Adding single record to result.");
-                addRecordEntry(result, builder);
+                List<DigitalObject> results = Arrays.asList(result);
+                addRecordEntries(results, getMetadataDocumentUrls(results, builder.getMetadataPrefix(), mdm), builder);
             } else {
                 LOGGER.error("No result obtained. Returning OAI-PMH error ID_DOES_NOT_EXIST.");
                 builder.addError(OAIPMHerrorcodeType.ID_DOES_NOT_EXIST, "No object for identifier " + builder.getIdentifier() + " found.");
@@ -264,50 +269,78 @@ public class SimpleOAIPMHRepository extends AbstractOAIPMHRepository {
     @Override
     public void listRecords(OAIPMHBuilder builder) {
         LOGGER.debug("Performing listRecords().");
-        List<DigitalObject> results = getEntities(builder);
-        if (results.isEmpty()) {
-            if (!builder.isError()) {
-                LOGGER.error("No results obtained. Returning OAI-PMH error NO_RECORDS_MATCH.");
-                builder.addError(OAIPMHerrorcodeType.NO_RECORDS_MATCH, null);
+        IMetaDataManager mdm = MetaDataManagement.getMetaDataManagement().getMetaDataManager();
+        mdm.setAuthorizationContext(getAuthorizationContext());
+        try {
+            List<DigitalObject> results = getEntities(builder, mdm);
+            if (results.isEmpty()) {
+                if (!builder.isError()) {
+                    LOGGER.error("No results obtained. Returning OAI-PMH error NO_RECORDS_MATCH.");
+                    builder.addError(OAIPMHerrorcodeType.NO_RECORDS_MATCH, null);
+                }
+                return;
             }
-            return;
+            LOGGER.debug("Adding {} records to result.", results.size());
+            addRecordEntries(results, getMetadataDocumentUrls(results, builder.getMetadataPrefix(), mdm), builder);
+        } finally {
+            mdm.close();
         }
-        LOGGER.debug("Adding {} records to result.", results.size());
-        results.stream().forEach((result) -> {
-            addRecordEntry(result, builder);
+    }
+
+    /**
+     * Get the URLs of the metadata documents for the provided objects and
+     * schema id. The URLs are read from the entries fitting the
+     * object-schemaId-combination in the MetadataIndexingTask table using one
+     * query for all objects.
+     *
+     * @param objects The objects to obtain the metadata document URLs for.
+     * @param schemaId The id of the metadata schema.
+     * @param mdm The metadata manager used to query the MetadataIndexingTask
+     * table.
+     *
+     * @return A map of object identifiers and metadata document URLs. Objects
+     * without metadata document are not contained.
+     */
+    private Map<String, String> getMetadataDocumentUrls(List<DigitalObject> objects, String schemaId, IMetaDataManager mdm) {
+        Map<String, String> urls = new HashMap<>();
+        List<String> objectIds = new ArrayList<>(objects.size());
+        objects.stream().forEach((object) -> {
+            objectIds.add(object.getDigitalObjectIdentifier());
         });
+        LOGGER.debug("Obtaining metadata document URLs for schema {} and {} object(s).", schemaId, objectIds.size());
+        try {
+            List<Object[]> entries = mdm.findResultList("SELECT t.digitalObjectId, t.metadataDocumentUrl FROM MetadataIndexingTask t WHERE t.schemaReference.schemaIdentifier=?1 AND t.digitalObjectId IN ?2", new Object[]{schemaId, objectIds}, Object[].class);
+            for (Object[] entry : entries) {
+                urls.put((String) entry[0], (String) entry[1]);
+            }
+            LOGGER.debug("Obtained {} metadata document URL(s).", urls.size());
+        } catch (UnauthorizedAccessAttemptException ex) {
+            LOGGER.error("Failed to obtain metadata document URLs for schema " + schemaId + ".", ex);
+        }
+        return urls;
     }
 
     /**
      * Get the metadata document for the provided object and schema id. The
-     * metadata document is loaded from the URL read from the entry fitting the
-     * object-schemaId-combination in the MetadataIndexingTask table. If no
-     * entry was found, it is checked whether DublinCore metadata is requested
-     * by the schemaId 'dc'. If this is the case, DublinCore metadata is
-     * generated on the fly.
+     * metadata document is loaded from the provided URL, which was read from
+     * the entry fitting the object-schemaId-combination in the
+     * MetadataIndexingTask table. If no URL is provided, it is checked whether
+     * DublinCore metadata is requested by the schemaId 'dc'. If this is the
+     * case, DublinCore metadata is generated on the fly.
      *
      * Otherwise, null is returned and must be handled by the caller with an
      * according OAI-PMH error.
      *
      * @param object The object to obtain the metadata document for.
      * @param schemaId The id of the metadata schema.
+     * @param metadataDocument The URL of the metadata document or null.
+     * @param docBuilder The document builder used to parse the metadata
+     * document.
      *
      * @return The metadata document or null.
      */
-    private Document getMetadataDocument(DigitalObject object, String schemaId) {
+    private Document getMetadataDocument(DigitalObject object, String schemaId, String metadataDocument, DocumentBuilder docBuilder) {
         LOGGER.debug("Obtaining metadata document for schema {} and object identifier {}", schemaId, object.getDigitalObjectIdentifier());
-        IMetaDataManager mdm = MetaDataManagement.getMetaDataManagement().getMetaDataManager();
-        mdm.setAuthorizationContext(getAuthorizationContext());
-        String metadataDocument = null;
-        try {
-            //try to obtain metadata document for prefix and object
-            metadataDocument = mdm.findSingleResult("SELECT t.metadataDocumentUrl FROM MetadataIndexingTask t WHERE t.digitalObjectId=?1 AND t.schemaReference.schemaIdentifier=?2", new Object[]{object.getDigitalObjectIdentifier(), schemaId}, String.class);
-            LOGGER.debug("Metadata document should be located at URL {}", metadataDocument);
-        } catch (UnauthorizedAccessAttemptException ex) {
-            //error
-        } finally {
-            mdm.close();
-        }
         //try to load metadata
         try {
             if (metadataDocument == null && DC_SCHEMA.getSchemaIdentifier().equals(schemaId)) {
@@ -315,12 +348,10 @@ public class SimpleOAIPMHRepository extends AbstractOAIPMHRepository {
                 LOGGER.info("No metadata document found for object identifier {}. Creating Dublin Core document on the fly.", object.getDigitalObjectIdentifier());
                 return DublinCoreHelper.createDublinCoreDocument(object, object.getUploader());
             } else if (metadataDocument != null) {
-                LOGGER.debug("Metadata document found. Parsing content.");
-                DocumentBuilderFactory fac = DocumentBuilderFactory.newInstance();
-                fac.setNamespaceAware(true);
-                DocumentBuilder docBuilder = fac.newDocumentBuilder();
-                Document doc = docBuilder.parse(URI.create(metadataDocument).toURL().openStream());
-                return doc;
+                LOGGER.debug("Metadata document found at URL {}. Parsing content.", metadataDocument);
+                try (InputStream in = URI.create(metadataDocument).toURL().openStream()) {
+                    return docBuilder.parse(in);
+                }
             }
         } catch (ParserConfigurationException | SAXException | IOException ex) {
             LOGGER.error("Failed to obtain metadata document for schema " + schemaId + " and object identifier " + object.getDigitalObjectIdentifier(), ex);
@@ -330,152 +361,154 @@ public class SimpleOAIPMHRepository extends AbstractOAIPMHRepository {
     }
 
     /**
-     * Add a record entry for the provided digital object to the provided
-     * builder. This call tries to obtain the metadata document for the provided
-     * object and is this succeeds, an according record is added to the builder.
+     * Add record entries for the provided digital objects to the provided
+     * builder. For each object this call tries to obtain the metadata document
+     * and if this succeeds, an according record is added to the builder.
      *
      * If no metadata document can be obtained, an according OAI-PMH error is
      * added.
      *
-     * @param result The digital object to add a record for.
+     * @param results The digital objects to add records for.
+     * @param documentUrls The metadata document URLs of the objects.
      * @param builder The OAIPMHBuilder.
      */
-    private void addRecordEntry(DigitalObject result, OAIPMHBuilder builder) {
-        LOGGER.debug("Adding record for object identifier {} to response.", result.getDigitalObjectIdentifier());
-        Document doc = getMetadataDocument(result, builder.getMetadataPrefix());
-        if (doc != null) {
-            LOGGER.debug("Adding record using obtained metadata document.");
-            builder.addRecord(result.getDigitalObjectIdentifier(), (result.getUploadDate() != null) ? result.getUploadDate() : new Date(0l), Arrays.asList("default"), doc.getDocumentElement());
-        } else {
-            LOGGER.error("No metadata document found for rpefix {} and object identifier {}. Returning OAI-PMH error CANNOT_DISSEMINATE_FORMAT.", builder.getMetadataPrefix(), result.getDigitalObjectIdentifier());
+    private void addRecordEntries(List<DigitalObject> results, Map<String, String> documentUrls, OAIPMHBuilder builder) {
+        DocumentBuilder docBuilder;
+        try {
+            DocumentBuilderFactory fac = DocumentBuilderFactory.newInstance();
+            fac.setNamespaceAware(true);
+            docBuilder = fac.newDocumentBuilder();
+        } catch (ParserConfigurationException ex) {
+            LOGGER.error("Failed to create document builder. Returning OAI-PMH error CANNOT_DISSEMINATE_FORMAT.", ex);
             builder.addError(OAIPMHerrorcodeType.CANNOT_DISSEMINATE_FORMAT, null);
+            return;
+        }
+        for (DigitalObject result : results) {
+            LOGGER.debug("Adding record for object identifier {} to response.", result.getDigitalObjectIdentifier());
+            Document doc = getMetadataDocument(result, builder.getMetadataPrefix(), documentUrls.get(result.getDigitalObjectIdentifier()), docBuilder);
+            if (doc != null) {
+                LOGGER.debug("Adding record using obtained metadata document.");
+                builder.addRecord(result.getDigitalObjectIdentifier(), (result.getUploadDate() != null) ? result.getUploadDate() : new Date(0l), Arrays.asList("default"), doc.getDocumentElement());
+            } else {
+                LOGGER.error("No metadata document found for prefix {} and object identifier {}. Returning OAI-PMH error CANNOT_DISSEMINATE_FORMAT.", builder.getMetadataPrefix(), result.getDigitalObjectIdentifier());
+                builder.addError(OAIPMHerrorcodeType.CANNOT_DISSEMINATE_FORMAT, null);
+            }
         }
     }
 
     /**
-     * Get all digital objects according to the arguments set at the provided
-     * OAIPMHBuilder.
+     * Get the next page of digital objects according to the arguments set at
+     * the provided OAIPMHBuilder.
      *
      * Depending of the values ot 'from', 'until' and 'metadataPrefix' set at
      * the OAIPMHBuilder the result list may contain all or a reduced list of
      * objects. The list might also be empty. In that case a proper OAI-PMH
      * error must be created by the caller.
      *
+     * The objects are ordered by their primary key. Pages are obtained by
+     * keyset pagination, i.e. the resumption token contains the key of the
+     * last object of the previous page and the next page starts with the
+     * following key. Thus, the costs for obtaining a page do not depend on its
+     * position within the list. The overall count is only determined for the
+     * first page and is afterwards transported by the resumption token.
+     *
      * @param builder The OAIPMHBuilder.
+     * @param mdm The metadata manager used to query the objects.
      *
      * @return A list of entities which might be empty.
      */
-    private List<DigitalObject> getEntities(OAIPMHBuilder builder) {
-        List<DigitalObject> results = new ArrayList<>();
-
+    private List<DigitalObject> getEntities(OAIPMHBuilder builder, IMetaDataManager mdm) {
         String prefix = builder.getMetadataPrefix();
         LOGGER.debug("Getting entities for metadata prefix {} from repository.", prefix);
-        IMetaDataManager mdm = MetaDataManagement.getMetaDataManagement().getMetaDataManager();
-        mdm.setAuthorizationContext(getAuthorizationContext());
-        try {
-            LOGGER.debug("Checking request for resumption token");
-            String resumptionToken = builder.getResumptionToken();
-            int currentCursor = 0;
-            int overallCount = 0;
-            //check resumption token
-            if (resumptionToken != null) {
-                String tokenValue = new String(Base64.getDecoder().decode(URLDecoder.decode(resumptionToken, "UTF-8")));
-                LOGGER.debug("Found token with value {}", tokenValue);
-                String[] elements = tokenValue.split("/");
-                if (elements.length != 2) {
-                    LOGGER.error("Invalid resumption token. Returning OAI-PMH error BAD_RESUMPTION_TOKEN.");
-                    builder.addError(OAIPMHerrorcodeType.BAD_RESUMPTION_TOKEN, null);
-                    return new ArrayList<>();
-                }
-                try {
-                    LOGGER.debug("Parsing token values.");
-                    currentCursor = Integer.parseInt(elements[0]);
-                    overallCount = Integer.parseInt(elements[1]);
-                    LOGGER.debug("Obtained {} as current cursor from token.", currentCursor);
-                } catch (NumberFormatException ex) {
-                    //log error
-                    builder.addError(OAIPMHerrorcodeType.BAD_RESUMPTION_TOKEN, null);
-                    return new ArrayList<>();
-                }
-            } else {
-                LOGGER.debug("No resumption token found.");
+        LOGGER.debug("Checking request for resumption token");
+        OAIPMHResumptionToken resumptionToken = null;
+        if (builder.getResumptionToken() != null) {
+            resumptionToken = OAIPMHResumptionToken.decode(builder.getResumptionToken());
+            if (resumptionToken == null) {
+                LOGGER.error("Invalid resumption token. Returning OAI-PMH error BAD_RESUMPTION_TOKEN.");
+                builder.addError(OAIPMHerrorcodeType.BAD_RESUMPTION_TOKEN, null);
+                return new ArrayList<>();
             }
+            LOGGER.debug("Obtained last id {} and cursor {} from token.", resumptionToken.getLastId(), resumptionToken.getCursor());
+        } else {
+            LOGGER.debug("No resumption token found.");
+        }
 
-            if (DC_SCHEMA.getSchemaIdentifier().equals(prefix)) {
-                LOGGER.debug("Using Dublin Core schema handling.");
-                //handle default schema which is supported by ALL objects, so no complex query is needed.
-                Date from = builder.getFromDate();
-                Date until = builder.getUntilDate();
-                if (from != null && until != null) {
-                    LOGGER.debug("Getting all digital objects from {} until {}.", from, until);
-                    results = mdm.findResultList("SELECT o FROM DigitalObject o WHERE o.uploadDate>=?1 AND o.uploadDate <= ?2", new Object[]{from, until}, DigitalObject.class, currentCursor, maxElementsPerList);
-                    overallCount = (overallCount == 0) ? mdm.findSingleResult("SELECT COUNT(o) FROM DigitalObject o WHERE o.uploadDate>=?1 AND o.uploadDate <= ?2", new Object[]{from, until}, Number.class).intValue() : overallCount;
-                } else if (from != null && until == null) {
-                    LOGGER.debug("Getting all digital objects from {}.", from);
-                    results = mdm.findResultList("SELECT o FROM DigitalObject o WHERE o.uploadDate >= ?1", new Object[]{from}, DigitalObject.class, currentCursor, maxElementsPerList);
-                    overallCount = (overallCount == 0) ? mdm.findSingleResult("SELECT COUNT(o) FROM DigitalObject o WHERE o.uploadDate >= ?1", new Object[]{from}, Number.class).intValue() : overallCount;
-                } else if (from == null && until != null) {
-                    LOGGER.debug("Getting all digital objects until {}.", until);
-                    results = mdm.findResultList("SELECT o FROM DigitalObject o WHERE o.uploadDate <= ?1", new Object[]{until}, DigitalObject.class, currentCursor, maxElementsPerList);
-                    overallCount = (overallCount == 0) ? mdm.findSingleResult("SELECT COUNT(o) FROM DigitalObject o WHERE o.uploadDate <= ?1", new Object[]{until}, Number.class).intValue() : overallCount;
-                } else {
-                    LOGGER.debug("Getting all digital object.");
-                    results = mdm.findResultList("SELECT o FROM DigitalObject o", DigitalObject.class, currentCursor, maxElementsPerList);
-                    overallCount = (overallCount == 0) ? mdm.findSingleResult("SELECT COUNT(o) FROM DigitalObject o", Number.class).intValue() : overallCount;
-                }
-            } else {
+        StringBuilder query = new StringBuilder("FROM DigitalObject o");
+        List<String> conditions = new ArrayList<>();
+        List<Object> parameters = new ArrayList<>();
+        if (DC_SCHEMA.getSchemaIdentifier().equals(prefix)) {
+            //handle default schema which is supported by ALL objects, so no join is needed.
+            LOGGER.debug("Using Dublin Core schema handling.");
+        } else {
+            //@TODO Check where to obtain the metadata document if no MetadataIndexingTask entry is available, e.g. via DataOrganization?
+            //filter by special schema which might not be supported by all objects
+            LOGGER.debug("Using custom schema handling for prefix {}.", prefix);
+            query.append(",MetadataIndexingTask t");
+            conditions.add("t.digitalObjectId=o.digitalObjectIdentifier");
+            parameters.add(prefix);
+            conditions.add("t.schemaReference.schemaIdentifier=?" + parameters.size());
+        }
+        Date from = builder.getFromDate();
+        if (from != null) {
+            LOGGER.debug("Getting digital objects from {}.", from);
+            parameters.add(from);
+            conditions.add("o.uploadDate>=?" + parameters.size());
+        }
+        Date until = builder.getUntilDate();
+        if (until != null) {
+            LOGGER.debug("Getting digital objects until {}.", until);
+            parameters.add(until);
+            conditions.add("o.uploadDate<=?" + parameters.size());
+        }
 
-                //@TODO Check where to obtain the metadata document if no MetadataIndexingTask entry is available, e.g. via DataOrganization?
-                LOGGER.debug("Using custom schema handling for prefix {}.", prefix);
-                //filter by special schema which might not be supported by all objects
-                Date from = builder.getFromDate();
-                Date until = builder.getUntilDate();
-                if (from != null && until != null) {
-                    LOGGER.debug("Getting all digital objects from {} until {}.", from, until);
-                    results = mdm.findResultList("SELECT o FROM DigitalObject o,MetadataIndexingTask t WHERE o.uploadDate>=?1 AND o.uploadDate <= ?2 AND t.digitalObjectId=o.digitalObjectIdentifier AND t.schemaReference.schemaIdentifier=?3", new Object[]{from, until, prefix}, DigitalObject.class, currentCursor, maxElementsPerList);
-                    overallCount = (overallCount == 0) ? mdm.findSingleResult("SELECT o FROM DigitalObject o,MetadataIndexingTask t WHERE o.uploadDate>=?1 AND o.uploadDate <= ?2 AND t.digitalObjectId=o.digitalObjectIdentifier AND t.schemaReference.schemaIdentifier=?3", new Object[]{from, until, prefix}, Number.class).intValue() : overallCount;
-                } else if (from != null && until == null) {
-                    LOGGER.debug("Getting all digital objects from {}.", from);
-                    results = mdm.findResultList("SELECT o FROM DigitalObject o,MetadataIndexingTask t WHERE o.uploadDate>=?1 AND t.digitalObjectId=o.digitalObjectIdentifier AND t.schemaReference.schemaIdentifier=?2", new Object[]{from, prefix}, DigitalObject.class, currentCursor, maxElementsPerList);
-                    overallCount = (overallCount == 0) ? mdm.findSingleResult("SELECT COUNT(o) FROM DigitalObject o,MetadataIndexingTask t WHERE o.uploadDate>=?1 AND t.digitalObjectId=o.digitalObjectIdentifier AND t.schemaReference.schemaIdentifier=?2", new Object[]{from, prefix}, Number.class).intValue() : overallCount;
-                } else if (from == null && until != null) {
-                    LOGGER.debug("Getting all digital objects until {}.", until);
-                    results = mdm.findResultList("SELECT o FROM DigitalObject o,MetadataIndexingTask t WHERE o.uploadDate <= ?1 AND t.digitalObjectId=o.digitalObjectIdentifier AND t.schemaReference.schemaIdentifier=?2", new Object[]{until, prefix}, DigitalObject.class, currentCursor, maxElementsPerList);
-                    overallCount = (overallCount == 0) ? mdm.findSingleResult("SELECT COUNT(o) FROM DigitalObject o,MetadataIndexingTask t WHERE o.uploadDate <= ?1 AND t.digitalObjectId=o.digitalObjectIdentifier AND t.schemaReference.schemaIdentifier=?2", new Object[]{until, prefix}, Number.class).intValue() : overallCount;
-                } else {
-                    LOGGER.debug("Getting all digital object.");
-                    results = mdm.findResultList("SELECT o FROM DigitalObject o,MetadataIndexingTask t WHERE t.digitalObjectId=o.digitalObjectIdentifier AND t.schemaReference.schemaIdentifier=?1", new Object[]{prefix}, DigitalObject.class, currentCursor, maxElementsPerList);
-                    overallCount = (overallCount == 0) ? mdm.findSingleResult("SELECT COUNT(o) FROM DigitalObject o,MetadataIndexingTask t WHERE t.digitalObjectId=o.digitalObjectIdentifier AND t.schemaReference.schemaIdentifier=?1", new Object[]{prefix}, Number.class).intValue() : overallCount;
-                }
+        List<DigitalObject> results = new ArrayList<>();
+        try {
+            int overallCount;
+            int cursor = 0;
+            if (resumptionToken == null) {
+                overallCount = mdm.findSingleResult("SELECT COUNT(o) " + query + toWhereClause(conditions), parameters.toArray(), Number.class).intValue();
+            } else {
+                overallCount = resumptionToken.getCompleteListSize();
+                cursor = resumptionToken.getCursor();
+                parameters.add(resumptionToken.getLastId());
+                conditions.add("o.baseId>?" + parameters.size());
             }
+            //obtain one additional element in order to check whether there are more elements available
+            results = mdm.findResultList("SELECT o " + query + toWhereClause(conditions) + " ORDER BY o.baseId ASC", parameters.toArray(), DigitalObject.class, 0, maxElementsPerList + 1);
 
             LOGGER.debug("Setting next resumption token.");
-            if (currentCursor + maxElementsPerList > overallCount) {
-                LOGGER.debug("Cursor exceeds element count, no more elements available. Setting resumption token to 'null'.");
-                //lsit complete, add no resumptiontoken
+            if (results.size() <= maxElementsPerList) {
+                LOGGER.debug("No more elements available. Setting resumption token to 'null'.");
+                //list complete, add no resumptiontoken
                 builder.setResumptionToken(null);
             } else {
-                ResumptionTokenType token = new ResumptionTokenType();
-                //set list size
-                token.setCompleteListSize(BigInteger.valueOf(overallCount));
-                //set current cursor
-                token.setCursor(BigInteger.valueOf(currentCursor + results.size()));
-                LOGGER.debug("Setting new resumption token with cursor at position " + token.getCursor());
-                //we set no expiration as the token never expires
-                String value = token.getCursor().intValue() + "/" + token.getCompleteListSize().intValue();
-                LOGGER.debug("Setting resumption token value to {}.", value);
-                token.setValue(URLEncoder.encode(Base64.getEncoder().encodeToString(value.getBytes()), "UTF-8"));
-                builder.setResumptionToken(token);
+                results = new ArrayList<>(results.subList(0, maxElementsPerList));
+                OAIPMHResumptionToken nextToken = new OAIPMHResumptionToken(results.get(results.size() - 1).getBaseId(), cursor + results.size(), overallCount);
+                LOGGER.debug("Setting new resumption token with cursor at position {} and last id {}.", nextToken.getCursor(), nextToken.getLastId());
+                builder.setResumptionToken(nextToken.toResumptionTokenType());
             }
-        } catch (UnauthorizedAccessAttemptException | UnsupportedEncodingException ex) {
+        } catch (UnauthorizedAccessAttemptException ex) {
             //error
             LOGGER.error("Failed to get results from repository. Returning empty list.", ex);
-        } finally {
-            mdm.close();
         }
         return results;
     }
 
+    /**
+     * Create a where clause combining all provided conditions using AND.
+     *
+     * @param conditions The conditions.
+     *
+     * @return The where clause or an empty string if there are no conditions.
+     */
+    private String toWhereClause(List<String> conditions) {
+        if (conditions.isEmpty()) {
+            return "";
+        }
+        return " WHERE " + String.join(" AND ", conditions);
+    }
+
     /**
      * Get the authorization context of the OAI-PMH user.
      */
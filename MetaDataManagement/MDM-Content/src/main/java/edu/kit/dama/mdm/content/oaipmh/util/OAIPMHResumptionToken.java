@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.content.oaipmh.util;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.openarchives.oai._2.ResumptionTokenType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resumption token used for keyset pagination of OAI-PMH list requests. The
+ * token contains the id of the last element of the previous page, the number
+ * of elements delivered so far (cursor) and the complete list size. Instead of
+ * skipping 'cursor' elements the next page is obtained by selecting all
+ * elements with an id larger than the last id, which can be answered using the
+ * primary key index independent of the position within the list.
+ *
+ * The token value is the Base64 and URL encoded string
+ * 'lastId/cursor/completeListSize'.
+ *
+ * @author jejkal
+ */
+public final class OAIPMHResumptionToken {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OAIPMHResumptionToken.class);
+
+    private final long lastId;
+    private final int cursor;
+    private final int completeListSize;
+
+    /**
+     * Default constructor.
+     *
+     * @param pLastId The id of the last element of the previous page.
+     * @param pCursor The number of elements delivered so far.
+     * @param pCompleteListSize The overall number of elements.
+     */
+    public OAIPMHResumptionToken(long pLastId, int pCursor, int pCompleteListSize) {
+        lastId = pLastId;
+        cursor = pCursor;
+        completeListSize = pCompleteListSize;
+    }
+
+    /**
+     * Decode the provided token value.
+     *
+     * @param pValue The token value received from the harvester.
+     *
+     * @return The decoded token or null if pValue is no valid token.
+     */
+    public static OAIPMHResumptionToken decode(String pValue) {
+        if (pValue == null) {
+            return null;
+        }
+        try {
+            String tokenValue = new String(Base64.getDecoder().decode(URLDecoder.decode(pValue, "UTF-8")), StandardCharsets.UTF_8);
+            LOGGER.debug("Decoding resumption token with value {}", tokenValue);
+            String[] elements = tokenValue.split("/");
+            if (elements.length != 3) {
+                LOGGER.error("Invalid resumption token value {}. Three elements expected.", tokenValue);
+                return null;
+            }
+            OAIPMHResumptionToken token = new OAIPMHResumptionToken(Long.parseLong(elements[0]), Integer.parseInt(elements[1]), Integer.parseInt(elements[2]));
+            if (token.getCursor() < 0 || token.getCompleteListSize() < 0) {
+                LOGGER.error("Invalid resumption token value {}. Negative values are not allowed.", tokenValue);
+                return null;
+            }
+            return token;
+        } catch (IllegalArgumentException | UnsupportedEncodingException ex) {
+            //NumberFormatException is an IllegalArgumentException
+            LOGGER.error("Failed to decode resumption token " + pValue + ".", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Encode this token.
+     *
+     * @return The token value to be sent to the harvester.
+     */
+    public String encode() {
+        String value = lastId + "/" + cursor + "/" + completeListSize;
+        try {
+            return URLEncoder.encode(Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8)), "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            //UTF-8 is always supported
+            throw new IllegalStateException("Failed to encode resumption token.", ex);
+        }
+    }
+
+    /**
+     * Create the OAI-PMH representation of this token.
+     *
+     * @return The ResumptionTokenType.
+     */
+    public ResumptionTokenType toResumptionTokenType() {
+        ResumptionTokenType token = new ResumptionTokenType();
+        token.setCompleteListSize(BigInteger.valueOf(completeListSize));
+        token.setCursor(BigInteger.valueOf(cursor));
+        //we set no expiration as the token never expires
+        token.setValue(encode());
+        return token;
+    }
+
+    /**
+     * Get the id of the last element of the previous page.
+     *
+     * @return The last id.
+     */
+    public long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Get the number of elements delivered so far.
+     *
+     * @return The cursor.
+     */
+    public int getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Get the overall number of elements.
+     *
+     * @return The complete list size.
+     */
+    public int getCompleteListSize() {
+        return completeListSize;
+    }
+}
@@ -64,6 +64,18 @@ public class MetadataIndexerJob extends AbstractConfigurableJob {
      */
     public static final String CLUSTER_PROPERTY = "cluster";
 
+    /**
+     * The property key for setting the max. number of indexing tasks processed
+     * by one job execution.
+     */
+    public static final String MAX_TASKS_PROPERTY = "maxTasks";
+
+    /**
+     * The default max. number of indexing tasks processed by one job
+     * execution.
+     */
+    private static final int DEFAULT_MAX_TASKS = 500;
+
     private String groupId = Constants.USERS_GROUP_ID;
     private String hostname = DataManagerSettings.getSingleton().getStringProperty(DataManagerSettings.ELASTIC_SEARCH_DEFAULT_HOST_ID, "localhost");
     private String cluster = DataManagerSettings.getSingleton().getStringProperty(DataManagerSettings.ELASTIC_SEARCH_DEFAULT_CLUSTER_ID, "KITDataManager");
@@ -89,9 +101,10 @@ public class MetadataIndexerJob extends AbstractConfigurableJob {
                 hostname = (props.getProperty(HOSTNAME_PROPERTY) != null) ? props.getProperty(HOSTNAME_PROPERTY) : hostname;
                 cluster = (props.getProperty(CLUSTER_PROPERTY) != null) ? props.getProperty(CLUSTER_PROPERTY) : cluster;
                 index = (props.getProperty(INDEX_PROPERTY) != null) ? props.getProperty(INDEX_PROPERTY) : index;
+                int maxTasks = (props.getProperty(MAX_TASKS_PROPERTY) != null) ? Integer.parseInt(props.getProperty(MAX_TASKS_PROPERTY)) : DEFAULT_MAX_TASKS;
                 LOGGER.debug(" - Performing indexing to cluster {} accessed via {}/{}", cluster, hostname, index);
                 MetadataIndexingHelper.getSingleton().setHostname(hostname);
-                boolean result = MetadataIndexingHelper.getSingleton().performIndexing(cluster, index, new GroupId(groupId), 10, AuthorizationContext.factorySystemContext());
+                boolean result = MetadataIndexingHelper.getSingleton().performIndexing(cluster, index, new GroupId(groupId), maxTasks, AuthorizationContext.factorySystemContext());
                 if (!result) {
                     exitCode ^= 2;
                 }
@@ -114,7 +127,7 @@ public class MetadataIndexerJob extends AbstractConfigurableJob {
 
     @Override
     public String[] getInternalPropertyKeys() {
-        return new String[]{GROUP_ID_PROPERTY, HOSTNAME_PROPERTY, CLUSTER_PROPERTY, INDEX_PROPERTY};
+        return new String[]{GROUP_ID_PROPERTY, HOSTNAME_PROPERTY, CLUSTER_PROPERTY, INDEX_PROPERTY, MAX_TASKS_PROPERTY};
     }
 
     @Override
@@ -129,6 +142,8 @@ public class MetadataIndexerJob extends AbstractConfigurableJob {
                     return "The cluster at which the metadata is indexed.";
                 case INDEX_PROPERTY:
                     return "The index at which the metadata is indexed.";
+                case MAX_TASKS_PROPERTY:
+                    return "The max. number of indexing tasks processed per execution (default: " + DEFAULT_MAX_TASKS + ").";
             }
         }
         return "Unknown property key '" + pKey + "'";
@@ -136,6 +151,16 @@ public class MetadataIndexerJob extends AbstractConfigurableJob {
 
     @Override
     public void validateProperties(Properties pProperties) throws PropertyValidationException {
+        String maxTasks = pProperties.getProperty(MAX_TASKS_PROPERTY);
+        if (maxTasks != null) {
+            try {
+                if (Integer.parseInt(maxTasks) <= 0) {
+                    throw new PropertyValidationException("Property '" + MAX_TASKS_PROPERTY + "' must be a positive number.");
+                }
+            } catch (NumberFormatException ex) {
+                throw new PropertyValidationException("Property '" + MAX_TASKS_PROPERTY + "' is no valid number.", ex);
+            }
+        }
         EntityManager em = PU.entityManager();
         String group = pProperties.getProperty(GROUP_ID_PROPERTY);
         if (group != null) {
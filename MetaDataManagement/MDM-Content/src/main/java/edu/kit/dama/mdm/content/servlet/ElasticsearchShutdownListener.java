@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.content.servlet;
+
+import edu.kit.dama.mdm.content.util.ElasticHelper;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Listener closing the shared elasticsearch transport clients obtained via
+ * {@link ElasticHelper#getSharedTransportClient(java.lang.String, int, java.lang.String)}
+ * as soon as the web application is shut down. Otherwise, the transport
+ * threads of the clients would keep running after undeployment.
+ *
+ * @author jejkal
+ */
+public class ElasticsearchShutdownListener implements ServletContextListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElasticsearchShutdownListener.class);
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        //nothing to do, shared clients are created on demand
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        LOGGER.info("Closing shared elasticsearch transport clients.");
+        try {
+            ElasticHelper.closeSharedTransportClients();
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Failed to close shared elasticsearch transport clients.", ex);
+        }
+    }
+}
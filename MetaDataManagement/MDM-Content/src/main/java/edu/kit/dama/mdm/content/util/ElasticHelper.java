@@ -16,10 +16,14 @@
 package edu.kit.dama.mdm.content.util;
 
 import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
 import org.elasticsearch.client.transport.TransportClient;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.InetSocketTransportAddress;
 import org.elasticsearch.transport.client.PreBuiltTransportClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  *
@@ -27,6 +31,9 @@ import org.elasticsearch.transport.client.PreBuiltTransportClient;
  */
 public class ElasticHelper {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElasticHelper.class);
+    private static final Map<String, TransportClient> SHARED_CLIENTS = new HashMap<>();
+
     public static TransportClient getTransportClient(String hostname, String cluster) {
         return getTransportClient(hostname, 9300, cluster);
     }
@@ -36,8 +43,45 @@ public class ElasticHelper {
         TransportClient client = new PreBuiltTransportClient(settings).addTransportAddress(new InetSocketTransportAddress(new InetSocketAddress(hostname, port)));
         return client;
     }
-    
-    
-    
 
+    /**
+     * Get a long-lived transport client for the provided cluster. In contrast
+     * to {@link #getTransportClient(java.lang.String, int, java.lang.String)}
+     * the client is created only once per hostname, port and cluster and is
+     * shared between all callers. Therefore, the returned client must not be
+     * closed by the caller. Shared clients are closed by calling
+     * {@link #closeSharedTransportClients()}.
+     *
+     * @param hostname The hostname of the elasticsearch node.
+     * @param port The transport port of the elasticsearch node.
+     * @param cluster The cluster name.
+     *
+     * @return The shared transport client.
+     */
+    public static TransportClient getSharedTransportClient(String hostname, int port, String cluster) {
+        String key = cluster + "@" + hostname + ":" + port;
+        synchronized (SHARED_CLIENTS) {
+            TransportClient client = SHARED_CLIENTS.get(key);
+            if (client == null) {
+                LOGGER.debug("Creating shared transport client for {}.", key);
+                client = getTransportClient(hostname, port, cluster);
+                SHARED_CLIENTS.put(key, client);
+            }
+            return client;
+        }
+    }
+
+    /**
+     * Close all shared transport clients obtained via
+     * {@link #getSharedTransportClient(java.lang.String, int, java.lang.String)}.
+     */
+    public static void closeSharedTransportClients() {
+        synchronized (SHARED_CLIENTS) {
+            for (Map.Entry<String, TransportClient> entry : SHARED_CLIENTS.entrySet()) {
+                LOGGER.debug("Closing shared transport client for {}.", entry.getKey());
+                entry.getValue().close();
+            }
+            SHARED_CLIENTS.clear();
+        }
+    }
 }
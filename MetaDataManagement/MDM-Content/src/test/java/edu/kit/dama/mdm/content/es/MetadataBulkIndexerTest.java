@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.content.es;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.node.Node;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test for bulk indexing against an embedded elasticsearch node.
+ *
+ * @author jejkal
+ */
+public class MetadataBulkIndexerTest {
+
+    private static final File NODE_HOME = new File("target/test/es-node/");
+    private static Node node;
+    private static Client client;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        deleteRecursively(NODE_HOME.toPath());
+        Settings settings = Settings.builder()
+                .put("path.home", NODE_HOME.getAbsolutePath())
+                .put("cluster.name", "MetadataBulkIndexerTest")
+                .put("transport.type", "local")
+                .put("http.enabled", false)
+                .build();
+        node = new Node(settings).start();
+        client = node.client();
+        client.admin().cluster().prepareHealth().setWaitForYellowStatus().get();
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        if (node != null) {
+            node.close();
+        }
+        deleteRecursively(NODE_HOME.toPath());
+    }
+
+    private static void deleteRecursively(Path pPath) throws IOException {
+        if (!Files.exists(pPath)) {
+            return;
+        }
+        Files.walkFileTree(pPath, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private long count(String pIndex) {
+        client.admin().indices().prepareRefresh(pIndex).get();
+        return client.prepareSearch(pIndex).setSize(0).get().getHits().getTotalHits();
+    }
+
+    @Test
+    public void testFlushByActionCount() {
+        MetadataBulkIndexer<Integer> indexer = new MetadataBulkIndexer<>(client, 10, Long.MAX_VALUE, Long.MAX_VALUE);
+        for (int i = 0; i < 25; i++) {
+            indexer.add("bulk-count", "dc", "doc_" + i, "{\"title\":\"Document " + i + "\"}", i);
+        }
+        //two bulk requests were sent, the remaining documents are pending
+        Assert.assertEquals(20, indexer.getIndexed().size());
+        Assert.assertEquals(5, indexer.getPendingCount());
+        indexer.flush();
+        Assert.assertEquals(25, indexer.getIndexed().size());
+        Assert.assertEquals(0, indexer.getPendingCount());
+        Assert.assertTrue(indexer.getFailed().isEmpty());
+        Assert.assertEquals(25, count("bulk-count"));
+
+        //re-indexing existing documents updates them
+        indexer.add("bulk-count", "dc", "doc_0", "{\"title\":\"Updated\"}", 0);
+        indexer.flush();
+        Assert.assertEquals(25, count("bulk-count"));
+    }
+
+    @Test
+    public void testFlushBySizeAndInterval() {
+        MetadataBulkIndexer<Integer> indexer = new MetadataBulkIndexer<>(client, Integer.MAX_VALUE, 1, Long.MAX_VALUE);
+        indexer.add("bulk-size", "dc", "doc_0", "{\"title\":\"Document\"}", 0);
+        Assert.assertEquals(0, indexer.getPendingCount());
+        Assert.assertEquals(1, indexer.getIndexed().size());
+
+        indexer = new MetadataBulkIndexer<>(client, Integer.MAX_VALUE, Long.MAX_VALUE, 0);
+        indexer.add("bulk-size", "dc", "doc_1", "{\"title\":\"Document\"}", 1);
+        Assert.assertEquals(0, indexer.getPendingCount());
+        Assert.assertEquals(2, count("bulk-size"));
+    }
+
+    @Test
+    public void testFlushByTimer() throws Exception {
+        MetadataBulkIndexer<Integer> indexer = new MetadataBulkIndexer<>(client, Integer.MAX_VALUE, Long.MAX_VALUE, 100);
+        try {
+            indexer.add("bulk-timer", "dc", "doc_0", "{\"title\":\"Document\"}", 0);
+            //no further document is added, thus the timer has to send the request
+            long end = System.currentTimeMillis() + 10000;
+            while (indexer.getPendingCount() > 0 && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(0, indexer.getPendingCount());
+            Assert.assertEquals(1, indexer.getIndexed().size());
+        } finally {
+            indexer.close();
+        }
+        Assert.assertEquals(1, count("bulk-timer"));
+    }
+
+    @Test
+    public void testCloseSendsPendingDocuments() {
+        MetadataBulkIndexer<Integer> indexer = new MetadataBulkIndexer<>(client, 100, Long.MAX_VALUE, 60000);
+        indexer.add("bulk-close", "dc", "doc_0", "{\"title\":\"Document\"}", 0);
+        Assert.assertEquals(1, indexer.getPendingCount());
+        indexer.close();
+        Assert.assertEquals(0, indexer.getPendingCount());
+        Assert.assertEquals(1, indexer.getIndexed().size());
+        Assert.assertEquals(1, count("bulk-close"));
+        try {
+            indexer.add("bulk-close", "dc", "doc_1", "{\"title\":\"Document\"}", 1);
+            Assert.fail("Adding a document to a closed indexer must fail.");
+        } catch (IllegalStateException ex) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testFailedDocuments() {
+        MetadataBulkIndexer<Integer> indexer = new MetadataBulkIndexer<>(client, 100, Long.MAX_VALUE, Long.MAX_VALUE);
+        indexer.add("bulk-fail", "dc", "doc_0", "{\"value\":1}", 0);
+        indexer.flush();
+        //a string which cannot be parsed as number for the mapped field 'value'
+        indexer.add("bulk-fail", "dc", "doc_1", "{\"value\":\"no number\"}", 1);
+        indexer.add("bulk-fail", "dc", "doc_2", "{\"value\":2}", 2);
+        indexer.flush();
+        Assert.assertEquals(2, indexer.getIndexed().size());
+        Assert.assertTrue(indexer.getIndexed().contains(2));
+        Assert.assertEquals(1, indexer.getFailed().size());
+        Assert.assertTrue(indexer.getFailed().containsKey(1));
+    }
+}
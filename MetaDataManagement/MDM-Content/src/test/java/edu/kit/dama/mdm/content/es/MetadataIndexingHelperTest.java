@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.content.es;
+
+import edu.kit.dama.mdm.content.MetadataIndexingTask;
+import edu.kit.dama.mdm.core.IMetaDataManager;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the chunked status update of MetadataIndexingHelper. The metadata
+ * manager is replaced by a proxy recording all updates, so no database is
+ * needed.
+ *
+ * @author jejkal
+ */
+public class MetadataIndexingHelperTest {
+
+    private static final String QUERY = "UPDATE MetadataIndexingTask t SET t.finishTimestamp = ?1 WHERE t.id IN ?2";
+
+    @Test
+    public void testStatusUpdateIsChunked() {
+        RecordingHandler handler = new RecordingHandler(-1);
+        Assert.assertTrue(MetadataIndexingHelper.performStatusUpdate(handler.createProxy(), QUERY, 42l, createTasks(1201), 500));
+        Assert.assertEquals(3, handler.updates.size());
+        Assert.assertEquals(500, handler.updates.get(0).size());
+        Assert.assertEquals(500, handler.updates.get(1).size());
+        Assert.assertEquals(201, handler.updates.get(2).size());
+        //all ids are updated exactly once and in order
+        long expected = 0;
+        for (List<Long> ids : handler.updates) {
+            for (Long id : ids) {
+                Assert.assertEquals(Long.valueOf(expected++), id);
+            }
+        }
+        Assert.assertEquals(1201, expected);
+    }
+
+    @Test
+    public void testStatusUpdateWithoutTasks() {
+        RecordingHandler handler = new RecordingHandler(-1);
+        Assert.assertTrue(MetadataIndexingHelper.performStatusUpdate(handler.createProxy(), QUERY, 42l, new ArrayList<MetadataIndexingTask>(), 500));
+        Assert.assertTrue(handler.updates.isEmpty());
+    }
+
+    @Test
+    public void testFailedChunkDoesNotStopUpdate() {
+        //the second chunk updates fewer rows than expected
+        RecordingHandler handler = new RecordingHandler(1);
+        Assert.assertFalse(MetadataIndexingHelper.performStatusUpdate(handler.createProxy(), QUERY, 42l, createTasks(25), 10));
+        Assert.assertEquals(3, handler.updates.size());
+    }
+
+    /**
+     * Create pCount tasks with the ids 0 to pCount - 1.
+     *
+     * @param pCount The number of tasks.
+     *
+     * @return The list of tasks.
+     */
+    private List<MetadataIndexingTask> createTasks(int pCount) {
+        List<MetadataIndexingTask> tasks = new ArrayList<>();
+        for (long i = 0; i < pCount; i++) {
+            MetadataIndexingTask task = new MetadataIndexingTask();
+            task.setId(i);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Handler recording the id lists passed to performUpdate().
+     */
+    private static final class RecordingHandler implements InvocationHandler {
+
+        private final List<List<Long>> updates = new ArrayList<>();
+        private final int failingUpdate;
+
+        /**
+         * Default constructor.
+         *
+         * @param pFailingUpdate The index of the update returning 0 updated
+         * rows, or -1 if all updates should succeed.
+         */
+        RecordingHandler(int pFailingUpdate) {
+            failingUpdate = pFailingUpdate;
+        }
+
+        /**
+         * Create a metadata manager proxy backed by this handler.
+         *
+         * @return The proxy.
+         */
+        IMetaDataManager createProxy() {
+            return (IMetaDataManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{IMetaDataManager.class}, this);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (!"performUpdate".equals(method.getName()) || args.length != 2) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            Object[] params = (Object[]) args[1];
+            Assert.assertEquals(Long.valueOf(42l), params[0]);
+            List<Long> ids = (List<Long>) params[1];
+            updates.add(ids);
+            return (updates.size() - 1 == failingUpdate) ? 0 : ids.size();
+        }
+    }
+}
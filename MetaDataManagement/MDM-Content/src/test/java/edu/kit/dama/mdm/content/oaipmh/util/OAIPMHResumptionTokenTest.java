@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.mdm.content.oaipmh.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openarchives.oai._2.ResumptionTokenType;
+
+/**
+ * Test for encoding and decoding keyset resumption tokens.
+ *
+ * @author jejkal
+ */
+public class OAIPMHResumptionTokenTest {
+
+    private static String encode(String pValue) {
+        return Base64.getEncoder().encodeToString(pValue.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        OAIPMHResumptionToken token = new OAIPMHResumptionToken(123456789012l, 200, 1000);
+        OAIPMHResumptionToken decoded = OAIPMHResumptionToken.decode(token.encode());
+        Assert.assertNotNull(decoded);
+        Assert.assertEquals(123456789012l, decoded.getLastId());
+        Assert.assertEquals(200, decoded.getCursor());
+        Assert.assertEquals(1000, decoded.getCompleteListSize());
+
+        ResumptionTokenType type = token.toResumptionTokenType();
+        Assert.assertEquals(200, type.getCursor().intValue());
+        Assert.assertEquals(1000, type.getCompleteListSize().intValue());
+        Assert.assertEquals(token.encode(), type.getValue());
+    }
+
+    @Test
+    public void testInvalidTokens() {
+        Assert.assertNull(OAIPMHResumptionToken.decode(null));
+        Assert.assertNull(OAIPMHResumptionToken.decode("no base64 at all!"));
+        //offset-based tokens of former versions
+        Assert.assertNull(OAIPMHResumptionToken.decode(encode("100/1000")));
+        Assert.assertNull(OAIPMHResumptionToken.decode(encode("a/100/1000")));
+        Assert.assertNull(OAIPMHResumptionToken.decode(encode("5/-100/1000")));
+    }
+}
@@ -575,6 +575,26 @@ public interface IMetaDataManager {
      */
     <T> T persist(T entity) throws UnauthorizedAccessAttemptException;
 
+    /**
+     * Persist all provided entities within a single transaction. In contrast
+     * to {@link #persist(java.lang.Object)} the entities are not checked for
+     * existence before, therefore this method is intended to be used for
+     * entities which are known to be new, e.g. because they have just been
+     * created and have no id assigned, like audit events or log entries. If
+     * the operation fails, including failures while committing the
+     * transaction, a RuntimeException is thrown and none of the entities is
+     * persisted.
+     *
+     * @param <T> any class supported by the chosen model
+     * @param entities The list of new entities to persist.
+     *
+     * @return The persisted entities.
+     *
+     * @throws UnauthorizedAccessAttemptException Access not allowed for this
+     * context.
+     */
+    <T> List<T> persistAll(List<T> entities) throws UnauthorizedAccessAttemptException;
+
     /**
      * Update the provided entity. This method is used to update an existing
      * entity. If the entity does not exist (contains(entity) returns 'false'),
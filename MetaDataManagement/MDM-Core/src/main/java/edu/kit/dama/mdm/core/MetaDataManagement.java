@@ -15,6 +15,7 @@
  */
 package edu.kit.dama.mdm.core;
 
+import edu.kit.dama.authorization.entities.util.PU;
 import edu.kit.dama.commons.exceptions.InitializationError;
 import edu.kit.dama.util.DataManagerSettings;
 import java.net.URL;
@@ -402,5 +403,7 @@ public final class MetaDataManagement {
             e.getValue().destroy();
         }
         persistenceClassMap.clear();
+        //close shared factories of the authorization persistence unit, too
+        PU.shutdown();
     }
 }
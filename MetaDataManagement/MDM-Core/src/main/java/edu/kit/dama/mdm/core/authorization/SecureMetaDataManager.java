@@ -591,6 +591,42 @@ public final class SecureMetaDataManager implements IMetaDataManager {
         return returnValue;
     }
 
+    /**
+     * Persist all provided instances within one transaction. Instances
+     * implementing the ISecurableResource interface are registered afterwards
+     * as done by {@link #persist(java.lang.Object, edu.kit.dama.authorization.entities.IAuthorizationContext)}.
+     *
+     * @param <T> any class supported by the chosen model.
+     * @param entities instances to persist.
+     * @param authorizationContext authorization context.
+     *
+     * @return The persisted entities.
+     *
+     * @throws UnauthorizedAccessAttemptException Access not allowed for this
+     * context.
+     */
+    @SecuredMethod(roleRequired = Role.MEMBER)
+    <T> List<T> persistAll(List<T> entities, @Context IAuthorizationContext authorizationContext) throws UnauthorizedAccessAttemptException {
+        List<T> returnValue = impl.persistAll(entities);
+        if (returnValue != null) {
+            for (T entity : returnValue) {
+                if (entity instanceof ISecurableResource) {
+                    ISecurableResource resource = (ISecurableResource) entity;
+                    try {
+                        LOGGER.debug("Registering resource id {}", resource.getSecurableResourceId());
+                        ResourceServiceLocal.getSingleton().registerResource(resource.getSecurableResourceId(),
+                                authorizationContext.getGroupId(),
+                                Role.MANAGER,
+                                AuthorizationContext.factorySystemContext());
+                    } catch (EntityNotFoundException ex) {
+                        LOGGER.error("Failed to register resource. Probably, the provided groupId provided in the caller's context (" + authorizationContext.getGroupId() + ") does not exist.", ex);
+                    }
+                }
+            }
+        }
+        return returnValue;
+    }
+
     /**
      * Update the instance. Throws exception if instance was not persisted
      * before.
@@ -768,6 +804,11 @@ public final class SecureMetaDataManager implements IMetaDataManager {
         //   return returnValue;
     }
 
+    @Override
+    public <T> List<T> persistAll(List<T> entities) throws UnauthorizedAccessAttemptException {
+        return persistAll(entities, authCtx);
+    }
+
     @Override
     public <T> T update(T entity) throws UnauthorizedAccessAttemptException, EntityNotFoundException {
         //if ((authCtx != null) && (entity instanceof ISecurableResource)) {
@@ -551,6 +551,37 @@ public class MetaDataManagerJpa implements IMetaDataManager {
         return entity;
     }
 
+    @Override
+    public final <T> List<T> persistAll(List<T> entities) throws UnauthorizedAccessAttemptException {
+        if (entities == null || entities.isEmpty()) {
+            return entities;
+        }
+        EntityTransaction transaction = entityManager.getTransaction();
+        //flush and commit are performed here instead of using finalizeEntityManagerAccess(),
+        //as failures have to be reported to the caller, e.g. in order to retry single entities
+        try {
+            transaction.begin();
+            for (T entity : entities) {
+                entityManager.persist(entity);
+            }
+            LOGGER.debug("Flushing entityManager");
+            entityManager.flush();
+            LOGGER.debug("Committing current transaction");
+            transaction.commit();
+        } catch (RuntimeException re) {
+            LOGGER.error("Failed to persist " + entities.size() + " entities", re);
+            throw re;
+        } finally {
+            if (transaction.isActive()) {
+                LOGGER.debug("Transaction is still active. Performing rollback.");
+                transaction.rollback();
+            }
+            LOGGER.debug("Clearing entityManager cache");
+            entityManager.clear();
+        }
+        return entities;
+    }
+
     @Override
     public final <T> T update(T entity) throws UnauthorizedAccessAttemptException, EntityNotFoundException {
         //1. @ID pruefen (wenn NULL dann ist Entity neu, EntityNotFoundException werfen)
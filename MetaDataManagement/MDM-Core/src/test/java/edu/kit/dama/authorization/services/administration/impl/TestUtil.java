@@ -29,6 +29,7 @@ import edu.kit.dama.authorization.entities.impl.ResourceReference;
 import edu.kit.dama.authorization.entities.impl.GrantSet;
 import java.util.List;
 import edu.kit.dama.authorization.entities.util.PU;
+import edu.kit.dama.authorization.services.base.PlainAuthorizerLocal;
 import edu.kit.dama.util.Constants;
 import javax.persistence.*;
 
@@ -114,6 +115,7 @@ public class TestUtil {
     em.getTransaction().commit();
 
     em.close();
+    PlainAuthorizerLocal.invalidateDecisionCache();
   }
 //
 //    //// BEGIN self-tests ////
@@ -23,6 +23,7 @@ import edu.kit.dama.authorization.exceptions.UnauthorizedAccessAttemptException;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.After;
+import java.util.Arrays;
 import java.util.List;
 import org.slf4j.Logger;
 import edu.kit.dama.mdm.core.IMetaDataManager;
@@ -160,6 +161,28 @@ public class MetaDataManagementTest {
         assertEquals(true, entityManager.contains(entityForTestFive));
     }
 
+    /**
+     * Test persisting a list of entities containing an entity which cannot be
+     * written to the database. The failure occurs while flushing the
+     * transaction. It must be reported and none of the entities must be
+     * persisted.
+     */
+    @Test
+    public void testPersistAllWithInvalidEntity() throws UnauthorizedAccessAttemptException {
+        int noOfTestEntities = entityManager.find(TestEntity.class).size();
+        TestEntity validEntity = createTestEntityReference();
+        TestEntity invalidEntity = createTestEntityReference();
+        //exceeds the default column length of 255 characters
+        invalidEntity.setDescription(String.format("%300s", DESCRIPTION));
+        try {
+            entityManager.persistAll(Arrays.asList(validEntity, invalidEntity));
+            fail("Persisting an invalid entity must fail.");
+        } catch (RuntimeException ex) {
+            //expected
+        }
+        assertEquals(noOfTestEntities, entityManager.find(TestEntity.class).size());
+    }
+
     /**
      * Test persist entity to database twice.
      */
@@ -51,6 +51,7 @@ import edu.kit.dama.mdm.dataorganization.impl.staging.CollectionNodeImpl;
 import edu.kit.dama.mdm.dataorganization.impl.staging.DataOrganizationNodeImpl;
 import edu.kit.dama.mdm.dataorganization.impl.staging.FileNodeImpl;
 import edu.kit.dama.mdm.dataorganization.impl.staging.LFNImpl;
+import edu.kit.dama.mdm.dataorganization.impl.util.FileTreeSerializer;
 import edu.kit.dama.mdm.dataorganization.impl.util.Util;
 import edu.kit.dama.mdm.dataorganization.service.core.DataOrganizer;
 import edu.kit.dama.mdm.dataorganization.service.exception.EntityExistsException;
@@ -68,11 +69,16 @@ import edu.kit.dama.staging.util.DataOrganizationUtils;
 import edu.kit.dama.util.Constants;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -89,7 +95,6 @@ import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -387,7 +392,7 @@ public final class DataOrganizationRestServiceImpl implements IDataOrganizationR
                         switch (lfnUrl.getProtocol().toLowerCase()) {
                             case "file":
                                 LOGGER.debug("Using file handler for providing download of URL {}.", lfnUrl);
-                                response = new FileDownloadHandler().prepareStream(new File(lfnUrl.toURI()));
+                                response = new FileDownloadHandler(hc.getRequest()).prepareStream(new File(lfnUrl.toURI()));
                                 break;
                             case "http":
                                 //more flexible handling for http might be useful here
@@ -455,13 +460,34 @@ public final class DataOrganizationRestServiceImpl implements IDataOrganizationR
 
     @Override
     public IEntityWrapper<? extends IDefaultDataOrganizationNode> addDataOrganizationView(String groupId, Long baseId, String viewData, Boolean preserveAttributes, HttpContext hc) {
+        return addDataOrganizationView(groupId, baseId, new StringReader(viewData), preserveAttributes, hc);
+    }
+
+    @Override
+    public IEntityWrapper<? extends IDefaultDataOrganizationNode> addDataOrganizationView(String groupId, Long baseId, InputStream viewData, Boolean preserveAttributes, HttpContext hc) {
+        return addDataOrganizationView(groupId, baseId, new InputStreamReader(viewData, StandardCharsets.UTF_8), preserveAttributes, hc);
+    }
+
+    /**
+     * Create a new view from the JSON view data read from the provided reader.
+     *
+     * @param groupId The id of the group the digital object belongs to.
+     * @param baseId The baseId of the digital object.
+     * @param pViewData The reader providing the view data.
+     * @param preserveAttributes If TRUE all attributes of existing nodes are
+     * preserved.
+     * @param hc The HttpContext for OAuth check.
+     *
+     * @return The root node of the created view.
+     */
+    private IEntityWrapper<? extends IDefaultDataOrganizationNode> addDataOrganizationView(String groupId, Long baseId, Reader pViewData, Boolean preserveAttributes, HttpContext hc) {
         DigitalObjectId objectId = getDigitalObjectId(baseId, groupId, hc);
         IFileTree tree;
         String viewName = null;
         DataOrganizer org = DataOrganizerFactory.getInstance().getDataOrganizer();
 
         try {
-            tree = Util.jsonViewToFileTree(new JSONObject(viewData), preserveAttributes);
+            tree = FileTreeSerializer.readJsonView(pViewData, preserveAttributes, true);
             viewName = tree.getViewName();
             if (viewName == null || Util.isReservedViewName(viewName)) {
                 LOGGER.error("The view name '{}' provided with the view description is invalid or reserved by the system.", viewName);
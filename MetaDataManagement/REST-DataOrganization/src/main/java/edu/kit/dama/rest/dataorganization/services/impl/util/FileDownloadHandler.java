@@ -15,48 +15,306 @@
  */
 package edu.kit.dama.rest.dataorganization.services.impl.util;
 
-import com.sun.jersey.core.util.ReaderWriter;
+import com.sun.jersey.api.core.HttpRequestContext;
+import edu.kit.dama.util.DataManagerSettings;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import org.apache.tika.exception.TikaException;
+import javax.ws.rs.core.StreamingOutput;
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.detect.Detector;
+import org.apache.tika.io.TikaInputStream;
 import org.apache.tika.metadata.Metadata;
-import org.apache.tika.parser.AutoDetectParser;
-import org.apache.tika.parser.ParseContext;
-import org.apache.tika.parser.Parser;
-import org.apache.tika.sax.BodyContentHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xml.sax.ContentHandler;
-import org.xml.sax.SAXException;
 
 /**
+ * Download handler for local files. The content type is detected only once
+ * per file version using the magic bytes and the name of the file. If a
+ * request context is provided, conditional requests (If-None-Match,
+ * If-Modified-Since, If-Match, If-Unmodified-Since) and single byte ranges
+ * (Range, If-Range) are supported, which allows to resume downloads of large
+ * files.
  *
  * @author jejkal
  */
 public class FileDownloadHandler implements IDownloadHandler<File> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FileDownloadHandler.class);
+    /**
+     * Max. number of cached content types.
+     */
+    private static final int MAX_CACHED_CONTENT_TYPES = 1000;
+    /**
+     * Content type cache using the absolute file path as key.
+     */
+    private static final Map<String, CachedContentType> CONTENT_TYPE_CACHE = Collections.synchronizedMap(new LinkedHashMap<String, CachedContentType>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedContentType> eldest) {
+            return size() > MAX_CACHED_CONTENT_TYPES;
+        }
+    });
+
+    private final HttpRequestContext request;
+
+    /**
+     * Default constructor. Conditional and range requests are not supported
+     * as no request context is available.
+     */
+    public FileDownloadHandler() {
+        this(null);
+    }
+
+    /**
+     * Constructor for a download handler evaluating conditional and range
+     * headers of the provided request.
+     *
+     * @param pRequest The request context, which may be null.
+     */
+    public FileDownloadHandler(HttpRequestContext pRequest) {
+        request = pRequest;
+    }
 
     @Override
     public Response prepareStream(File pFile) throws IOException {
+        if (!pFile.isFile()) {
+            throw new IOException("File " + pFile + " does not exist or is no regular file.");
+        }
+        final long length = pFile.length();
+        final long lastModified = pFile.lastModified();
+        EntityTag eTag = new EntityTag(Long.toHexString(length) + "-" + Long.toHexString(lastModified));
+        //HTTP dates have a resolution of seconds
+        Date lastModifiedDate = new Date(lastModified / 1000 * 1000);
+
+        if (request != null) {
+            Response.ResponseBuilder preconditionFailed = request.evaluatePreconditions(lastModifiedDate, eTag);
+            if (preconditionFailed != null) {
+                LOGGER.debug("Precondition check for file {} resulted in a non-successful response.", pFile);
+                return preconditionFailed.tag(eTag).lastModified(lastModifiedDate).build();
+            }
+        }
+
+        String contentType = getContentType(pFile, length, lastModified);
+        long[] range = getRequestedRange(length, eTag, lastModifiedDate);
+        if (range != null && range.length == 0) {
+            LOGGER.debug("Requested range of file {} is not satisfiable.", pFile);
+            return Response.status(416).header("Content-Range", "bytes */" + length).build();
+        }
+
+        Response.ResponseBuilder builder;
+        long offset = 0;
+        long count = length;
+        if (range != null) {
+            offset = range[0];
+            count = range[1] - range[0] + 1;
+            LOGGER.debug("Serving bytes {}-{} of file {}.", new Object[]{range[0], range[1], pFile});
+            builder = Response.status(206).header("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+        } else {
+            builder = Response.ok();
+        }
+
+        return builder.entity(new FileRangeStreamingOutput(pFile, offset, count)).type(contentType).
+                header(HttpHeaders.CONTENT_LENGTH, count).
+                header("Accept-Ranges", "bytes").
+                tag(eTag).
+                lastModified(lastModifiedDate).build();
+    }
+
+    /**
+     * Get the content type of the provided file. The content type is detected
+     * using the file name and the first bytes of the file and is cached as long
+     * as length and last modification of the file are unchanged.
+     *
+     * @param pFile The file.
+     * @param pLength The file length.
+     * @param pLastModified The last modification timestamp of the file.
+     *
+     * @return The content type.
+     */
+    private static String getContentType(File pFile, long pLength, long pLastModified) {
+        String key = pFile.getAbsolutePath();
+        CachedContentType cached = CONTENT_TYPE_CACHE.get(key);
+        if (cached != null && cached.lastModified == pLastModified && cached.length == pLength) {
+            return cached.contentType;
+        }
+        String contentType = MediaType.APPLICATION_OCTET_STREAM;
+        LOGGER.debug("Trying to determine content type of file {}", pFile);
+        Metadata metadata = new Metadata();
+        metadata.set(Metadata.RESOURCE_NAME_KEY, pFile.getName());
+        try (InputStream is = TikaInputStream.get(pFile)) {
+            //only the magic bytes are read, the content is not parsed
+            contentType = DetectorHolder.DETECTOR.detect(is, metadata).toString();
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to detect content type of file " + pFile + ". Using " + contentType + ".", ex);
+        }
+        CONTENT_TYPE_CACHE.put(key, new CachedContentType(pLastModified, pLength, contentType));
+        return contentType;
+    }
+
+    /**
+     * Get the byte range requested via the Range header. Only a single range
+     * is supported. If no or an unsupported range was requested or if the
+     * If-Range condition does not match, null is returned and the entire file
+     * should be transferred. If the range is not satisfiable, an empty array is
+     * returned.
+     *
+     * @param pLength The file length.
+     * @param pETag The current entity tag of the file.
+     * @param pLastModified The last modification date of the file.
+     *
+     * @return An array containing first and last byte position (both
+     * inclusive), an empty array or null.
+     */
+    private long[] getRequestedRange(long pLength, EntityTag pETag, Date pLastModified) {
+        if (request == null) {
+            return null;
+        }
+        String rangeHeader = request.getHeaderValue("Range");
+        if (rangeHeader == null) {
+            return null;
+        }
+        rangeHeader = rangeHeader.trim();
+        if (!rangeHeader.startsWith("bytes=") || rangeHeader.indexOf(',') >= 0) {
+            LOGGER.debug("Unsupported range '{}'. Serving entire file.", rangeHeader);
+            return null;
+        }
+        String ifRange = request.getHeaderValue("If-Range");
+        if (ifRange != null && !ifRange.equals(pETag.toString()) && !ifRange.equals(formatHttpDate(pLastModified))) {
+            LOGGER.debug("If-Range condition '{}' does not match. Serving entire file.", ifRange);
+            return null;
+        }
+        String spec = rangeHeader.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        long first;
+        long last;
         try {
-            String contentType;
-            try (FileInputStream is = new FileInputStream(pFile)) {
-                LOGGER.debug("Trying to determine content type of file {}", pFile);
-                Metadata metadata = new Metadata();
-                ParseContext context = new ParseContext();
-                AutoDetectParser parser = new AutoDetectParser();
-                context.set(Parser.class, parser);
-                ContentHandler handler = new BodyContentHandler(-1);
-                // actually extract the metadata via Tika
-                parser.parse(is, handler, metadata, context);
-                contentType = metadata.get("Content-Type");
+            if (dash == 0) {
+                //suffix range, e.g. bytes=-500
+                long suffix = Long.parseLong(spec.substring(1).trim());
+                if (suffix <= 0) {
+                    return new long[0];
+                }
+                first = Math.max(0, pLength - suffix);
+                last = pLength - 1;
+            } else {
+                first = Long.parseLong(spec.substring(0, dash).trim());
+                String lastPart = spec.substring(dash + 1).trim();
+                last = (lastPart.isEmpty()) ? Long.MAX_VALUE : Long.parseLong(lastPart);
+                if (first < 0 || last < first) {
+                    //syntactically invalid range, which has to be ignored
+                    return null;
+                }
             }
-            return Response.ok(new FileInputStream(pFile), contentType).build();
-        } catch (SAXException | TikaException ex) {
-            throw new IOException("Failed to prepare download stream for file " + pFile, ex);
+        } catch (NumberFormatException ex) {
+            LOGGER.debug("Invalid range '{}'. Serving entire file.", rangeHeader);
+            return null;
+        }
+        //check before limiting the last position to the file length, which would make an out-of-range request look invalid
+        if (first >= pLength) {
+            return new long[0];
+        }
+        return new long[]{first, Math.min(last, pLength - 1)};
+    }
+
+    /**
+     * Format the provided date according to RFC 1123 as used in HTTP headers.
+     *
+     * @param pDate The date to format.
+     *
+     * @return The formatted date.
+     */
+    private static String formatHttpDate(Date pDate) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(pDate);
+    }
+
+    /**
+     * StreamingOutput writing a range of a file to the response using a file
+     * channel.
+     */
+    private static final class FileRangeStreamingOutput implements StreamingOutput {
+
+        private final File file;
+        private final long offset;
+        private final long count;
+
+        FileRangeStreamingOutput(File pFile, long pOffset, long pCount) {
+            file = pFile;
+            offset = pOffset;
+            count = pCount;
+        }
+
+        @Override
+        public void write(OutputStream os) throws IOException, WebApplicationException {
+            int blockSize = DataManagerSettings.getSingleton().getIntProperty(DataManagerSettings.DATA_ORGANIZATION_DOWNLOAD_BLOCK_SIZE, 10 * 1024);
+            ByteBuffer buffer = ByteBuffer.allocate(blockSize);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                FileChannel channel = raf.getChannel();
+                long position = offset;
+                long remaining = count;
+                while (remaining > 0) {
+                    buffer.clear();
+                    if (remaining < buffer.capacity()) {
+                        buffer.limit((int) remaining);
+                    }
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of file " + file + " at position " + position + ".");
+                    }
+                    os.write(buffer.array(), 0, read);
+                    position += read;
+                    remaining -= read;
+                }
+            }
+            os.flush();
+        }
+    }
+
+    /**
+     * Lazy holder of the shared Tika detector. The MIME repository is used
+     * directly as it only checks magic bytes and file name, whereas container
+     * detectors may read the entire file.
+     */
+    private static final class DetectorHolder {
+
+        private static final Detector DETECTOR = TikaConfig.getDefaultConfig().getMimeRepository();
+    }
+
+    /**
+     * Cached content type of a specific file version.
+     */
+    private static final class CachedContentType {
+
+        private final long lastModified;
+        private final long length;
+        private final String contentType;
+
+        CachedContentType(long pLastModified, long pLength, String pContentType) {
+            lastModified = pLastModified;
+            length = pLength;
+            contentType = pContentType;
         }
     }
 }
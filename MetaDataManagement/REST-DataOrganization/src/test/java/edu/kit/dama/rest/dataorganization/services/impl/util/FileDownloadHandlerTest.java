@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.rest.dataorganization.services.impl.util;
+
+import com.sun.jersey.api.core.HttpRequestContext;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for range and conditional requests served by FileDownloadHandler.
+ * The request context is a stub only providing request headers and a simple
+ * If-None-Match evaluation.
+ *
+ * @author jejkal
+ */
+public class FileDownloadHandlerTest {
+
+    private static final int LENGTH = 100;
+    private static File file;
+    private static byte[] content;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        content = new byte[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            content[i] = (byte) i;
+        }
+        file = File.createTempFile("download", ".bin");
+        Files.write(file.toPath(), content);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        file.delete();
+    }
+
+    @Test
+    public void testNoRange() throws Exception {
+        Response response = new FileDownloadHandler(request()).prepareStream(file);
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals("bytes", header(response, "Accept-Ranges"));
+        Assert.assertArrayEquals(content, body(response));
+    }
+
+    @Test
+    public void testClosedRange() throws Exception {
+        assertPartial(request("Range", "bytes=10-19"), 10, 19);
+    }
+
+    @Test
+    public void testOpenEndedRange() throws Exception {
+        assertPartial(request("Range", "bytes=90-"), 90, 99);
+    }
+
+    @Test
+    public void testRangeExceedingLength() throws Exception {
+        assertPartial(request("Range", "bytes=90-1000"), 90, 99);
+    }
+
+    @Test
+    public void testSuffixRange() throws Exception {
+        assertPartial(request("Range", "bytes=-10"), 90, 99);
+        //suffix larger than the file returns the entire file
+        assertPartial(request("Range", "bytes=-1000"), 0, 99);
+    }
+
+    @Test
+    public void testUnsatisfiableRange() throws Exception {
+        assertUnsatisfiable(request("Range", "bytes=100-"));
+        assertUnsatisfiable(request("Range", "bytes=100-200"));
+        assertUnsatisfiable(request("Range", "bytes=1000-"));
+        assertUnsatisfiable(request("Range", "bytes=-0"));
+    }
+
+    @Test
+    public void testInvalidOrUnsupportedRange() throws Exception {
+        for (String range : Arrays.asList("bytes=20-10", "bytes=a-b", "bytes=0-1,5-6", "items=0-1", "bytes=10")) {
+            Response response = new FileDownloadHandler(request("Range", range)).prepareStream(file);
+            Assert.assertEquals("Unexpected status for range " + range, 200, response.getStatus());
+            Assert.assertArrayEquals(content, body(response));
+        }
+    }
+
+    @Test
+    public void testIfRange() throws Exception {
+        EntityTag eTag = getETag();
+        assertPartial(request("Range", "bytes=10-19", "If-Range", eTag.toString()), 10, 19);
+        assertPartial(request("Range", "bytes=10-19", "If-Range", formatHttpDate(new Date(file.lastModified()))), 10, 19);
+
+        //outdated validators result in the entire file
+        Response response = new FileDownloadHandler(request("Range", "bytes=10-19", "If-Range", "\"outdated\"")).prepareStream(file);
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertArrayEquals(content, body(response));
+        response = new FileDownloadHandler(request("Range", "bytes=10-19", "If-Range", formatHttpDate(new Date(0)))).prepareStream(file);
+        Assert.assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    public void testETagAndPreconditions() throws Exception {
+        EntityTag eTag = getETag();
+        Assert.assertEquals(Long.toHexString(LENGTH) + "-" + Long.toHexString(file.lastModified()), eTag.getValue());
+        Response response = new FileDownloadHandler(request("If-None-Match", eTag.toString())).prepareStream(file);
+        Assert.assertEquals(304, response.getStatus());
+        Assert.assertEquals(eTag, response.getMetadata().getFirst("ETag"));
+        Assert.assertNull(response.getEntity());
+    }
+
+    private void assertPartial(HttpRequestContext pRequest, int pFirst, int pLast) throws Exception {
+        Response response = new FileDownloadHandler(pRequest).prepareStream(file);
+        Assert.assertEquals(206, response.getStatus());
+        Assert.assertEquals("bytes " + pFirst + "-" + pLast + "/" + LENGTH, header(response, "Content-Range"));
+        Assert.assertEquals(Long.toString(pLast - pFirst + 1), header(response, "Content-Length"));
+        Assert.assertArrayEquals(Arrays.copyOfRange(content, pFirst, pLast + 1), body(response));
+    }
+
+    private void assertUnsatisfiable(HttpRequestContext pRequest) throws Exception {
+        Response response = new FileDownloadHandler(pRequest).prepareStream(file);
+        Assert.assertEquals(416, response.getStatus());
+        Assert.assertEquals("bytes */" + LENGTH, header(response, "Content-Range"));
+        Assert.assertNull(response.getEntity());
+    }
+
+    private EntityTag getETag() throws Exception {
+        return (EntityTag) new FileDownloadHandler(request()).prepareStream(file).getMetadata().getFirst("ETag");
+    }
+
+    private static String header(Response pResponse, String pName) {
+        Object value = pResponse.getMetadata().getFirst(pName);
+        return (value != null) ? value.toString() : null;
+    }
+
+    private static byte[] body(Response pResponse) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        ((StreamingOutput) pResponse.getEntity()).write(bout);
+        return bout.toByteArray();
+    }
+
+    private static String formatHttpDate(Date pDate) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(new Date(pDate.getTime() / 1000 * 1000));
+    }
+
+    /**
+     * Create a request context stub providing the provided headers as
+     * name-value pairs.
+     *
+     * @param pHeaders The header names and values.
+     *
+     * @return The request context.
+     */
+    private static HttpRequestContext request(String... pHeaders) {
+        final Map<String, String> headers = new HashMap<>();
+        for (int i = 0; i < pHeaders.length; i += 2) {
+            headers.put(pHeaders[i], pHeaders[i + 1]);
+        }
+        return (HttpRequestContext) Proxy.newProxyInstance(FileDownloadHandlerTest.class.getClassLoader(), new Class[]{HttpRequestContext.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "getHeaderValue":
+                        return headers.get((String) args[0]);
+                    case "evaluatePreconditions":
+                        //only If-None-Match is evaluated by this stub
+                        String ifNoneMatch = headers.get("If-None-Match");
+                        if (ifNoneMatch != null && args.length == 2 && ifNoneMatch.equals(args[1].toString())) {
+                            return Response.notModified();
+                        }
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        });
+    }
+}
@@ -67,7 +67,7 @@ public final class SchedulerRestService implements ISchedulerRestService {
             throw new WebApplicationException(ex, Response.Status.UNAUTHORIZED);
         }
 
-        return RestUtils.createObjectGraphStream(ScheduleWrapper.class, Constants.REST_DEFAULT_OBJECT_GRAPH, new ScheduleWrapper(schedules));
+        return RestUtils.createCompactObjectGraphStream(ScheduleWrapper.class, Constants.REST_DEFAULT_OBJECT_GRAPH, new ScheduleWrapper(schedules));
     }
 
     @Override
@@ -101,7 +101,7 @@ public final class SchedulerRestService implements ISchedulerRestService {
             throw new WebApplicationException(ex, Response.Status.UNAUTHORIZED);
         }
 
-        return RestUtils.createObjectGraphStream(TriggerWrapper.class, Constants.REST_DEFAULT_OBJECT_GRAPH, new TriggerWrapper(triggers));
+        return RestUtils.createCompactObjectGraphStream(TriggerWrapper.class, Constants.REST_DEFAULT_OBJECT_GRAPH, new TriggerWrapper(triggers));
     }
 
     @Override
@@ -135,7 +135,7 @@ public final class SchedulerRestService implements ISchedulerRestService {
             throw new WebApplicationException(ex, Response.Status.UNAUTHORIZED);
         }
 
-        return RestUtils.createObjectGraphStream(ScheduleWrapper.class, Constants.REST_DEFAULT_OBJECT_GRAPH, new ScheduleWrapper(schedules));
+        return RestUtils.createCompactObjectGraphStream(ScheduleWrapper.class, Constants.REST_DEFAULT_OBJECT_GRAPH, new ScheduleWrapper(schedules));
     }
 
     @Override
@@ -150,7 +150,7 @@ public final class SchedulerRestService implements ISchedulerRestService {
             throw new WebApplicationException(ex, Response.Status.UNAUTHORIZED);
         }
 
-        return RestUtils.createObjectGraphStream(TriggerWrapper.class, Constants.REST_DEFAULT_OBJECT_GRAPH, new TriggerWrapper(triggers));
+        return RestUtils.createCompactObjectGraphStream(TriggerWrapper.class, Constants.REST_DEFAULT_OBJECT_GRAPH, new TriggerWrapper(triggers));
     }
 
     @Override
@@ -0,0 +1,286 @@
+/**
+ * Copyright (C) 2014 Karlsruhe Institute of Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package edu.kit.dama.rest.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import org.eclipse.persistence.jaxb.MarshallerProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process-wide registry for JAXBContexts and pooled (un)marshallers.
+ * JAXBContexts are thread-safe but expensive to create, therefore they are
+ * created once per set of classes and reused afterwards. Marshallers and
+ * unmarshallers are not thread-safe, they are borrowed from a pool and are
+ * released after successful usage, e.g.:
+ *
+ * <pre>
+ * Marshaller m = JAXBContextRegistry.acquireMarshaller(classes, "default", false);
+ * m.marshal(entity, out);
+ * JAXBContextRegistry.releaseMarshaller(classes, "default", false, m);
+ * </pre>
+ *
+ * Instances that failed with an exception must not be released, as their
+ * internal state is undefined. They are simply discarded and the pool creates
+ * new instances on demand.
+ *
+ * @author mf6319
+ */
+public final class JAXBContextRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JAXBContextRegistry.class);
+
+    /**
+     * Max. number of idle (un)marshallers kept per pool.
+     */
+    public static final int MAX_POOL_SIZE = 32;
+
+    private static final ConcurrentHashMap<Set<Class>, JAXBContext> CONTEXTS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<MarshallerKey, Pool<Marshaller>> MARSHALLERS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Set<Class>, Pool<Unmarshaller>> UNMARSHALLERS = new ConcurrentHashMap<>();
+
+    /**
+     * Hidden constructor.
+     */
+    private JAXBContextRegistry() {
+    }
+
+    /**
+     * Get the JAXBContext for the provided classes. The order of the classes
+     * does not matter. If no context exists for the provided set of classes, a
+     * new context is created and registered.
+     *
+     * @param pClasses The classes the context should be able to handle.
+     *
+     * @return The JAXBContext.
+     *
+     * @throws JAXBException If the context could not be created.
+     */
+    public static JAXBContext getContext(Class... pClasses) throws JAXBException {
+        Set<Class> key = toKey(pClasses);
+        JAXBContext context = CONTEXTS.get(key);
+        if (context == null) {
+            LOGGER.debug("Creating JAXBContext for classes {}", key);
+            context = org.eclipse.persistence.jaxb.JAXBContext.newInstance(pClasses);
+            JAXBContext existing = CONTEXTS.putIfAbsent(key, context);
+            if (existing != null) {
+                context = existing;
+            }
+        }
+        return context;
+    }
+
+    /**
+     * Borrow a marshaller for the provided classes, object graph and output
+     * format. The marshaller must be returned via
+     * {@link #releaseMarshaller(java.lang.Class[], java.lang.String, boolean, javax.xml.bind.Marshaller)}
+     * using the same arguments.
+     *
+     * @param pClasses The classes to marshal.
+     * @param pGraphName The object graph name or null to marshal the entire
+     * object.
+     * @param pFormatted TRUE for pretty printed output, FALSE for compact
+     * output.
+     *
+     * @return The marshaller.
+     *
+     * @throws JAXBException If the marshaller could not be created.
+     */
+    public static Marshaller acquireMarshaller(Class[] pClasses, String pGraphName, boolean pFormatted) throws JAXBException {
+        Marshaller marshaller = getMarshallerPool(pClasses, pGraphName, pFormatted).poll();
+        if (marshaller == null) {
+            marshaller = getContext(pClasses).createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, pFormatted);
+            if (pGraphName != null) {
+                marshaller.setProperty(MarshallerProperties.OBJECT_GRAPH, pGraphName);
+            }
+        }
+        return marshaller;
+    }
+
+    /**
+     * Return a marshaller obtained via
+     * {@link #acquireMarshaller(java.lang.Class[], java.lang.String, boolean)}
+     * after it was used successfully.
+     *
+     * @param pClasses The classes used to acquire the marshaller.
+     * @param pGraphName The object graph name used to acquire the marshaller.
+     * @param pFormatted The output format used to acquire the marshaller.
+     * @param pMarshaller The marshaller to return.
+     */
+    public static void releaseMarshaller(Class[] pClasses, String pGraphName, boolean pFormatted, Marshaller pMarshaller) {
+        if (pMarshaller != null) {
+            getMarshallerPool(pClasses, pGraphName, pFormatted).offer(pMarshaller);
+        }
+    }
+
+    /**
+     * Borrow an unmarshaller for the provided classes. The unmarshaller must be
+     * returned via
+     * {@link #releaseUnmarshaller(java.lang.Class[], javax.xml.bind.Unmarshaller)}.
+     *
+     * @param pClasses The classes to unmarshal.
+     *
+     * @return The unmarshaller.
+     *
+     * @throws JAXBException If the unmarshaller could not be created.
+     */
+    public static Unmarshaller acquireUnmarshaller(Class... pClasses) throws JAXBException {
+        Unmarshaller unmarshaller = getUnmarshallerPool(pClasses).poll();
+        if (unmarshaller == null) {
+            unmarshaller = getContext(pClasses).createUnmarshaller();
+        }
+        return unmarshaller;
+    }
+
+    /**
+     * Return an unmarshaller obtained via
+     * {@link #acquireUnmarshaller(java.lang.Class[])} after it was used
+     * successfully.
+     *
+     * @param pClasses The classes used to acquire the unmarshaller.
+     * @param pUnmarshaller The unmarshaller to return.
+     */
+    public static void releaseUnmarshaller(Class[] pClasses, Unmarshaller pUnmarshaller) {
+        if (pUnmarshaller != null) {
+            getUnmarshallerPool(pClasses).offer(pUnmarshaller);
+        }
+    }
+
+    /**
+     * Get the number of registered JAXBContexts.
+     *
+     * @return The number of contexts.
+     */
+    public static int getContextCount() {
+        return CONTEXTS.size();
+    }
+
+    /**
+     * Remove all registered contexts and pooled (un)marshallers, e.g. on
+     * redeployment of a web application.
+     */
+    public static void clear() {
+        MARSHALLERS.clear();
+        UNMARSHALLERS.clear();
+        CONTEXTS.clear();
+    }
+
+    private static Set<Class> toKey(Class[] pClasses) {
+        if (pClasses == null || pClasses.length == 0) {
+            throw new IllegalArgumentException("Argument pClasses must not be null or empty.");
+        }
+        return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(pClasses)));
+    }
+
+    private static Pool<Marshaller> getMarshallerPool(Class[] pClasses, String pGraphName, boolean pFormatted) {
+        MarshallerKey key = new MarshallerKey(toKey(pClasses), pGraphName, pFormatted);
+        Pool<Marshaller> pool = MARSHALLERS.get(key);
+        if (pool == null) {
+            pool = new Pool<>();
+            Pool<Marshaller> existing = MARSHALLERS.putIfAbsent(key, pool);
+            if (existing != null) {
+                pool = existing;
+            }
+        }
+        return pool;
+    }
+
+    private static Pool<Unmarshaller> getUnmarshallerPool(Class[] pClasses) {
+        Set<Class> key = toKey(pClasses);
+        Pool<Unmarshaller> pool = UNMARSHALLERS.get(key);
+        if (pool == null) {
+            pool = new Pool<>();
+            Pool<Unmarshaller> existing = UNMARSHALLERS.putIfAbsent(key, pool);
+            if (existing != null) {
+                pool = existing;
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Simple bounded pool of idle objects.
+     */
+    private static final class Pool<T> {
+
+        private final Queue<T> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger(0);
+
+        T poll() {
+            T element = idle.poll();
+            if (element != null) {
+                size.decrementAndGet();
+            }
+            return element;
+        }
+
+        void offer(T element) {
+            if (size.incrementAndGet() <= MAX_POOL_SIZE) {
+                idle.offer(element);
+            } else {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Key of a marshaller pool.
+     */
+    private static final class MarshallerKey {
+
+        private final Set<Class> classes;
+        private final String graphName;
+        private final boolean formatted;
+
+        MarshallerKey(Set<Class> classes, String graphName, boolean formatted) {
+            this.classes = classes;
+            this.graphName = graphName;
+            this.formatted = formatted;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 5;
+            hash = 41 * hash + classes.hashCode();
+            hash = 41 * hash + (graphName != null ? graphName.hashCode() : 0);
+            hash = 41 * hash + (formatted ? 1 : 0);
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof MarshallerKey)) {
+                return false;
+            }
+            MarshallerKey other = (MarshallerKey) obj;
+            return formatted == other.formatted
+                    && classes.equals(other.classes)
+                    && (graphName == null ? other.graphName == null : graphName.equals(other.graphName));
+        }
+    }
+}
@@ -164,6 +164,27 @@ public final class RestClientUtils {
         return createObjectFromStream(pEntityClass, returnValue);
     }
 
+    /**
+     * Perform a POST request on the qiven path sending the provided entity as
+     * request body, e.g. a StreamingOutput writing the body while the request
+     * is sent.
+     *
+     * @param <C> entity class.
+     * @param pEntityClass The class of the entity to deserialize.
+     * @param pWebResource instance of webresource.
+     * @param pQueryParams url parameters
+     * @param pEntity The request body.
+     * @param pMediaType The media type of the request body.
+     * @return client response
+     */
+    public static <C> C performPost(Class<C> pEntityClass, WebResource pWebResource,
+            MultivaluedMap pQueryParams, Object pEntity, String pMediaType) {
+        ClientResponse returnValue;
+        WebResource webResource = prepareWebResource(pWebResource, pQueryParams);
+        returnValue = webResource.type(pMediaType).post(ClientResponse.class, pEntity);
+        return createObjectFromStream(pEntityClass, returnValue);
+    }
+
     /**
      * Perform a PUT request on the qiven path with the given parameters.
      *
@@ -311,13 +332,14 @@ public final class RestClientUtils {
         if (pEntityClass != null) {
             LOGGER.debug("createObjectFromStream");
             try {
-                Unmarshaller unmarshaller = org.eclipse.persistence.jaxb.JAXBContext.newInstance(pEntityClass).createUnmarshaller();
+                Unmarshaller unmarshaller = JAXBContextRegistry.acquireUnmarshaller(pEntityClass);
                 returnValue = (C) unmarshaller.unmarshal(getInputStream(pResponse.getEntityInputStream()));
+                JAXBContextRegistry.releaseUnmarshaller(pEntityClass, unmarshaller);
                 if (LOGGER.isDebugEnabled()) {
-                    Marshaller marshaller = org.eclipse.persistence.jaxb.JAXBContext.newInstance(pEntityClass).createMarshaller();
-                    marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+                    Marshaller marshaller = JAXBContextRegistry.acquireMarshaller(pEntityClass, null, true);
                     StringWriter sw = new StringWriter();
                     marshaller.marshal(returnValue, sw);
+                    JAXBContextRegistry.releaseMarshaller(pEntityClass, null, true, marshaller);
                     LOGGER.debug("createObjectFromStream: " + sw.toString());
                 }
             } catch (JAXBException ex) {
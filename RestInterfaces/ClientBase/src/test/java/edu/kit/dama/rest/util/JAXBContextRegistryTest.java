@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2014 Karlsruhe Institute of Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package edu.kit.dama.rest.util;
+
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.core.header.InBoundHeaders;
+import edu.kit.dama.rest.base.exceptions.DeserializationException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author mf6319
+ */
+public class JAXBContextRegistryTest {
+
+    private static final Class[] CLASSES = new Class[]{TestEntity.class};
+
+    @After
+    public void tearDown() {
+        JAXBContextRegistry.clear();
+    }
+
+    @Test
+    public void testContextIsCachedPerClassSet() throws Exception {
+        JAXBContextRegistry.clear();
+        Assert.assertSame(JAXBContextRegistry.getContext(TestEntity.class, OtherEntity.class), JAXBContextRegistry.getContext(OtherEntity.class, TestEntity.class));
+        Assert.assertEquals(1, JAXBContextRegistry.getContextCount());
+        Assert.assertNotSame(JAXBContextRegistry.getContext(TestEntity.class), JAXBContextRegistry.getContext(TestEntity.class, OtherEntity.class));
+        Assert.assertEquals(2, JAXBContextRegistry.getContextCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testContextWithoutClasses() throws Exception {
+        JAXBContextRegistry.getContext();
+    }
+
+    @Test
+    public void testMarshallerIsReused() throws Exception {
+        Marshaller first = JAXBContextRegistry.acquireMarshaller(CLASSES, null, false);
+        //not released yet, thus a new instance is expected
+        Marshaller second = JAXBContextRegistry.acquireMarshaller(CLASSES, null, false);
+        Assert.assertNotSame(first, second);
+        JAXBContextRegistry.releaseMarshaller(CLASSES, null, false, first);
+        Assert.assertSame(first, JAXBContextRegistry.acquireMarshaller(CLASSES, null, false));
+        //other output format, thus other pool
+        JAXBContextRegistry.releaseMarshaller(CLASSES, null, false, second);
+        Assert.assertNotSame(second, JAXBContextRegistry.acquireMarshaller(CLASSES, null, true));
+    }
+
+    @Test
+    public void testPoolIsBounded() throws Exception {
+        List<Marshaller> marshallers = new ArrayList<>();
+        for (int i = 0; i <= JAXBContextRegistry.MAX_POOL_SIZE; i++) {
+            marshallers.add(JAXBContextRegistry.acquireMarshaller(CLASSES, null, false));
+        }
+        for (Marshaller marshaller : marshallers) {
+            JAXBContextRegistry.releaseMarshaller(CLASSES, null, false, marshaller);
+        }
+        Set<Marshaller> pooled = Collections.newSetFromMap(new IdentityHashMap<Marshaller, Boolean>());
+        pooled.addAll(marshallers);
+        int reused = 0;
+        for (int i = 0; i <= JAXBContextRegistry.MAX_POOL_SIZE; i++) {
+            if (pooled.contains(JAXBContextRegistry.acquireMarshaller(CLASSES, null, false))) {
+                reused++;
+            }
+        }
+        Assert.assertEquals(JAXBContextRegistry.MAX_POOL_SIZE, reused);
+    }
+
+    @Test
+    public void testCompactAndFormattedOutput() throws Exception {
+        TestEntity entity = new TestEntity("test");
+        String compact = marshal(entity, false);
+        String formatted = marshal(entity, true);
+        Assert.assertFalse(compact.contains("\n"));
+        Assert.assertTrue(formatted.contains("\n"));
+        Assert.assertEquals(compact.replaceAll("\\s", ""), formatted.replaceAll("\\s", ""));
+
+        Unmarshaller unmarshaller = JAXBContextRegistry.acquireUnmarshaller(CLASSES);
+        try {
+            Assert.assertEquals("test", ((TestEntity) unmarshaller.unmarshal(new ByteArrayInputStream(compact.getBytes("UTF-8")))).getName());
+        } finally {
+            JAXBContextRegistry.releaseUnmarshaller(CLASSES, unmarshaller);
+        }
+        Assert.assertSame(unmarshaller, JAXBContextRegistry.acquireUnmarshaller(CLASSES));
+    }
+
+    @Test
+    public void testFailedUnmarshallerIsDiscarded() throws Exception {
+        TestEntity entity = (TestEntity) RestClientUtils.createObjectFromStream(CLASSES, createResponse(marshal(new TestEntity("test"), false)));
+        Assert.assertEquals("test", entity.getName());
+        Unmarshaller used = JAXBContextRegistry.acquireUnmarshaller(CLASSES);
+        JAXBContextRegistry.releaseUnmarshaller(CLASSES, used);
+
+        try {
+            RestClientUtils.createObjectFromStream(CLASSES, createResponse("<testEntity><name>"));
+            Assert.fail("Invalid XML should not be deserialized");
+        } catch (DeserializationException ex) {
+            //expected
+        }
+        //the unmarshaller that failed is not returned to the pool
+        Assert.assertNotSame(used, JAXBContextRegistry.acquireUnmarshaller(CLASSES));
+    }
+
+    private ClientResponse createResponse(String pEntity) throws Exception {
+        return new ClientResponse(200, new InBoundHeaders(), new ByteArrayInputStream(pEntity.getBytes("UTF-8")), null);
+    }
+
+    private String marshal(Object pEntity, boolean pFormatted) throws Exception {
+        Marshaller marshaller = JAXBContextRegistry.acquireMarshaller(CLASSES, null, pFormatted);
+        try {
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            marshaller.marshal(pEntity, bout);
+            return bout.toString("UTF-8");
+        } finally {
+            JAXBContextRegistry.releaseMarshaller(CLASSES, null, pFormatted, marshaller);
+        }
+    }
+
+    @XmlRootElement(name = "testEntity")
+    public static class TestEntity {
+
+        private String name;
+
+        public TestEntity() {
+        }
+
+        public TestEntity(String pName) {
+            name = pName;
+        }
+
+        @XmlElement
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String pName) {
+            name = pName;
+        }
+    }
+
+    @XmlRootElement(name = "otherEntity")
+    public static class OtherEntity {
+    }
+}
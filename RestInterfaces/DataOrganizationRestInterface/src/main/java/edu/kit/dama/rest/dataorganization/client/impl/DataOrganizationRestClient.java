@@ -20,6 +20,7 @@ import edu.kit.dama.rest.dataorganization.types.DataOrganizationViewWrapper;
 import edu.kit.dama.rest.dataorganization.types.DataOrganizationNodeWrapper;
 import com.sun.jersey.core.util.MultivaluedMapImpl;
 import edu.kit.dama.mdm.dataorganization.entity.core.IFileTree;
+import edu.kit.dama.mdm.dataorganization.impl.util.FileTreeSerializer;
 import edu.kit.dama.mdm.dataorganization.impl.util.Util;
 import edu.kit.dama.rest.AbstractRestClient;
 import edu.kit.dama.rest.SimpleRESTContext;
@@ -29,8 +30,13 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
 import org.json.JSONObject;
 import org.slf4j.LoggerFactory;
 
@@ -45,6 +51,7 @@ public class DataOrganizationRestClient extends AbstractRestClient {
     private static final String QUERY_PARAMETER_VIEW_NAME = "viewName";
     private static final String FORM_PARAMETER_VIEW_DATA = "viewData";
     private static final String FORM_PARAMETER_PRESERVE_ATTRIBUTES = "preserveAttributes";
+    private static final String QUERY_PARAMETER_PRESERVE_ATTRIBUTES = "preserveAttributes";
 
     // <editor-fold defaultstate="collapsed" desc="URL components">
     /**
@@ -844,12 +851,91 @@ public class DataOrganizationRestClient extends AbstractRestClient {
     public DataOrganizationNodeWrapper postView(String pGroupId, Long pId,
             IFileTree pView, Boolean pPreserveAttributes, SimpleRESTContext pSecurityContext) {
 
-        MultivaluedMap queryParams;
-        MultivaluedMap formParams;
         setFilterFromContext(pSecurityContext);
-        queryParams = new MultivaluedMapImpl();
-        formParams = new MultivaluedMapImpl();
+        MultivaluedMap queryParams = createPostViewQueryParams(pGroupId, pId, pView);
+        MultivaluedMap formParams = new MultivaluedMapImpl();
+
+        JSONObject viewData = Util.fileTreeToJsonView(pView);
+
+        formParams.add(FORM_PARAMETER_VIEW_DATA, viewData.toString());
+        if (pPreserveAttributes != null) {
+            formParams.add(FORM_PARAMETER_PRESERVE_ATTRIBUTES, pPreserveAttributes.toString());
+        }
+        return performDataOrganizationNodePost(RestClientUtils.encodeUrl(
+                ROOT_NODE, pId), queryParams, formParams);
+    }
+
+    /**
+     * Create a new view as done by {@link #postView(java.lang.String, java.lang.Long, edu.kit.dama.mdm.dataorganization.entity.core.IFileTree, java.lang.Boolean)},
+     * but send the view as JSON request body which is serialized while the
+     * request is sent. This avoids holding the entire view as string in
+     * memory, but requires a server version accepting application/json
+     * requests for creating views.
+     *
+     * @param pGroupId The id of the group to which the associated digital
+     * object belongs.
+     * @param pId The id of the digital object.
+     * @param pView The file tree representing the view to create.
+     * @param pPreserveAttributes If TRUE all data organization node attributes
+     * of existing nodes are preserved in the new view.
+     *
+     * @return A DataOrganizationNodeWrapper entity containing the root node of
+     * the new view.
+     */
+    public DataOrganizationNodeWrapper postViewAsJson(String pGroupId, Long pId,
+            IFileTree pView, Boolean pPreserveAttributes) {
+        return postViewAsJson(pGroupId, pId, pView, pPreserveAttributes, null);
+    }
+
+    /**
+     * Create a new view as done by {@link #postView(java.lang.String, java.lang.Long, edu.kit.dama.mdm.dataorganization.entity.core.IFileTree, java.lang.Boolean, edu.kit.dama.rest.SimpleRESTContext)},
+     * but send the view as JSON request body which is serialized while the
+     * request is sent. This avoids holding the entire view as string in
+     * memory, but requires a server version accepting application/json
+     * requests for creating views.
+     *
+     * @param pGroupId The id of the group to which the associated digital
+     * object belongs.
+     * @param pId The id of the digital object.
+     * @param pView The file tree representing the view to create.
+     * @param pPreserveAttributes If TRUE all data organization node attributes
+     * of existing nodes are preserved in the new view.
+     * @param pSecurityContext The security context used to access the REST
+     * interface.
+     *
+     * @return A DataOrganizationNodeWrapper entity containing the root node of
+     * the new view.
+     */
+    public DataOrganizationNodeWrapper postViewAsJson(String pGroupId, Long pId,
+            final IFileTree pView, Boolean pPreserveAttributes, SimpleRESTContext pSecurityContext) {
+        setFilterFromContext(pSecurityContext);
+        MultivaluedMap queryParams = createPostViewQueryParams(pGroupId, pId, pView);
+        if (pPreserveAttributes != null) {
+            queryParams.add(QUERY_PARAMETER_PRESERVE_ATTRIBUTES, pPreserveAttributes.toString());
+        }
+        //the view is serialized while the request is sent
+        StreamingOutput viewData = new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                FileTreeSerializer.writeJsonView(pView, new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            }
+        };
+        return RestClientUtils.performPost(DataOrganizationNodeWrapper.class,
+                getWebResource(RestClientUtils.encodeUrl(ROOT_NODE, pId)), queryParams, viewData, MediaType.APPLICATION_JSON);
+    }
 
+    /**
+     * Check the arguments for creating a new view and create the query
+     * parameters.
+     *
+     * @param pGroupId The id of the group to which the associated digital
+     * object belongs.
+     * @param pId The id of the digital object.
+     * @param pView The file tree representing the view to create.
+     *
+     * @return The query parameters.
+     */
+    private MultivaluedMap createPostViewQueryParams(String pGroupId, Long pId, IFileTree pView) {
         if (pId == null) {
             throw new IllegalArgumentException(
                     "Digital object ID must not be null");
@@ -864,17 +950,11 @@ public class DataOrganizationRestClient extends AbstractRestClient {
             throw new IllegalArgumentException(MessageFormat.format("The name '{0}' of the provided view is a reserved name and my not be used for custom views.", pView.getViewName()));
         }
 
+        MultivaluedMap queryParams = new MultivaluedMapImpl();
         if (pGroupId != null) {
             queryParams.add(Constants.REST_PARAMETER_GROUP_ID, pGroupId);
         }
-        JSONObject viewData = Util.fileTreeToJsonView(pView);
-
-        formParams.add(FORM_PARAMETER_VIEW_DATA, viewData.toString());
-        if (pPreserveAttributes != null) {
-            formParams.add(FORM_PARAMETER_PRESERVE_ATTRIBUTES, pPreserveAttributes.toString());
-        }
-        return performDataOrganizationNodePost(RestClientUtils.encodeUrl(
-                ROOT_NODE, pId), queryParams, formParams);
+        return queryParams;
     }
 
     /**
@@ -24,6 +24,8 @@ import edu.kit.dama.rest.base.ICommonRestInterface;
 import edu.kit.dama.rest.base.IEntityWrapper;
 import edu.kit.dama.rest.dataorganization.types.DataOrganizationViewWrapper;
 import edu.kit.dama.util.Constants;
+import java.io.InputStream;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.FormParam;
 import javax.ws.rs.GET;
@@ -158,6 +160,43 @@ public interface IDataOrganizationRestService extends ICommonRestInterface {
             @FormParam("preserveAttributes") Boolean preserveAttributes,
             @javax.ws.rs.core.Context HttpContext hc);
 
+    /**
+     * Add a new DataOrganization view to the DigitalObject with the provided
+     * id. In contrast to
+     * {@link #addDataOrganizationView(String, Long, String, Boolean, HttpContext)},
+     * the view data is sent as request body of type application/json, which
+     * has the same format as the 'viewData' form parameter. The body is parsed
+     * while being received, thus large views are not buffered.
+     *
+     * @summary Create a new DataOrganization view for the object with the
+     * provided baseId from the JSON request body.
+     *
+     * @param groupId The id of the group the digital object belongs to.
+     * @param baseId The baseId of the digital object for which a
+     * DataOrganization view should be posted.
+     * @param viewData The JSON request body defining the data organization
+     * view.
+     * @param preserveAttributes If TRUE all attributes of existing nodes are
+     * preserved meaning they are copied to the according node in the new view.
+     * @param hc The HttpContext for OAuth check.
+     *
+     * @return The root node of the created DataOrganization view stored for the
+     * provided digital object.
+     *
+     * @see edu.kit.dama.rest.dataorganization.types.DataOrganizationNodeWrapper
+     */
+    @POST
+    @Path(value = "/organization/{id}")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    @ReturnType("edu.kit.dama.rest.base.IEntityWrapper<edu.kit.dama.mdm.dataorganization.entity.core.IDefaultDataOrganizationNode>")
+    IEntityWrapper<? extends IDefaultDataOrganizationNode> addDataOrganizationView(
+            @QueryParam("groupId") @DefaultValue(Constants.USERS_GROUP_ID) String groupId,
+            @PathParam("id") Long baseId,
+            InputStream viewData,
+            @QueryParam("preserveAttributes") Boolean preserveAttributes,
+            @javax.ws.rs.core.Context HttpContext hc);
+
     /**
      * Returns the number of root nodes in the DataOrganization for the digital
      * object with the provided id. By default only one root node should be
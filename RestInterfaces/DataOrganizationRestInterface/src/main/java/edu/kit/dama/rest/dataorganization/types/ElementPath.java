@@ -16,14 +16,12 @@
 package edu.kit.dama.rest.dataorganization.types;
 
 import edu.kit.dama.commons.types.DigitalObjectId;
-import edu.kit.dama.mdm.dataorganization.entity.core.ICollectionNode;
 import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
 import edu.kit.dama.mdm.dataorganization.entity.core.IFileTree;
 import edu.kit.dama.mdm.dataorganization.entity.impl.client.NodeId;
 import edu.kit.dama.mdm.dataorganization.impl.jpa.DataOrganizationNode;
 import edu.kit.dama.mdm.dataorganization.impl.staging.CollectionNodeImpl;
 import edu.kit.dama.mdm.dataorganization.impl.staging.DataOrganizationNodeImpl;
-import edu.kit.dama.mdm.dataorganization.impl.util.Util;
 import edu.kit.dama.mdm.dataorganization.service.core.DataOrganizer;
 import edu.kit.dama.mdm.dataorganization.service.core.DataOrganizerFactory;
 import edu.kit.dama.mdm.dataorganization.service.exception.EntityNotFoundException;
@@ -87,22 +85,25 @@ public class ElementPath implements Serializable {
 
         IDataOrganizationNode result;
         if (id < 0) {
-            //no id yet...obtain id by path
-            LOGGER.debug("Loading file tree for object {} and view {}", pObjectId, pView);
-            IFileTree tree = dataOrganizer.loadFileTree(pObjectId, pView);
-            //traverse root by path
-            IDataOrganizationNode rootNode = tree.getRootNode();
+            //no id yet...obtain node by path
             List<String> paths = new ArrayList<>();
             Collections.addAll(paths, path);
             //remove empty strings
-            paths.remove("");
+            paths.removeAll(Collections.singleton(""));
             if (paths.isEmpty()) {
                 //no children...just return root
+                LOGGER.debug("Loading file tree for object {} and view {}", pObjectId, pView);
+                IFileTree tree = dataOrganizer.loadFileTree(pObjectId, pView);
+                IDataOrganizationNode rootNode = tree.getRootNode();
                 LOGGER.debug("No paths found, returning root node {}.", rootNode);
                 return rootNode;
             }
-            LOGGER.debug("Getting child of rootNode {} by path {}", rootNode, paths);
-            result = (DataOrganizationNodeImpl) DataOrganizationUtils.copyNode(getChildByPath(rootNode, paths), false);
+            StringBuilder fullPath = new StringBuilder();
+            for (String element : paths) {
+                fullPath.append("/").append(element);
+            }
+            LOGGER.debug("Loading node for path {} in object {} and view {}", new Object[]{fullPath, pObjectId, pView});
+            result = (DataOrganizationNodeImpl) DataOrganizationUtils.copyNode(dataOrganizer.loadNodeByPath(pObjectId, pView, fullPath.toString()), false);
         } else {
             //use direct node id
             LOGGER.debug("Loading subtree for object {}, view {} and nodeId {}", pObjectId, pView, id);
@@ -125,20 +126,4 @@ public class ElementPath implements Serializable {
         return result;
     }
 
-    private IDataOrganizationNode getChildByPath(IDataOrganizationNode pCurrentNode, List<String> pPath) {
-        if (pCurrentNode == null) {
-            throw new IllegalArgumentException("Failed to traverse data organization node. Current node is 'null', remaining path is '" + pPath + "'");
-        }
-        if (pPath.isEmpty()) {
-            return pCurrentNode;
-        }
-        String currentPath = pPath.remove(0);
-        LOGGER.debug("Obtaining node for currentPath {}", currentPath);
-        if (pCurrentNode instanceof ICollectionNode) {
-            return getChildByPath(Util.getNodeByName((ICollectionNode) pCurrentNode, currentPath), pPath);
-        }
-        //current node is a file node, no more children are available but obviously the path has not ended yet.
-        throw new IllegalArgumentException("Failed to traverse data organization node. No children for node '" + pCurrentNode + "' but sub-path '" + currentPath + "' expected.");
-    }
-
 }
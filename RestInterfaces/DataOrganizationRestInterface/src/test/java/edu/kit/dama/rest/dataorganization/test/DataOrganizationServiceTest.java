@@ -221,4 +221,16 @@ public class DataOrganizationServiceTest extends JerseyTest {
         DataOrganizationNodeWrapper nw = client.postView(null, 1l, tree, true, null);
     }
 
+    @Test
+    public void testDataOrganiztionViewAsJson() {
+        IFileTree tree = new FileTreeImpl();
+        tree.setDigitalObjectId(new DigitalObjectId("abcd-efgh"));
+        tree.setViewName("custom");
+        ICollectionNode node = new CollectionNodeImpl();
+        node.setName("collection");
+        tree.getRootNode().addChild(node);
+        DataOrganizationNodeWrapper nw = client.postViewAsJson(null, 1l, tree, true, null);
+        assertEquals((long) nw.getCount(), 1l);
+    }
+
 }
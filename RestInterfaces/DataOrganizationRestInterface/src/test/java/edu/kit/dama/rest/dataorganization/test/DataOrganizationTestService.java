@@ -31,10 +31,14 @@ import edu.kit.dama.rest.base.types.CheckServiceResponse;
 import edu.kit.dama.rest.base.types.ServiceStatus;
 import edu.kit.dama.mdm.dataorganization.impl.staging.CollectionNodeImpl;
 import edu.kit.dama.mdm.dataorganization.impl.staging.DataOrganizationNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.util.FileTreeSerializer;
 import edu.kit.dama.mdm.dataorganization.impl.util.Util;
 import edu.kit.dama.mdm.dataorganization.service.exception.InvalidNodeIdException;
 import edu.kit.dama.rest.base.IEntityWrapper;
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedList;
 import java.util.List;
 import javax.ws.rs.Path;
@@ -209,4 +213,14 @@ public class DataOrganizationTestService implements IDataOrganizationRestService
             throw new WebApplicationException(500);
         }
     }
+
+    @Override
+    public IEntityWrapper<? extends IDefaultDataOrganizationNode> addDataOrganizationView(String groupId, Long baseId, InputStream viewData, Boolean preserveAttributes, HttpContext hc) {
+        try {
+            IFileTree tree = FileTreeSerializer.readJsonView(new InputStreamReader(viewData, StandardCharsets.UTF_8), preserveAttributes, false);
+            return new DataOrganizationNodeWrapper((CollectionNodeImpl) tree.getRootNode());
+        } catch (InvalidNodeIdException ex) {
+            throw new WebApplicationException(500);
+        }
+    }
 }
@@ -23,6 +23,7 @@ import edu.kit.dama.mdm.dataorganization.entity.impl.client.NodeId;
 import edu.kit.dama.mdm.dataorganization.impl.staging.FileNodeImpl;
 import edu.kit.dama.mdm.dataorganization.impl.staging.FileTreeImpl;
 import edu.kit.dama.mdm.dataorganization.impl.staging.LFNImpl;
+import edu.kit.dama.mdm.dataorganization.service.core.FileTreeUpdateResult;
 import edu.kit.dama.mdm.dataorganization.service.exception.EntityExistsException;
 import edu.kit.dama.mdm.dataorganization.service.exception.EntityNotFoundException;
 import edu.kit.dama.mdm.dataorganization.service.exception.InvalidNodeIdException;
@@ -52,6 +53,11 @@ public class DummyDataOrganizer implements edu.kit.dama.mdm.dataorganization.ser
     public void createFileTree(IFileTree fileTree) throws EntityExistsException {
     }
 
+    @Override
+    public FileTreeUpdateResult updateFileTree(IFileTree fileTree) {
+        return new FileTreeUpdateResult();
+    }
+
     @Override
     public List<? extends IDataOrganizationNode> getChildren(NodeId nodeId, int firstResult, int maxResult) throws InvalidNodeIdException {
         return new ArrayList<IDataOrganizationNode>();
@@ -88,6 +94,11 @@ public class DummyDataOrganizer implements edu.kit.dama.mdm.dataorganization.ser
         return node;
     }
 
+    @Override
+    public IDataOrganizationNode loadNodeByPath(DigitalObjectId digitalObjectId, String viewName, String path) throws EntityNotFoundException {
+        return new FileNodeImpl(new LFNImpl("file:///tmp/dummy.txt"));
+    }
+
     @Override
     public List<String> getViews(DigitalObjectId doid) {
         return Arrays.asList(Constants.DEFAULT_VIEW);
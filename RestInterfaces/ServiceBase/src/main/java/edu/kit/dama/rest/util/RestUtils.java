@@ -44,7 +44,6 @@ import javax.ws.rs.core.StreamingOutput;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
-import org.eclipse.persistence.jaxb.MarshallerProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -139,31 +138,7 @@ public final class RestUtils {
     public static StreamingOutput createObjectGraphStream(
             final Class pEntityClass[], final String pGraphName,
             final Object... pEntities) {
-        return new StreamingOutput() {
-
-            @Override
-            public void write(OutputStream arg0) {
-                try {
-                    LOGGER.debug("Performing marshalling");
-                    Marshaller marshaller = org.eclipse.persistence.jaxb.JAXBContext.newInstance(pEntityClass).createMarshaller();
-                    marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-                    if (pGraphName != null) {
-                        marshaller.setProperty(MarshallerProperties.OBJECT_GRAPH, pGraphName);
-                    }
-                    marshaller.marshal((pEntities.length == 1) ? pEntities[0] : Arrays.asList(pEntities), arg0);
-                    LOGGER.debug("Marshalling finished. Flushing output stream.");
-                    arg0.flush();
-                    LOGGER.debug("Output flushed.");
-                } catch (IOException e) {
-                    LOGGER.error("Failed to write result to output stream.", e);
-                } catch (JAXBException e) {
-                    LOGGER.error("Failed to marshal result to output stream.", e);
-                } catch (ClassCastException e) {
-                    LOGGER.error(
-                            "A passed entity is no instance of any provided class", e);
-                }
-            }
-        };
+        return streamObjectGraph(pEntityClass, pGraphName, true, pEntities);
     }
 
     /**
@@ -187,6 +162,88 @@ public final class RestUtils {
                 pEntities);
     }
 
+    /**
+     * Serializes one or more entities of the same type to a compact
+     * (non-formatted) XML object graph. In contrast to
+     * {@link #createObjectGraphStream(java.lang.Class[], java.lang.String, java.lang.Object...)}
+     * no indentation is added, which reduces the document size and the
+     * serialization time, e.g. for large entity lists. The XML is written
+     * directly to the response stream.
+     *
+     * @param pEntityClass An array of classes of supported entities.
+     * @param pGraphName The object graph name used to serialize the object. If
+     * no graph name is provided the entire object is serialized.
+     * @param pEntities One or more entities serialized and written to the
+     * returned StreamingOutput.
+     *
+     * @return The StreamingOutput which can be returned by a REST method.
+     */
+    public static StreamingOutput createCompactObjectGraphStream(
+            final Class pEntityClass[], final String pGraphName,
+            final Object... pEntities) {
+        return streamObjectGraph(pEntityClass, pGraphName, false, pEntities);
+    }
+
+    /**
+     * Serializes one or more entities of the same type to a compact
+     * (non-formatted) XML object graph.
+     *
+     * @param pEntityClass The class of the entity to serialize.
+     * @param pGraphName The object graph name used to serialize the object. If
+     * no graph name is provided the entire object is serialized.
+     * @param pEntities One or more entities serialized and written to the
+     * returned StreamingOutput.
+     *
+     * @return The StreamingOutput which can be returned by a REST method.
+     *
+     * @see #createCompactObjectGraphStream(java.lang.Class[], java.lang.String,
+     * java.lang.Object...)
+     */
+    public static StreamingOutput createCompactObjectGraphStream(
+            final Class pEntityClass, final String pGraphName,
+            final Object... pEntities) {
+        return createCompactObjectGraphStream(new Class[]{pEntityClass}, pGraphName,
+                pEntities);
+    }
+
+    /**
+     * Internal helper creating the StreamingOutput using a pooled marshaller.
+     *
+     * @param pEntityClass An array of classes of supported entities.
+     * @param pGraphName The object graph name or null.
+     * @param pFormatted TRUE for formatted output.
+     * @param pEntities The entities to serialize.
+     *
+     * @return The StreamingOutput.
+     */
+    private static StreamingOutput streamObjectGraph(
+            final Class pEntityClass[], final String pGraphName, final boolean pFormatted,
+            final Object... pEntities) {
+        return new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream arg0) {
+                try {
+                    LOGGER.debug("Performing marshalling");
+                    Marshaller marshaller = JAXBContextRegistry.acquireMarshaller(pEntityClass, pGraphName, pFormatted);
+                    marshaller.marshal((pEntities.length == 1) ? pEntities[0] : Arrays.asList(pEntities), arg0);
+                    //only return the marshaller if it was used successfully, failed instances may be in an undefined state
+                    JAXBContextRegistry.releaseMarshaller(pEntityClass, pGraphName, pFormatted, marshaller);
+                    LOGGER.debug("Marshalling finished. Flushing output stream.");
+                    arg0.flush();
+                    LOGGER.debug("Output flushed.");
+                } catch (IOException e) {
+                    LOGGER.error("Failed to write result to output stream.", e);
+                } catch (JAXBException e) {
+                    LOGGER.error("Failed to marshal result to output stream.", e);
+                } catch (ClassCastException e) {
+                    LOGGER.error(
+                            "A passed entity is no instance of any provided class", e);
+                }
+            }
+        };
+    }
+
     /**
      * Deserializes an entity from a stream provided by a ClientResponse. This
      * method throws a DeserializationException if the deserialization fails for
@@ -200,11 +257,12 @@ public final class RestUtils {
      */
     public static <C> C createObjectFromStream(final Class pEntityClass,
             final ClientResponse pResponse) {
+        Class[] classes = new Class[]{pEntityClass};
         try {
-            Unmarshaller unmarshaller
-                    = org.eclipse.persistence.jaxb.JAXBContext.newInstance(
-                            pEntityClass).createUnmarshaller();
-            return (C) unmarshaller.unmarshal(pResponse.getEntityInputStream());
+            Unmarshaller unmarshaller = JAXBContextRegistry.acquireUnmarshaller(classes);
+            C result = (C) unmarshaller.unmarshal(pResponse.getEntityInputStream());
+            JAXBContextRegistry.releaseUnmarshaller(classes, unmarshaller);
+            return result;
         } catch (JAXBException ex) {
             throw new DeserializationException(
                     "Failed to deserialize object of type " + pEntityClass
@@ -214,23 +272,22 @@ public final class RestUtils {
 
     public static <C> C transformObject(final Class pEntityClass[], final String pGraphName,
             final Object pEntity) {
-
         try {
             LOGGER.debug("Performing marshalling of object.");
-            Marshaller marshaller = org.eclipse.persistence.jaxb.JAXBContext.newInstance(pEntityClass).createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-            if (pGraphName != null) {
-                marshaller.setProperty(MarshallerProperties.OBJECT_GRAPH, pGraphName);
-            }
+            Marshaller marshaller = JAXBContextRegistry.acquireMarshaller(pEntityClass, pGraphName, false);
             ByteArrayOutputStream bout = new ByteArrayOutputStream();
             marshaller.marshal(pEntity, bout);
+            JAXBContextRegistry.releaseMarshaller(pEntityClass, pGraphName, false, marshaller);
             LOGGER.debug("Marshalling finished. Flushing output stream.");
             bout.flush();
-            LOGGER.debug("Output flushed. Converting XML result '{}' back to object.", new String(bout.toByteArray()));
-            ByteArrayInputStream bin = new ByteArrayInputStream(bout.toByteArray());
-            Unmarshaller unmarshaller = org.eclipse.persistence.jaxb.JAXBContext.newInstance(
-                    pEntityClass).createUnmarshaller();
-            return (C) unmarshaller.unmarshal(bin);
+            byte[] data = bout.toByteArray();
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Output flushed. Converting XML result '{}' back to object.", new String(data));
+            }
+            Unmarshaller unmarshaller = JAXBContextRegistry.acquireUnmarshaller(pEntityClass);
+            C result = (C) unmarshaller.unmarshal(new ByteArrayInputStream(data));
+            JAXBContextRegistry.releaseUnmarshaller(pEntityClass, unmarshaller);
+            return result;
         } catch (IOException e) {
             LOGGER.error("Failed to write result to output stream.", e);
         } catch (JAXBException e) {
@@ -235,6 +235,25 @@ public interface ITransferInformationPersistence<C extends ITransferStatus, D ex
      */
     int updateStatus(long pId, C pStatus, String pErrorMessage, IAuthorizationContext pSecurityContext);
 
+    /**
+     * Update the status for the entity with id 'pId' only if its current
+     * status is 'pExpectedStatus'. As the check and the update are performed
+     * within one statement, this method can be used to claim a transfer, e.g.,
+     * before processing it, without overwriting a status that was changed
+     * concurrently.
+     *
+     * @param pId The id of the transfer to update.
+     * @param pExpectedStatus The status the transfer must currently have.
+     * @param pStatus The new status for the transfer.
+     * @param pErrorMessage An optional human readable error message.
+     * @param pSecurityContext The security context used to check access
+     * permissions for this method and the ownership of the entity.
+     *
+     * @return The number of affected rows, which is 0 if the transfer does not
+     * exist or if its status is not 'pExpectedStatus'.
+     */
+    int updateStatus(long pId, C pExpectedStatus, C pStatus, String pErrorMessage, IAuthorizationContext pSecurityContext);
+
     /**
      * Update the client access URL for the entity with the id 'pId'. The client
      * access URL either points to an URL where a transfer client was generated
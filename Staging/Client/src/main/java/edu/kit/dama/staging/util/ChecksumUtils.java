@@ -0,0 +1,216 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.staging.util;
+
+import edu.kit.dama.staging.interfaces.IStorageVirtualizationServiceAdapter.HASH_TYPE;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Helper methods for calculating checksums of local files. Checksums can
+ * either be calculated for an existing file or while copying a file, which
+ * avoids reading the data a second time.
+ *
+ * @author jejkal
+ */
+public final class ChecksumUtils {
+
+    /**
+     * The size of the copy buffer.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Hidden constructor.
+     */
+    private ChecksumUtils() {
+    }
+
+    /**
+     * Get the name of the MessageDigest algorithm for the provided hash type.
+     *
+     * @param pType The hash type.
+     *
+     * @return The algorithm name, e.g. SHA-256.
+     */
+    public static String getAlgorithm(HASH_TYPE pType) {
+        switch (pType) {
+            case SHA:
+                return "SHA-1";
+            case SHA256:
+                return "SHA-256";
+            case SHA384:
+                return "SHA-384";
+            case SHA512:
+                return "SHA-512";
+            default:
+                return "MD5";
+        }
+    }
+
+    /**
+     * Create a new MessageDigest for the provided algorithm.
+     *
+     * @param pAlgorithm The algorithm name, e.g. SHA-256.
+     *
+     * @return The MessageDigest.
+     *
+     * @throws IllegalArgumentException If the algorithm is not supported.
+     */
+    public static MessageDigest createDigest(String pAlgorithm) {
+        try {
+            return MessageDigest.getInstance(pAlgorithm);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalArgumentException("Checksum algorithm " + pAlgorithm + " is not supported", ex);
+        }
+    }
+
+    /**
+     * Check whether the provided algorithm is offered by one of the installed
+     * security providers.
+     *
+     * @param pAlgorithm The algorithm name, e.g. SHA-256.
+     *
+     * @return TRUE if a MessageDigest for pAlgorithm can be created.
+     */
+    public static boolean isSupported(String pAlgorithm) {
+        if (pAlgorithm == null) {
+            return false;
+        }
+        try {
+            MessageDigest.getInstance(pAlgorithm);
+            return true;
+        } catch (NoSuchAlgorithmException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Calculate the checksum of a local file.
+     *
+     * @param pFile The file.
+     * @param pAlgorithm The algorithm name, e.g. SHA-256.
+     *
+     * @return The checksum as hex string.
+     *
+     * @throws IOException If pFile cannot be read.
+     */
+    public static String hashFile(File pFile, String pAlgorithm) throws IOException {
+        return copyAndHash(pFile, null, pAlgorithm);
+    }
+
+    /**
+     * Copy pSource to pTarget and calculate the checksum of the copied data in
+     * the same pass. An existing target file is overwritten, missing parent
+     * directories of the target file are created.
+     *
+     * @param pSource The source file.
+     * @param pTarget The target file or null if the data should only be hashed.
+     * @param pAlgorithm The algorithm name, e.g. SHA-256.
+     *
+     * @return The checksum as hex string.
+     *
+     * @throws IOException If reading or writing fails.
+     */
+    public static String copyAndHash(File pSource, File pTarget, String pAlgorithm) throws IOException {
+        return copyAndHash(pSource, pTarget, 0, pAlgorithm);
+    }
+
+    /**
+     * Copy pSource to pTarget starting at pOffset and calculate the checksum of
+     * the entire file in the same pass. The first pOffset bytes are expected to
+     * be copied already, e.g. by a previous, interrupted transfer. They are only
+     * read from pSource for calculating the checksum. pTarget is truncated to
+     * pOffset before the remaining data is appended.
+     *
+     * @param pSource The source file.
+     * @param pTarget The target file or null if the data should only be hashed.
+     * @param pOffset The number of bytes already copied to pTarget.
+     * @param pAlgorithm The algorithm name, e.g. SHA-256.
+     *
+     * @return The checksum as hex string.
+     *
+     * @throws IOException If reading or writing fails or if pSource is smaller
+     * than pOffset.
+     */
+    public static String copyAndHash(File pSource, File pTarget, long pOffset, String pAlgorithm) throws IOException {
+        MessageDigest digest = createDigest(pAlgorithm);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(pSource)) {
+            long position = 0;
+            while (position < pOffset) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, pOffset - position));
+                if (read == -1) {
+                    throw new EOFException("Source file " + pSource + " is smaller than offset " + pOffset);
+                }
+                digest.update(buffer, 0, read);
+                position += read;
+            }
+            try (OutputStream out = (pTarget != null) ? openTarget(pTarget, pOffset) : null) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                    if (out != null) {
+                        out.write(buffer, 0, read);
+                    }
+                }
+            }
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    /**
+     * Open pTarget for writing at pOffset. All data behind pOffset is removed.
+     * Missing parent directories of pTarget are created.
+     *
+     * @param pTarget The target file.
+     * @param pOffset The write position.
+     *
+     * @return The output stream.
+     *
+     * @throws IOException If pTarget cannot be opened.
+     */
+    private static OutputStream openTarget(File pTarget, long pOffset) throws IOException {
+        File parent = pTarget.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+        if (pOffset == 0) {
+            return new FileOutputStream(pTarget);
+        }
+        FileChannel channel = FileChannel.open(pTarget.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        try {
+            channel.truncate(pOffset);
+            channel.position(pOffset);
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+        return Channels.newOutputStream(channel);
+    }
+}
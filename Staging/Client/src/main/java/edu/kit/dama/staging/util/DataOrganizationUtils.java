@@ -38,13 +38,11 @@ import edu.kit.dama.mdm.dataorganization.impl.staging.DataOrganizationNodeImpl;
 import edu.kit.dama.mdm.dataorganization.impl.staging.FileNodeImpl;
 import edu.kit.dama.mdm.dataorganization.impl.staging.FileTreeImpl;
 import edu.kit.dama.staging.entities.StagingFile;
-import edu.kit.dama.mdm.dataorganization.impl.staging.LFNImpl;
 import edu.kit.dama.mdm.dataorganization.impl.staging.ISelectable;
 import edu.kit.dama.util.Constants;
-import edu.kit.dama.util.DataManagerSettings;
+import edu.kit.dama.util.ParallelZipWriter;
 import edu.kit.tools.url.URLCreator;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
@@ -54,27 +52,20 @@ import java.io.PrintStream;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.zip.Deflater;
 import java.util.zip.Inflater;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.Predicate;
-import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -94,6 +85,7 @@ public class DataOrganizationUtils {
     public final static String LAST_MODIFIED_KEY = "lastModified";
     public final static String CHILDREN_KEY = "children";
     public final static String SIZE_KEY = "size";
+    public final static String CHECKSUM_KEY = "checksum";
     public final static String EXISTS = "exists";
     public final static String TRANSFERRED = "transferred";
 
@@ -164,7 +156,7 @@ public class DataOrganizationUtils {
      */
     public static IFileTree createTreeFromFile(String pDigitalObjectId, AbstractFile pFile, URL pBaseUrl, boolean pIncludeAttributes) throws AdalapiException, MalformedURLException {
         LOGGER.debug("Creating file tree for object {} from local path {} with base URL {}", new Object[]{pDigitalObjectId, pFile.getPath(), pBaseUrl.toString()});
-        IDataOrganizationNode node = createNodeFromFile(pDigitalObjectId, pFile, pFile.getUrl().toString(), pBaseUrl, pIncludeAttributes);
+        IDataOrganizationNode node = FileTreeScanner.scan(pDigitalObjectId, pFile, pBaseUrl, pIncludeAttributes);
         IFileTree fileTree = new FileTreeImpl();
         fileTree.setDigitalObjectId(new DigitalObjectId(pDigitalObjectId));
         if (node instanceof ICollectionNode) {
@@ -181,100 +173,6 @@ public class DataOrganizationUtils {
         return fileTree;
     }
 
-    /**
-     * Creates a DataOrganizationNode from a local path. This method will take
-     * pLocalFile, removed pLocalBasePath from the file's path and creates a new
-     * DataOrganizationNode consisting of pNewBaseURL and the relative path of
-     * pLocalFile. Directories are included by iterative calls until the end of
-     * the directory structure was reached.
-     *
-     * @param pDigitalObjectId The digital object ID used for the root node
-     * @param pAbstractFile The file/directory forming the DataOrganizationNode
-     * @param pBaseUrl The base URL which will be removed from all LFNs in order
-     * to get its relative path.
-     * @param pNewBaseUrl The base URL to which the relative path of pFile is
-     * appended to form a DataOrganizationNode. It is expected that this URL is
-     * a directory.
-     * @param pIncludeAttributes If TRUE obtainable file attributes (e.g.
-     * filesize, directory/file flag, lastModified) are included into the tree.
-     *
-     * @return An IDataOrganizationNode object representing the entire file
-     * structure below pLocalFile.
-     *
-     * @throws AdalapiException If the access to pFile fails.
-     * @throws MalformedURLException If pBaseUrl is invalid.
-     */
-    private static IDataOrganizationNode createNodeFromFile(String pDigitalObjectId, AbstractFile pAbstractFile, String pBaseUrl, URL pNewBaseUrl, boolean pIncludeAttributes) throws AdalapiException, MalformedURLException {
-        String sBaseUrl = pNewBaseUrl.toString();
-        if (!sBaseUrl.endsWith("/")) {//add slash to base URL as this should be a directory
-            sBaseUrl += "/";
-        }
-        LOGGER.debug("Creating node from file {} with baseUrl {} for new baseUrl {}", pAbstractFile, pBaseUrl, pNewBaseUrl);
-        DataOrganizationNodeImpl ret;
-        String fromPath = FilenameUtils.normalize(pAbstractFile.getUrl().getPath(), true);
-        if (pAbstractFile.isDirectory()) {//local file is a directory, proceed accordingly in a recursive way
-            CollectionNodeImpl cn = new CollectionNodeImpl(new LFNImpl(sBaseUrl));
-            if (fromPath.equals(pBaseUrl)) {//we have the root path, so use the digital object ID as node identifier
-                cn.setName(pDigitalObjectId);
-            } else {//we have another path, so use the directory name as node identifier
-                cn.setName(pAbstractFile.getName());
-            }
-
-            //list all files and add them to the current node
-            Collection<AbstractFile> ls = pAbstractFile.list();
-            long dirSize = 0;
-            if (ls != null) {
-                for (AbstractFile child : ls) {//add all children recursively
-                    if (child.isLocal()) {//perform symlink check
-                        try {
-                            if (Files.isSymbolicLink(Paths.get(pAbstractFile.getUrl().toURI()))) {
-                                LOGGER.warn("Symbolic link detected in child in local file at {}. Ignoring it.", child);
-                                //do nothing with this child
-                            } else {
-                                //no symlink, add child
-                                IDataOrganizationNode childNode = createNodeFromFile(pDigitalObjectId, child, pBaseUrl, pNewBaseUrl, pIncludeAttributes);
-                                cn.addChild(childNode);
-                                for (IAttribute attribute : childNode.getAttributes()) {
-                                    if (attribute.getKey().equals(SIZE_KEY)) {
-                                        dirSize += Long.parseLong(attribute.getValue());
-                                    }
-                                }
-                            }
-                        } catch (URISyntaxException ex) {
-                            //ignored
-                        }
-                    } else {//for remote files we cannot perform symlink checks
-                        IDataOrganizationNode childNode = createNodeFromFile(pDigitalObjectId, child, pBaseUrl, pNewBaseUrl, pIncludeAttributes);
-                        cn.addChild(childNode);
-                        for (IAttribute attribute : childNode.getAttributes()) {
-                            if (attribute.getKey().equals(SIZE_KEY)) {
-                                dirSize += Long.parseLong(attribute.getValue());
-                            }
-                        }
-                    }
-                }
-            }
-
-            if (pIncludeAttributes) {
-                cn.addAttribute(new AttributeImpl(DIRECTORY_KEY, Boolean.TRUE.toString()));
-                cn.addAttribute(new AttributeImpl(LAST_MODIFIED_KEY, Long.toString(pAbstractFile.lastModified())));
-                cn.addAttribute(new AttributeImpl(SIZE_KEY, Long.toString(dirSize)));
-                cn.addAttribute(new AttributeImpl(CHILDREN_KEY, Integer.toString(pAbstractFile.list().size())));
-            }
-
-            ret = cn;
-        } else {//current file is no directory, just append it as filenode
-            ret = new FileNodeImpl(new LFNImpl(pAbstractFile.getUrl()));
-            ret.setName(pAbstractFile.getName());
-            if (pIncludeAttributes) {
-                ret.addAttribute(new AttributeImpl(DIRECTORY_KEY, Boolean.FALSE.toString()));
-                ret.addAttribute(new AttributeImpl(LAST_MODIFIED_KEY, Long.toString(pAbstractFile.lastModified())));
-                ret.addAttribute(new AttributeImpl(SIZE_KEY, Long.toString(pAbstractFile.getSize())));
-            }
-        }
-        return ret;
-    }
-
     /**
      * Print a provided file tree into a string builder.
      *
@@ -805,13 +703,23 @@ public class DataOrganizationUtils {
 
         for (ICollectionNode node : pPath) {//check all parents and create them if needed
             boolean needCreation = true;
-            for (IDataOrganizationNode child : currentNode.getChildren()) {//check all current children for beeing parents
-                if (child instanceof ICollectionNode && child.getName().equals(node.getName())) {//parent found, don't create
+            if (currentNode instanceof CollectionNodeImpl) {//use the name index
+                IDataOrganizationNode child = ((CollectionNodeImpl) currentNode).findChild(node.getName(), true);
+                if (child != null) {//parent found, don't create
                     needCreation = false;
                     //set new parent
                     currentNode = (ICollectionNode) child;
                     newParents.add(currentNode);
-                    break;
+                }
+            } else {
+                for (IDataOrganizationNode child : currentNode.getChildren()) {//check all current children for beeing parents
+                    if (child instanceof ICollectionNode && child.getName().equals(node.getName())) {//parent found, don't create
+                        needCreation = false;
+                        //set new parent
+                        currentNode = (ICollectionNode) child;
+                        newParents.add(currentNode);
+                        break;
+                    }
                 }
             }
 
@@ -846,7 +754,36 @@ public class DataOrganizationUtils {
      * @param pNodeToAdd The node to add.
      */
     public static void addNode(ICollectionNode pNode, final IDataOrganizationNode pNodeToAdd) {
-        IDataOrganizationNode result = (IDataOrganizationNode) CollectionUtils.find(pNode.getChildren(), new Predicate() {
+        IDataOrganizationNode result;
+        if (pNode instanceof CollectionNodeImpl) {
+            result = ((CollectionNodeImpl) pNode).findChild(pNodeToAdd);
+        } else {
+            result = findChild(pNode, pNodeToAdd);
+        }
+
+        if (result == null) {
+            //no child with same name, just add the node
+            pNode.addChild(pNodeToAdd);
+        } else if (result instanceof ICollectionNode && pNodeToAdd instanceof ICollectionNode) {
+            //child with same name found
+            for (IDataOrganizationNode child : ((ICollectionNode) pNodeToAdd).getChildren()) {
+                addNode((ICollectionNode) result, child);
+            }
+        }
+    }
+
+    /**
+     * Search the children of pNode for a node with the same name and type as
+     * pNodeToAdd. This linear search is only used for collection nodes not
+     * offering a name index.
+     *
+     * @param pNode The node whose children are searched.
+     * @param pNodeToAdd The node to search for.
+     *
+     * @return The matching child or null.
+     */
+    private static IDataOrganizationNode findChild(ICollectionNode pNode, final IDataOrganizationNode pNodeToAdd) {
+        return (IDataOrganizationNode) CollectionUtils.find(pNode.getChildren(), new Predicate() {
             @Override
             public boolean evaluate(Object o) {
                 IDataOrganizationNode node = (IDataOrganizationNode) o;
@@ -865,16 +802,6 @@ public class DataOrganizationUtils {
                 }
             }
         });
-
-        if (result == null) {
-            //no child with same name, just add the node
-            pNode.addChild(pNodeToAdd);
-        } else if (result instanceof ICollectionNode && pNodeToAdd instanceof ICollectionNode) {
-            //child with same name found
-            for (IDataOrganizationNode child : ((ICollectionNode) pNodeToAdd).getChildren()) {
-                addNode((ICollectionNode) result, child);
-            }
-        }
     }
 
     /**
@@ -1009,47 +936,23 @@ public class DataOrganizationUtils {
      * streaming fails.
      */
     public static void zip(ICollectionNode pNode, OutputStream pOutputStream, long pSizeLimit) throws IOException {
-        int blockSize = DataManagerSettings.getSingleton().getIntProperty(DataManagerSettings.DATA_ORGANIZATION_DOWNLOAD_BLOCK_SIZE, 10 * 1024);
-        int compression = DataManagerSettings.getSingleton().getIntProperty(DataManagerSettings.DATA_ORGANIZATION_DOWNLOAD_ZIP_COMPRESSION, -1);
-        if (compression < -1 || compression > 9) {
-            LOGGER.debug("Invalid compression {}. Setting compression to default -1", compression);
-            compression = Deflater.DEFAULT_COMPRESSION;
-        }
-        LOGGER.debug("Zipping collection node with blockSize {} and compression {}.", blockSize, compression);
-        byte[] buf = new byte[blockSize];
-
-        HashMap<String, File> map = new HashMap<>();
+        Map<String, File> map = new LinkedHashMap<>();
         long size = DataOrganizationUtils.generateZipEntries(pNode, null, map);
         if (pSizeLimit > 0 && size > pSizeLimit) {
             throw new IOException("Size limit of " + pSizeLimit + " bytes exceeded. Zip operation aborted.");
         }
-        Set<Entry<String, File>> entries = map.entrySet();
-        try (ZipOutputStream zipOut = new ZipOutputStream(pOutputStream)) {
-            zipOut.setLevel(compression);
-            for (Entry<String, File> entry : entries) {
-
+        LOGGER.debug("Zipping {} entries with {} bytes of collection node {}.", new Object[]{map.size(), size, pNode.getName()});
+        try (ParallelZipWriter zipOut = new ParallelZipWriter(pOutputStream)) {
+            for (Entry<String, File> entry : map.entrySet()) {
                 if (entry.getValue() == null) {
                     //directory node
-                    zipOut.putNextEntry(new ZipEntry(entry.getKey() + "/"));
+                    zipOut.putDirectory(entry.getKey());
                 } else {
                     //file node
-                    zipOut.putNextEntry(new ZipEntry(entry.getKey()));
-                }
-
-                if (entry.getValue() != null) {
-                    try (final FileInputStream in = new FileInputStream(entry.getValue())) {
-                        // Add ZIP entry to output stream.
-                        // Transfer bytes from the file to the ZIP file
-                        int len;
-                        while ((len = in.read(buf)) > 0) {
-                            zipOut.write(buf, 0, len);
-                        }
-                    }
+                    zipOut.putFile(entry.getKey(), entry.getValue());
                 }
-                zipOut.closeEntry();
             }
             zipOut.finish();
-            zipOut.flush();
         }
     }
 
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.staging.util;
+
+import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
+import edu.kit.dama.mdm.dataorganization.impl.staging.AttributeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.CollectionNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.DataOrganizationNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.FileNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.LFNImpl;
+import edu.kit.dama.util.DataManagerSettings;
+import edu.kit.lsdf.adalapi.AbstractFile;
+import edu.kit.lsdf.adalapi.exception.AdalapiException;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scanner creating the data organization nodes for a file or directory, e.g.
+ * while finalizing an ingest. Each directory is listed exactly once and the
+ * subtrees of all sub-directories are scanned in parallel using a shared
+ * ForkJoinPool. For local files, name, type, size and modification date of
+ * each entry are obtained by one bulk attribute read without following
+ * symbolic links. Symbolic links are skipped. Remote files are scanned via
+ * AbstractFile.
+ *
+ * The degree of parallelism is configured via
+ * {@link DataManagerSettings#STAGING_SCAN_THREADS}. Values smaller than 1
+ * select the number of available processors.
+ *
+ * @author jejkal
+ */
+public final class FileTreeScanner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileTreeScanner.class);
+
+    private static ForkJoinPool sharedPool = null;
+
+    private final String digitalObjectId;
+    private final String baseUrl;
+    private final boolean includeAttributes;
+
+    /**
+     * Default constructor.
+     *
+     * @param pDigitalObjectId The digital object id used as name of the root
+     * node if it is the base directory.
+     * @param pNewBaseUrl The base URL used as LFN of all collection nodes.
+     * @param pIncludeAttributes Include file attributes (directory flag, size,
+     * lastModified, number of children) into the nodes.
+     */
+    private FileTreeScanner(String pDigitalObjectId, URL pNewBaseUrl, boolean pIncludeAttributes) {
+        digitalObjectId = pDigitalObjectId;
+        String sBaseUrl = pNewBaseUrl.toString();
+        if (!sBaseUrl.endsWith("/")) {//add slash to base URL as this should be a directory
+            sBaseUrl += "/";
+        }
+        baseUrl = sBaseUrl;
+        includeAttributes = pIncludeAttributes;
+    }
+
+    /**
+     * Scan the provided file and create a node representing it. If pFile is a
+     * directory, a collection node containing the entire file structure below
+     * pFile is returned.
+     *
+     * @param pDigitalObjectId The digital object id.
+     * @param pFile The file or directory to scan.
+     * @param pNewBaseUrl The base URL used as LFN of collection nodes.
+     * @param pIncludeAttributes If TRUE obtainable file attributes (e.g.
+     * filesize, directory/file flag, lastModified) are included into the tree.
+     *
+     * @return The node representing pFile.
+     *
+     * @throws AdalapiException If the access to pFile or any child fails.
+     * @throws MalformedURLException If the URL of any file is invalid.
+     */
+    public static IDataOrganizationNode scan(String pDigitalObjectId, AbstractFile pFile, URL pNewBaseUrl, boolean pIncludeAttributes) throws AdalapiException, MalformedURLException {
+        return scan(pDigitalObjectId, pFile, pNewBaseUrl, pIncludeAttributes, getPool());
+    }
+
+    /**
+     * Scan the provided file using the provided pool instead of the shared
+     * one, e.g. for comparing scans with different degrees of parallelism.
+     *
+     * @param pDigitalObjectId The digital object id.
+     * @param pFile The file or directory to scan.
+     * @param pNewBaseUrl The base URL used as LFN of collection nodes.
+     * @param pIncludeAttributes If TRUE obtainable file attributes are
+     * included into the tree.
+     * @param pPool The pool executing the scan tasks.
+     *
+     * @return The node representing pFile.
+     *
+     * @throws AdalapiException If the access to pFile or any child fails.
+     * @throws MalformedURLException If the URL of any file is invalid.
+     */
+    static IDataOrganizationNode scan(String pDigitalObjectId, AbstractFile pFile, URL pNewBaseUrl, boolean pIncludeAttributes, ForkJoinPool pPool) throws AdalapiException, MalformedURLException {
+        FileTreeScanner scanner = new FileTreeScanner(pDigitalObjectId, pNewBaseUrl, pIncludeAttributes);
+        //we have the root path, so use the digital object ID as node identifier
+        String fromPath = FilenameUtils.normalize(pFile.getUrl().getPath(), true);
+        String rootName = (fromPath.equals(pFile.getUrl().toString())) ? pDigitalObjectId : pFile.getName();
+
+        long start = System.currentTimeMillis();
+        RecursiveTask<ScanResult> task;
+        if (pFile.isLocal()) {
+            Path root;
+            BasicFileAttributes attributes;
+            try {
+                root = Paths.get(pFile.getUrl().toURI());
+                attributes = Files.readAttributes(root, BasicFileAttributes.class);
+            } catch (URISyntaxException | IOException ex) {
+                throw new AdalapiException("Failed to read attributes of " + pFile.getUrl(), ex);
+            }
+            if (!attributes.isDirectory()) {
+                return scanner.createFileNode(root, attributes).node;
+            }
+            task = scanner.new LocalDirectoryTask(root, rootName, attributes.lastModifiedTime().toMillis());
+        } else {
+            if (!pFile.isDirectory()) {
+                return scanner.createFileNode(pFile).node;
+            }
+            task = scanner.new RemoteDirectoryTask(pFile, rootName);
+        }
+
+        try {
+            IDataOrganizationNode result = pPool.invoke(task).node;
+            LOGGER.debug("Scanned {} in {} ms.", pFile.getUrl(), System.currentTimeMillis() - start);
+            return result;
+        } catch (ScanException ex) {
+            if (ex.getCause() instanceof MalformedURLException) {
+                throw (MalformedURLException) ex.getCause();
+            }
+            throw new AdalapiException(ex.getMessage(), ex.getCause());
+        }
+    }
+
+    /**
+     * Get the pool shared by all scans. The pool is created on first use.
+     *
+     * @return The pool.
+     */
+    static synchronized ForkJoinPool getPool() {
+        if (sharedPool == null) {
+            int threads = DataManagerSettings.getSingleton().getIntProperty(DataManagerSettings.STAGING_SCAN_THREADS, -1);
+            sharedPool = new ForkJoinPool((threads > 0) ? threads : Runtime.getRuntime().availableProcessors());
+        }
+        return sharedPool;
+    }
+
+    /**
+     * Create the node for a local file.
+     */
+    private ScanResult createFileNode(Path pFile, BasicFileAttributes pAttributes) throws MalformedURLException {
+        DataOrganizationNodeImpl node = new FileNodeImpl(new LFNImpl(toUrl(pFile, false)));
+        node.setName(pFile.getFileName().toString());
+        if (includeAttributes) {
+            addAttributes(node, false, pAttributes.lastModifiedTime().toMillis(), pAttributes.size(), -1);
+        }
+        return new ScanResult(node, pAttributes.size());
+    }
+
+    /**
+     * Create the node for a remote file.
+     */
+    private ScanResult createFileNode(AbstractFile pFile) throws AdalapiException {
+        DataOrganizationNodeImpl node = new FileNodeImpl(new LFNImpl(pFile.getUrl()));
+        node.setName(pFile.getName());
+        long size = 0;
+        if (includeAttributes) {
+            size = pFile.getSize();
+            addAttributes(node, false, pFile.lastModified(), size, -1);
+        }
+        return new ScanResult(node, size);
+    }
+
+    /**
+     * Create an empty collection node.
+     */
+    private CollectionNodeImpl createCollectionNode(String pName) {
+        CollectionNodeImpl node = new CollectionNodeImpl(new LFNImpl(baseUrl));
+        node.setName(pName);
+        return node;
+    }
+
+    /**
+     * Add the children in pChildren to pNode. Each element is either a
+     * ScanResult or a forked task which is joined.
+     *
+     * @return The accumulated size of all children.
+     */
+    private static long addChildren(CollectionNodeImpl pNode, List<Object> pChildren) {
+        long size = 0;
+        for (Object child : pChildren) {
+            ScanResult result = (child instanceof ScanResult) ? (ScanResult) child : ((ForkJoinTask<ScanResult>) child).join();
+            pNode.addChild(result.node);
+            size += result.size;
+        }
+        return size;
+    }
+
+    /**
+     * Add the file attributes to the provided node.
+     */
+    private static void addAttributes(DataOrganizationNodeImpl pNode, boolean pDirectory, long pLastModified, long pSize, int pChildren) {
+        pNode.addAttribute(new AttributeImpl(DataOrganizationUtils.DIRECTORY_KEY, Boolean.toString(pDirectory)));
+        pNode.addAttribute(new AttributeImpl(DataOrganizationUtils.LAST_MODIFIED_KEY, Long.toString(pLastModified)));
+        pNode.addAttribute(new AttributeImpl(DataOrganizationUtils.SIZE_KEY, Long.toString(pSize)));
+        if (pDirectory) {
+            pNode.addAttribute(new AttributeImpl(DataOrganizationUtils.CHILDREN_KEY, Integer.toString(pChildren)));
+        }
+    }
+
+    /**
+     * Get the URL of a local file in the same form as provided by
+     * File.toURI().toURL() and AbstractFile.getUrl() without accessing the file
+     * system again.
+     */
+    private static URL toUrl(Path pPath, boolean pDirectory) throws MalformedURLException {
+        String path = pPath.toAbsolutePath().toString().replace(File.separatorChar, '/');
+        if (!path.startsWith("/")) {
+            path = "/" + path;
+        }
+        if (pDirectory && !path.endsWith("/")) {
+            path += "/";
+        }
+        if (path.startsWith("//")) {
+            path = "//" + path;
+        }
+        try {
+            return new URI("file", null, path, null).toURL();
+        } catch (URISyntaxException ex) {
+            throw new MalformedURLException(ex.getMessage());
+        }
+    }
+
+    /**
+     * Result of scanning a single file or directory.
+     */
+    private static final class ScanResult {
+
+        private final DataOrganizationNodeImpl node;
+        private final long size;
+
+        ScanResult(DataOrganizationNodeImpl pNode, long pSize) {
+            node = pNode;
+            size = pSize;
+        }
+    }
+
+    /**
+     * Unchecked wrapper for exceptions occuring within tasks.
+     */
+    private static final class ScanException extends RuntimeException {
+
+        ScanException(String pMessage, Throwable pCause) {
+            super(pMessage, pCause);
+        }
+    }
+
+    /**
+     * Task scanning a local directory. Sub-directories are forked as separate
+     * tasks, files are handled directly.
+     */
+    private final class LocalDirectoryTask extends RecursiveTask<ScanResult> {
+
+        private final Path directory;
+        private final String name;
+        private final long lastModified;
+
+        LocalDirectoryTask(Path pDirectory, String pName, long pLastModified) {
+            directory = pDirectory;
+            name = pName;
+            lastModified = pLastModified;
+        }
+
+        @Override
+        protected ScanResult compute() {
+            CollectionNodeImpl node = createCollectionNode(name);
+            List<Object> children = new ArrayList<>();
+            int entries = 0;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path child : stream) {
+                    entries++;
+                    BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isSymbolicLink()) {
+                        LOGGER.warn("Symbolic link detected in child in local file at {}. Ignoring it.", child);
+                    } else if (attributes.isDirectory()) {
+                        LocalDirectoryTask task = new LocalDirectoryTask(child, child.getFileName().toString(), attributes.lastModifiedTime().toMillis());
+                        task.fork();
+                        children.add(task);
+                    } else {
+                        children.add(createFileNode(child, attributes));
+                    }
+                }
+            } catch (IOException ex) {
+                throw new ScanException("Failed to list directory " + directory, ex);
+            }
+            long size = addChildren(node, children);
+            if (includeAttributes) {
+                addAttributes(node, true, lastModified, size, entries);
+            }
+            return new ScanResult(node, size);
+        }
+    }
+
+    /**
+     * Task scanning a remote directory via AbstractFile.
+     */
+    private final class RemoteDirectoryTask extends RecursiveTask<ScanResult> {
+
+        private final AbstractFile directory;
+        private final String name;
+
+        RemoteDirectoryTask(AbstractFile pDirectory, String pName) {
+            directory = pDirectory;
+            name = pName;
+        }
+
+        @Override
+        protected ScanResult compute() {
+            CollectionNodeImpl node = createCollectionNode(name);
+            List<Object> children = new ArrayList<>();
+            try {
+                Collection<AbstractFile> ls = directory.list();
+                int entries = (ls != null) ? ls.size() : 0;
+                if (ls != null) {
+                    for (AbstractFile child : ls) {
+                        if (child.isDirectory()) {
+                            RemoteDirectoryTask task = new RemoteDirectoryTask(child, child.getName());
+                            task.fork();
+                            children.add(task);
+                        } else {
+                            children.add(createFileNode(child));
+                        }
+                    }
+                }
+                long size = addChildren(node, children);
+                if (includeAttributes) {
+                    addAttributes(node, true, directory.lastModified(), size, entries);
+                }
+                return new ScanResult(node, size);
+            } catch (AdalapiException ex) {
+                throw new ScanException("Failed to list directory " + directory.getUrl(), ex);
+            }
+        }
+    }
+}
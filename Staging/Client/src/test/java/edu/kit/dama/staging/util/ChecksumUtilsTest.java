@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.staging.util;
+
+import edu.kit.dama.staging.interfaces.IStorageVirtualizationServiceAdapter.HASH_TYPE;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for ChecksumUtils using files in a temporary directory.
+ *
+ * @author jejkal
+ */
+public class ChecksumUtilsTest {
+
+    private static final String SHA256_ABC = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+    private static final String MD5_ABC = "900150983cd24fb0d6963f7d28e17f72";
+    private File baseDir;
+
+    @Before
+    public void setUp() throws IOException {
+        baseDir = Files.createTempDirectory("checksum").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(baseDir);
+    }
+
+    @Test
+    public void testGetAlgorithm() {
+        Assert.assertEquals("MD5", ChecksumUtils.getAlgorithm(HASH_TYPE.MD5));
+        Assert.assertEquals("SHA-1", ChecksumUtils.getAlgorithm(HASH_TYPE.SHA));
+        Assert.assertEquals("SHA-256", ChecksumUtils.getAlgorithm(HASH_TYPE.SHA256));
+        Assert.assertEquals("SHA-384", ChecksumUtils.getAlgorithm(HASH_TYPE.SHA384));
+        Assert.assertEquals("SHA-512", ChecksumUtils.getAlgorithm(HASH_TYPE.SHA512));
+        for (HASH_TYPE type : HASH_TYPE.values()) {
+            Assert.assertTrue(ChecksumUtils.isSupported(ChecksumUtils.getAlgorithm(type)));
+        }
+    }
+
+    @Test
+    public void testUnsupportedAlgorithm() {
+        Assert.assertFalse(ChecksumUtils.isSupported("NO-SUCH-DIGEST"));
+        Assert.assertFalse(ChecksumUtils.isSupported(null));
+        try {
+            ChecksumUtils.createDigest("NO-SUCH-DIGEST");
+            Assert.fail("Creating a digest for an unsupported algorithm should fail");
+        } catch (IllegalArgumentException ex) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testHashFile() throws IOException {
+        File file = createFile("abc.txt", "abc");
+        Assert.assertEquals(SHA256_ABC, ChecksumUtils.hashFile(file, "SHA-256"));
+        Assert.assertEquals(MD5_ABC, ChecksumUtils.hashFile(file, "MD5"));
+    }
+
+    @Test
+    public void testCopyAndHash() throws IOException {
+        byte[] data = createData(200 * 1024);
+        File source = createFile("source.bin", data);
+        File target = createFile("target.bin", "existing content which is longer than nothing");
+        String checksum = ChecksumUtils.copyAndHash(source, target, "SHA-256");
+        Assert.assertEquals(ChecksumUtils.hashFile(source, "SHA-256"), checksum);
+        Assert.assertTrue(Arrays.equals(data, Files.readAllBytes(target.toPath())));
+    }
+
+    @Test
+    public void testCopyAndHashCreatesParentDirectories() throws IOException {
+        File source = createFile("abc.txt", "abc");
+        File target = new File(baseDir, "a/b/c/abc.txt");
+        Assert.assertEquals(SHA256_ABC, ChecksumUtils.copyAndHash(source, target, "SHA-256"));
+        Assert.assertEquals("abc", new String(Files.readAllBytes(target.toPath()), StandardCharsets.US_ASCII));
+
+        File resumedTarget = new File(baseDir, "d/e/abc.txt");
+        Assert.assertEquals(SHA256_ABC, ChecksumUtils.copyAndHash(source, resumedTarget, 0, "SHA-256"));
+        Assert.assertTrue(resumedTarget.isFile());
+    }
+
+    @Test
+    public void testCopyAndHashWithOffset() throws IOException {
+        byte[] data = createData(150 * 1024);
+        File source = createFile("source.bin", data);
+        int offset = 70 * 1024;
+        //partially copied target with garbage behind the offset
+        byte[] partial = Arrays.copyOf(data, offset + 100);
+        Arrays.fill(partial, offset, partial.length, (byte) 0x7f);
+        File target = createFile("target.bin", partial);
+
+        String checksum = ChecksumUtils.copyAndHash(source, target, offset, "SHA-256");
+        Assert.assertEquals(ChecksumUtils.hashFile(source, "SHA-256"), checksum);
+        Assert.assertTrue(Arrays.equals(data, Files.readAllBytes(target.toPath())));
+    }
+
+    @Test
+    public void testCopyAndHashWithOffsetLargerThanSource() throws IOException {
+        File source = createFile("abc.txt", "abc");
+        File target = createFile("target.txt", "abc");
+        try {
+            ChecksumUtils.copyAndHash(source, target, 10, "SHA-256");
+            Assert.fail("An offset larger than the source should fail");
+        } catch (EOFException ex) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testHashOnlyWithOffset() throws IOException {
+        File source = createFile("abc.txt", "abc");
+        //the offset must not affect the checksum of the entire file
+        Assert.assertEquals(SHA256_ABC, ChecksumUtils.copyAndHash(source, null, 2, "SHA-256"));
+    }
+
+    private File createFile(String pName, String pContent) throws IOException {
+        return createFile(pName, pContent.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private File createFile(String pName, byte[] pContent) throws IOException {
+        File file = new File(baseDir, pName);
+        Files.write(file.toPath(), pContent);
+        return file;
+    }
+
+    private static byte[] createData(int pSize) {
+        byte[] data = new byte[pSize];
+        for (int i = 0; i < pSize; i++) {
+            data[i] = (byte) (i * 31 + i / 1024);
+        }
+        return data;
+    }
+}
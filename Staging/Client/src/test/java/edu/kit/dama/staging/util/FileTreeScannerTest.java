@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.staging.util;
+
+import edu.kit.dama.mdm.dataorganization.entity.core.IAttribute;
+import edu.kit.dama.mdm.dataorganization.entity.core.ICollectionNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IFileNode;
+import edu.kit.dama.mdm.dataorganization.impl.staging.CollectionNodeImpl;
+import edu.kit.lsdf.adalapi.AbstractFile;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.apache.commons.io.FileUtils;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for FileTreeScanner using a directory structure created in the temp
+ * directory. The structure contains symbolic links to a file and to a
+ * directory if the file system supports them. The datamanager.xml of the test
+ * resources sets staging.scanThreads to 3.
+ *
+ * @author jejkal
+ */
+public class FileTreeScannerTest {
+
+    private static final String OBJECT_ID = "1234-5678";
+    private static Path baseDir;
+    private static URL baseUrl;
+    private static boolean linksCreated = false;
+    private static int fileCount = 0;
+    private static int directoryCount = 0;
+    private static long totalSize = 0;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        baseDir = Files.createTempDirectory("scanner");
+        baseUrl = new URL("http://localhost:8080/webdav/" + OBJECT_ID + "/data/");
+        for (int i = 0; i < 4; i++) {
+            Path dir = Files.createDirectory(baseDir.resolve("dir" + i));
+            directoryCount++;
+            for (int j = 0; j < 3; j++) {
+                Path sub = Files.createDirectory(dir.resolve("sub" + j));
+                directoryCount++;
+                for (int k = 0; k < 5; k++) {
+                    createFile(sub.resolve("file" + k + ".bin"), i * 100 + j * 10 + k);
+                }
+            }
+            createFile(dir.resolve("file.txt"), i);
+        }
+        createFile(baseDir.resolve("top.txt"), 42);
+
+        try {
+            Files.createSymbolicLink(baseDir.resolve("linkToFile"), baseDir.resolve("top.txt"));
+            Files.createSymbolicLink(baseDir.resolve("dir1").resolve("linkToDir"), baseDir.resolve("dir0"));
+            linksCreated = true;
+        } catch (IOException | UnsupportedOperationException ex) {
+            //symbolic links are not supported, the remaining tests are still meaningful
+        }
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws IOException {
+        FileUtils.deleteDirectory(baseDir.toFile());
+    }
+
+    private static void createFile(Path pFile, int pSize) throws IOException {
+        Files.write(pFile, new byte[pSize]);
+        fileCount++;
+        totalSize += pSize;
+    }
+
+    @Test
+    public void testParallelScanEqualsSequentialScan() throws Exception {
+        ForkJoinPool sequential = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(4);
+        try {
+            for (boolean includeAttributes : new boolean[]{true, false}) {
+                IDataOrganizationNode expected = FileTreeScanner.scan(OBJECT_ID, new AbstractFile(baseDir.toFile()), baseUrl, includeAttributes, sequential);
+                IDataOrganizationNode result = FileTreeScanner.scan(OBJECT_ID, new AbstractFile(baseDir.toFile()), baseUrl, includeAttributes, parallel);
+                Assert.assertEquals(describe(expected), describe(result));
+            }
+        } finally {
+            sequential.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    public void testScanResult() throws Exception {
+        IDataOrganizationNode root = FileTreeScanner.scan(OBJECT_ID, new AbstractFile(baseDir.toFile()), baseUrl, true);
+        Assert.assertTrue(root instanceof ICollectionNode);
+        Assert.assertEquals(baseDir.getFileName().toString(), root.getName());
+        Assert.assertEquals(Long.toString(totalSize), getAttribute(root, DataOrganizationUtils.SIZE_KEY));
+        Assert.assertEquals("true", getAttribute(root, DataOrganizationUtils.DIRECTORY_KEY));
+
+        int[] counts = new int[2];
+        count(root, counts);
+        Assert.assertEquals(fileCount, counts[0]);
+        //the root node is not counted
+        Assert.assertEquals(directoryCount, counts[1] - 1);
+
+        IDataOrganizationNode file = ((ICollectionNode) root).getChildren().get(0);
+        for (IDataOrganizationNode child : ((ICollectionNode) root).getChildren()) {
+            if ("top.txt".equals(child.getName())) {
+                file = child;
+            }
+        }
+        Assert.assertEquals("top.txt", file.getName());
+        Assert.assertEquals(baseDir.resolve("top.txt").toUri().toURL().toString(), ((IFileNode) file).getLogicalFileName().asString());
+        Assert.assertEquals("42", getAttribute(file, DataOrganizationUtils.SIZE_KEY));
+        Assert.assertEquals(baseUrl.toString(), ((CollectionNodeImpl) root).getLogicalFileName().asString());
+    }
+
+    @Test
+    public void testSymbolicLinksAreSkipped() throws Exception {
+        if (!linksCreated) {
+            return;
+        }
+        IDataOrganizationNode root = FileTreeScanner.scan(OBJECT_ID, new AbstractFile(baseDir.toFile()), baseUrl, false);
+        List<String> names = new ArrayList<>();
+        collectNames(root, names);
+        Assert.assertFalse(names.contains("linkToFile"));
+        Assert.assertFalse(names.contains("linkToDir"));
+        //the content of the linked directory is not added a second time
+        int[] counts = new int[2];
+        count(root, counts);
+        Assert.assertEquals(fileCount, counts[0]);
+    }
+
+    @Test
+    public void testScanThreadsSetting() {
+        Assert.assertEquals(3, FileTreeScanner.getPool().getParallelism());
+    }
+
+    @Test
+    public void testScanSingleFile() throws Exception {
+        IDataOrganizationNode node = FileTreeScanner.scan(OBJECT_ID, new AbstractFile(baseDir.resolve("top.txt").toFile()), baseUrl, true);
+        Assert.assertTrue(node instanceof IFileNode);
+        Assert.assertEquals("top.txt", node.getName());
+        Assert.assertEquals("42", getAttribute(node, DataOrganizationUtils.SIZE_KEY));
+        Assert.assertEquals("false", getAttribute(node, DataOrganizationUtils.DIRECTORY_KEY));
+    }
+
+    /**
+     * Count file nodes (index 0) and collection nodes (index 1) of the
+     * provided subtree.
+     */
+    private static void count(IDataOrganizationNode pNode, int[] pCounts) {
+        if (pNode instanceof ICollectionNode) {
+            pCounts[1]++;
+            for (IDataOrganizationNode child : ((ICollectionNode) pNode).getChildren()) {
+                count(child, pCounts);
+            }
+        } else {
+            pCounts[0]++;
+        }
+    }
+
+    private static void collectNames(IDataOrganizationNode pNode, List<String> pNames) {
+        pNames.add(pNode.getName());
+        if (pNode instanceof ICollectionNode) {
+            for (IDataOrganizationNode child : ((ICollectionNode) pNode).getChildren()) {
+                collectNames(child, pNames);
+            }
+        }
+    }
+
+    private static String getAttribute(IDataOrganizationNode pNode, String pKey) {
+        for (IAttribute attribute : pNode.getAttributes()) {
+            if (pKey.equals(attribute.getKey())) {
+                return attribute.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get a string representation of the provided subtree containing names,
+     * logical file names and sorted attributes of all nodes in the order of
+     * the children lists.
+     */
+    private static String describe(IDataOrganizationNode pNode) {
+        StringBuilder b = new StringBuilder();
+        b.append(pNode.getName()).append("|");
+        if (pNode instanceof IFileNode) {
+            b.append("F|").append(((IFileNode) pNode).getLogicalFileName().asString());
+        } else {
+            b.append("C|").append(((CollectionNodeImpl) pNode).getLogicalFileName().asString());
+        }
+        List<String> attributes = new ArrayList<>();
+        for (IAttribute attribute : pNode.getAttributes()) {
+            attributes.add(attribute.getKey() + "=" + attribute.getValue());
+        }
+        Collections.sort(attributes);
+        b.append(attributes);
+        if (pNode instanceof ICollectionNode) {
+            b.append("[");
+            for (IDataOrganizationNode child : ((ICollectionNode) pNode).getChildren()) {
+                b.append(describe(child)).append(",");
+            }
+            b.append("]");
+        }
+        return b.toString();
+    }
+}
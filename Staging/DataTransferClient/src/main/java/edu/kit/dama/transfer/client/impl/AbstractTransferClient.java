@@ -24,9 +24,12 @@ import edu.kit.dama.transfer.client.exceptions.TransferException;
 import edu.kit.dama.transfer.client.interfaces.ITransferStatusListener;
 import edu.kit.dama.transfer.client.interfaces.ITransferTaskListener;
 import edu.kit.dama.rest.staging.types.TransferTaskContainer;
+import edu.kit.dama.transfer.client.types.RetryPolicy;
 import edu.kit.dama.transfer.client.types.TransferTask;
+import edu.kit.dama.staging.util.ChecksumUtils;
 import edu.kit.dama.transfer.client.util.CleanupManager;
 import edu.kit.dama.transfer.client.util.TransferHelper;
+import edu.kit.dama.transfer.client.util.TransferJournal;
 import edu.kit.dama.rest.SimpleRESTContext;
 import edu.kit.dama.staging.entities.StagingFile;
 import edu.kit.dama.staging.processor.AbstractStagingProcessor;
@@ -43,6 +46,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.time.DateUtils;
 import org.slf4j.Logger;
@@ -107,7 +112,12 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
     /**
      * Flag which indicated, that the transfer is running.
      */
-    private boolean transferRunning = true;
+    private volatile boolean transferRunning = true;
+    /**
+     * Latch released as soon as run() has finished, used to notify waiting
+     * threads without polling.
+     */
+    private final CountDownLatch completionLatch = new CountDownLatch(1);
     /**
      * The delay until the actual transfer starts. This flag was only
      * introduced. for testing purposes
@@ -116,19 +126,24 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
     /**
      * Flag which indicates, that the transfer has been canceled by the user.
      */
-    private boolean canceled = false;
+    private volatile boolean canceled = false;
     /**
      * The timer responsible for creating checkpoints for transfer resuming.
      */
     private Timer checkpointTimer = null;
+    /**
+     * The journal recording all files transferred since the last full
+     * checkpoint.
+     */
+    private TransferJournal journal = null;
     /**
      * The frequency of creating checkpoints.
      */
     private static final long CHECKPOINT_DELAY = DateUtils.MILLIS_PER_MINUTE;
     /**
-     * The frequency of internal checks (used for Thread.sleep()).
+     * The frequency of alive events while waiting for transfer tasks.
      */
-    private static final int CHECK_DELAY = 100;
+    private static final long ALIVE_DELAY = DateUtils.MILLIS_PER_MINUTE * 10;
     /**
      * The max. number of parallel transfers (Apart from this entry there is
      * another "limitation" by the Adalapi's AbstractProtocolFactory, where the
@@ -137,6 +152,19 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
      * parallel).
      */
     private static long MAX_PARALLEL_TRANSFERS = DataManagerSettings.getSingleton().getIntProperty(DataManagerSettings.STAGING_MAX_PARALLEL_TRANSFERS, 10);
+    /**
+     * The max. number of parallel transfers from/to one single host. Values
+     * smaller than 1 disable this limit.
+     */
+    private static int MAX_PARALLEL_TRANSFERS_PER_HOST = DataManagerSettings.getSingleton().getIntProperty(DataManagerSettings.STAGING_MAX_PARALLEL_TRANSFERS_PER_HOST, -1);
+    /**
+     * The mode used by all transfer tasks if source and target are local.
+     */
+    private static final TransferTask.LOCAL_TRANSFER_MODE LOCAL_TRANSFER_MODE = getConfiguredLocalTransferMode();
+    /**
+     * The policy used by all transfer tasks to retry failed transfers.
+     */
+    private static final RetryPolicy RETRY_POLICY = getConfiguredRetryPolicy();
     /**
      * The result of the last transfer.
      */
@@ -170,6 +198,24 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
      * The file appender for transfer logging.
      */
     private AbstractFile destination = null;
+    /**
+     * The MessageDigest algorithm used by all transfer tasks to calculate the
+     * checksums of the transferred files.
+     */
+    private String checksumAlgorithm = null;
+    /**
+     * The executor of the currently running transfer phase.
+     */
+    private volatile TransferTaskExecutor executor = null;
+    /**
+     * The number of retries of all transfer tasks of the current transfer
+     * phase.
+     */
+    private long retryCount = 0;
+    /**
+     * The number of bytes not transferred again due to resumed retries.
+     */
+    private long resumedBytes = 0;
 
     /**
      * Default constructor to create a transfer client for downloads. In this
@@ -391,6 +437,8 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
 
         //cleanup
         cancelCheckpointTimer();
+        //write all journal records to allow resuming a failed transfer
+        closeJournal();
 
         if (!transferSucceeded && !isCanceled()) {
             //throw exception to notify on error
@@ -478,9 +526,77 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
      * @param pTask The new transfer task.
      */
     public final void addTransferTask(TransferTask pTask) {
+        pTask.setLocalTransferMode(LOCAL_TRANSFER_MODE);
+        pTask.setRetryPolicy(RETRY_POLICY);
+        if (checksumAlgorithm != null && pTask.getChecksumAlgorithm() == null) {
+            pTask.setChecksumAlgorithm(checksumAlgorithm);
+        }
         transferTasks.add(pTask);
     }
 
+    /**
+     * Set the MessageDigest algorithm, e.g. SHA-256, used to calculate the
+     * checksums of all files while they are transferred. The algorithm is
+     * applied to all transfer tasks added afterwards. The checksums can be
+     * obtained via {@link TransferTask#getChecksum()} after the transfer has
+     * finished.
+     *
+     * @param pAlgorithm The algorithm name or null to disable checksumming.
+     *
+     * @throws IllegalArgumentException If the algorithm is not supported.
+     */
+    public final void setChecksumAlgorithm(String pAlgorithm) {
+        if (pAlgorithm != null) {
+            ChecksumUtils.createDigest(pAlgorithm);
+        }
+        checksumAlgorithm = pAlgorithm;
+    }
+
+    /**
+     * Get the MessageDigest algorithm used to calculate the checksums of all
+     * transferred files.
+     *
+     * @return The algorithm name or null.
+     */
+    public final String getChecksumAlgorithm() {
+        return checksumAlgorithm;
+    }
+
+    /**
+     * Get the local transfer mode configured via
+     * {@link DataManagerSettings#STAGING_LOCAL_TRANSFER_MODE}.
+     *
+     * @return The local transfer mode, COPY by default.
+     */
+    private static TransferTask.LOCAL_TRANSFER_MODE getConfiguredLocalTransferMode() {
+        String mode = DataManagerSettings.getSingleton().getStringProperty(DataManagerSettings.STAGING_LOCAL_TRANSFER_MODE, TransferTask.LOCAL_TRANSFER_MODE.COPY.toString());
+        try {
+            return TransferTask.LOCAL_TRANSFER_MODE.valueOf(mode.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            LOGGER.warn("Invalid local transfer mode {}. Using {}.", mode, TransferTask.LOCAL_TRANSFER_MODE.COPY);
+            return TransferTask.LOCAL_TRANSFER_MODE.COPY;
+        }
+    }
+
+    /**
+     * Get the retry policy configured via the staging.retry.* settings.
+     *
+     * @return The retry policy, {@link RetryPolicy#DEFAULT} if no valid policy
+     * is configured.
+     */
+    private static RetryPolicy getConfiguredRetryPolicy() {
+        DataManagerSettings settings = DataManagerSettings.getSingleton();
+        int maxAttempts = settings.getIntProperty(DataManagerSettings.STAGING_RETRY_MAX_ATTEMPTS, RetryPolicy.DEFAULT_MAX_ATTEMPTS);
+        long initialDelay = settings.getLongProperty(DataManagerSettings.STAGING_RETRY_INITIAL_DELAY, RetryPolicy.DEFAULT_INITIAL_DELAY);
+        long maxDelay = settings.getLongProperty(DataManagerSettings.STAGING_RETRY_MAX_DELAY, RetryPolicy.DEFAULT_MAX_DELAY);
+        try {
+            return new RetryPolicy(maxAttempts, initialDelay, maxDelay, 2.0, .5);
+        } catch (IllegalArgumentException ex) {
+            LOGGER.warn("Invalid retry settings. Using " + RetryPolicy.DEFAULT, ex);
+            return RetryPolicy.DEFAULT;
+        }
+    }
+
     /**
      * Check the transfer temp directory. After this method call, the temp
      * directory should exist and be locked. If the temp directory exists and is
@@ -559,6 +675,7 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
         if (unlockTransfer()) {
             LOGGER.debug("Transfer unlocked successfully");
         }
+        closeJournal();
         try {
             performShutdown();
         } catch (Exception e) {
@@ -575,6 +692,39 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
         return transferRunning;
     }
 
+    /**
+     * Block until this transfer has finished, either successfully or not. The
+     * calling thread is woken up immediately when the transfer terminates.
+     *
+     * @return The final transfer status.
+     *
+     * @throws InterruptedException If the calling thread was interrupted while
+     * waiting.
+     */
+    public final TRANSFER_STATUS awaitCompletion() throws InterruptedException {
+        completionLatch.await();
+        return getStatus();
+    }
+
+    /**
+     * Block until this transfer has finished or until the provided timeout has
+     * elapsed. The calling thread is woken up immediately when the transfer
+     * terminates. If the timeout elapses, the transfer keeps running and may
+     * be canceled via {@link #setCanceled(boolean)}.
+     *
+     * @param pTimeout The max. time to wait.
+     * @param pUnit The unit of pTimeout.
+     *
+     * @return TRUE if the transfer has finished, FALSE if the timeout has
+     * elapsed before.
+     *
+     * @throws InterruptedException If the calling thread was interrupted while
+     * waiting.
+     */
+    public final boolean awaitCompletion(long pTimeout, TimeUnit pUnit) throws InterruptedException {
+        return completionLatch.await(pTimeout, pUnit);
+    }
+
     /**
      * Returns the delay until which the actual transfer should start. (Testing
      * only).
@@ -768,102 +918,101 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
     }
 
     /**
-     * Performs all transfer tasks defined for this client. If the transfer
-     * fails, there are MAX_TRIES retries. After this amount, FALSE is returned,
-     * the last file is put back to the transfer map and no more files will be
-     * transfered.
+     * Performs all transfer tasks defined for this client. The tasks are
+     * executed by a TransferTaskExecutor, which limits the number of parallel
+     * transfers and adapts it to the observed throughput. Each task retries
+     * failed transfers on its own. If one task finally fails, FALSE is
+     * returned.
      *
      * @return TRUE if the transfer was finished successfully.
      */
     private boolean transferFiles() {
         createCheckpoint();
-        runningTasks.clear();
-        finishedTasks.clear();
-        failedTasks.clear();
+        synchronized (this) {
+            runningTasks.clear();
+            finishedTasks.clear();
+            failedTasks.clear();
+            retryCount = 0;
+            resumedBytes = 0;
+        }
         int maxProtocolnstances = AdalapiSettings.getSingleton().getMaxProtocolInstances();
         LOGGER.debug("Staging transfer of files using {} ADALAPI protocol instances by {} parallel tasks.", maxProtocolnstances, MAX_PARALLEL_TRANSFERS);
-        long nextAliveAt = System.currentTimeMillis() + DateUtils.MILLIS_PER_MINUTE * 10;
-        for (TransferTask transferTask : getTransferTasks().toArray(new TransferTask[getTransferTasks().size()])) {
-            LOGGER.debug("Try to schedule transfer task {}", transferTask);
-            while (getRunningTaskCount() >= MAX_PARALLEL_TRANSFERS) {
-                try {
-                    Thread.sleep(CHECK_DELAY);
-                } catch (InterruptedException ie) {
-                }
+        TransferTask[] tasks = getTransferTasks().toArray(new TransferTask[getTransferTasks().size()]);
+        TransferTaskExecutor taskExecutor = new TransferTaskExecutor((int) MAX_PARALLEL_TRANSFERS, MAX_PARALLEL_TRANSFERS_PER_HOST);
+        executor = taskExecutor;
+        try {
+            for (TransferTask transferTask : tasks) {
                 if (isCanceled()) {
                     LOGGER.debug("Transfer was canceled. Aborting!");
                     break;
                 }
-                if (System.currentTimeMillis() >= nextAliveAt) {
-                    fireTransferAliveEvents();
-                    nextAliveAt = System.currentTimeMillis() + DateUtils.MILLIS_PER_MINUTE * 10;
-                }
-            }
-            if (!isCanceled()) {
-                LOGGER.info("Starting new transfer task");
+                LOGGER.debug("Scheduling transfer task {}", transferTask);
                 transferTask.addTransferTaskListener(this);
-                runTask(transferTask);
+                taskExecutor.submit(transferTask);
             }
-        }
 
-        //wait until all running tasks have finished
-        while (getRunningTaskCount() != 0) {
-            try {
-                Thread.sleep(CHECK_DELAY);
-            } catch (InterruptedException ie) {
-            }
-            if (System.currentTimeMillis() >= nextAliveAt) {
+            //wait until all scheduled tasks have finished, each completion wakes up this thread
+            while (!taskExecutor.awaitCompletion(ALIVE_DELAY)) {
                 fireTransferAliveEvents();
-                nextAliveAt = System.currentTimeMillis() + DateUtils.MILLIS_PER_MINUTE * 10;
             }
+        } catch (InterruptedException ie) {
+            LOGGER.warn("Interrupted while waiting for transfer tasks. Canceling transfer.");
+            setCanceled(true);
+            Thread.currentThread().interrupt();
+        } finally {
+            executor = null;
+            taskExecutor.shutdown();
         }
 
-        if (!isCanceled() && (finishedTasks.size() + failedTasks.size() == getTransferTasks().size())) {
-            LOGGER.debug("All files were transferred successfully");
-        }
-
-        return failedTasks.isEmpty();
-    }
-
-    /**
-     * Executed a transfer tasks and adds it to the list of running tasks.
-     *
-     * @param pTask The transfer task to start.
-     */
-    private synchronized void runTask(TransferTask pTask) {
+        boolean result;
         synchronized (this) {
-            runningTasks.add(pTask);
-            pTask.start();
+            if (retryCount > 0) {
+                LOGGER.info("Transfer needed {} retries, {} byte(s) were resumed.", retryCount, resumedBytes);
+            }
+            result = failedTasks.isEmpty() && runningTasks.isEmpty();
+            if (!isCanceled() && finishedTasks.size() + failedTasks.size() != tasks.length) {
+                LOGGER.error("Only {} of {} transfer task(s) have completed.", finishedTasks.size() + failedTasks.size(), tasks.length);
+                result = false;
+            }
         }
+        if (result && !isCanceled()) {
+            LOGGER.debug("All files were transferred successfully");
+        }
+        return result;
     }
 
     @Override
     public final void run() {
-        setStatus(TRANSFER_STATUS.RUNNING);
-        transferRunning = true;
-        boolean success = false;
         try {
-            if (prepare() && transfer() && !isCanceled()) {
-                //everything has succeeded
-                LOGGER.info(" * Transfer successfully finished");
-                success = true;
+            setStatus(TRANSFER_STATUS.RUNNING);
+            transferRunning = true;
+            boolean success = false;
+            try {
+                if (prepare() && transfer() && !isCanceled()) {
+                    //everything has succeeded
+                    LOGGER.info(" * Transfer successfully finished");
+                    success = true;
+                }
+            } catch (Exception e) {
+                LOGGER.error("Handling uncaught exception thrown during transfer", e);
             }
-        } catch (Exception e) {
-            LOGGER.error("Handling uncaught exception thrown during transfer", e);
-        }
 
-        if (success) {
-            LOGGER.debug("Performing cleanup due to successful transfer");
-            cleanup();
-            setStatus(TRANSFER_STATUS.SUCCEEDED);
-        } else {
-            LOGGER.debug("Unlocking transfer due to failure to allow restart");
-            if (unlockTransfer()) {
-                LOGGER.debug("Transfer unlocked successfully");
+            if (success) {
+                LOGGER.debug("Performing cleanup due to successful transfer");
+                cleanup();
+                setStatus(TRANSFER_STATUS.SUCCEEDED);
+            } else {
+                LOGGER.debug("Unlocking transfer due to failure to allow restart");
+                if (unlockTransfer()) {
+                    LOGGER.debug("Transfer unlocked successfully");
+                }
+                setStatus(TRANSFER_STATUS.FAILED);
             }
-            setStatus(TRANSFER_STATUS.FAILED);
+        } finally {
+            transferRunning = false;
+            //wake up all threads waiting for completion
+            completionLatch.countDown();
         }
-        transferRunning = false;
     }
 
     /**
@@ -924,14 +1073,77 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
     }
 
     /**
-     * Create a new checkpoint. This method is called frequently by a
-     * CheckpoinTask.
+     * Create a new full checkpoint containing the entire transfer container
+     * and start a new checkpoint journal. All files transferred afterwards are
+     * recorded in the journal, which is written to disk by
+     * updateCheckpoint().
      */
     public final synchronized void createCheckpoint() {
+        closeJournal();
         boolean result = TransferHelper.createCheckpoint(transferContainer);
+        if (result) {
+            try {
+                journal = TransferHelper.createJournal(transferContainer);
+            } catch (IOException ex) {
+                LOGGER.warn("Failed to create checkpoint journal. Falling back to full checkpoints.", ex);
+            }
+        }
         LOGGER.debug("Checkpoint {}", (result) ? "created" : "not created");
     }
 
+    /**
+     * Update the checkpoint of the running transfer. This method is called
+     * frequently by a CheckpointTask. Only the journal records added since the
+     * last update are written to disk. If no journal is available, a new full
+     * checkpoint is created instead.
+     */
+    public final synchronized void updateCheckpoint() {
+        if (journal != null) {
+            try {
+                journal.sync();
+                LOGGER.debug("Checkpoint journal updated, {} file(s) recorded", journal.getRecordCount());
+                return;
+            } catch (IOException ex) {
+                LOGGER.warn("Failed to update checkpoint journal. Creating full checkpoint.", ex);
+            }
+        }
+        createCheckpoint();
+    }
+
+    /**
+     * Write all pending journal records to disk and close the checkpoint
+     * journal.
+     */
+    private synchronized void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException ex) {
+                LOGGER.warn("Failed to close checkpoint journal", ex);
+            }
+            journal = null;
+        }
+    }
+
+    /**
+     * Record the file transferred by pTask in the checkpoint journal, if one is
+     * available. The journal is accessed while holding the lock, as it may be
+     * replaced concurrently by createCheckpoint(). If recording fails, the
+     * journal is closed and full checkpoints are used afterwards.
+     *
+     * @param pTask The finished transfer task.
+     */
+    private synchronized void addToJournal(TransferTask pTask) {
+        if (journal != null) {
+            try {
+                journal.addTransferredFile(pTask.getSourceFile().getUrl(), pTask.getTargetFile().getUrl());
+            } catch (IOException ex) {
+                LOGGER.warn("Failed to add transferred file to checkpoint journal. Falling back to full checkpoints.", ex);
+                closeJournal();
+            }
+        }
+    }
+
     /**
      * Try to set the current status. This method only changes the status, if
      * the current status is TRANSFER_STATUS.RUNNING. If the status can be
@@ -978,6 +1190,36 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
      */
     public final void setCanceled(boolean pValue) {
         canceled = pValue;
+        TransferTaskExecutor current = executor;
+        if (pValue && current != null) {
+            //running tasks are finished, but no new task is started
+            LOGGER.debug("Removed {} pending transfer task(s) due to cancelation.", current.cancelPending());
+        }
+    }
+
+    /**
+     * Cancel the transfer, interrupt all running transfer tasks and wait until
+     * the transfer has terminated or until the provided timeout has elapsed.
+     * In contrast to {@link #setCanceled(boolean)}, running tasks are not
+     * finished, which allows to release resources used by the transfer, e.g.
+     * global settings, as soon as this method returns TRUE.
+     *
+     * @param pTimeout The max. time to wait.
+     * @param pUnit The unit of pTimeout.
+     *
+     * @return TRUE if the transfer has terminated, FALSE if the timeout has
+     * elapsed before.
+     *
+     * @throws InterruptedException If the calling thread was interrupted while
+     * waiting.
+     */
+    public final boolean cancelAndAwaitTermination(long pTimeout, TimeUnit pUnit) throws InterruptedException {
+        setCanceled(true);
+        TransferTaskExecutor current = executor;
+        if (current != null) {
+            LOGGER.debug("Interrupted {} running transfer task(s) due to cancelation.", current.interruptRunning());
+        }
+        return awaitCompletion(pTimeout, pUnit);
     }
 
     /**
@@ -1001,28 +1243,22 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
         }
     }
 
-    /**
-     * Returns the number of running transfer tasks.
-     *
-     * @return The number of running tasks.
-     */
-    private int getRunningTaskCount() {
-        int result;
-        synchronized (this) {
-            result = runningTasks.size();
-        }
-        return result;
-    }
-
     /**
      * Returns information about this transfer.
      *
      * @return The TransferInfo of this transfer.
      */
     public final TransferInfo getTransferInfo() {
+        TransferTaskExecutor current = executor;
+        int queued = 0;
+        double rate = 0;
+        if (current != null) {
+            queued = current.getQueuedTaskCount();
+            rate = current.getTransferRate();
+        }
         TransferInfo info;
         synchronized (this) {
-            info = new TransferInfo(getTransferTasks().size(), runningTasks.size(), finishedTasks.size(), getStatus());
+            info = new TransferInfo(getTransferTasks().size(), runningTasks.size(), finishedTasks.size(), queued, rate, retryCount, resumedBytes, getStatus());
         }
         return info;
     }
@@ -1030,6 +1266,7 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
     @Override
     public final synchronized void transferStarted(TransferTask pTask) {
         LOGGER.debug("Transfer task {} has started", pTask);
+        runningTasks.add(pTask);
         notifyTransferStarted(pTask);
     }
 
@@ -1039,6 +1276,7 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
         synchronized (this) {
             runningTasks.remove(pTask);
             finishedTasks.add(pTask);
+            addRetryStatistics(pTask);
         }
         pTask.removeTransferTaskListener(this);
         notifyTransferFinished(pTask);
@@ -1050,11 +1288,45 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
         synchronized (this) {
             runningTasks.remove(pTask);
             failedTasks.add(pTask);
+            addRetryStatistics(pTask);
         }
         pTask.removeTransferTaskListener(this);
         notifyTransferFailed(pTask);
     }
 
+    /**
+     * Add the retries of a completed task to the statistics of this transfer.
+     * Must be called while holding the lock.
+     *
+     * @param pTask The completed task.
+     */
+    private void addRetryStatistics(TransferTask pTask) {
+        if (pTask.getAttempts() > 1) {
+            retryCount += pTask.getAttempts() - 1;
+        }
+        resumedBytes += pTask.getResumedBytes();
+    }
+
+    /**
+     * Get the number of retries of all transfer tasks of the current transfer
+     * phase.
+     *
+     * @return The number of retries.
+     */
+    public final synchronized long getRetryCount() {
+        return retryCount;
+    }
+
+    /**
+     * Get the number of bytes that were not transferred again, because retries
+     * of interrupted transfers were resumed.
+     *
+     * @return The number of resumed bytes.
+     */
+    public final synchronized long getResumedBytes() {
+        return resumedBytes;
+    }
+
     /**
      * Notifies all transfer task listeners that TransferTask pTask has started.
      *
@@ -1075,6 +1347,7 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
     private void notifyTransferFinished(TransferTask pTask) {
         //mark the node for URL as transferred
         transferContainer.markFileTransferred(pTask.getSourceFile().getUrl(), pTask.getTargetFile().getUrl());
+        addToJournal(pTask);
         //notify all registered listener
         for (ITransferTaskListener listener : transferTaskListeners.toArray(new ITransferTaskListener[transferTaskListeners.size()])) {
             listener.transferFinished(pTask);
@@ -1136,6 +1409,22 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
          * The number of finished tasks.
          */
         private int finishedTaskCount = 0;
+        /**
+         * The number of tasks waiting for execution.
+         */
+        private int queuedTaskCount = 0;
+        /**
+         * The average transfer rate in bytes per second.
+         */
+        private double transferRate = 0;
+        /**
+         * The number of retries of all completed tasks.
+         */
+        private long retryCount = 0;
+        /**
+         * The number of bytes not transferred again due to resumed retries.
+         */
+        private long resumedBytes = 0;
         /**
          * The current status of the transfer.
          */
@@ -1150,9 +1439,44 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
          * @param pStatus the current transfer status.
          */
         public TransferInfo(int pTaskCount, int pRunningTaskCount, int pFinishedTaskCount, TRANSFER_STATUS pStatus) {
+            this(pTaskCount, pRunningTaskCount, pFinishedTaskCount, 0, 0, pStatus);
+        }
+
+        /**
+         * Default constructor.
+         *
+         * @param pTaskCount The number of tasks.
+         * @param pRunningTaskCount The number of running tasks.
+         * @param pFinishedTaskCount The number of finished tasks.
+         * @param pQueuedTaskCount The number of tasks waiting for execution.
+         * @param pTransferRate The average transfer rate in bytes per second.
+         * @param pStatus the current transfer status.
+         */
+        public TransferInfo(int pTaskCount, int pRunningTaskCount, int pFinishedTaskCount, int pQueuedTaskCount, double pTransferRate, TRANSFER_STATUS pStatus) {
+            this(pTaskCount, pRunningTaskCount, pFinishedTaskCount, pQueuedTaskCount, pTransferRate, 0, 0, pStatus);
+        }
+
+        /**
+         * Default constructor.
+         *
+         * @param pTaskCount The number of tasks.
+         * @param pRunningTaskCount The number of running tasks.
+         * @param pFinishedTaskCount The number of finished tasks.
+         * @param pQueuedTaskCount The number of tasks waiting for execution.
+         * @param pTransferRate The average transfer rate in bytes per second.
+         * @param pRetryCount The number of retries of all completed tasks.
+         * @param pResumedBytes The number of bytes not transferred again due to
+         * resumed retries.
+         * @param pStatus the current transfer status.
+         */
+        public TransferInfo(int pTaskCount, int pRunningTaskCount, int pFinishedTaskCount, int pQueuedTaskCount, double pTransferRate, long pRetryCount, long pResumedBytes, TRANSFER_STATUS pStatus) {
             taskCount = pTaskCount;
             runningTaskCount = pRunningTaskCount;
             finishedTaskCount = pFinishedTaskCount;
+            queuedTaskCount = pQueuedTaskCount;
+            transferRate = pTransferRate;
+            retryCount = pRetryCount;
+            resumedBytes = pResumedBytes;
             currentStatus = pStatus;
         }
 
@@ -1183,6 +1507,43 @@ public abstract class AbstractTransferClient extends Thread implements ITransfer
             return finishedTaskCount;
         }
 
+        /**
+         * Get the number of tasks waiting for execution.
+         *
+         * @return The queue depth.
+         */
+        public final int getQueuedTaskCount() {
+            return queuedTaskCount;
+        }
+
+        /**
+         * Get the average transfer rate of the current transfer phase.
+         *
+         * @return The transfer rate in bytes per second.
+         */
+        public final double getTransferRate() {
+            return transferRate;
+        }
+
+        /**
+         * Get the number of retries of all completed tasks.
+         *
+         * @return The number of retries.
+         */
+        public final long getRetryCount() {
+            return retryCount;
+        }
+
+        /**
+         * Get the number of bytes not transferred again due to resumed
+         * retries.
+         *
+         * @return The number of resumed bytes.
+         */
+        public final long getResumedBytes() {
+            return resumedBytes;
+        }
+
         /**
          * Get the current status.
          *
@@ -24,6 +24,7 @@ import edu.kit.dama.transfer.client.types.TransferTask;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.time.DateUtils;
 import org.slf4j.Logger;
@@ -103,8 +104,10 @@ public class CLUploadClient extends BaseUserClient implements ITransferTaskListe
 
   @Override
   public final void transferFinished(TransferTask pTask) {
-    int finished = (int) Math.rint((double) getTransferClient().getTransferInfo().getFinishedTaskCount() / (double) getTransferClient().getTransferInfo().getTaskCount() * 100d);
-    System.out.printf("Transfer %1$s -> %2$s finished. [%3$s%%]%n", new Object[]{formatString(pTask.getSourceFile().getUrl().toString()), formatString(pTask.getTargetFile().getUrl().toString()), Integer.toString(finished)});
+    AbstractTransferClient.TransferInfo info = getTransferClient().getTransferInfo();
+    int finished = (int) Math.rint((double) info.getFinishedTaskCount() / (double) info.getTaskCount() * 100d);
+    String rate = FileUtils.byteCountToDisplaySize((long) info.getTransferRate()) + "/s";
+    System.out.printf("Transfer %1$s -> %2$s finished. [%3$s%%, %4$s queued, %5$s]%n", new Object[]{formatString(pTask.getSourceFile().getUrl().toString()), formatString(pTask.getTargetFile().getUrl().toString()), Integer.toString(finished), Integer.toString(info.getQueuedTaskCount()), rate});
   }
 
   @Override
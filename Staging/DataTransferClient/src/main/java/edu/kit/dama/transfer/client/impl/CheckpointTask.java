@@ -43,8 +43,8 @@ public class CheckpointTask extends TimerTask {
   @Override
   public final void run() {
     if (client != null) {
-      LOGGER.debug("Creating new checkpoint for client with ID {}", client.getTransferTaskContainer().getUniqueTransferIdentifier());
-      client.createCheckpoint();
+      LOGGER.debug("Updating checkpoint for client with ID {}", client.getTransferTaskContainer().getUniqueTransferIdentifier());
+      client.updateCheckpoint();
     }
   }
 }
@@ -0,0 +1,405 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.transfer.client.impl;
+
+import edu.kit.dama.transfer.client.types.TransferTask;
+import edu.kit.lsdf.adalapi.AbstractFile;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor running the transfer tasks of one transfer client on a
+ * work-stealing pool. Tasks are dispatched as soon as a previous task has
+ * completed, without any polling. Scheduling is limited by:
+ *
+ * <ul>
+ * <li>The current parallelism, which is adapted to the observed throughput
+ * between 1 and the configured max. number of parallel transfers. After the
+ * first window of completed tasks the parallelism is reduced by one. After each
+ * further window it is changed by one in the direction that has improved the
+ * throughput and reversed if the throughput has dropped.</li>
+ * <li>The max. number of parallel transfers per host, where the host is the
+ * remote side of a transfer. Tasks for other hosts are dispatched meanwhile,
+ * round robin.</li>
+ * </ul>
+ *
+ * TransferTask instances are executed by calling their run() method within a
+ * pool thread instead of starting them as separate threads. The throughput is
+ * measured using the size of the transferred files, see
+ * {@link TransferTask#getTransferredBytes()}.
+ *
+ * @author jejkal
+ */
+class TransferTaskExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransferTaskExecutor.class);
+    /**
+     * The relative throughput change that triggers an adaption of the
+     * parallelism.
+     */
+    private static final double ADAPTION_THRESHOLD = .1;
+    /**
+     * The min. number of completed tasks used to measure the throughput.
+     */
+    private static final int MIN_WINDOW_SIZE = 4;
+    /**
+     * The host key used for transfers between local files.
+     */
+    private static final String LOCAL_HOST = "local";
+
+    private final Executor pool;
+    private final int maxParallelism;
+    private final int maxParallelismPerHost;
+    private final Map<String, Deque<TransferTask>> pendingTasks = new LinkedHashMap<>();
+    private final Map<String, Integer> activeTasksPerHost = new HashMap<>();
+    private final Set<Thread> runningThreads = new HashSet<>();
+    private int pendingTaskCount = 0;
+    private int activeTaskCount = 0;
+    private int parallelism;
+    private int direction = -1;
+    private long startTime = 0;
+    private long transferredBytes = 0;
+    private long windowStart = 0;
+    private long windowBytes = 0;
+    private int windowTasks = 0;
+    private double lastWindowRate = 0;
+
+    /**
+     * Default constructor.
+     *
+     * @param pMaxParallelism The max. number of tasks running in parallel.
+     * @param pMaxParallelismPerHost The max. number of tasks running in parallel
+     * for one host. Values smaller than 1 disable the per-host limit.
+     */
+    TransferTaskExecutor(int pMaxParallelism, int pMaxParallelismPerHost) {
+        this(pMaxParallelism, pMaxParallelismPerHost, new ForkJoinPool(Math.max(1, pMaxParallelism), ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true));
+    }
+
+    /**
+     * Create an executor running the tasks on the provided executor, which has
+     * to offer at least pMaxParallelism threads.
+     *
+     * @param pMaxParallelism The max. number of tasks running in parallel.
+     * @param pMaxParallelismPerHost The max. number of tasks running in parallel
+     * for one host. Values smaller than 1 disable the per-host limit.
+     * @param pPool The executor used to run the tasks.
+     */
+    TransferTaskExecutor(int pMaxParallelism, int pMaxParallelismPerHost, Executor pPool) {
+        maxParallelism = Math.max(1, pMaxParallelism);
+        maxParallelismPerHost = (pMaxParallelismPerHost > 0) ? pMaxParallelismPerHost : maxParallelism;
+        parallelism = maxParallelism;
+        pool = pPool;
+    }
+
+    /**
+     * Submit a task. The task is started immediately if the limits allow it,
+     * otherwise it is queued.
+     *
+     * @param pTask The task.
+     */
+    synchronized void submit(TransferTask pTask) {
+        String host = getHost(pTask);
+        Deque<TransferTask> queue = pendingTasks.get(host);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            pendingTasks.put(host, queue);
+        }
+        queue.add(pTask);
+        pendingTaskCount++;
+        dispatch();
+    }
+
+    /**
+     * Wait until all submitted tasks have completed or until the timeout has
+     * elapsed. Waiting threads are notified on each task completion.
+     *
+     * @param pTimeout The max. time to wait in milliseconds.
+     *
+     * @return TRUE if all tasks have completed.
+     *
+     * @throws InterruptedException If the waiting thread was interrupted.
+     */
+    synchronized boolean awaitCompletion(long pTimeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + pTimeout;
+        long remaining = pTimeout;
+        while (activeTaskCount + pendingTaskCount > 0 && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return activeTaskCount + pendingTaskCount == 0;
+    }
+
+    /**
+     * Remove all tasks that have not been started yet, e.g. if the transfer was
+     * canceled. Running tasks are not affected.
+     *
+     * @return The number of removed tasks.
+     */
+    synchronized int cancelPending() {
+        int removed = pendingTaskCount;
+        pendingTasks.clear();
+        pendingTaskCount = 0;
+        notifyAll();
+        return removed;
+    }
+
+    /**
+     * Interrupt all running tasks, e.g. if the transfer was canceled and has to
+     * terminate quickly. Interrupted tasks are not retried, they fail and are
+     * completed as usual. In order to terminate the transfer, pending tasks have
+     * to be removed before via {@link #cancelPending()}.
+     *
+     * @return The number of interrupted tasks.
+     */
+    synchronized int interruptRunning() {
+        for (Thread thread : runningThreads) {
+            thread.interrupt();
+        }
+        return runningThreads.size();
+    }
+
+    /**
+     * Shutdown the underlying pool. Running tasks are finished.
+     */
+    void shutdown() {
+        if (pool instanceof ExecutorService) {
+            ((ExecutorService) pool).shutdown();
+        }
+    }
+
+    /**
+     * Get the number of tasks waiting for execution.
+     *
+     * @return The queue depth.
+     */
+    synchronized int getQueuedTaskCount() {
+        return pendingTaskCount;
+    }
+
+    /**
+     * Get the current parallelism.
+     *
+     * @return The max. number of tasks currently allowed to run in parallel.
+     */
+    synchronized int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Get the average transfer rate since the first task was started.
+     *
+     * @return The transfer rate in bytes per second.
+     */
+    synchronized double getTransferRate() {
+        if (startTime == 0) {
+            return 0;
+        }
+        return transferredBytes * 1000d / Math.max(1, currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Start as many pending tasks as the limits allow. Hosts are served round
+     * robin: A host that got a task is moved to the end of the host order, so
+     * the next dispatch starts with the host waiting longest. Must be called
+     * while holding the lock.
+     */
+    private void dispatch() {
+        boolean dispatched = true;
+        while (dispatched && pendingTaskCount > 0 && activeTaskCount < parallelism) {
+            dispatched = false;
+            Map<String, Deque<TransferTask>> served = new LinkedHashMap<>();
+            Iterator<Map.Entry<String, Deque<TransferTask>>> hosts = pendingTasks.entrySet().iterator();
+            while (hosts.hasNext() && activeTaskCount < parallelism) {
+                Map.Entry<String, Deque<TransferTask>> entry = hosts.next();
+                Integer active = activeTasksPerHost.get(entry.getKey());
+                if (active != null && active >= maxParallelismPerHost) {
+                    continue;
+                }
+                TransferTask task = entry.getValue().poll();
+                hosts.remove();
+                if (!entry.getValue().isEmpty()) {
+                    served.put(entry.getKey(), entry.getValue());
+                }
+                start(task, entry.getKey());
+                dispatched = true;
+            }
+            pendingTasks.putAll(served);
+        }
+    }
+
+    /**
+     * Start a task within the pool. Must be called while holding the lock.
+     *
+     * @param pTask The task.
+     * @param pHost The host key of the task.
+     */
+    private void start(final TransferTask pTask, final String pHost) {
+        pendingTaskCount--;
+        activeTaskCount++;
+        Integer active = activeTasksPerHost.get(pHost);
+        activeTasksPerHost.put(pHost, (active != null) ? active + 1 : 1);
+        if (startTime == 0) {
+            startTime = currentTimeMillis();
+            windowStart = startTime;
+        }
+        pool.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                long bytes = 0;
+                taskStarted(Thread.currentThread());
+                try {
+                    bytes = runTask(pTask);
+                } catch (RuntimeException ex) {
+                    LOGGER.error("Transfer task " + pTask + " terminated unexpectedly.", ex);
+                } finally {
+                    taskCompleted(Thread.currentThread(), pHost, bytes);
+                    //the thread cannot be interrupted any longer, clear a pending interrupt before returning it to the pool
+                    Thread.interrupted();
+                }
+            }
+        });
+    }
+
+    /**
+     * Run a task within the calling pool thread.
+     *
+     * @param pTask The task.
+     *
+     * @return The number of transferred bytes or 0 if the task has failed.
+     */
+    long runTask(TransferTask pTask) {
+        pTask.run();
+        if (TransferTask.TRANSFER_TASK_STATUS.SUCCEEDED.equals(pTask.getStatus())) {
+            return pTask.getTransferredBytes();
+        }
+        return 0;
+    }
+
+    /**
+     * Get the current time used for measuring the throughput.
+     *
+     * @return The current time in milliseconds.
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Start callback of a task. Registers the thread running the task in order
+     * to be able to interrupt it.
+     *
+     * @param pThread The thread running the task.
+     */
+    private synchronized void taskStarted(Thread pThread) {
+        runningThreads.add(pThread);
+    }
+
+    /**
+     * Completion callback of a task. Updates the throughput statistics,
+     * dispatches pending tasks and wakes up all waiting threads.
+     *
+     * @param pThread The thread that has run the task.
+     * @param pHost The host key of the task.
+     * @param pBytes The number of bytes transferred by the task.
+     */
+    private synchronized void taskCompleted(Thread pThread, String pHost, long pBytes) {
+        runningThreads.remove(pThread);
+        activeTaskCount--;
+        int active = activeTasksPerHost.get(pHost) - 1;
+        if (active == 0) {
+            activeTasksPerHost.remove(pHost);
+        } else {
+            activeTasksPerHost.put(pHost, active);
+        }
+
+        transferredBytes += pBytes;
+        windowBytes += pBytes;
+        windowTasks++;
+        if (windowTasks >= Math.max(parallelism, MIN_WINDOW_SIZE)) {
+            adaptParallelism();
+        }
+        dispatch();
+        notifyAll();
+    }
+
+    /**
+     * Adapt the parallelism based on the throughput of the last window. After
+     * the first window, the parallelism is reduced once in order to probe the
+     * throughput. Afterwards, it is changed further in the same direction as
+     * long as the throughput improves and in the opposite direction if the
+     * throughput has dropped. Must be called while holding the lock.
+     */
+    private void adaptParallelism() {
+        long now = currentTimeMillis();
+        double rate = windowBytes * 1000d / Math.max(1, now - windowStart);
+        boolean change = false;
+        if (lastWindowRate == 0) {
+            //first window, probe in the current direction
+            change = rate > 0;
+        } else if (rate > lastWindowRate * (1 + ADAPTION_THRESHOLD)) {
+            change = true;
+        } else if (rate < lastWindowRate * (1 - ADAPTION_THRESHOLD)) {
+            //last change was not beneficial, go the other way
+            direction = -direction;
+            change = true;
+        }
+        if (change) {
+            int newParallelism = Math.min(maxParallelism, Math.max(1, parallelism + direction));
+            if (newParallelism != parallelism) {
+                LOGGER.debug("Changing transfer parallelism from {} to {} at {} bytes/s.", new Object[]{parallelism, newParallelism, (long) rate});
+                parallelism = newParallelism;
+            }
+        }
+        lastWindowRate = rate;
+        windowStart = now;
+        windowBytes = 0;
+        windowTasks = 0;
+    }
+
+    /**
+     * Get the host key of a task, which is the host of the remote side.
+     *
+     * @param pTask The task.
+     *
+     * @return The host key.
+     */
+    private static String getHost(TransferTask pTask) {
+        AbstractFile remote = null;
+        if (!pTask.getSourceFile().isLocal()) {
+            remote = pTask.getSourceFile();
+        } else if (!pTask.getTargetFile().isLocal()) {
+            remote = pTask.getTargetFile();
+        }
+        if (remote == null) {
+            return LOCAL_HOST;
+        }
+        URL url = remote.getUrl();
+        return url.getProtocol() + "://" + url.getAuthority();
+    }
+}
@@ -34,6 +34,9 @@ public interface ITransferStatusListener {
      */
     void fireStatusChangedEvent(TRANSFER_STATUS pOldStatus, TRANSFER_STATUS pNewStatus);
 
-    /**Event fired frequently as long as the transfer is alive and running*/
+    /**Event fired frequently as long as the transfer is alive and running.
+     * The current transfer rate and the number of queued tasks can be obtained
+     * via AbstractTransferClient.getTransferInfo() on each event.
+     */
     void fireTransferAliveEvent();
 }
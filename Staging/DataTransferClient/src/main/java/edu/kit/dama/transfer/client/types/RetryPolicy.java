@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.transfer.client.types;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Policy defining how often and after which delay a failed transfer task is
+ * retried. The delay grows exponentially with each failed attempt, starting
+ * at the initial delay and limited by the max. delay. To avoid that many tasks
+ * failing at the same time (e.g. due to a broken connection) retry at the same
+ * time, each delay is randomly reduced by up to the jitter fraction.
+ *
+ * Instances are immutable and can be shared by many transfer tasks.
+ *
+ * @author jejkal
+ */
+public final class RetryPolicy {
+
+    /**
+     * The default number of attempts.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+    /**
+     * The default delay in milliseconds after the first failed attempt.
+     */
+    public static final long DEFAULT_INITIAL_DELAY = 2000;
+    /**
+     * The default max. delay in milliseconds between two attempts.
+     */
+    public static final long DEFAULT_MAX_DELAY = 120000;
+    /**
+     * The default policy.
+     */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_DELAY, DEFAULT_MAX_DELAY, 2.0, .5);
+
+    private final int maxAttempts;
+    private final long initialDelay;
+    private final long maxDelay;
+    private final double multiplier;
+    private final double jitter;
+
+    /**
+     * Default constructor.
+     *
+     * @param pMaxAttempts The max. number of attempts including the first one.
+     * @param pInitialDelay The delay in milliseconds after the first failed
+     * attempt.
+     * @param pMaxDelay The max. delay in milliseconds between two attempts.
+     * @param pMultiplier The factor the delay grows by after each failed
+     * attempt.
+     * @param pJitter The max. fraction each delay is randomly reduced by, between
+     * 0 (no jitter) and 1.
+     */
+    public RetryPolicy(int pMaxAttempts, long pInitialDelay, long pMaxDelay, double pMultiplier, double pJitter) {
+        if (pMaxAttempts < 1) {
+            throw new IllegalArgumentException("Argument pMaxAttempts must be at least 1");
+        }
+        if (pInitialDelay < 0 || pMaxDelay < pInitialDelay) {
+            throw new IllegalArgumentException("Argument pInitialDelay must not be negative and must not exceed pMaxDelay");
+        }
+        if (pMultiplier < 1) {
+            throw new IllegalArgumentException("Argument pMultiplier must be at least 1");
+        }
+        if (pJitter < 0 || pJitter > 1) {
+            throw new IllegalArgumentException("Argument pJitter must be between 0 and 1");
+        }
+        maxAttempts = pMaxAttempts;
+        initialDelay = pInitialDelay;
+        maxDelay = pMaxDelay;
+        multiplier = pMultiplier;
+        jitter = pJitter;
+    }
+
+    /**
+     * Get the max. number of attempts including the first one.
+     *
+     * @return The max. number of attempts.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Check whether another attempt is allowed after pAttempt has failed.
+     *
+     * @param pAttempt The number of the failed attempt, starting at 1.
+     *
+     * @return TRUE if the transfer should be retried.
+     */
+    public boolean canRetry(int pAttempt) {
+        return pAttempt < maxAttempts;
+    }
+
+    /**
+     * Get the delay before retrying after attempt pAttempt has failed.
+     *
+     * @param pAttempt The number of the failed attempt, starting at 1.
+     *
+     * @return The delay in milliseconds.
+     */
+    public long getDelay(int pAttempt) {
+        double delay = initialDelay * Math.pow(multiplier, Math.max(0, pAttempt - 1));
+        delay = Math.min(delay, maxDelay);
+        if (jitter > 0) {
+            delay -= delay * jitter * ThreadLocalRandom.current().nextDouble();
+        }
+        return (long) delay;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy[maxAttempts=" + maxAttempts + ", initialDelay=" + initialDelay + "ms, maxDelay=" + maxDelay + "ms, multiplier=" + multiplier + ", jitter=" + jitter + "]";
+    }
+}
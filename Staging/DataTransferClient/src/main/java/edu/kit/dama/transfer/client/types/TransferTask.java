@@ -24,12 +24,20 @@ import edu.kit.lsdf.adalapi.exception.AdalapiException;
 import edu.kit.lsdf.adalapi.exception.TransferNotSupportedException;
 import edu.kit.dama.transfer.client.exceptions.InvalidEntityException;
 import edu.kit.dama.transfer.client.interfaces.ITransferTaskListener;
+import edu.kit.dama.staging.util.ChecksumUtils;
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import org.apache.commons.lang.time.DateUtils;
 import org.fzk.tools.xml.JaxenUtil;
 import org.jdom.Attribute;
 import org.jdom.Document;
@@ -55,10 +63,32 @@ public class TransferTask extends Thread {
 
     WAITING, RUNNING, SUCCEEDED, FAILED
   };
+
   /**
-   * Delay between different transfer attempts
+   * Modes for transferring files if source and target are local.
    */
-  private static final int RETRY_DELAY_IN_SECONDS = 10;
+  public enum LOCAL_TRANSFER_MODE {
+
+    /**
+     * Always use the ADALAPI transfer.
+     */
+    ADALAPI,
+    /**
+     * Copy the file in kernel space using FileChannel.transferTo().
+     */
+    COPY,
+    /**
+     * Create a hard link to the source file if both files are located on the
+     * same file system, copy the file otherwise. Changes to the source file
+     * will then also affect the target file.
+     */
+    LINK
+  };
+  /**
+   * The number of bytes at the end of a partially transferred file that are
+   * compared with the source before resuming the transfer.
+   */
+  private static final int RESUME_VERIFY_SIZE = 64 * 1024;
   /**
    * The source file of this transfer
    */
@@ -80,9 +110,39 @@ public class TransferTask extends Thread {
    */
   private Collection<ITransferTaskListener> transferTaskListener = null;
   /**
-   * The max. number of tries to transfer a file successfully
+   * The policy defining how often and when failed transfers are retried.
+   */
+  private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+  /**
+   * The number of transfer attempts performed so far.
+   */
+  private int attempts = 0;
+  /**
+   * The overall time in milliseconds spent waiting between attempts.
+   */
+  private long retryDelay = 0;
+  /**
+   * The number of bytes that did not have to be transferred again as a failed
+   * attempt was resumed.
+   */
+  private long resumedBytes = 0;
+  /**
+   * The size of the transferred file.
+   */
+  private long transferredBytes = 0;
+  /**
+   * The MessageDigest algorithm used to calculate the checksum of the
+   * transferred data or null if no checksum is calculated.
+   */
+  private String checksumAlgorithm = null;
+  /**
+   * The checksum of the transferred data as hex string.
+   */
+  private String checksum = null;
+  /**
+   * The mode used if source and target are local.
    */
-  private static final int MAX_TRIES = 3;
+  private LOCAL_TRANSFER_MODE localTransferMode = LOCAL_TRANSFER_MODE.COPY;
 
   /**
    * Creates a new transfer task which performs no cleanup after transfer. This
@@ -196,6 +256,131 @@ public class TransferTask extends Thread {
     return getTargetFile().equals(pTarget);
   }
 
+  /**
+   * Set the MessageDigest algorithm, e.g. SHA-256, used to calculate the
+   * checksum of the transferred data. If source and target are local, the
+   * checksum is calculated while copying the data. Otherwise, the local side is
+   * hashed after the transfer. If both sides are remote, no checksum is
+   * available.
+   *
+   * @param pAlgorithm The algorithm name or null to disable checksumming.
+   *
+   * @throws IllegalArgumentException If the algorithm is not supported.
+   */
+  public final void setChecksumAlgorithm(String pAlgorithm) {
+    if (pAlgorithm != null) {
+      //fail early if the algorithm is not supported
+      ChecksumUtils.createDigest(pAlgorithm);
+    }
+    checksumAlgorithm = pAlgorithm;
+  }
+
+  /**
+   * Get the MessageDigest algorithm used to calculate the checksum.
+   *
+   * @return The algorithm name or null.
+   */
+  public final String getChecksumAlgorithm() {
+    return checksumAlgorithm;
+  }
+
+  /**
+   * Get the checksum of the transferred data as hex string.
+   *
+   * @return The checksum or null if no checksum algorithm was set, the task has
+   * not succeeded or the checksum could not be obtained.
+   */
+  public final String getChecksum() {
+    return checksum;
+  }
+
+  /**
+   * Set the mode used if source and target of this task are local. The
+   * default mode is COPY. Transfer clients apply the mode configured in the
+   * staging settings to all their tasks.
+   *
+   * @param pMode The local transfer mode.
+   */
+  public final void setLocalTransferMode(LOCAL_TRANSFER_MODE pMode) {
+    if (pMode == null) {
+      throw new IllegalArgumentException("Argument pMode must not be null");
+    }
+    localTransferMode = pMode;
+  }
+
+  /**
+   * Get the mode used if source and target of this task are local.
+   *
+   * @return The local transfer mode.
+   */
+  public final LOCAL_TRANSFER_MODE getLocalTransferMode() {
+    return localTransferMode;
+  }
+
+  /**
+   * Set the policy defining how often and after which delay failed transfers
+   * are retried. By default, {@link RetryPolicy#DEFAULT} is used. Transfer
+   * clients apply the policy configured in the staging settings to all their
+   * tasks.
+   *
+   * @param pPolicy The retry policy.
+   */
+  public final void setRetryPolicy(RetryPolicy pPolicy) {
+    if (pPolicy == null) {
+      throw new IllegalArgumentException("Argument pPolicy must not be null");
+    }
+    retryPolicy = pPolicy;
+  }
+
+  /**
+   * Get the policy defining how often and after which delay failed transfers
+   * are retried.
+   *
+   * @return The retry policy.
+   */
+  public final RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
+  /**
+   * Get the number of transfer attempts performed so far.
+   *
+   * @return The number of attempts, 0 if the task has not started yet.
+   */
+  public final int getAttempts() {
+    return attempts;
+  }
+
+  /**
+   * Get the overall time spent waiting between transfer attempts.
+   *
+   * @return The retry delay in milliseconds.
+   */
+  public final long getRetryDelay() {
+    return retryDelay;
+  }
+
+  /**
+   * Get the number of bytes that did not have to be transferred again, because
+   * a failed attempt was resumed at the last verified offset.
+   *
+   * @return The number of resumed bytes.
+   */
+  public final long getResumedBytes() {
+    return resumedBytes;
+  }
+
+  /**
+   * Get the size of the transferred file. The size is obtained from the local
+   * side of the transfer or, if both sides are remote, from the target file.
+   *
+   * @return The number of transferred bytes or 0 if the task has not succeeded
+   * or the size could not be obtained.
+   */
+  public final long getTransferredBytes() {
+    return transferredBytes;
+  }
+
   /**
    * Returns the current status of the transfer task
    *
@@ -207,42 +392,55 @@ public class TransferTask extends Thread {
 
   /**
    * Perform the transfer task by transferring the source file to the target
-   * file. After the transfer the source file may be deleted if cleanup was
-   * requested. If cleanup was requested and fails, only a warning is logged, as
-   * the transfer has succeeded.
+   * file. Failed transfers are retried according to the retry policy, local
+   * copies are resumed at the last verified offset. After the transfer the
+   * source file may be deleted if cleanup was requested. If cleanup was
+   * requested and fails, only a warning is logged, as the transfer has
+   * succeeded.
    */
   @Override
   public final void run() {
     status = TRANSFER_TASK_STATUS.RUNNING;
     fireTransferStartedEvents();
     boolean transferSucceeded = false;
+    attempts = 0;
+    retryDelay = 0;
+    resumedBytes = 0;
+    transferredBytes = 0;
     //perform the transfer task including retry handling
-    for (int attempt = 1; attempt <= MAX_TRIES; attempt++) {
-      if (!transferSucceeded && attempt > 1) {
-        LOGGER.info("Retrying transfer...");
-      }
+    for (int attempt = 1; attempt <= retryPolicy.getMaxAttempts(); attempt++) {
+      attempts = attempt;
       try {
         LOGGER.info("TransferTask starts transfer from {} to {}", new Object[]{getSourceFile(), getTargetFile()});
-        getSourceFile().transfer(getTargetFile());
+        performTransfer(attempt);
         transferSucceeded = true;
         break;
       } catch (AdalapiException ae) {//normal exception...retry
         LOGGER.error("Failed to transfer file " + getSourceFile() + " to " + getTargetFile() + "(Attempt: " + attempt + ")", ae);
       } catch (TransferNotSupportedException tnse) {//fatal exception (file not readable, does not exist...), retry won't help.
         LOGGER.error("Failed to transfer file " + getSourceFile() + " to " + getTargetFile() + ". Not using more attempts.", tnse);
-        attempt = MAX_TRIES;
+        break;
       }
 
+      if (!retryPolicy.canRetry(attempt)) {
+        break;
+      }
       //wait retry delay
+      long delay = retryPolicy.getDelay(attempt);
+      LOGGER.info("Retrying transfer of {} in {} ms (Attempt {} of {})", new Object[]{getSourceFile(), delay, attempt + 1, retryPolicy.getMaxAttempts()});
       try {
-        Thread.sleep(RETRY_DELAY_IN_SECONDS * DateUtils.MILLIS_PER_SECOND);
+        Thread.sleep(delay);
+        retryDelay += delay;
       } catch (InterruptedException ie) {
+        LOGGER.warn("Interrupted while waiting for retrying transfer of {}. Aborting.", getSourceFile());
+        Thread.currentThread().interrupt();
+        break;
       }
     }
 
     //do cleanup if transfer has succeeded
     if (!transferSucceeded) {
-      LOGGER.error("Transfer failed within {} tries. Skipping cleanup and aborting!", MAX_TRIES);
+      LOGGER.error("Transfer failed within {} tries. Skipping cleanup and aborting!", attempts);
     } else {
       if (!cleanup()) {
         //log warning
@@ -251,6 +449,7 @@ public class TransferTask extends Thread {
     }
 
     if (transferSucceeded) {
+      transferredBytes = determineTransferredBytes();
       status = TRANSFER_TASK_STATUS.SUCCEEDED;
       fireTransferFinishedEvents();
     } else {
@@ -259,6 +458,254 @@ public class TransferTask extends Thread {
     }
   }
 
+  /**
+   * Transfer the source file to the target file. Missing parent directories
+   * of a local target file are created. If both sides are local files, the
+   * transfer is performed without ADALAPI according to the local transfer
+   * mode: If cleanup is requested, the source is moved atomically if possible.
+   * Otherwise, a hard link is created (mode LINK) or the file is copied in
+   * kernel space (mode COPY). If a checksum algorithm is set, copied data is
+   * hashed in the same pass, moved or linked data is hashed afterwards.
+   *
+   * If copying fails, e.g. due to an I/O error, an AdalapiException is thrown
+   * and the next attempt resumes the copy at the last verified offset. Only if
+   * a file system operation is rejected, e.g. because a file is missing or not
+   * accessible, the ADALAPI transfer is used as fallback, which always starts
+   * from the beginning. If a file cannot be opened for copying, e.g. because
+   * the source was removed meanwhile or is not readable, a
+   * TransferNotSupportedException is thrown, as retrying would fail the same
+   * way.
+   *
+   * @param pAttempt The number of the current attempt, starting at 1.
+   *
+   * @throws AdalapiException If the transfer fails.
+   * @throws TransferNotSupportedException If a file is missing or not
+   * accessible.
+   */
+  private void performTransfer(int pAttempt) throws AdalapiException {
+    checksum = null;
+    File localSource = toLocalFile(getSourceFile());
+    File localTarget = toLocalFile(getTargetFile());
+    if (localTarget != null) {
+      createParentDirectories(localTarget);
+    }
+    if (localSource != null && localTarget != null && !LOCAL_TRANSFER_MODE.ADALAPI.equals(localTransferMode) && localSource.isFile() && !localTarget.isDirectory()) {
+      try {
+        if (moveOrLink(localSource.toPath(), localTarget.toPath())) {
+          if (checksumAlgorithm != null) {
+            checksum = ChecksumUtils.hashFile(localTarget, checksumAlgorithm);
+          }
+        } else {
+          long offset = (pAttempt > 1) ? getVerifiedOffset(localSource, localTarget) : 0;
+          if (offset > 0) {
+            LOGGER.info("Resuming transfer of {} at byte {}", localSource, offset);
+            resumedBytes += offset;
+          }
+          checksum = copyLocal(localSource.toPath(), localTarget.toPath(), offset);
+        }
+        return;
+      } catch (FileSystemException ex) {
+        //copying again would fail the same way
+        LOGGER.warn("Local transfer from " + localSource + " to " + localTarget + " failed. Falling back to ADALAPI transfer.", ex);
+        checksum = null;
+      } catch (FileNotFoundException ex) {
+        //thrown by stream based copies if a file is missing or not accessible, retries won't help
+        checksum = null;
+        throw new TransferNotSupportedException("Failed to open " + localSource + " or " + localTarget + " for copying", ex);
+      } catch (IOException ex) {
+        checksum = null;
+        throw new AdalapiException("Failed to copy " + localSource + " to " + localTarget, ex);
+      }
+    }
+
+    getSourceFile().transfer(getTargetFile());
+    File localSide = (localSource != null) ? localSource : localTarget;
+    if (checksumAlgorithm != null && localSide != null) {
+      try {
+        checksum = ChecksumUtils.hashFile(localSide, checksumAlgorithm);
+      } catch (IOException ex) {
+        LOGGER.warn("Failed to calculate checksum of " + localSide, ex);
+      }
+    }
+  }
+
+  /**
+   * Create all missing parent directories of the local target file, which is
+   * neither done by the ADALAPI transfer nor by the local transfer modes.
+   *
+   * @param pTarget The local target file.
+   *
+   * @throws AdalapiException If the directories cannot be created.
+   */
+  private static void createParentDirectories(File pTarget) throws AdalapiException {
+    File parent = pTarget.getAbsoluteFile().getParentFile();
+    if (parent == null || parent.isDirectory()) {
+      return;
+    }
+    try {
+      Files.createDirectories(parent.toPath());
+    } catch (IOException ex) {
+      throw new AdalapiException("Failed to create parent directory of target file " + pTarget, ex);
+    }
+  }
+
+  /**
+   * Move pSource to pTarget if cleanup is requested or create a hard link if
+   * the local transfer mode is LINK. Both operations only succeed if source
+   * and target are located on the same file system.
+   *
+   * @param pSource The source path.
+   * @param pTarget The target path, which is replaced if it exists.
+   *
+   * @return TRUE if the file was moved or linked, FALSE if it has to be
+   * copied.
+   *
+   * @throws IOException If the target cannot be replaced.
+   */
+  private boolean moveOrLink(Path pSource, Path pTarget) throws IOException {
+    if (cleanup) {
+      try {
+        Files.move(pSource, pTarget, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return true;
+      } catch (AtomicMoveNotSupportedException ex) {
+        LOGGER.debug("Atomic move from {} to {} not supported. Copying file.", pSource, pTarget);
+      }
+    }
+    if (LOCAL_TRANSFER_MODE.LINK.equals(localTransferMode)) {
+      Files.deleteIfExists(pTarget);
+      try {
+        Files.createLink(pTarget, pSource);
+        return true;
+      } catch (UnsupportedOperationException | FileSystemException ex) {
+        //e.g. different file systems or no hard link support
+        LOGGER.debug("Failed to link {} to {}. Copying file.", pTarget, pSource);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Copy pSource to pTarget. If a checksum algorithm is set, the data is
+   * hashed while copying. Otherwise, FileChannel.transferTo() is used, which
+   * allows the operating system to copy the data without passing it through
+   * user space.
+   *
+   * @param pSource The source path.
+   * @param pTarget The target path, which is overwritten if it exists.
+   * @param pOffset The number of bytes already copied to pTarget. pTarget is
+   * truncated to this size and the copy continues at this position.
+   *
+   * @return The checksum of the entire file or null if no checksum algorithm
+   * is set.
+   *
+   * @throws IOException If the copy fails.
+   */
+  String copyLocal(Path pSource, Path pTarget, long pOffset) throws IOException {
+    if (checksumAlgorithm != null) {
+      return ChecksumUtils.copyAndHash(pSource.toFile(), pTarget.toFile(), pOffset, checksumAlgorithm);
+    }
+    try (FileChannel in = FileChannel.open(pSource, StandardOpenOption.READ);
+            FileChannel out = (pOffset > 0) ? FileChannel.open(pTarget, StandardOpenOption.WRITE, StandardOpenOption.CREATE) : FileChannel.open(pTarget, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      long size = in.size();
+      long position = pOffset;
+      if (pOffset > 0) {
+        out.truncate(pOffset);
+        out.position(pOffset);
+      }
+      while (position < size) {
+        long transferred = in.transferTo(position, size - position, out);
+        if (transferred <= 0) {
+          //source was truncated meanwhile
+          break;
+        }
+        position += transferred;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get the offset at which a partially copied target file can be resumed. The
+   * target is accepted if it is not larger than the source and if its last
+   * bytes are equal to the source at the same position, which detects
+   * incompletely written data at the end of the target.
+   *
+   * @param pSource The source file.
+   * @param pTarget The partially copied target file.
+   *
+   * @return The number of bytes that do not have to be copied again or 0 if
+   * the copy has to start from the beginning.
+   */
+  private static long getVerifiedOffset(File pSource, File pTarget) {
+    long length = pTarget.length();
+    if (!pTarget.isFile() || length == 0 || length > pSource.length()) {
+      return 0;
+    }
+    int window = (int) Math.min(length, RESUME_VERIFY_SIZE);
+    ByteBuffer sourceData = ByteBuffer.allocate(window);
+    ByteBuffer targetData = ByteBuffer.allocate(window);
+    try (FileChannel in = FileChannel.open(pSource.toPath(), StandardOpenOption.READ);
+            FileChannel out = FileChannel.open(pTarget.toPath(), StandardOpenOption.READ)) {
+      while (sourceData.hasRemaining() && in.read(sourceData, length - window + sourceData.position()) > 0) {
+        //read until buffer is full
+      }
+      while (targetData.hasRemaining() && out.read(targetData, length - window + targetData.position()) > 0) {
+        //read until buffer is full
+      }
+    } catch (IOException ex) {
+      LOGGER.debug("Failed to verify partially copied file " + pTarget + ". Restarting copy.", ex);
+      return 0;
+    }
+    sourceData.flip();
+    targetData.flip();
+    if (!sourceData.equals(targetData)) {
+      LOGGER.debug("Partially copied file {} differs from source {}. Restarting copy.", pTarget, pSource);
+      return 0;
+    }
+    return length;
+  }
+
+  /**
+   * Determine the size of the transferred file. The local side is preferred,
+   * as obtaining the size of a remote file requires an additional request.
+   *
+   * @return The size in bytes or 0 if it cannot be obtained.
+   */
+  private long determineTransferredBytes() {
+    File localSide = toLocalFile(getTargetFile());
+    if (localSide == null) {
+      localSide = toLocalFile(getSourceFile());
+    }
+    if (localSide != null) {
+      return localSide.length();
+    }
+    try {
+      return getTargetFile().getSize();
+    } catch (AdalapiException ex) {
+      LOGGER.debug("Failed to obtain size of transferred file " + getTargetFile(), ex);
+      return 0;
+    }
+  }
+
+  /**
+   * Get the local file represented by pFile.
+   *
+   * @param pFile The abstract file.
+   *
+   * @return The local file or null if pFile is not local.
+   */
+  private static File toLocalFile(AbstractFile pFile) {
+    if (!pFile.isLocal()) {
+      return null;
+    }
+    try {
+      return new File(pFile.getUrl().toURI());
+    } catch (URISyntaxException | IllegalArgumentException ex) {
+      LOGGER.warn("Failed to obtain local file for URL " + pFile.getUrl(), ex);
+      return null;
+    }
+  }
+
   /**
    * Cleanup the source file if the transfer has succeeded.
    *
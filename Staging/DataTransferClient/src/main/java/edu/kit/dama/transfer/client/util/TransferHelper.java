@@ -29,6 +29,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 import org.slf4j.Logger;
@@ -45,6 +48,7 @@ public final class TransferHelper {
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(TransferHelper.class);
     private static final String CHECKPOINT_FILENAME = "checkpoint.xml";
+    private static final String JOURNAL_FILENAME = "checkpoint.journal";
 
     /**
      * Hidden default constructor
@@ -97,6 +101,16 @@ public final class TransferHelper {
                 LOGGER.info("Restoring transfer from checkpoint");
                 fin = new FileInputStream(checkpointFile);
                 restoredContainer = TransferTaskContainer.loadFromStream(fin, pContext.getAccessKey(), pContext.getAccessSecret());
+                File journalFile = new File(tmpDir + File.separator + JOURNAL_FILENAME);
+                if (journalFile.exists() && restoredContainer.isClosed()) {
+                    //journal records are only written during the transfer phase, which requires a closed container
+                    try {
+                        int applied = TransferJournal.replay(journalFile, restoredContainer);
+                        LOGGER.info("Applied {} transferred file(s) from checkpoint journal", applied);
+                    } catch (IOException ex) {
+                        LOGGER.warn("Failed to replay checkpoint journal. Files transferred after the last full checkpoint will be transferred again.", ex);
+                    }
+                }
             } else {
                 LOGGER.info("No checkpoint found");
             }
@@ -118,10 +132,12 @@ public final class TransferHelper {
     }
 
     /**
-     * Create a new checkpoint for the transfer with the ID pTransferId. The
-     * checkpoint file will contain all tasks included in pTasks exclusive the
-     * tasks in pTasksToIgnore. This second list may contain tasks which have
-     * already finished.
+     * Create a new full checkpoint for the transfer described by pContainer.
+     * The checkpoint file will contain the entire container including the
+     * state of all files. The checkpoint is written to a temporary file first
+     * and replaces the previous checkpoint afterwards, so that there is always
+     * a valid checkpoint. Progress made after the full checkpoint should be
+     * recorded in a journal obtained via createJournal().
      *
      * @param pContainer The transfer task container which contains all
      * information about the transfer.
@@ -135,9 +151,18 @@ public final class TransferHelper {
         try {
             String tempDir = StagingUtils.getTempDir(pContainer);
             File checkpointFile = new File(tempDir + File.separator + CHECKPOINT_FILENAME);
-            fout = new FileOutputStream(checkpointFile);
+            File tmpFile = new File(tempDir + File.separator + CHECKPOINT_FILENAME + ".tmp");
+            fout = new FileOutputStream(tmpFile);
             new XStream().toXML(pContainer, fout);
             fout.flush();
+            fout.getChannel().force(false);
+            fout.close();
+            fout = null;
+            try {
+                Files.move(tmpFile.toPath(), checkpointFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tmpFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
             result = true;
         } catch (IOException ioe) {
             LOGGER.trace("Failed to create checkpoint. I'll proceed, but will not be able to resume unfinished transfers.", ioe);
@@ -153,6 +178,24 @@ public final class TransferHelper {
         return result;
     }
 
+    /**
+     * Create a new, empty journal for the transfer described by pContainer. An
+     * existing journal is replaced, thus this method should be called directly
+     * after a full checkpoint was created using createCheckpoint(). All
+     * records added to the journal are applied to the full checkpoint by
+     * restoreTransfer().
+     *
+     * @param pContainer The transfer task container which contains all
+     * information about the transfer.
+     *
+     * @return The journal.
+     *
+     * @throws IOException If the journal could not be created.
+     */
+    public static TransferJournal createJournal(TransferTaskContainer pContainer) throws IOException {
+        return new TransferJournal(new File(StagingUtils.getTempDir(pContainer) + File.separator + JOURNAL_FILENAME));
+    }
+
     /**
      * Factory a new transfer client for the provided transfer task container.
      * This method is intended to be used for ingests as no destination can be
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.transfer.client.util;
+
+import edu.kit.dama.rest.staging.types.TransferTaskContainer;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.zip.CRC32;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only journal of the progress of a transfer. The journal complements
+ * the full checkpoint of a transfer task container written by
+ * {@link TransferHelper#createCheckpoint(TransferTaskContainer)}. Instead of
+ * rewriting the entire container each time, only the files transferred since
+ * the last full checkpoint are appended. Thus, the cost of a checkpoint
+ * depends on the progress and not on the size of the transfer.
+ *
+ * The journal is a binary file starting with a magic number and a version
+ * byte, followed by one record per transferred file. Each record consists of
+ * the record type, the payload length, the payload (source and destination
+ * URL) and a CRC32 checksum of the payload. While replaying a journal, all
+ * records are applied until the end of the file or until the first incomplete
+ * or corrupted record, which may result from a crash while appending.
+ *
+ * Records are buffered and written to disk at the latest if {@link #sync()}
+ * or {@link #close()} is called.
+ *
+ * @author jejkal
+ */
+public final class TransferJournal implements Closeable {
+
+    /**
+     * The logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransferJournal.class);
+    /**
+     * The magic number at the beginning of each journal ('KDMJ').
+     */
+    private static final int MAGIC = 0x4B444D4A;
+    /**
+     * The current journal format version.
+     */
+    private static final byte VERSION = 1;
+    /**
+     * Record type for a successfully transferred file.
+     */
+    private static final byte RECORD_TRANSFERRED = 1;
+    /**
+     * The max. payload size of a single record.
+     */
+    private static final int MAX_RECORD_SIZE = 256 * 1024;
+    /**
+     * The size of the write buffer.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final FileOutputStream fileOut;
+    private final DataOutputStream out;
+    private final CRC32 crc = new CRC32();
+    private long recordCount = 0;
+
+    /**
+     * Default constructor. Creates a new, empty journal at pFile. An existing
+     * journal at this location is overwritten.
+     *
+     * @param pFile The journal file.
+     *
+     * @throws IOException If the journal cannot be created.
+     */
+    public TransferJournal(File pFile) throws IOException {
+        file = pFile;
+        fileOut = new FileOutputStream(pFile, false);
+        out = new DataOutputStream(new BufferedOutputStream(fileOut, BUFFER_SIZE));
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            sync();
+        } catch (IOException ex) {
+            IOUtils.closeQuietly(fileOut);
+            throw ex;
+        }
+    }
+
+    /**
+     * Append a record for a successfully transferred file.
+     *
+     * @param pSourceUrl The URL of the file before the transfer.
+     * @param pDestinationUrl The URL of the file after the transfer.
+     *
+     * @throws IOException If writing the record fails.
+     */
+    public synchronized void addTransferredFile(URL pSourceUrl, URL pDestinationUrl) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bout);
+        payload.writeUTF(pSourceUrl.toString());
+        payload.writeUTF(pDestinationUrl.toString());
+        byte[] data = bout.toByteArray();
+        crc.reset();
+        crc.update(data, 0, data.length);
+        out.writeByte(RECORD_TRANSFERRED);
+        out.writeInt(data.length);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+        recordCount++;
+    }
+
+    /**
+     * Write all buffered records to disk.
+     *
+     * @throws IOException If writing fails.
+     */
+    public synchronized void sync() throws IOException {
+        out.flush();
+        fileOut.getChannel().force(false);
+    }
+
+    /**
+     * Get the number of records appended to this journal.
+     *
+     * @return The number of records.
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Get the journal file.
+     *
+     * @return The journal file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Replay the journal stored in pFile by marking all contained files as
+     * transferred within pContainer. Records for files unknown to pContainer
+     * are skipped, records already contained in the full checkpoint have no
+     * effect. Replaying stops at the first incomplete or corrupted record.
+     *
+     * @param pFile The journal file.
+     * @param pContainer The container restored from the last full checkpoint.
+     *
+     * @return The number of applied records.
+     *
+     * @throws IOException If pFile cannot be read or is no valid journal.
+     */
+    public static int replay(File pFile, TransferTaskContainer pContainer) throws IOException {
+        int applied = 0;
+        CRC32 checksum = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(pFile), BUFFER_SIZE))) {
+            int magic;
+            byte version;
+            try {
+                magic = in.readInt();
+                version = in.readByte();
+            } catch (EOFException ex) {
+                LOGGER.debug("Journal {} is empty.", pFile);
+                return 0;
+            }
+            if (magic != MAGIC || version != VERSION) {
+                throw new IOException("File " + pFile + " is no valid transfer journal of version " + VERSION);
+            }
+
+            while (true) {
+                int type = in.read();
+                if (type == -1) {
+                    //regular end of the journal
+                    break;
+                }
+                byte[] data;
+                try {
+                    int length = in.readInt();
+                    if (type != RECORD_TRANSFERRED || length <= 0 || length > MAX_RECORD_SIZE) {
+                        LOGGER.warn("Invalid record found in journal {}. Ignoring all following records.", pFile);
+                        break;
+                    }
+                    data = new byte[length];
+                    in.readFully(data);
+                    checksum.reset();
+                    checksum.update(data, 0, length);
+                    if (in.readInt() != (int) checksum.getValue()) {
+                        LOGGER.warn("Corrupted record found in journal {}. Ignoring all following records.", pFile);
+                        break;
+                    }
+                } catch (EOFException ex) {
+                    LOGGER.warn("Incomplete record found at the end of journal {}. Ignoring it.", pFile);
+                    break;
+                }
+
+                DataInputStream payload = new DataInputStream(new ByteArrayInputStream(data));
+                URL source = new URL(payload.readUTF());
+                URL destination = new URL(payload.readUTF());
+                try {
+                    pContainer.markFileTransferred(source, destination);
+                    applied++;
+                } catch (IllegalArgumentException ex) {
+                    LOGGER.debug("Skipping journal record for unknown file {}.", source);
+                }
+            }
+        }
+        return applied;
+    }
+}
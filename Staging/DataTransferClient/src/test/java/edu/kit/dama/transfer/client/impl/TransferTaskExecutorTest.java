@@ -0,0 +1,241 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.transfer.client.impl;
+
+import edu.kit.dama.transfer.client.types.TransferTask;
+import edu.kit.lsdf.adalapi.AbstractFile;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for TransferTaskExecutor. The tasks are not transferred, but executed
+ * by a stub one after another within the test thread, which makes scheduling
+ * and throughput measurement deterministic.
+ *
+ * @author jejkal
+ */
+public class TransferTaskExecutorTest {
+
+    @Test
+    public void testPerHostLimit() throws Exception {
+        StubExecutor executor = new StubExecutor(4, 2);
+        executor.submit(createTask("http://hostA/1"));
+        executor.submit(createTask("http://hostA/2"));
+        executor.submit(createTask("http://hostA/3"));
+        executor.submit(createTask("http://hostA/4"));
+        executor.submit(createTask("http://hostB/1"));
+        //hostA/3 and hostA/4 have to wait although the parallelism would allow them to run
+        Assert.assertEquals(3, executor.getRunningTaskCount());
+        Assert.assertEquals(2, executor.getQueuedTaskCount());
+
+        executor.runNext();
+        Assert.assertEquals(3, executor.getRunningTaskCount());
+        Assert.assertEquals(1, executor.getQueuedTaskCount());
+        executor.runAll();
+        Assert.assertEquals(Arrays.asList("http://hostA/1", "http://hostA/2", "http://hostB/1", "http://hostA/3", "http://hostA/4"), executor.getExecutedTasks());
+        Assert.assertTrue(executor.awaitCompletion(1));
+    }
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        StubExecutor executor = new StubExecutor(1, 0);
+        for (String url : new String[]{"http://hostA/1", "http://hostA/2", "http://hostA/3", "http://hostB/1", "http://hostB/2", "file:///tmp/1", "http://hostC/1"}) {
+            executor.submit(createTask(url));
+        }
+        Assert.assertEquals(6, executor.getQueuedTaskCount());
+        executor.runAll();
+        //hostA/1 was started immediately, afterwards each host gets one task in turn
+        Assert.assertEquals(Arrays.asList("http://hostA/1", "http://hostA/2", "http://hostB/1", "file:/tmp/1", "http://hostC/1", "http://hostA/3", "http://hostB/2"), executor.getExecutedTasks());
+    }
+
+    @Test
+    public void testCancelPending() throws Exception {
+        StubExecutor executor = new StubExecutor(2, 0);
+        for (int i = 0; i < 5; i++) {
+            executor.submit(createTask("http://hostA/" + i));
+        }
+        Assert.assertEquals(3, executor.cancelPending());
+        Assert.assertEquals(0, executor.getQueuedTaskCount());
+        Assert.assertEquals(0, executor.cancelPending());
+        //running tasks are not affected
+        Assert.assertFalse(executor.awaitCompletion(1));
+        executor.runAll();
+        Assert.assertEquals(Arrays.asList("http://hostA/0", "http://hostA/1"), executor.getExecutedTasks());
+        Assert.assertTrue(executor.awaitCompletion(1));
+    }
+
+    @Test
+    public void testInterruptRunning() throws Exception {
+        final CountDownLatch started = new CountDownLatch(2);
+        final AtomicInteger interrupted = new AtomicInteger();
+        TransferTaskExecutor executor = new TransferTaskExecutor(2, 0) {
+
+            @Override
+            long runTask(TransferTask pTask) {
+                started.countDown();
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException ie) {
+                    interrupted.incrementAndGet();
+                }
+                return 0;
+            }
+        };
+        for (int i = 0; i < 3; i++) {
+            executor.submit(createTask("http://hostA/" + i));
+        }
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, executor.cancelPending());
+        Assert.assertEquals(2, executor.interruptRunning());
+        //both running tasks terminate without waiting for the sleep to elapse
+        Assert.assertTrue(executor.awaitCompletion(10000));
+        Assert.assertEquals(2, interrupted.get());
+        Assert.assertEquals(0, executor.interruptRunning());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testAdaptParallelism() throws Exception {
+        StubExecutor executor = new StubExecutor(4, 0);
+        //time in ms needed per task depending on the parallelism, the best throughput is reached at 3
+        long[] timePerTask = new long[]{0, 60, 30, 20, 40};
+        for (int i = 0; i < 24; i++) {
+            executor.submit(createTask("http://hostA/" + i));
+        }
+        Assert.assertEquals(4, executor.getParallelism());
+
+        List<Integer> parallelism = new ArrayList<>();
+        while (executor.getRunningTaskCount() > 0) {
+            executor.time += timePerTask[executor.getParallelism()];
+            executor.runNext();
+            if (executor.getExecutedTasks().size() % 4 == 0) {
+                //each window contains four tasks
+                parallelism.add(executor.getParallelism());
+            }
+        }
+        //probe downwards, continue while the throughput improves and turn on degradation
+        Assert.assertEquals(Arrays.asList(3, 2, 3, 4, 3, 2), parallelism);
+        //4 tasks each with 40, 20, 30, 20, 40 and 20 ms per task
+        Assert.assertEquals(24 * 1000 * 1000d / 680, executor.getTransferRate(), 0.001);
+    }
+
+    @Test
+    public void testStableThroughput() throws Exception {
+        StubExecutor executor = new StubExecutor(4, 0);
+        for (int i = 0; i < 20; i++) {
+            executor.submit(createTask("http://hostA/" + i));
+        }
+        while (executor.getRunningTaskCount() > 0) {
+            executor.time += 10;
+            executor.runNext();
+        }
+        //only the initial probe changes the parallelism
+        Assert.assertEquals(3, executor.getParallelism());
+    }
+
+    @Test
+    public void testFailedTasksDoNotCount() throws Exception {
+        StubExecutor executor = new StubExecutor(2, 0);
+        executor.bytesPerTask = 0;
+        for (int i = 0; i < 8; i++) {
+            executor.submit(createTask("http://hostA/" + i));
+        }
+        while (executor.getRunningTaskCount() > 0) {
+            executor.time += 10;
+            executor.runNext();
+        }
+        Assert.assertEquals(0, executor.getTransferRate(), 0);
+        //without any throughput no adaption takes place
+        Assert.assertEquals(2, executor.getParallelism());
+    }
+
+    private static TransferTask createTask(String pSource) throws MalformedURLException {
+        return new TransferTask(new AbstractFile(new URL(pSource)), new AbstractFile(new URL("file:///tmp/target")));
+    }
+
+    /**
+     * Executor collecting all started tasks. The tasks are executed in the
+     * order they were started by calling runNext() or runAll().
+     */
+    private static final class StubExecutor extends TransferTaskExecutor {
+
+        private final Deque<Runnable> running;
+        private final List<String> executedTasks = new ArrayList<>();
+        private long time = 1000;
+        private long bytesPerTask = 1000;
+
+        /**
+         * Default constructor.
+         *
+         * @param pMaxParallelism The max. number of tasks running in parallel.
+         * @param pMaxParallelismPerHost The max. number of tasks per host.
+         */
+        StubExecutor(int pMaxParallelism, int pMaxParallelismPerHost) {
+            this(pMaxParallelism, pMaxParallelismPerHost, new ArrayDeque<Runnable>());
+        }
+
+        private StubExecutor(int pMaxParallelism, int pMaxParallelismPerHost, final Deque<Runnable> pRunning) {
+            super(pMaxParallelism, pMaxParallelismPerHost, new Executor() {
+
+                @Override
+                public void execute(Runnable pCommand) {
+                    pRunning.add(pCommand);
+                }
+            });
+            running = pRunning;
+        }
+
+        @Override
+        long runTask(TransferTask pTask) {
+            executedTasks.add(pTask.getSourceFile().getUrl().toString());
+            return bytesPerTask;
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return time;
+        }
+
+        void runNext() {
+            running.poll().run();
+        }
+
+        void runAll() {
+            while (!running.isEmpty()) {
+                runNext();
+            }
+        }
+
+        int getRunningTaskCount() {
+            return running.size();
+        }
+
+        List<String> getExecutedTasks() {
+            return executedTasks;
+        }
+    }
+}
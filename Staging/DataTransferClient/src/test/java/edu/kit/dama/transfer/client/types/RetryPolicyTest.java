@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.transfer.client.types;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for RetryPolicy.
+ *
+ * @author jejkal
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void testCanRetry() {
+        RetryPolicy policy = new RetryPolicy(3, 10, 100, 2, 0);
+        Assert.assertEquals(3, policy.getMaxAttempts());
+        Assert.assertTrue(policy.canRetry(1));
+        Assert.assertTrue(policy.canRetry(2));
+        Assert.assertFalse(policy.canRetry(3));
+        Assert.assertFalse(new RetryPolicy(1, 0, 0, 1, 0).canRetry(1));
+    }
+
+    @Test
+    public void testExponentialBackoff() {
+        RetryPolicy policy = new RetryPolicy(10, 100, 1000, 2, 0);
+        long[] expected = new long[]{100, 200, 400, 800, 1000, 1000};
+        for (int attempt = 1; attempt <= expected.length; attempt++) {
+            Assert.assertEquals(expected[attempt - 1], policy.getDelay(attempt));
+        }
+        //constant delay
+        policy = new RetryPolicy(10, 100, 100, 1, 0);
+        for (int attempt = 1; attempt <= 5; attempt++) {
+            Assert.assertEquals(100, policy.getDelay(attempt));
+        }
+    }
+
+    @Test
+    public void testJitterBounds() {
+        RetryPolicy policy = new RetryPolicy(10, 1000, 4000, 2, .5);
+        long[] base = new long[]{1000, 2000, 4000, 4000};
+        for (int attempt = 1; attempt <= base.length; attempt++) {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < 1000; i++) {
+                long delay = policy.getDelay(attempt);
+                Assert.assertTrue("Delay " + delay + " is too small", delay >= base[attempt - 1] / 2);
+                Assert.assertTrue("Delay " + delay + " is too large", delay <= base[attempt - 1]);
+                min = Math.min(min, delay);
+                max = Math.max(max, delay);
+            }
+            //delays are spread, otherwise failed tasks would retry at the same time
+            Assert.assertTrue(max - min > base[attempt - 1] / 4);
+        }
+        //full jitter may reduce the delay to 0
+        policy = new RetryPolicy(10, 100, 100, 1, 1);
+        for (int i = 0; i < 1000; i++) {
+            long delay = policy.getDelay(1);
+            Assert.assertTrue(delay >= 0 && delay <= 100);
+        }
+    }
+
+    @Test
+    public void testDefaultPolicy() {
+        Assert.assertEquals(RetryPolicy.DEFAULT_MAX_ATTEMPTS, RetryPolicy.DEFAULT.getMaxAttempts());
+        long delay = RetryPolicy.DEFAULT.getDelay(10);
+        Assert.assertTrue(delay >= RetryPolicy.DEFAULT_MAX_DELAY / 2 && delay <= RetryPolicy.DEFAULT_MAX_DELAY);
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertInvalid(0, 0, 0, 1, 0);
+        assertInvalid(1, -1, 0, 1, 0);
+        assertInvalid(1, 100, 10, 1, 0);
+        assertInvalid(1, 0, 0, .5, 0);
+        assertInvalid(1, 0, 0, 1, -.1);
+        assertInvalid(1, 0, 0, 1, 1.1);
+    }
+
+    private static void assertInvalid(int pMaxAttempts, long pInitialDelay, long pMaxDelay, double pMultiplier, double pJitter) {
+        try {
+            new RetryPolicy(pMaxAttempts, pInitialDelay, pMaxDelay, pMultiplier, pJitter);
+            Assert.fail("Invalid arguments should be rejected");
+        } catch (IllegalArgumentException ex) {
+            //expected
+        }
+    }
+}
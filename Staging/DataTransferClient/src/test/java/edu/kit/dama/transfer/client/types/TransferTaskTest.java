@@ -0,0 +1,432 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.transfer.client.types;
+
+import edu.kit.dama.staging.util.ChecksumUtils;
+import edu.kit.dama.transfer.client.interfaces.ITransferTaskListener;
+import edu.kit.lsdf.adalapi.AbstractFile;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for local transfers performed by TransferTask. All files are located
+ * in a temporary directory. Tests for transfers between different file systems
+ * use /dev/shm or the directory provided by the system property
+ * 'test.otherFileSystem' and are skipped if it is not located on a different
+ * file system.
+ *
+ * @author jejkal
+ */
+public class TransferTaskTest {
+
+    private static final String SHA256_ABC = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+    private File baseDir;
+    private File otherBaseDir;
+
+    @Before
+    public void setUp() throws IOException {
+        baseDir = Files.createTempDirectory("transfer").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(baseDir);
+        if (otherBaseDir != null) {
+            FileUtils.deleteDirectory(otherBaseDir);
+        }
+    }
+
+    @Test
+    public void testTargetDirectoriesAreCreated() throws IOException {
+        for (TransferTask.LOCAL_TRANSFER_MODE mode : TransferTask.LOCAL_TRANSFER_MODE.values()) {
+            File source = createFile("source.txt", "abc");
+            File target = new File(baseDir, mode + "/a/b/target.txt");
+            TransferTask task = new TransferTask(new AbstractFile(source), new AbstractFile(target));
+            task.setLocalTransferMode(mode);
+            task.setChecksumAlgorithm("SHA-256");
+            task.run();
+            Assert.assertEquals(TransferTask.TRANSFER_TASK_STATUS.SUCCEEDED, task.getStatus());
+            Assert.assertEquals("abc", read(target));
+            Assert.assertEquals(3, task.getTransferredBytes());
+            Assert.assertEquals(SHA256_ABC, task.getChecksum());
+        }
+    }
+
+    @Test
+    public void testAtomicMoveOnCleanup() throws IOException {
+        File source = createFile("source.txt", "abc");
+        Object fileKey = getFileKey(source);
+        File target = new File(baseDir, "target.txt");
+        TransferTask task = new TransferTask(new AbstractFile(source), new AbstractFile(target), true);
+        task.setChecksumAlgorithm("SHA-256");
+        task.run();
+        Assert.assertEquals(TransferTask.TRANSFER_TASK_STATUS.SUCCEEDED, task.getStatus());
+        Assert.assertFalse(source.exists());
+        Assert.assertEquals("abc", read(target));
+        Assert.assertEquals(fileKey, getFileKey(target));
+        Assert.assertEquals(SHA256_ABC, task.getChecksum());
+    }
+
+    @Test
+    public void testMoveAcrossFileSystems() throws IOException {
+        File source = createFile(getOtherFileSystemDirectory(), "source.txt", "abc");
+        File target = new File(baseDir, "target.txt");
+        TransferTask task = new TransferTask(new AbstractFile(source), new AbstractFile(target), true);
+        task.run();
+        Assert.assertEquals(TransferTask.TRANSFER_TASK_STATUS.SUCCEEDED, task.getStatus());
+        //atomic move is not possible, thus the file is copied
+        Assert.assertEquals("abc", read(target));
+        Assert.assertNotEquals(getFileKey(source), getFileKey(target));
+    }
+
+    @Test
+    public void testLink() throws IOException {
+        File source = createFile("source.txt", "abc");
+        File target = new File(baseDir, "target.txt");
+        TransferTask task = new TransferTask(new AbstractFile(source), new AbstractFile(target));
+        task.setLocalTransferMode(TransferTask.LOCAL_TRANSFER_MODE.LINK);
+        task.setChecksumAlgorithm("SHA-256");
+        task.run();
+        Assert.assertEquals(TransferTask.TRANSFER_TASK_STATUS.SUCCEEDED, task.getStatus());
+        Assert.assertTrue(source.exists());
+        Assert.assertTrue(Files.isSameFile(source.toPath(), target.toPath()));
+        Assert.assertEquals(SHA256_ABC, task.getChecksum());
+    }
+
+    @Test
+    public void testLinkAcrossFileSystems() throws IOException {
+        File source = createFile(getOtherFileSystemDirectory(), "source.txt", "abc");
+        File target = new File(baseDir, "target.txt");
+        TransferTask task = new TransferTask(new AbstractFile(source), new AbstractFile(target));
+        task.setLocalTransferMode(TransferTask.LOCAL_TRANSFER_MODE.LINK);
+        task.run();
+        Assert.assertEquals(TransferTask.TRANSFER_TASK_STATUS.SUCCEEDED, task.getStatus());
+        //hard links across file systems are not possible, thus the file is copied
+        Assert.assertEquals("abc", read(target));
+        Assert.assertFalse(Files.isSameFile(source.toPath(), target.toPath()));
+    }
+
+    @Test
+    public void testCopy() throws IOException {
+        byte[] data = createData(3 * 1024 * 1024 + 17);
+        File source = createFile(baseDir, "source.bin", data);
+        File target = new File(baseDir, "target.bin");
+        TransferTask task = new TransferTask(new AbstractFile(source), new AbstractFile(target));
+        Assert.assertEquals(TransferTask.LOCAL_TRANSFER_MODE.COPY, task.getLocalTransferMode());
+        task.run();
+        Assert.assertEquals(TransferTask.TRANSFER_TASK_STATUS.SUCCEEDED, task.getStatus());
+        Assert.assertTrue(source.exists());
+        Assert.assertFalse(Files.isSameFile(source.toPath(), target.toPath()));
+        Assert.assertTrue(Arrays.equals(data, Files.readAllBytes(target.toPath())));
+        Assert.assertEquals(data.length, task.getTransferredBytes());
+        Assert.assertNull(task.getChecksum());
+    }
+
+    @Test
+    public void testExistingTargetIsReplaced() throws IOException {
+        //overwriting in mode ADALAPI depends on the global ADALAPI overwrite permission
+        for (TransferTask.LOCAL_TRANSFER_MODE mode : new TransferTask.LOCAL_TRANSFER_MODE[]{TransferTask.LOCAL_TRANSFER_MODE.COPY, TransferTask.LOCAL_TRANSFER_MODE.LINK}) {
+            for (boolean cleanup : new boolean[]{false, true}) {
+                for (String checksumAlgorithm : new String[]{null, "SHA-256"}) {
+                    File source = createFile("source.txt", "abc");
+                    File target = createFile("target.txt", "existing content which is longer than the source");
+                    TransferTask task = new TransferTask(new AbstractFile(source), new AbstractFile(target), cleanup);
+                    task.setLocalTransferMode(mode);
+                    task.setChecksumAlgorithm(checksumAlgorithm);
+                    task.run();
+                    String message = mode + ", cleanup: " + cleanup + ", checksum: " + checksumAlgorithm;
+                    Assert.assertEquals(message, TransferTask.TRANSFER_TASK_STATUS.SUCCEEDED, task.getStatus());
+                    Assert.assertEquals(message, "abc", read(target));
+                    Assert.assertEquals(message, checksumAlgorithm != null ? SHA256_ABC : null, task.getChecksum());
+                    Files.deleteIfExists(source.toPath());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFallbackToAdalapi() throws IOException {
+        File source = createFile("source.txt", "abc");
+        File target = new File(baseDir, "target.txt");
+        FailingCopyTask task = new FailingCopyTask(source, target);
+        task.run();
+        Assert.assertEquals(1, task.copyAttempts);
+        Assert.assertEquals(1, task.getAttempts());
+        Assert.assertEquals(TransferTask.TRANSFER_TASK_STATUS.SUCCEEDED, task.getStatus());
+        Assert.assertEquals("abc", read(target));
+    }
+
+    @Test
+    public void testResumeAfterPartialCopy() throws IOException {
+        for (String checksumAlgorithm : new String[]{null, "SHA-256"}) {
+            byte[] data = createData(300 * 1024);
+            File source = createFile(baseDir, "source.bin", data);
+            File target = new File(baseDir, "target.bin");
+            InterruptedCopyTask task = new InterruptedCopyTask(source, target, 1, 200 * 1024);
+            task.setRetryPolicy(new RetryPolicy(3, 5, 5, 1, 0));
+            task.setChecksumAlgorithm(checksumAlgorithm);
+            task.run();
+            Assert.assertEquals(TransferTask.TRANSFER_TASK_STATUS.SUCCEEDED, task.getStatus());
+            //the second attempt continues behind the data written by the first one
+            Assert.assertEquals(Arrays.asList(0L, 200 * 1024L), task.offsets);
+            Assert.assertTrue(Arrays.equals(data, Files.readAllBytes(target.toPath())));
+            Assert.assertEquals(2, task.getAttempts());
+            Assert.assertEquals(200 * 1024, task.getResumedBytes());
+            Assert.assertEquals(5, task.getRetryDelay());
+            if (checksumAlgorithm != null) {
+                //the checksum covers the entire file, not only the resumed part
+                Assert.assertEquals(ChecksumUtils.hashFile(source, checksumAlgorithm), task.getChecksum());
+            } else {
+                Assert.assertNull(task.getChecksum());
+            }
+        }
+    }
+
+    @Test
+    public void testRestartAfterCorruptedPartialCopy() throws IOException {
+        byte[] data = createData(300 * 1024);
+        File source = createFile(baseDir, "source.bin", data);
+        File target = new File(baseDir, "target.bin");
+        InterruptedCopyTask task = new InterruptedCopyTask(source, target, 1, 100 * 1024) {
+
+            @Override
+            String copyLocal(Path pSource, Path pTarget, long pOffset) throws IOException {
+                try {
+                    return super.copyLocal(pSource, pTarget, pOffset);
+                } catch (IOException ex) {
+                    //corrupt the last byte written before the failure
+                    byte[] partial = Files.readAllBytes(pTarget);
+                    partial[partial.length - 1]++;
+                    Files.write(pTarget, partial);
+                    throw ex;
+                }
+            }
+        };
+        task.setRetryPolicy(new RetryPolicy(3, 0, 0, 1, 0));
+        task.run();
+        Assert.assertEquals(TransferTask.TRANSFER_TASK_STATUS.SUCCEEDED, task.getStatus());
+        Assert.assertEquals(Arrays.asList(0L, 0L), task.offsets);
+        Assert.assertEquals(0, task.getResumedBytes());
+        Assert.assertTrue(Arrays.equals(data, Files.readAllBytes(target.toPath())));
+    }
+
+    @Test
+    public void testFailedCopyIsRetried() throws IOException {
+        File source = createFile("source.txt", "abc");
+        File target = new File(baseDir, "target.txt");
+        InterruptedCopyTask task = new InterruptedCopyTask(source, target, 3, 1);
+        task.setRetryPolicy(new RetryPolicy(3, 1, 2, 2, 0));
+        task.run();
+        //no ADALAPI fallback, which would restart the transfer from the beginning
+        Assert.assertEquals(TransferTask.TRANSFER_TASK_STATUS.FAILED, task.getStatus());
+        Assert.assertEquals(Arrays.asList(0L, 1L, 1L), task.offsets);
+        Assert.assertEquals(3, task.getAttempts());
+        Assert.assertEquals(3, task.getRetryDelay());
+        Assert.assertEquals(2, task.getResumedBytes());
+        Assert.assertEquals(0, task.getTransferredBytes());
+        Assert.assertEquals("a", read(target));
+    }
+
+    @Test
+    public void testMissingSourceIsNotRetried() throws IOException {
+        final File source = createFile("source.txt", "abc");
+        File target = new File(baseDir, "target.txt");
+        TransferTask task = new TransferTask(new AbstractFile(source), new AbstractFile(target)) {
+
+            @Override
+            String copyLocal(Path pSource, Path pTarget, long pOffset) throws IOException {
+                //source is removed after the transfer has started
+                Files.delete(pSource);
+                return super.copyLocal(pSource, pTarget, pOffset);
+            }
+        };
+        task.setChecksumAlgorithm("SHA-256");
+        task.setRetryPolicy(new RetryPolicy(3, 60000, 60000, 1, 0));
+        task.run();
+        Assert.assertEquals(TransferTask.TRANSFER_TASK_STATUS.FAILED, task.getStatus());
+        Assert.assertEquals(1, task.getAttempts());
+        Assert.assertEquals(0, task.getRetryDelay());
+        Assert.assertNull(task.getChecksum());
+    }
+
+    @Test
+    public void testInterruptWhileWaitingForRetry() throws Exception {
+        File source = createFile("source.txt", "abc");
+        File target = new File(baseDir, "target.txt");
+        final InterruptedCopyTask task = new InterruptedCopyTask(source, target, 1, 1);
+        task.setRetryPolicy(new RetryPolicy(3, 60000, 60000, 1, 0));
+        Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                task.run();
+            }
+        });
+        thread.start();
+        Assert.assertTrue(task.failed.await(10, TimeUnit.SECONDS));
+        thread.interrupt();
+        thread.join(10000);
+        Assert.assertFalse(thread.isAlive());
+        Assert.assertEquals(TransferTask.TRANSFER_TASK_STATUS.FAILED, task.getStatus());
+        Assert.assertEquals(1, task.getAttempts());
+        Assert.assertEquals(0, task.getRetryDelay());
+        //the interrupt flag is restored for the caller
+        Assert.assertTrue(task.interruptedOnFailure);
+    }
+
+    /**
+     * Get a directory that is located on a different file system than the
+     * temporary directory. The test is skipped if there is no such directory.
+     *
+     * @return The directory.
+     */
+    private File getOtherFileSystemDirectory() throws IOException {
+        Path other = Paths.get(System.getProperty("test.otherFileSystem", "/dev/shm"));
+        Assume.assumeTrue(Files.isDirectory(other) && Files.isWritable(other));
+        FileStore store = Files.getFileStore(baseDir.toPath());
+        Assume.assumeFalse(store.equals(Files.getFileStore(other)));
+        otherBaseDir = Files.createTempDirectory(other, "transfer").toFile();
+        return otherBaseDir;
+    }
+
+    private static Object getFileKey(File pFile) throws IOException {
+        return Files.readAttributes(pFile.toPath(), BasicFileAttributes.class).fileKey();
+    }
+
+    private File createFile(String pName, String pContent) throws IOException {
+        return createFile(baseDir, pName, pContent);
+    }
+
+    private static File createFile(File pDir, String pName, String pContent) throws IOException {
+        return createFile(pDir, pName, pContent.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static File createFile(File pDir, String pName, byte[] pContent) throws IOException {
+        File file = new File(pDir, pName);
+        Files.write(file.toPath(), pContent);
+        return file;
+    }
+
+    private static byte[] createData(int pSize) {
+        byte[] data = new byte[pSize];
+        for (int i = 0; i < pSize; i++) {
+            data[i] = (byte) (i * 31 + i / 1024);
+        }
+        return data;
+    }
+
+    private static String read(File pFile) throws IOException {
+        return new String(Files.readAllBytes(pFile.toPath()), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Task failing to copy the file locally.
+     */
+    private static final class FailingCopyTask extends TransferTask {
+
+        private int copyAttempts = 0;
+
+        /**
+         * Default constructor.
+         *
+         * @param pSource The source file.
+         * @param pTarget The target file.
+         */
+        FailingCopyTask(File pSource, File pTarget) {
+            super(new AbstractFile(pSource), new AbstractFile(pTarget));
+        }
+
+        @Override
+        String copyLocal(Path pSource, Path pTarget, long pOffset) throws IOException {
+            copyAttempts++;
+            throw new AccessDeniedException(pTarget.toString());
+        }
+    }
+
+    /**
+     * Task failing with an I/O error while copying for a defined number of
+     * times. Before failing, pPartialSize bytes of the source are written to
+     * the target, as it would happen for a broken copy.
+     */
+    private static class InterruptedCopyTask extends TransferTask {
+
+        private final List<Long> offsets = new ArrayList<>();
+        private final int failures;
+        private final int partialSize;
+        private final CountDownLatch failed = new CountDownLatch(1);
+        private volatile boolean interruptedOnFailure = false;
+
+        /**
+         * Default constructor.
+         *
+         * @param pSource The source file.
+         * @param pTarget The target file.
+         * @param pFailures The number of failing attempts.
+         * @param pPartialSize The number of bytes written by each failing
+         * attempt.
+         */
+        InterruptedCopyTask(File pSource, File pTarget, int pFailures, int pPartialSize) {
+            super(new AbstractFile(pSource), new AbstractFile(pTarget));
+            failures = pFailures;
+            partialSize = pPartialSize;
+            addTransferTaskListener(new ITransferTaskListener() {
+
+                @Override
+                public void transferStarted(TransferTask pTask) {
+                }
+
+                @Override
+                public void transferFinished(TransferTask pTask) {
+                }
+
+                @Override
+                public void transferFailed(TransferTask pTask) {
+                    interruptedOnFailure = Thread.currentThread().isInterrupted();
+                }
+            });
+        }
+
+        @Override
+        String copyLocal(Path pSource, Path pTarget, long pOffset) throws IOException {
+            offsets.add(pOffset);
+            if (offsets.size() > failures) {
+                return super.copyLocal(pSource, pTarget, pOffset);
+            }
+            byte[] data = Files.readAllBytes(pSource);
+            Files.write(pTarget, Arrays.copyOf(data, partialSize));
+            failed.countDown();
+            throw new IOException("Simulated I/O error");
+        }
+    }
+}
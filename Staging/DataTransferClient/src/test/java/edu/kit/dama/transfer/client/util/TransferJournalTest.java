@@ -0,0 +1,315 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.transfer.client.util;
+
+import edu.kit.dama.commons.types.DigitalObjectId;
+import edu.kit.dama.mdm.dataorganization.entity.core.IAttribute;
+import edu.kit.dama.mdm.dataorganization.entity.core.ICollectionNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IFileNode;
+import edu.kit.dama.mdm.dataorganization.impl.staging.CollectionNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.FileNodeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.FileTreeImpl;
+import edu.kit.dama.mdm.dataorganization.impl.staging.LFNImpl;
+import edu.kit.dama.rest.SimpleRESTContext;
+import edu.kit.dama.rest.staging.types.TransferTaskContainer;
+import edu.kit.dama.staging.util.DataOrganizationUtils;
+import edu.kit.dama.staging.util.StagingUtils;
+import edu.kit.dama.util.Constants;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.file.Files;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for TransferJournal and for the journal handling of TransferHelper.
+ * The tests use containers of type INTERNAL, which can be initialized without
+ * accessing the staging service. The user home directory is redirected to a
+ * temporary directory in order to keep checkpoints of the tests separated.
+ *
+ * @author jejkal
+ */
+public class TransferJournalTest {
+
+    private static final int FILE_COUNT = 5;
+    /**
+     * The size of magic number and version at the beginning of each journal.
+     */
+    private static final int HEADER_SIZE = 5;
+    private File baseDir;
+    private String userHome;
+
+    @Before
+    public void setUp() throws IOException {
+        baseDir = Files.createTempDirectory("journal").toFile();
+        userHome = System.getProperty("user.home");
+        System.setProperty("user.home", baseDir.getAbsolutePath());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        System.setProperty("user.home", userHome);
+        FileUtils.deleteDirectory(baseDir);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        File journalFile = new File(baseDir, "test.journal");
+        try (TransferJournal journal = new TransferJournal(journalFile)) {
+            for (int i = 0; i < FILE_COUNT; i++) {
+                journal.addTransferredFile(getSourceUrl(i), getDestinationUrl(i));
+            }
+            Assert.assertEquals(FILE_COUNT, journal.getRecordCount());
+            Assert.assertEquals(journalFile, journal.getFile());
+        }
+
+        TransferTaskContainer container = createContainer();
+        Assert.assertEquals(FILE_COUNT, TransferJournal.replay(journalFile, container));
+        for (int i = 0; i < FILE_COUNT; i++) {
+            assertTransferred(container, i, true);
+        }
+    }
+
+    @Test
+    public void testSyncedRecordsAreReadable() throws Exception {
+        File journalFile = new File(baseDir, "test.journal");
+        try (TransferJournal journal = new TransferJournal(journalFile)) {
+            journal.addTransferredFile(getSourceUrl(0), getDestinationUrl(0));
+            journal.sync();
+            //the journal is still open, e.g. because the transfer has crashed
+            Assert.assertEquals(1, TransferJournal.replay(journalFile, createContainer()));
+        }
+    }
+
+    @Test
+    public void testUnknownFilesAreSkipped() throws Exception {
+        File journalFile = new File(baseDir, "test.journal");
+        try (TransferJournal journal = new TransferJournal(journalFile)) {
+            journal.addTransferredFile(new URL("file:///unknown/file.txt"), getDestinationUrl(0));
+            journal.addTransferredFile(getSourceUrl(1), getDestinationUrl(1));
+        }
+        TransferTaskContainer container = createContainer();
+        Assert.assertEquals(1, TransferJournal.replay(journalFile, container));
+        assertTransferred(container, 0, false);
+        assertTransferred(container, 1, true);
+    }
+
+    @Test
+    public void testTruncatedLastRecord() throws Exception {
+        File journalFile = writeJournal(FILE_COUNT);
+        long length = journalFile.length();
+        for (int cut = 1; cut < getRecordSize(FILE_COUNT - 1); cut++) {
+            try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+                raf.setLength(length - cut);
+            }
+            TransferTaskContainer container = createContainer();
+            Assert.assertEquals("Cut " + cut + " bytes", FILE_COUNT - 1, TransferJournal.replay(journalFile, container));
+            assertTransferred(container, FILE_COUNT - 2, true);
+            assertTransferred(container, FILE_COUNT - 1, false);
+            journalFile = writeJournal(FILE_COUNT);
+        }
+    }
+
+    @Test
+    public void testCorruptedCrc() throws Exception {
+        File journalFile = writeJournal(FILE_COUNT);
+        //flip one bit within the payload of the third record
+        long position = HEADER_SIZE + getRecordSize(0) + getRecordSize(1) + 10;
+        try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0x01);
+        }
+        TransferTaskContainer container = createContainer();
+        //all records behind the corrupted one are ignored
+        Assert.assertEquals(2, TransferJournal.replay(journalFile, container));
+        assertTransferred(container, 1, true);
+        assertTransferred(container, 2, false);
+        assertTransferred(container, 3, false);
+    }
+
+    @Test
+    public void testWrongMagic() throws Exception {
+        File journalFile = new File(baseDir, "test.journal");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(journalFile))) {
+            out.writeInt(0xCAFEBABE);
+            out.writeByte(1);
+        }
+        try {
+            TransferJournal.replay(journalFile, createContainer());
+            Assert.fail("Replaying a file with wrong magic number should fail");
+        } catch (IOException ex) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testWrongVersion() throws Exception {
+        File journalFile = writeJournal(1);
+        try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+            raf.seek(4);
+            raf.write(2);
+        }
+        try {
+            TransferJournal.replay(journalFile, createContainer());
+            Assert.fail("Replaying a journal of an unknown version should fail");
+        } catch (IOException ex) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        File journalFile = new File(baseDir, "test.journal");
+        Assert.assertTrue(journalFile.createNewFile());
+        Assert.assertEquals(0, TransferJournal.replay(journalFile, createContainer()));
+    }
+
+    @Test
+    public void testIdempotentReplay() throws Exception {
+        File journalFile = writeJournal(FILE_COUNT);
+        TransferTaskContainer container = createContainer();
+        //files transferred before the last full checkpoint
+        container.markFileTransferred(getSourceUrl(0), getDestinationUrl(0));
+        container.markFileTransferred(getSourceUrl(1), getDestinationUrl(1));
+
+        Assert.assertEquals(FILE_COUNT, TransferJournal.replay(journalFile, container));
+        Assert.assertEquals(FILE_COUNT, TransferJournal.replay(journalFile, container));
+        for (int i = 0; i < FILE_COUNT; i++) {
+            IFileNode node = assertTransferred(container, i, true);
+            int transferredAttributes = 0;
+            for (IAttribute attribute : node.getAttributes()) {
+                if (DataOrganizationUtils.TRANSFERRED.equals(attribute.getKey())) {
+                    transferredAttributes++;
+                }
+            }
+            Assert.assertEquals(1, transferredAttributes);
+        }
+    }
+
+    @Test
+    public void testCheckpointReplacesJournal() throws Exception {
+        TransferTaskContainer container = createContainer();
+        File tempDir = new File(StagingUtils.getTempDir(container));
+        Assert.assertTrue(tempDir.mkdirs());
+
+        Assert.assertTrue(TransferHelper.createCheckpoint(container));
+        try (TransferJournal journal = TransferHelper.createJournal(container)) {
+            journal.addTransferredFile(getSourceUrl(0), getDestinationUrl(0));
+            journal.addTransferredFile(getSourceUrl(1), getDestinationUrl(1));
+        }
+        TransferTaskContainer restored = TransferHelper.restoreTransfer(container, new SimpleRESTContext("key", "secret"));
+        assertTransferred(restored, 0, true);
+        assertTransferred(restored, 1, true);
+        assertTransferred(restored, 2, false);
+
+        //new full checkpoint containing the progress, the journal starts over
+        container.markFileTransferred(getSourceUrl(0), getDestinationUrl(0));
+        container.markFileTransferred(getSourceUrl(1), getDestinationUrl(1));
+        Assert.assertTrue(TransferHelper.createCheckpoint(container));
+        File journalFile;
+        try (TransferJournal journal = TransferHelper.createJournal(container)) {
+            journalFile = journal.getFile();
+            Assert.assertEquals(HEADER_SIZE, journalFile.length());
+            journal.addTransferredFile(getSourceUrl(2), getDestinationUrl(2));
+        }
+        Assert.assertEquals(1, TransferJournal.replay(journalFile, createContainer()));
+
+        restored = TransferHelper.restoreTransfer(container, new SimpleRESTContext("key", "secret"));
+        for (int i = 0; i < FILE_COUNT; i++) {
+            assertTransferred(restored, i, i < 3);
+        }
+    }
+
+    /**
+     * Write a journal containing records for the first pCount files.
+     */
+    private File writeJournal(int pCount) throws IOException {
+        File journalFile = new File(baseDir, "test.journal");
+        try (TransferJournal journal = new TransferJournal(journalFile)) {
+            for (int i = 0; i < pCount; i++) {
+                journal.addTransferredFile(getSourceUrl(i), getDestinationUrl(i));
+            }
+        }
+        return journalFile;
+    }
+
+    /**
+     * Get the size of the record for file pIndex consisting of type, length,
+     * payload (two UTF strings) and CRC.
+     */
+    private int getRecordSize(int pIndex) throws IOException {
+        return 1 + 4 + 2 + getSourceUrl(pIndex).toString().length() + 2 + getDestinationUrl(pIndex).toString().length() + 4;
+    }
+
+    private URL getSourceUrl(int pIndex) throws IOException {
+        return new File(baseDir, "source/file" + pIndex + ".txt").toURI().toURL();
+    }
+
+    private URL getDestinationUrl(int pIndex) throws IOException {
+        return new URL("http://localhost:8080/webdav/data/file" + pIndex + ".txt");
+    }
+
+    /**
+     * Create a closed and initialized container whose data node contains one
+     * file node for each source URL.
+     */
+    private TransferTaskContainer createContainer() throws Exception {
+        FileTreeImpl tree = new FileTreeImpl();
+        tree.setDigitalObjectId(new DigitalObjectId("journal-test"));
+        for (String name : new String[]{Constants.STAGING_DATA_FOLDER_NAME, Constants.STAGING_GENERATED_FOLDER_NAME, Constants.STAGING_SETTINGS_FOLDER_NAME}) {
+            ICollectionNode node = new CollectionNodeImpl();
+            node.setName(name);
+            tree.getRootNode().addChild(node);
+        }
+        ICollectionNode dataNode = (ICollectionNode) tree.getRootNode().getChildren().get(0);
+        for (int i = 0; i < FILE_COUNT; i++) {
+            IFileNode file = new FileNodeImpl(new LFNImpl(getSourceUrl(i)));
+            file.setName("file" + i + ".txt");
+            dataNode.addChild(file);
+        }
+        TransferTaskContainer container = TransferTaskContainer.factoryInternalContainer(new DigitalObjectId("journal-test"), 1L, tree);
+        container.initialize("key", "secret");
+        return container;
+    }
+
+    /**
+     * Check the transferred flag and the LFN of the node for file pIndex.
+     */
+    private IFileNode assertTransferred(TransferTaskContainer pContainer, int pIndex, boolean pTransferred) throws IOException {
+        ICollectionNode dataNode = (ICollectionNode) pContainer.getFileTree().getRootNode().getChildren().get(0);
+        IFileNode node = null;
+        for (IDataOrganizationNode child : dataNode.getChildren()) {
+            if (("file" + pIndex + ".txt").equals(child.getName())) {
+                node = (IFileNode) child;
+            }
+        }
+        Assert.assertNotNull(node);
+        Assert.assertEquals("File " + pIndex, pTransferred, DataOrganizationUtils.isFileTransferred(node));
+        URL expectedUrl = pTransferred ? getDestinationUrl(pIndex) : getSourceUrl(pIndex);
+        Assert.assertEquals("File " + pIndex, expectedUrl.toString(), node.getLogicalFileName().asString());
+        return node;
+    }
+}
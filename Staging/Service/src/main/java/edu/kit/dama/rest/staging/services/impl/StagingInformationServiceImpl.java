@@ -29,7 +29,7 @@ import edu.kit.lsdf.adalapi.AbstractFile;
 import edu.kit.dama.mdm.core.IMetaDataManager;
 import edu.kit.dama.mdm.core.MetaDataManagement;
 import edu.kit.dama.mdm.dataorganization.entity.core.IFileTree;
-import edu.kit.dama.mdm.dataorganization.impl.util.Util;
+import edu.kit.dama.mdm.dataorganization.impl.util.FileTreeSerializer;
 import edu.kit.dama.mdm.dataorganization.service.core.DataOrganizerFactory;
 import edu.kit.dama.mdm.dataorganization.service.exception.InvalidNodeIdException;
 import edu.kit.dama.mdm.tools.DigitalObjectSecureQueryHelper;
@@ -64,6 +64,7 @@ import edu.kit.dama.util.Constants;
 import edu.kit.dama.util.DataManagerSettings;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -75,7 +76,6 @@ import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -306,7 +306,7 @@ public class StagingInformationServiceImpl implements IStagingService {
             IFileTree treeToDownload = null;
             if (dataOrganizationTree != null) {
                 try {
-                    treeToDownload = Util.jsonViewToFileTree(new JSONObject(dataOrganizationTree), false);
+                    treeToDownload = FileTreeSerializer.readJsonView(new StringReader(dataOrganizationTree), false, true);
                     DigitalObjectId treeObjectId = treeToDownload.getDigitalObjectId();
                     if (!treeObjectId.equals(digitalObjectIdentifier)) {
                         LOGGER.error("ObjectId in tree ({}) does not fit object id for baseId {} ({}).", treeObjectId, objectId, digitalObjectIdentifier);
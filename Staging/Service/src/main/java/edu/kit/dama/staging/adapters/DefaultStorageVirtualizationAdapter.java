@@ -22,7 +22,10 @@ import edu.kit.lsdf.adalapi.exception.AdalapiException;
 import edu.kit.dama.transfer.client.impl.AbstractTransferClient;
 import edu.kit.dama.transfer.client.impl.InProcStagingClient;
 import edu.kit.dama.transfer.client.interfaces.IStagingCallback;
+import edu.kit.dama.mdm.dataorganization.entity.core.IDataOrganizationNode;
+import edu.kit.dama.mdm.dataorganization.entity.core.IFileNode;
 import edu.kit.dama.mdm.dataorganization.entity.core.IFileTree;
+import edu.kit.dama.mdm.dataorganization.impl.staging.AttributeImpl;
 import edu.kit.dama.staging.entities.download.DownloadInformation;
 import edu.kit.dama.staging.entities.ingest.IngestInformation;
 import edu.kit.dama.staging.interfaces.IStorageVirtualizationServiceAdapter;
@@ -31,8 +34,10 @@ import edu.kit.dama.rest.staging.types.TransferTaskContainer;
 import edu.kit.dama.commons.exceptions.ConfigurationException;
 import edu.kit.dama.staging.exceptions.StagingIntitializationException;
 import edu.kit.dama.staging.services.impl.ingest.IngestInformationServiceLocal;
+import edu.kit.dama.staging.util.ChecksumUtils;
 import edu.kit.dama.staging.util.DataOrganizationUtils;
 import edu.kit.dama.staging.util.StagingConfigurationManager;
+import edu.kit.dama.transfer.client.types.TransferTask;
 import edu.kit.dama.util.FileUtils;
 import java.io.File;
 import java.io.IOException;
@@ -40,7 +45,11 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.apache.commons.configuration.Configuration;
@@ -63,8 +72,15 @@ public class DefaultStorageVirtualizationAdapter implements IStorageVirtualizati
     private final static String DAY_PATTERN = "$day";
     private final static String OWNER_PATTERN = "$owner";
     private final static String GROUP_PATTERN = "$group";
+    /**
+     * The time in seconds after which running tasks of a canceled transfer are
+     * interrupted again.
+     */
+    private final static long CANCEL_TIMEOUT = 10;
     private URL archiveUrl = null;
     private String pathPattern = null;
+    private HASH_TYPE checksumType = null;
+    private long transferTimeout = 0;
 
     /**
      * Default constructor.
@@ -75,6 +91,19 @@ public class DefaultStorageVirtualizationAdapter implements IStorageVirtualizati
     @Override
     public boolean configure(Configuration pConfig) throws ConfigurationException {
         pathPattern = pConfig.getString("pathPattern");
+        transferTimeout = pConfig.getLong("transferTimeout", 0L);
+        String checksumTypeProperty = pConfig.getString("checksumType");
+        if (checksumTypeProperty != null && !checksumTypeProperty.trim().isEmpty()) {
+            try {
+                checksumType = HASH_TYPE.valueOf(checksumTypeProperty.trim().toUpperCase());
+                LOGGER.debug("Calculating {} checksums while storing data.", checksumType);
+            } catch (IllegalArgumentException ex) {
+                throw new ConfigurationException("checksumType property (" + checksumTypeProperty + ") is not one of " + Arrays.toString(HASH_TYPE.values()), ex);
+            }
+            if (!isHashTypeSupported(checksumType)) {
+                throw new ConfigurationException("checksumType property (" + checksumTypeProperty + ") is not supported by the installed security providers");
+            }
+        }
         String archiveUrlProperty = pConfig.getString("archiveUrl");
         if (archiveUrlProperty == null) {
             throw new ConfigurationException("Property 'archiveUrl' is missing");
@@ -146,8 +175,20 @@ public class DefaultStorageVirtualizationAdapter implements IStorageVirtualizati
 
     @Override
     public String calculateChecksum(StagingFile pFile, HASH_TYPE type) {
-        //implement this if required...currently, no checksumming is supported
-        return "";
+        if (!isHashTypeSupported(type)) {
+            LOGGER.warn("Hash type {} is not supported. Skipping {}.", type, pFile);
+            return "";
+        }
+        if (!pFile.isLocal()) {
+            LOGGER.warn("Checksums can only be calculated for local files. Skipping {}.", pFile);
+            return "";
+        }
+        try {
+            return ChecksumUtils.hashFile(new File(new URL(pFile.asString()).toURI()), ChecksumUtils.getAlgorithm(type));
+        } catch (IOException | URISyntaxException ex) {
+            LOGGER.error("Failed to calculate checksum for file " + pFile, ex);
+            return "";
+        }
     }
 
     @Override
@@ -174,18 +215,21 @@ public class DefaultStorageVirtualizationAdapter implements IStorageVirtualizati
         AbstractFile.setOverwritePermission(AbstractFile.OVERWRITE_PERMISSION.ALLOWED);
         InProcStagingClient isc = new InProcStagingClient(pContainer, destination);
         isc.addStagingCallbackListener(this);
+        if (checksumType != null) {
+            //checksums are calculated by the transfer tasks while copying the data
+            isc.setChecksumAlgorithm(ChecksumUtils.getAlgorithm(checksumType));
+        }
         isc.start();
 
         //perform the storage operation in a blocking fashion
-        while (isc.isTransferRunning()) {
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException ie) {
-            }
-        }
+        boolean finished = waitForTransfer(isc, transferId);
 
         LOGGER.info("Reset ADALAPI overwrite checks");
         AbstractFile.setOverwritePermission(permission);
+        if (!finished) {
+            LOGGER.error("Storing object with transfer ID '{}' did not finish. Aborting!", transferId);
+            return null;
+        }
 
         //build file tree
         IFileTree tree;
@@ -196,9 +240,129 @@ public class DefaultStorageVirtualizationAdapter implements IStorageVirtualizati
             LOGGER.error("Failed to get local file for path '" + destination + "'", ex);
             tree = null;
         }
+
+        if (tree != null && checksumType != null) {
+            addChecksums(tree, isc);
+        }
         return tree;
     }
 
+    /**
+     * Wait until the provided transfer client has finished. The calling thread
+     * is notified as soon as the transfer terminates. If the configured
+     * transfer timeout elapses or if the calling thread is interrupted, the
+     * transfer is canceled and this method returns not before the transfer has
+     * terminated.
+     *
+     * @param pClient The transfer client.
+     * @param pTransferId The transfer id used for logging.
+     *
+     * @return TRUE if the transfer has finished, FALSE if it was canceled.
+     */
+    private boolean waitForTransfer(AbstractTransferClient pClient, String pTransferId) {
+        try {
+            if (transferTimeout <= 0) {
+                pClient.awaitCompletion();
+            } else if (!pClient.awaitCompletion(transferTimeout, TimeUnit.SECONDS)) {
+                LOGGER.error("Transfer '{}' did not finish within {} seconds. Canceling transfer.", pTransferId, transferTimeout);
+                cancelTransfer(pClient, pTransferId);
+                return false;
+            }
+        } catch (InterruptedException ex) {
+            LOGGER.warn("Interrupted while waiting for transfer '{}'. Canceling transfer.", pTransferId);
+            cancelTransfer(pClient, pTransferId);
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Cancel the provided transfer client and wait until it has terminated.
+     * Running transfer tasks are interrupted, which is repeated periodically as
+     * long as the transfer is running, e.g. if a task was not able to react on
+     * the interrupt. Returning before would allow to modify the ADALAPI
+     * settings, e.g. the overwrite permission, while tasks are still running.
+     * An interrupt of the calling thread is preserved, but does not stop
+     * waiting.
+     *
+     * @param pClient The transfer client.
+     * @param pTransferId The transfer id used for logging.
+     */
+    private void cancelTransfer(AbstractTransferClient pClient, String pTransferId) {
+        boolean interrupted = false;
+        boolean terminated = false;
+        while (!terminated) {
+            try {
+                terminated = pClient.cancelAndAwaitTermination(CANCEL_TIMEOUT, TimeUnit.SECONDS);
+                if (!terminated) {
+                    LOGGER.warn("Transfer '{}' did not terminate within {} seconds after cancelation. Waiting for termination.", pTransferId, CANCEL_TIMEOUT);
+                }
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        LOGGER.debug("Transfer '{}' has terminated after cancelation.", pTransferId);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Add the checksums calculated by the transfer tasks of pClient as
+     * attributes to the according file nodes of pTree. The value of each
+     * attribute has the format TYPE:HEX, e.g. SHA256:9f86d08...
+     *
+     * @param pTree The file tree of the archived data.
+     * @param pClient The client used to store the data.
+     */
+    private void addChecksums(IFileTree pTree, InProcStagingClient pClient) {
+        Map<String, String> checksums = new HashMap<>();
+        for (TransferTask task : pClient.getTransferTasks()) {
+            if (task.getChecksum() != null) {
+                checksums.put(getChecksumKey(task.getTargetFile().getUrl()), task.getChecksum());
+            }
+        }
+
+        int missing = 0;
+        for (IDataOrganizationNode node : DataOrganizationUtils.flattenNode(pTree.getRootNode())) {
+            if (node instanceof IFileNode) {
+                String checksum = null;
+                try {
+                    checksum = checksums.get(getChecksumKey(new URL(((IFileNode) node).getLogicalFileName().asString())));
+                } catch (MalformedURLException ex) {
+                    LOGGER.warn("Failed to obtain URL of node " + node, ex);
+                }
+                if (checksum != null) {
+                    node.addAttribute(new AttributeImpl(DataOrganizationUtils.CHECKSUM_KEY, checksumType.toString() + ":" + checksum));
+                } else {
+                    missing++;
+                }
+            }
+        }
+        LOGGER.debug("Added {} checksums to file tree, {} file node(s) without checksum.", checksums.size(), missing);
+    }
+
+    /**
+     * Get the key for matching transferred files and file nodes. Local URLs are
+     * normalized to the absolute path, as the number of slashes after 'file:'
+     * may differ.
+     *
+     * @param pUrl The URL.
+     *
+     * @return The key.
+     */
+    private static String getChecksumKey(URL pUrl) {
+        if ("file".equals(pUrl.getProtocol())) {
+            try {
+                return new File(pUrl.toURI()).getAbsolutePath();
+            } catch (URISyntaxException | IllegalArgumentException ex) {
+                //use the URL string
+            }
+        }
+        return pUrl.toString();
+    }
+
     @Override
     public boolean restore(DownloadInformation pDownloadInformation, IFileTree pArchivedTree, StagingFile pDownloadDestination) {
         LOGGER.debug("Restoring file tree for download {}", pDownloadInformation.getTransferId());
@@ -212,11 +376,8 @@ public class DefaultStorageVirtualizationAdapter implements IStorageVirtualizati
         isc.start();
         LOGGER.debug("Transfer client started for download {}. Waiting for client termination.", pDownloadInformation.getTransferId());
         //perform the storage operation in a blocking fashion
-        while (isc.isTransferRunning()) {
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException ie) {
-            }
+        if (!waitForTransfer(isc, pDownloadInformation.getTransferId())) {
+            return false;
         }
         LOGGER.debug("Transfer client for download {} finished with status {}.", pDownloadInformation.getTransferId(), isc.getStatus());
         return isc.getStatus().equals(AbstractTransferClient.TRANSFER_STATUS.SUCCEEDED);
@@ -224,7 +385,7 @@ public class DefaultStorageVirtualizationAdapter implements IStorageVirtualizati
 
     @Override
     public boolean isHashTypeSupported(HASH_TYPE type) {
-        return false;
+        return type != null && ChecksumUtils.isSupported(ChecksumUtils.getAlgorithm(type));
     }
 
     @Override
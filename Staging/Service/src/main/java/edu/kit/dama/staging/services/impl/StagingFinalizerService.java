@@ -0,0 +1,567 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.staging.services.impl;
+
+import edu.kit.dama.authorization.entities.impl.AuthorizationContext;
+import edu.kit.dama.commons.types.DigitalObjectId;
+import edu.kit.dama.staging.entities.download.DOWNLOAD_STATUS;
+import edu.kit.dama.staging.entities.download.DownloadInformation;
+import edu.kit.dama.staging.entities.ingest.INGEST_STATUS;
+import edu.kit.dama.staging.entities.ingest.IngestInformation;
+import edu.kit.dama.staging.services.impl.download.DownloadInformationPersistenceImpl;
+import edu.kit.dama.staging.services.impl.download.DownloadInformationServiceLocal;
+import edu.kit.dama.staging.services.impl.ingest.IngestInformationPersistenceImpl;
+import edu.kit.dama.staging.services.impl.ingest.IngestInformationServiceLocal;
+import edu.kit.dama.util.DataManagerSettings;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded executor for finalizing ingests and downloads. Ingests and downloads
+ * are handled by separate pools limited by
+ * {@link DataManagerSettings#STAGING_MAX_PARALLEL_INGESTS} and
+ * {@link DataManagerSettings#STAGING_MAX_PARALLEL_DOWNLOADS}. Each pool has a
+ * queue of {@link DataManagerSettings#STAGING_FINALIZER_QUEUE_SIZE} entries. As
+ * soon as a pool and its queue are occupied, further submissions are rejected
+ * and the according transfer remains in its transferable state until the next
+ * finalizer job execution.
+ *
+ * The status of a transfer is set to INGEST_RUNNING or PREPARING not before
+ * its finalization actually starts. Until then, queued transfers keep their
+ * transferable status, so they are picked up again after a crash or shutdown.
+ * To avoid submitting them twice, the ids of all queued and running transfers
+ * are tracked and can be checked via {@link #isIngestPending(java.lang.Long)}
+ * and {@link #isDownloadPending(java.lang.Long)}.
+ *
+ * The number of free slots is tracked in memory, so finalizer jobs don't have
+ * to count running transfers in the database. As a consequence, the limits
+ * apply per JVM. If multiple KIT Data Manager instances share one database,
+ * each of them may finalize up to maxParallelIngests ingests and
+ * maxParallelDownloads downloads at the same time.
+ *
+ * @author jejkal
+ */
+public final class StagingFinalizerService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StagingFinalizerService.class);
+    /**
+     * The max. number of parallel finalizations per type.
+     */
+    private static final int MAX_PARALLEL_LIMIT = 25;
+    private static StagingFinalizerService singleton = null;
+    private final FinalizerPool ingestPool;
+    private final FinalizerPool downloadPool;
+
+    /**
+     * Returns the StagingFinalizerService instance.
+     *
+     * @return The singleton instance of the StagingFinalizerService.
+     */
+    public static synchronized StagingFinalizerService getSingleton() {
+        if (singleton == null) {
+            singleton = new StagingFinalizerService();
+        }
+        return singleton;
+    }
+
+    /**
+     * Default constructor reading the pool sizes from the DataManagerSettings.
+     */
+    StagingFinalizerService() {
+        int queueSize = DataManagerSettings.getSingleton().getIntProperty(DataManagerSettings.STAGING_FINALIZER_QUEUE_SIZE, 10);
+        if (queueSize < 0) {
+            LOGGER.warn("Property " + DataManagerSettings.STAGING_FINALIZER_QUEUE_SIZE + " is set to {}. Using a queue size of 0.", queueSize);
+            queueSize = 0;
+        }
+        ingestPool = new FinalizerPool("ingest", getParallelLimit(DataManagerSettings.STAGING_MAX_PARALLEL_INGESTS), queueSize);
+        downloadPool = new FinalizerPool("download", getParallelLimit(DataManagerSettings.STAGING_MAX_PARALLEL_DOWNLOADS), queueSize);
+    }
+
+    /**
+     * Read the parallel limit stored at the provided property key. The value
+     * is restricted to the range 1 to MAX_PARALLEL_LIMIT.
+     *
+     * @param pKey The property key.
+     *
+     * @return The parallel limit.
+     */
+    private static int getParallelLimit(String pKey) {
+        int limit = DataManagerSettings.getSingleton().getIntProperty(pKey, 4);
+        if (limit > MAX_PARALLEL_LIMIT) {
+            LOGGER.warn("Property " + pKey + " is set to {} but the limit is {}.", limit, MAX_PARALLEL_LIMIT);
+            limit = MAX_PARALLEL_LIMIT;
+        } else if (limit < 1) {
+            LOGGER.warn("Property " + pKey + " is set to {}. Using a limit of 1.", limit);
+            limit = 1;
+        }
+        return limit;
+    }
+
+    /**
+     * Get the number of ingests that can be submitted without being rejected.
+     *
+     * @return The number of free ingest slots.
+     */
+    public int getFreeIngestSlots() {
+        return ingestPool.getFreeSlots();
+    }
+
+    /**
+     * Get the number of downloads that can be submitted without being
+     * rejected.
+     *
+     * @return The number of free download slots.
+     */
+    public int getFreeDownloadSlots() {
+        return downloadPool.getFreeSlots();
+    }
+
+    /**
+     * Check whether the ingest with the provided id is queued or running.
+     *
+     * @param pId The ingest id.
+     *
+     * @return TRUE if the ingest was submitted and is not finished, yet.
+     */
+    public boolean isIngestPending(Long pId) {
+        return ingestPool.isPending(pId);
+    }
+
+    /**
+     * Check whether the download with the provided id is queued or running.
+     *
+     * @param pId The download id.
+     *
+     * @return TRUE if the download was submitted and is not finished, yet.
+     */
+    public boolean isDownloadPending(Long pId) {
+        return downloadPool.isPending(pId);
+    }
+
+    /**
+     * Submit the provided ingest for finalization. The ingest is expected to
+     * be in status PRE_INGEST_FINISHED. Its status is set to INGEST_RUNNING as
+     * soon as the finalization starts. If the ingest is rejected or already
+     * pending, its status remains unchanged.
+     *
+     * @param pIngest The ingest to finalize.
+     *
+     * @return TRUE if the ingest was accepted, FALSE if the pool is occupied,
+     * shut down or if the ingest is already pending.
+     */
+    public boolean submitIngest(IngestInformation pIngest) {
+        return ingestPool.submit(new IngestTask(pIngest));
+    }
+
+    /**
+     * Submit the provided download for finalization. The download is expected
+     * to be in status SCHEDULED. Its status is set to PREPARING as soon as the
+     * finalization starts. If the download is rejected or already pending, its
+     * status remains unchanged.
+     *
+     * @param pDownload The download to finalize.
+     *
+     * @return TRUE if the download was accepted, FALSE if the pool is occupied,
+     * shut down or if the download is already pending.
+     */
+    public boolean submitDownload(DownloadInformation pDownload) {
+        return downloadPool.submit(new DownloadTask(pDownload));
+    }
+
+    /**
+     * Get the number of ingests queued or running.
+     *
+     * @return The number of pending ingests.
+     */
+    public int getPendingIngests() {
+        return ingestPool.pending.get();
+    }
+
+    /**
+     * Get the number of downloads queued or running.
+     *
+     * @return The number of pending downloads.
+     */
+    public int getPendingDownloads() {
+        return downloadPool.pending.get();
+    }
+
+    /**
+     * Get the number of ingests waiting for execution.
+     *
+     * @return The ingest queue depth.
+     */
+    public int getIngestQueueDepth() {
+        return ingestPool.executor.getQueue().size();
+    }
+
+    /**
+     * Get the number of downloads waiting for execution.
+     *
+     * @return The download queue depth.
+     */
+    public int getDownloadQueueDepth() {
+        return downloadPool.executor.getQueue().size();
+    }
+
+    /**
+     * Get the number of ingests currently being finalized.
+     *
+     * @return The number of active ingests.
+     */
+    public int getActiveIngests() {
+        return ingestPool.executor.getActiveCount();
+    }
+
+    /**
+     * Get the number of downloads currently being finalized.
+     *
+     * @return The number of active downloads.
+     */
+    public int getActiveDownloads() {
+        return downloadPool.executor.getActiveCount();
+    }
+
+    /**
+     * Get the number of ingests finalized since startup.
+     *
+     * @return The number of completed ingests.
+     */
+    public long getCompletedIngests() {
+        return ingestPool.executor.getCompletedTaskCount();
+    }
+
+    /**
+     * Get the number of downloads finalized since startup.
+     *
+     * @return The number of completed downloads.
+     */
+    public long getCompletedDownloads() {
+        return downloadPool.executor.getCompletedTaskCount();
+    }
+
+    /**
+     * Shut down the finalizer pools. Queued transfers are removed. As their
+     * status has not been changed, yet, they are picked up again after the
+     * next startup. Running finalizations are awaited until the provided timeout
+     * has elapsed and are interrupted afterwards.
+     *
+     * @param pTimeout The timeout in milliseconds.
+     */
+    public void shutdown(long pTimeout) {
+        LOGGER.info("Shutting down staging finalizer service.");
+        long end = System.currentTimeMillis() + pTimeout;
+        ingestPool.shutdown();
+        downloadPool.shutdown();
+        ingestPool.awaitTermination(end);
+        downloadPool.awaitTermination(end);
+    }
+
+    /**
+     * Bounded pool for one transfer type.
+     */
+    static final class FinalizerPool {
+
+        private final String type;
+        private final int capacity;
+        private final AtomicInteger pending = new AtomicInteger(0);
+        private final Set<Long> pendingIds = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+        private final ThreadPoolExecutor executor;
+
+        /**
+         * Default constructor.
+         *
+         * @param pType The transfer type used for logging and thread names.
+         * @param pThreads The number of finalizer threads.
+         * @param pQueueSize The number of finalizations that can be queued.
+         */
+        FinalizerPool(final String pType, int pThreads, int pQueueSize) {
+            type = pType;
+            capacity = pThreads + pQueueSize;
+            executor = new ThreadPoolExecutor(pThreads, pThreads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(Math.max(1, pQueueSize)), new ThreadFactory() {
+                private final AtomicInteger threadCount = new AtomicInteger(0);
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, pType + "-finalizer-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+            LOGGER.debug("Initialized {} finalizer pool with {} thread(s) and a queue size of {}.", new Object[]{pType, pThreads, pQueueSize});
+        }
+
+        /**
+         * Get the number of tasks that can be submitted.
+         *
+         * @return The number of free slots.
+         */
+        int getFreeSlots() {
+            if (executor.isShutdown()) {
+                return 0;
+            }
+            return Math.max(0, capacity - pending.get());
+        }
+
+        /**
+         * Check whether a task for the provided entity id is queued or
+         * running.
+         *
+         * @param pId The entity id.
+         *
+         * @return TRUE if the task is pending.
+         */
+        boolean isPending(Long pId) {
+            return pendingIds.contains(pId);
+        }
+
+        /**
+         * Submit the provided task. The task is rejected if there is no free
+         * slot or if a task for the same entity is already pending.
+         *
+         * @param pTask The task.
+         *
+         * @return TRUE if the task was accepted.
+         */
+        boolean submit(final FinalizerTask pTask) {
+            if (!pendingIds.add(pTask.getEntityId())) {
+                LOGGER.debug("{} is already pending. Skipping submission.", pTask);
+                return false;
+            }
+            if (pending.incrementAndGet() > capacity) {
+                pending.decrementAndGet();
+                pendingIds.remove(pTask.getEntityId());
+                LOGGER.debug("No free {} finalizer slot available. Rejecting {}.", type, pTask);
+                return false;
+            }
+            try {
+                executor.execute(new PooledTask(pTask));
+            } catch (RejectedExecutionException ex) {
+                pending.decrementAndGet();
+                pendingIds.remove(pTask.getEntityId());
+                LOGGER.debug("Finalizer pool for type " + type + " rejected " + pTask + ".", ex);
+                return false;
+            }
+            LOGGER.debug("Submitted {}. Active {} finalizers: {}, queued: {}.", new Object[]{pTask, type, executor.getActiveCount(), executor.getQueue().size()});
+            return true;
+        }
+
+        /**
+         * Shut down the pool and remove all queued tasks.
+         *
+         * @return The number of removed tasks.
+         */
+        int shutdown() {
+            List<Runnable> queued = new ArrayList<>();
+            executor.getQueue().drainTo(queued);
+            executor.shutdown();
+            if (!queued.isEmpty()) {
+                LOGGER.info("Removed {} queued {} finalization(s).", queued.size(), type);
+            }
+            for (Runnable r : queued) {
+                pending.decrementAndGet();
+                pendingIds.remove(((PooledTask) r).task.getEntityId());
+            }
+            return queued.size();
+        }
+
+        /**
+         * Wait for the termination of all running tasks until pEnd has been
+         * reached. Afterwards, running tasks are interrupted.
+         *
+         * @param pEnd The point in time until which termination is awaited.
+         *
+         * @return TRUE if all tasks have terminated in time.
+         */
+        boolean awaitTermination(long pEnd) {
+            try {
+                if (!executor.awaitTermination(Math.max(0, pEnd - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                    LOGGER.warn("{} finalization(s) still running after shutdown timeout. Interrupting them.", executor.getActiveCount());
+                    executor.shutdownNow();
+                    return false;
+                }
+                return true;
+            } catch (InterruptedException ex) {
+                LOGGER.warn("Interrupted while waiting for " + type + " finalizers to terminate.", ex);
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        /**
+         * Runnable wrapping a task and freeing its slot after execution.
+         */
+        private final class PooledTask implements Runnable {
+
+            private final FinalizerTask task;
+
+            /**
+             * Default constructor.
+             *
+             * @param pTask The wrapped task.
+             */
+            PooledTask(FinalizerTask pTask) {
+                task = pTask;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    if (task.start()) {
+                        task.run();
+                    } else {
+                        LOGGER.info("Skipping finalization of {}, its status has changed since it was queued.", task);
+                    }
+                } finally {
+                    pendingIds.remove(task.getEntityId());
+                    pending.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Base class for finalization tasks. Before the task is executed by the
+     * pool, start() is called to mark the transfer as running. The task is
+     * only executed if start() succeeds.
+     */
+    abstract static class FinalizerTask implements Runnable {
+
+        /**
+         * Get the id of the finalized entity.
+         *
+         * @return The entity id.
+         */
+        abstract Long getEntityId();
+
+        /**
+         * Set the transfer status to running if the transfer is still in the
+         * state it was queued in. This method is called by the executing
+         * thread immediately before run().
+         *
+         * @return TRUE if the status was changed and run() should be called,
+         * FALSE if the transfer was meanwhile processed or removed.
+         */
+        abstract boolean start();
+    }
+
+    /**
+     * Task finalizing an ingest.
+     */
+    private static final class IngestTask extends FinalizerTask {
+
+        private final IngestInformation ingest;
+
+        /**
+         * Default constructor.
+         *
+         * @param pIngest The ingest to finalize.
+         */
+        IngestTask(IngestInformation pIngest) {
+            ingest = pIngest;
+        }
+
+        @Override
+        public void run() {
+            DigitalObjectId objectId = new DigitalObjectId(ingest.getDigitalObjectId());
+            try {
+                LOGGER.info("Starting ingest runner for object id {}.", objectId);
+                boolean result = StagingService.getSingleton().finalizeIngest(objectId, AuthorizationContext.factorySystemContext());
+                LOGGER.info("Ingest runner for object id {} has {}", objectId, (result) ? "succeeded." : "failed.");
+            } catch (Exception ex) {
+                LOGGER.error("Exception occurred while finalizing ingest for object " + objectId + ".", ex);
+            } finally {
+                LOGGER.debug("Cleaned up {} ingest(s)", IngestInformationServiceLocal.getSingleton().cleanup(AuthorizationContext.factorySystemContext()));
+            }
+        }
+
+        @Override
+        Long getEntityId() {
+            return ingest.getId();
+        }
+
+        @Override
+        boolean start() {
+            LOGGER.debug("Setting ingest with id {} to {}.", ingest.getId(), INGEST_STATUS.INGEST_RUNNING);
+            return IngestInformationPersistenceImpl.getSingleton().updateStatus(ingest.getId(), INGEST_STATUS.PRE_INGEST_FINISHED, INGEST_STATUS.INGEST_RUNNING, null, AuthorizationContext.factorySystemContext()) == 1;
+        }
+
+        @Override
+        public String toString() {
+            return "ingest " + ingest.getId() + " (object id " + ingest.getDigitalObjectId() + ")";
+        }
+    }
+
+    /**
+     * Task finalizing a download.
+     */
+    private static final class DownloadTask extends FinalizerTask {
+
+        private final DownloadInformation download;
+
+        /**
+         * Default constructor.
+         *
+         * @param pDownload The download to finalize.
+         */
+        DownloadTask(DownloadInformation pDownload) {
+            download = pDownload;
+        }
+
+        @Override
+        public void run() {
+            try {
+                LOGGER.info("Starting download runner for download with transfer id {}.", download.getTransferId());
+                boolean result = StagingService.getSingleton().finalizeDownload(download);
+                LOGGER.info("Download runner for transfer id {} has {}", download.getTransferId(), (result) ? "succeeded." : "failed.");
+            } catch (Exception ex) {
+                LOGGER.error("Exception occurred while finalizing download with transfer id " + download.getTransferId() + ".", ex);
+            } finally {
+                LOGGER.debug("Cleaned up {} downloads(s)", DownloadInformationServiceLocal.getSingleton().cleanup(AuthorizationContext.factorySystemContext()));
+            }
+        }
+
+        @Override
+        Long getEntityId() {
+            return download.getId();
+        }
+
+        @Override
+        boolean start() {
+            LOGGER.debug("Setting download with id {} to {}.", download.getId(), DOWNLOAD_STATUS.PREPARING);
+            return DownloadInformationPersistenceImpl.getSingleton().updateStatus(download.getId(), DOWNLOAD_STATUS.SCHEDULED, DOWNLOAD_STATUS.PREPARING, null, AuthorizationContext.factorySystemContext()) == 1;
+        }
+
+        @Override
+        public String toString() {
+            return "download " + download.getId() + " (transfer id " + download.getTransferId() + ")";
+        }
+    }
+}
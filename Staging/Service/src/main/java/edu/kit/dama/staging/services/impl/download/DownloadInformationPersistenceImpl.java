@@ -473,7 +473,7 @@ public final class DownloadInformationPersistenceImpl implements ITransferInform
         IMetaDataManager mdm = SecureMetaDataManager.factorySecureMetaDataManager(getPersistenceUnit(), pSecurityContext);
         try {
             result = mdm.findResultList("SELECT d FROM DownloadInformation d WHERE d.status=?1 AND d.ownerUuid LIKE ?2 ORDER BY d.lastUpdate",
-                    new Object[]{DOWNLOAD_STATUS.SCHEDULED.getId(), getOwnerFromContext(pSecurityContext)}, DownloadInformation.class);
+                    new Object[]{DOWNLOAD_STATUS.SCHEDULED.getId(), getOwnerFromContext(pSecurityContext)}, DownloadInformation.class, 0, pMaxResults);
         } catch (UnauthorizedAccessAttemptException ex) {
             LOGGER.error("Not authorized to get transferable downloads using context " + pSecurityContext, ex);
         } finally {
@@ -518,6 +518,28 @@ public final class DownloadInformationPersistenceImpl implements ITransferInform
         return result;
     }
 
+    @Override
+    public int updateStatus(long pId, DOWNLOAD_STATUS pExpectedStatus, DOWNLOAD_STATUS pStatus, String pErrorMessage, IAuthorizationContext pSecurityContext) {
+        if (pExpectedStatus == null) {
+            throw new IllegalArgumentException("Argument pExpectedStatus must not be 'null'");
+        }
+        if (pStatus == null) {
+            throw new IllegalArgumentException("Argument pStatus must not be 'null'");
+        }
+        LOGGER.debug("Updating status of download {} from status {} to status {} and error message {}", pId, pExpectedStatus, pStatus, pErrorMessage);
+        IMetaDataManager mdm = SecureMetaDataManager.factorySecureMetaDataManager(getPersistenceUnit(), pSecurityContext);
+        int result = 0;
+        try {
+            result = mdm.performUpdate("UPDATE DownloadInformation x SET x.status = ?2, x.errorMessage = ?3, x.lastUpdate = ?4 WHERE x.id = ?1 AND x.ownerUuid LIKE ?5 AND x.status = ?6",
+                    new Object[]{pId, pStatus.getId(), pErrorMessage, System.currentTimeMillis(), getOwnerFromContext(pSecurityContext), pExpectedStatus.getId()});
+        } catch (UnauthorizedAccessAttemptException ex) {
+            LOGGER.error("Not authorized to update status for download with id " + pId + " using context " + pSecurityContext, ex);
+        } finally {
+            mdm.close();
+        }
+        return result;
+    }
+
     @Override
     public int updateClientAccessUrl(long pId, String pClientAccessUrl, IAuthorizationContext pSecurityContext) {
         if (pClientAccessUrl == null) {
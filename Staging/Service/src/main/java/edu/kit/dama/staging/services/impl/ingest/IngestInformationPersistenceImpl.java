@@ -471,7 +471,7 @@ public final class IngestInformationPersistenceImpl implements ITransferInformat
         IMetaDataManager mdm = SecureMetaDataManager.factorySecureMetaDataManager(getPersistenceUnit(), pSecurityContext);
         try {
             result = mdm.findResultList("SELECT i FROM IngestInformation i WHERE i.status=?1 AND i.ownerUuid LIKE ?2 ORDER BY i.lastUpdate",
-                    new Object[]{INGEST_STATUS.PRE_INGEST_FINISHED.getId(), getOwnerFromContext(pSecurityContext)}, IngestInformation.class);
+                    new Object[]{INGEST_STATUS.PRE_INGEST_FINISHED.getId(), getOwnerFromContext(pSecurityContext)}, IngestInformation.class, 0, pMaxResults);
         } catch (UnauthorizedAccessAttemptException ex) {
             LOGGER.error("Not authorized to get transferable ingests using context " + pSecurityContext, ex);
         } finally {
@@ -499,6 +499,28 @@ public final class IngestInformationPersistenceImpl implements ITransferInformat
         return result;
     }
 
+    @Override
+    public int updateStatus(long pId, INGEST_STATUS pExpectedStatus, INGEST_STATUS pStatus, String pErrorMessage, IAuthorizationContext pSecurityContext) {
+        if (pExpectedStatus == null) {
+            throw new IllegalArgumentException("Argument pExpectedStatus must not be 'null'");
+        }
+        if (pStatus == null) {
+            throw new IllegalArgumentException("Argument pStatus must not be 'null'");
+        }
+        LOGGER.debug("Updating status of ingest {} from status {} to status {} and error message {}", pId, pExpectedStatus, pStatus, pErrorMessage);
+        IMetaDataManager mdm = SecureMetaDataManager.factorySecureMetaDataManager(getPersistenceUnit(), pSecurityContext);
+        int result = 0;
+        try {
+            result = mdm.performUpdate("UPDATE IngestInformation x SET x.status = ?2, x.errorMessage = ?3, x.lastUpdate = ?4 WHERE x.id = ?1 AND x.ownerUuid LIKE ?5 AND x.status = ?6",
+                    new Object[]{pId, pStatus.getId(), pErrorMessage, System.currentTimeMillis(), getOwnerFromContext(pSecurityContext), pExpectedStatus.getId()});
+        } catch (UnauthorizedAccessAttemptException ex) {
+            LOGGER.error("Not authorized to update status for ingest with id " + pId + " using context " + pSecurityContext, ex);
+        } finally {
+            mdm.close();
+        }
+        return result;
+    }
+
     @Override
     public int updateClientAccessUrl(long pId, String pClientAccessUrl, IAuthorizationContext pSecurityContext) {
         if (pClientAccessUrl == null) {
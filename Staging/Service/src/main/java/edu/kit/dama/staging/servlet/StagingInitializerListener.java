@@ -22,6 +22,7 @@ import edu.kit.dama.staging.entities.download.DOWNLOAD_STATUS;
 import edu.kit.dama.staging.entities.download.DownloadInformation;
 import edu.kit.dama.staging.entities.ingest.INGEST_STATUS;
 import edu.kit.dama.staging.entities.ingest.IngestInformation;
+import edu.kit.dama.staging.services.impl.StagingFinalizerService;
 import edu.kit.dama.staging.services.impl.download.DownloadInformationPersistenceImpl;
 import edu.kit.dama.staging.services.impl.ingest.IngestInformationPersistenceImpl;
 import java.util.List;
@@ -50,6 +51,10 @@ import org.slf4j.LoggerFactory;
 public class StagingInitializerListener implements ServletContextListener {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(StagingInitializerListener.class);
+    /**
+     * Time in milliseconds running finalizations are awaited at shutdown.
+     */
+    private static final long SHUTDOWN_TIMEOUT = 30000;
 
     @Override
     public void contextInitialized(ServletContextEvent sce) {
@@ -98,7 +103,8 @@ public class StagingInitializerListener implements ServletContextListener {
 
     @Override
     public void contextDestroyed(ServletContextEvent sce) {
-        //nothing to do here
+        LOGGER.debug("StagingInitializerListener servlet destroyed, shutting down staging finalizers.");
+        StagingFinalizerService.getSingleton().shutdown(SHUTDOWN_TIMEOUT);
     }
 
 }
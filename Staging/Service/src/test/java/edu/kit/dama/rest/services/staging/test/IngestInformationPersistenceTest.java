@@ -310,6 +310,17 @@ public class IngestInformationPersistenceTest {
         Assert.assertEquals(0, affectedRows);
     }
 
+    @Test
+    public void updateStatusConditionally() {
+        Logger.getLogger(IngestInformationPersistenceTest.class.getName()).log(Level.INFO, "Trying to update the status of an entity twice using the initial status as condition. Expecting only the first update to succeed.");
+        IngestInformation randomEntity = getRandomEntity(secCtx);
+        int affectedRows = testCandidate.updateStatus(randomEntity.getId(), INGEST_STATUS.PREPARING, INGEST_STATUS.INGEST_RUNNING, null, secCtx);
+        Assert.assertEquals(1, affectedRows);
+        affectedRows = testCandidate.updateStatus(randomEntity.getId(), INGEST_STATUS.PREPARING, INGEST_STATUS.INGEST_RUNNING, null, secCtx);
+        Assert.assertEquals(0, affectedRows);
+        Assert.assertEquals(INGEST_STATUS.INGEST_RUNNING.getId(), testCandidate.getEntityById(randomEntity.getId(), secCtx).getStatusEnum().getId());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void updateStatusToStatusUnknown() {
         Logger.getLogger(IngestInformationPersistenceTest.class.getName()).log(Level.INFO, "Trying to update the status to 'null'. Expecting IllegalArgumentException");
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.staging.adapters;
+
+import edu.kit.dama.commons.exceptions.ConfigurationException;
+import edu.kit.dama.staging.entities.StagingFile;
+import edu.kit.dama.staging.interfaces.IStorageVirtualizationServiceAdapter.HASH_TYPE;
+import edu.kit.lsdf.adalapi.AbstractFile;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for the checksum support of DefaultStorageVirtualizationAdapter.
+ *
+ * @author jejkal
+ */
+public class DefaultStorageVirtualizationAdapterTest {
+
+    private static File file;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        file = File.createTempFile("checksum", ".txt");
+        Files.write(file.toPath(), "abc".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Test
+    public void testCalculateChecksum() {
+        DefaultStorageVirtualizationAdapter adapter = new DefaultStorageVirtualizationAdapter();
+        StagingFile stagingFile = new StagingFile(new AbstractFile(file));
+        Assert.assertEquals("900150983cd24fb0d6963f7d28e17f72", adapter.calculateChecksum(stagingFile, HASH_TYPE.MD5));
+        Assert.assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", adapter.calculateChecksum(stagingFile, HASH_TYPE.SHA));
+        Assert.assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", adapter.calculateChecksum(stagingFile, HASH_TYPE.SHA256));
+    }
+
+    @Test
+    public void testCalculateChecksumOfMissingFile() {
+        DefaultStorageVirtualizationAdapter adapter = new DefaultStorageVirtualizationAdapter();
+        StagingFile stagingFile = new StagingFile(new AbstractFile(new File(file.getParentFile(), "doesNotExist.txt")));
+        Assert.assertEquals("", adapter.calculateChecksum(stagingFile, HASH_TYPE.SHA256));
+    }
+
+    @Test
+    public void testCalculateChecksumOfRemoteFile() throws Exception {
+        DefaultStorageVirtualizationAdapter adapter = new DefaultStorageVirtualizationAdapter();
+        StagingFile stagingFile = new StagingFile(new AbstractFile(new URL("http://localhost:8080/webdav/file.txt")));
+        Assert.assertEquals("", adapter.calculateChecksum(stagingFile, HASH_TYPE.SHA256));
+        Assert.assertEquals("", adapter.calculateChecksum(new StagingFile(new AbstractFile(file)), null));
+    }
+
+    @Test
+    public void testIsHashTypeSupported() {
+        DefaultStorageVirtualizationAdapter adapter = new DefaultStorageVirtualizationAdapter();
+        for (HASH_TYPE type : HASH_TYPE.values()) {
+            Assert.assertTrue(adapter.isHashTypeSupported(type));
+        }
+        Assert.assertFalse(adapter.isHashTypeSupported(null));
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testInvalidChecksumType() throws ConfigurationException {
+        BaseConfiguration config = new BaseConfiguration();
+        config.setProperty("checksumType", "CRC32");
+        config.setProperty("archiveUrl", file.getParentFile().toURI().toString());
+        new DefaultStorageVirtualizationAdapter().configure(config);
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2016 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.dama.staging.services.impl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the finalizer pools of StagingFinalizerService. The tests use
+ * stub tasks instead of ingests and downloads, so no database is needed.
+ *
+ * @author jejkal
+ */
+public class StagingFinalizerServiceTest {
+
+    private static final long TIMEOUT = 10000;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private StagingFinalizerService.FinalizerPool pool;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (pool != null) {
+            pool.shutdown();
+            pool.awaitTermination(System.currentTimeMillis() + TIMEOUT);
+        }
+    }
+
+    @Test
+    public void testStatusIsSetWhenTaskStarts() throws Exception {
+        pool = new StagingFinalizerService.FinalizerPool("test", 1, 2);
+        StubTask running = new StubTask(1L);
+        StubTask queued = new StubTask(2L);
+        Assert.assertTrue(pool.submit(running));
+        Assert.assertTrue(pool.submit(queued));
+        Assert.assertTrue(running.started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        //the second task waits for the only thread, thus it must not be marked as running
+        Assert.assertEquals(1, queued.started.getCount());
+        Assert.assertTrue(pool.isPending(1L));
+        Assert.assertTrue(pool.isPending(2L));
+
+        release.countDown();
+        Assert.assertTrue(queued.finished.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(queued.startedBeforeRun);
+        waitUntilIdle(3);
+        Assert.assertFalse(pool.isPending(1L));
+        Assert.assertFalse(pool.isPending(2L));
+    }
+
+    @Test
+    public void testCapacity() throws Exception {
+        pool = new StagingFinalizerService.FinalizerPool("test", 2, 1);
+        Assert.assertEquals(3, pool.getFreeSlots());
+        for (long i = 1; i <= 3; i++) {
+            Assert.assertTrue(pool.submit(new StubTask(i)));
+        }
+        Assert.assertEquals(0, pool.getFreeSlots());
+        StubTask rejected = new StubTask(4L);
+        Assert.assertFalse(pool.submit(rejected));
+        Assert.assertFalse(pool.isPending(4L));
+        Assert.assertEquals(1, rejected.started.getCount());
+
+        release.countDown();
+        waitUntilIdle(3);
+        Assert.assertTrue(pool.submit(rejected));
+        Assert.assertTrue(rejected.finished.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testDuplicateSubmission() throws Exception {
+        pool = new StagingFinalizerService.FinalizerPool("test", 1, 2);
+        StubTask first = new StubTask(1L);
+        StubTask duplicate = new StubTask(1L);
+        Assert.assertTrue(pool.submit(first));
+        Assert.assertFalse(pool.submit(duplicate));
+        Assert.assertEquals(2, pool.getFreeSlots());
+
+        release.countDown();
+        Assert.assertTrue(first.finished.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        waitUntilIdle(3);
+        Assert.assertEquals(1, duplicate.started.getCount());
+    }
+
+    @Test
+    public void testShutdownRemovesQueuedTasks() throws Exception {
+        pool = new StagingFinalizerService.FinalizerPool("test", 1, 2);
+        StubTask running = new StubTask(1L);
+        StubTask queued1 = new StubTask(2L);
+        StubTask queued2 = new StubTask(3L);
+        Assert.assertTrue(pool.submit(running));
+        Assert.assertTrue(pool.submit(queued1));
+        Assert.assertTrue(pool.submit(queued2));
+        Assert.assertTrue(running.started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        Assert.assertEquals(2, pool.shutdown());
+        Assert.assertFalse(pool.isPending(2L));
+        Assert.assertFalse(pool.isPending(3L));
+        Assert.assertTrue(pool.isPending(1L));
+        Assert.assertEquals(0, pool.getFreeSlots());
+        Assert.assertFalse(pool.submit(new StubTask(4L)));
+
+        release.countDown();
+        Assert.assertTrue(pool.awaitTermination(System.currentTimeMillis() + TIMEOUT));
+        Assert.assertFalse(pool.isPending(1L));
+        //queued tasks were never started, thus their status remains unchanged
+        Assert.assertEquals(1, queued1.started.getCount());
+        Assert.assertEquals(1, queued2.started.getCount());
+    }
+
+    @Test
+    public void testShutdownInterruptsAfterTimeout() throws Exception {
+        pool = new StagingFinalizerService.FinalizerPool("test", 1, 0);
+        StubTask running = new StubTask(1L);
+        Assert.assertTrue(pool.submit(running));
+        Assert.assertTrue(running.started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(0, pool.shutdown());
+        Assert.assertFalse(pool.awaitTermination(System.currentTimeMillis() + 100));
+        Assert.assertTrue(running.finished.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(running.interrupted);
+    }
+
+    @Test
+    public void testTaskIsSkippedIfStatusHasChanged() throws Exception {
+        pool = new StagingFinalizerService.FinalizerPool("test", 1, 1);
+        StubTask outdated = new StubTask(1L, false);
+        StubTask next = new StubTask(2L);
+        Assert.assertTrue(pool.submit(outdated));
+        Assert.assertTrue(pool.submit(next));
+        Assert.assertTrue(outdated.started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        //the outdated task must not run, thus the next task gets the only thread
+        Assert.assertTrue(next.started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(1, outdated.finished.getCount());
+        Assert.assertFalse(pool.isPending(1L));
+
+        release.countDown();
+        Assert.assertTrue(next.finished.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        waitUntilIdle(2);
+        Assert.assertEquals(1, outdated.finished.getCount());
+    }
+
+    /**
+     * Wait until all submitted tasks have finished and freed their slots.
+     *
+     * @param pCapacity The capacity of the pool.
+     */
+    private void waitUntilIdle(int pCapacity) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (pool.getFreeSlots() < pCapacity && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(pCapacity, pool.getFreeSlots());
+    }
+
+    /**
+     * Task blocking until the release latch of the test is opened.
+     */
+    private final class StubTask extends StagingFinalizerService.FinalizerTask {
+
+        private final Long id;
+        private final boolean claimable;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private volatile boolean startedBeforeRun = false;
+        private volatile boolean interrupted = false;
+
+        /**
+         * Default constructor.
+         *
+         * @param pId The entity id.
+         */
+        StubTask(Long pId) {
+            this(pId, true);
+        }
+
+        /**
+         * Default constructor.
+         *
+         * @param pId The entity id.
+         * @param pClaimable The result of start(), FALSE simulates a transfer
+         * whose status was changed after it was queued.
+         */
+        StubTask(Long pId, boolean pClaimable) {
+            id = pId;
+            claimable = pClaimable;
+        }
+
+        @Override
+        Long getEntityId() {
+            return id;
+        }
+
+        @Override
+        boolean start() {
+            started.countDown();
+            return claimable;
+        }
+
+        @Override
+        public void run() {
+            startedBeforeRun = started.getCount() == 0;
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            } finally {
+                finished.countDown();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "stub task " + id;
+        }
+    }
+}
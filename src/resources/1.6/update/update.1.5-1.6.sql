@@ -0,0 +1,5 @@
+-- Add full path column and index used to resolve data organization nodes by path.
+-- Trees persisted before this update have no path index and are searched in memory
+-- until they are written again.
+ALTER TABLE dataorganizationnode ADD COLUMN fullpath character varying(1024);
+CREATE INDEX idx_don_fullpath ON dataorganizationnode (digit_obj_id, viewname, fullpath);
@@ -336,10 +336,12 @@ CREATE TABLE dataorganizationnode (
     nodedepth integer,
     stepnoleaved bigint,
     fullyqualifiedtypename character varying(255),
-    value character varying(255)
+    value character varying(255),
+    fullpath character varying(1024)
 );
 
 ALTER TABLE ONLY dataorganizationnode ADD CONSTRAINT dataorganizationnode_pkey PRIMARY KEY (stepnoarrived, viewname, digit_obj_id);
+CREATE INDEX idx_don_fullpath ON dataorganizationnode (digit_obj_id, viewname, fullpath);
 
 CREATE TABLE attribute (
     id bigint NOT NULL,